@@ -0,0 +1,168 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.allocation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.hyperledger.fabric.shim.Chaincode;
+import org.hyperledger.fabric.shim.ChaincodeBase;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.SimulatedLedger;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+import com.penglecode.fabric.chaincode.bankmaster.chaincode.BankMasterChaincode;
+
+/**
+ * 资金类方法的内存分配预算检查：用线程内存分配计数器(com.sun.management.ThreadMXBean)测量每次invoke分配的字节数，
+ * 扣除模拟账本自身的开销(以一个空链码为基线)后与allocation-budget.properties中的预算比较，超出预算时抛出异常，
+ * 链码工程的单元测试(BankMasterChaincodeAllocationTest)及本模块的verify阶段都会执行该检查，从而让分配回归导致构建失败
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月14日 上午10:36:52
+ */
+public class AllocationBudgetCheck {
+
+	private static final String BUDGET_RESOURCE = "allocation-budget.properties";
+	
+	private static final String ACCOUNT_A = "6225000000000001";
+	
+	private static final String ACCOUNT_B = "6225000000000002";
+	
+	private static final String ACCOUNT_C = "6225000000000003";
+	
+	private final int warmupIterations;
+	
+	private final int measureIterations;
+	
+	private final com.sun.management.ThreadMXBean threadMXBean;
+	
+	private final SimulatedLedger ledger = new SimulatedLedger("bankchannel");
+	
+	private final Chaincode chaincode = new BankMasterChaincode();
+	
+	public AllocationBudgetCheck(int warmupIterations, int measureIterations) {
+		super();
+		this.warmupIterations = warmupIterations;
+		this.measureIterations = measureIterations;
+		this.threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if(!threadMXBean.isThreadAllocatedMemorySupported()) {
+			throw new IllegalStateException("Thread allocated memory measurement is not supported by this JVM!");
+		}
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	public static void main(String[] args) throws Exception {
+		AllocationBudgetCheck check = new AllocationBudgetCheck(20000, 20000);
+		if(!check.run(loadBudgets(), System.out)) {
+			throw new IllegalStateException("Allocation budget exceeded, see the report above!");
+		}
+	}
+	
+	public boolean run(Properties budgets, PrintStream out) {
+		prepare();
+		Map<String,List<String>> invocations = new LinkedHashMap<String,List<String>>();
+		invocations.put("depositMoney", Arrays.asList(ACCOUNT_A, "100"));
+		invocations.put("drawalMoney", Arrays.asList(ACCOUNT_A, "100"));
+		invocations.put("transferAccount", Arrays.asList(ACCOUNT_A, ACCOUNT_B, "100"));
+		invocations.put("transferToMany", Arrays.asList(ACCOUNT_A, ACCOUNT_B, "100", ACCOUNT_C, "200"));
+		
+		Map<String,byte[]> transients = new HashMap<String,byte[]>();
+		transients.put("transactionTime", "2019-01-14 10:00:00".getBytes(StandardCharsets.UTF_8));
+		
+		long baseline = measure(new NoopChaincode(), "noop", Collections.<String>emptyList(), transients);
+		out.printf("%-20s %10s %10s%n", "function", "bytes/op", "budget");
+		boolean passed = true;
+		for(Map.Entry<String,List<String>> entry : invocations.entrySet()) {
+			String function = entry.getKey();
+			long bytes = measure(chaincode, function, entry.getValue(), transients) - baseline;
+			long budget = Long.parseLong(budgets.getProperty(function, "-1"));
+			boolean exceeded = budget >= 0 && bytes > budget;
+			out.printf("%-20s %10d %10s%s%n", function, bytes, budget < 0 ? "-" : String.valueOf(budget), exceeded ? "  <-- EXCEEDED" : "");
+			passed &= !exceeded;
+		}
+		return passed;
+	}
+	
+	protected void prepare() {
+		commit(ledger.simulateInit(chaincode, Collections.singletonList("100000000")));
+		for(String accountNo : Arrays.asList(ACCOUNT_A, ACCOUNT_B, ACCOUNT_C)) {
+			String profile = "{\"accountNo\":\"" + accountNo + "\",\"realName\":\"测试\",\"idCardNo\":\"342425198607284712\",\"mobilePhone\":\"15151887280\",\"createdTime\":\"2019-01-14 09:00:00\",\"accountBalance\":100000.0}";
+			commit(ledger.simulate(chaincode, "createAccount", Collections.singletonList(profile), Collections.<String,byte[]>emptyMap()));
+		}
+	}
+	
+	/**
+	 * 测量一次模拟执行平均分配的字节数(账本状态不提交，每次执行看到的都是同一个已提交状态)
+	 */
+	protected long measure(Chaincode target, String function, List<String> args, Map<String,byte[]> transients) {
+		List<TransactionSimulation> sink = new ArrayList<TransactionSimulation>(1);
+		for(int i = 0; i < warmupIterations; i++) {
+			sink.add(0, simulate(target, function, args, transients));
+			sink.clear();
+		}
+		long threadId = Thread.currentThread().getId();
+		long before = threadMXBean.getThreadAllocatedBytes(threadId);
+		for(int i = 0; i < measureIterations; i++) {
+			sink.add(0, simulate(target, function, args, transients));
+			sink.clear();
+		}
+		long after = threadMXBean.getThreadAllocatedBytes(threadId);
+		return (after - before) / measureIterations;
+	}
+	
+	protected TransactionSimulation simulate(Chaincode target, String function, List<String> args, Map<String,byte[]> transients) {
+		TransactionSimulation simulation = ledger.simulate(target, function, args, transients);
+		if(!simulation.isEndorsed()) {
+			throw new IllegalStateException(function + " failed: " + simulation.getResponse().getMessage());
+		}
+		return simulation;
+	}
+	
+	protected void commit(TransactionSimulation simulation) {
+		if(!simulation.isEndorsed()) {
+			throw new IllegalStateException(simulation.getFunction() + " failed: " + simulation.getResponse().getMessage());
+		}
+		ledger.commitBlock(Collections.singletonList(simulation));
+	}
+	
+	public static Properties loadBudgets() throws IOException {
+		Properties budgets = new Properties();
+		try (InputStream in = AllocationBudgetCheck.class.getClassLoader().getResourceAsStream(BUDGET_RESOURCE)) {
+			if(in == null) {
+				throw new IllegalStateException("Budget resource not found: " + BUDGET_RESOURCE);
+			}
+			budgets.load(in);
+		}
+		return budgets;
+	}
+	
+	/**
+	 * 基线链码：不访问账本，直接返回成功，用于扣除模拟账本本身的分配开销
+	 */
+	static class NoopChaincode extends ChaincodeBase {
+
+		@Override
+		public Response init(ChaincodeStub stub) {
+			return newSuccessResponse();
+		}
+
+		@Override
+		public Response invoke(ChaincodeStub stub) {
+			stub.getFunction();
+			stub.getParameters();
+			return newSuccessResponse();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,227 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.analysis;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.hyperledger.fabric.shim.Chaincode;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.SimulatedLedger;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.workload.WorkloadConfig;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.workload.WorkloadGenerator;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.workload.WorkloadOperation;
+import com.penglecode.fabric.chaincode.bankmaster.chaincode.BankMasterChaincode;
+
+/**
+ * 热点key冲突分析：将生成的(或录制的)负载确定性地回放到模拟账本上，同一区块内的交易基于同一已提交状态背书(即区块内交易并发背书)，
+ * 失效的交易不重试，从而如实反映冲突的来源
+ * 
+ * 报告内容：导致失效最多的key、写入最多的key、各方法的失效率、写集大小分布，以及不同区块大小下的有效交易数及吞吐量估算，
+ * 用于基于数据决定数据布局(例如BANK_BALANCE、热门账户的拆分)
+ * 
+ * 运行：java ... ContentionAnalyzer --accounts=1000 --operations=20000 --zipfSkew=0.99 --blockSizes=10,50,100 [--top=10] [--endorsers=4]
+ * 		 [--workloadFile=workload.jsonl](回放录制的负载，在预先开户之后执行) [--saveWorkload=workload.jsonl](保存生成的负载)
+ * 其余参数同WorkloadDriver
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月18日 下午3:05:52
+ */
+public class ContentionAnalyzer {
+
+	private final WorkloadConfig config;
+	
+	private final int[] blockSizes;
+	
+	private final int top;
+	
+	private final int endorsers;
+	
+	private final Chaincode chaincode = new BankMasterChaincode();
+	
+	public ContentionAnalyzer(WorkloadConfig config, int[] blockSizes, int top, int endorsers) {
+		super();
+		this.config = config;
+		this.blockSizes = blockSizes;
+		this.top = top;
+		this.endorsers = endorsers;
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> workloadArgs = new ArrayList<String>();
+		String blockSizes = "10,50,100,200", workloadFile = null, saveWorkload = null;
+		int top = 10, endorsers = 4;
+		for(String arg : args) {
+			String name = arg.indexOf('=') < 0 ? arg : arg.substring(0, arg.indexOf('='));
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if("--blockSizes".equals(name)) {
+				blockSizes = value;
+			} else if ("--top".equals(name)) {
+				top = Integer.parseInt(value);
+			} else if ("--endorsers".equals(name)) {
+				endorsers = Integer.parseInt(value);
+			} else if ("--workloadFile".equals(name)) {
+				workloadFile = value;
+			} else if ("--saveWorkload".equals(name)) {
+				saveWorkload = value;
+			} else {
+				workloadArgs.add(arg);
+			}
+		}
+		String[] items = blockSizes.split(",");
+		int[] sizes = new int[items.length];
+		for(int i = 0; i < items.length; i++) {
+			sizes[i] = Integer.parseInt(items[i].trim());
+		}
+		WorkloadConfig config = WorkloadConfig.parse(workloadArgs.toArray(new String[0]));
+		ContentionAnalyzer analyzer = new ContentionAnalyzer(config, sizes, top, endorsers);
+		List<WorkloadOperation> operations = workloadFile == null ? analyzer.generate() : WorkloadFile.read(new File(workloadFile));
+		if(saveWorkload != null) {
+			WorkloadFile.write(new File(saveWorkload), operations);
+		}
+		analyzer.analyze(operations, System.out);
+	}
+	
+	/**
+	 * 按配置生成负载(同一seed生成的负载相同)
+	 */
+	public List<WorkloadOperation> generate() {
+		WorkloadGenerator generator = new WorkloadGenerator(config);
+		Random random = new Random(config.getSeed());
+		List<WorkloadOperation> operations = new ArrayList<WorkloadOperation>(config.getOperations());
+		for(int i = 0; i < config.getOperations(); i++) {
+			operations.add(generator.next(random));
+		}
+		return operations;
+	}
+	
+	public void analyze(List<WorkloadOperation> operations, PrintStream out) {
+		out.println("workload: " + config + ", replayed operations = " + operations.size());
+		List<ContentionStats> results = new ArrayList<ContentionStats>();
+		for(int blockSize : blockSizes) {
+			results.add(replay(operations, blockSize));
+		}
+		ContentionStats detail = results.get(0);
+		for(ContentionStats stats : results) {
+			if(stats.getBlockSize() == config.getBlockSize()) {
+				detail = stats;
+			}
+		}
+		report(out, detail, results);
+	}
+	
+	/**
+	 * 在全新的模拟账本上按指定的区块大小回放负载
+	 */
+	protected ContentionStats replay(List<WorkloadOperation> operations, int blockSize) {
+		SimulatedLedger ledger = prepare();
+		ContentionStats stats = new ContentionStats(blockSize);
+		List<TransactionSimulation> block = new ArrayList<TransactionSimulation>(blockSize);
+		for(WorkloadOperation operation : operations) {
+			long startTime = System.nanoTime();
+			TransactionSimulation simulation = ledger.simulate(chaincode, operation.getFunction(), operation.getArgs(), operation.getTransients());
+			stats.recordEndorsement(System.nanoTime() - startTime);
+			if(!simulation.isEndorsed()) {
+				stats.recordEndorsementFailure();
+			} else if(operation.isQuery() || simulation.isReadOnly()) {
+				stats.recordQuery();
+			} else {
+				block.add(simulation);
+				if(block.size() == blockSize) {
+					commit(ledger, block, stats);
+				}
+			}
+		}
+		if(!block.isEmpty()) {
+			commit(ledger, block, stats);
+		}
+		return stats;
+	}
+	
+	protected void commit(SimulatedLedger ledger, List<TransactionSimulation> block, ContentionStats stats) {
+		long startTime = System.nanoTime();
+		ledger.commitBlock(block);
+		stats.recordBlock(block, System.nanoTime() - startTime);
+		block.clear();
+	}
+	
+	/**
+	 * 初始化链码并预先开户(每笔开户交易单独成块)
+	 */
+	protected SimulatedLedger prepare() {
+		SimulatedLedger ledger = new SimulatedLedger("bankchannel");
+		TransactionSimulation init = ledger.simulateInit(chaincode, Collections.singletonList(config.getBankBalance()));
+		if(!init.isEndorsed()) {
+			throw new IllegalStateException("Init chaincode failed: " + init.getResponse().getMessage());
+		}
+		ledger.commitBlock(Collections.singletonList(init));
+		WorkloadGenerator generator = new WorkloadGenerator(config);
+		for(String accountNo : generator.getAccountNos()) {
+			WorkloadOperation operation = generator.newCreateAccount(accountNo);
+			TransactionSimulation simulation = ledger.simulate(chaincode, operation.getFunction(), operation.getArgs(), operation.getTransients());
+			if(!simulation.isEndorsed()) {
+				throw new IllegalStateException("Create account failed: " + simulation.getResponse().getMessage());
+			}
+			ledger.commitBlock(Collections.singletonList(simulation));
+		}
+		return ledger;
+	}
+	
+	protected void report(PrintStream out, ContentionStats detail, List<ContentionStats> results) {
+		out.println("----------------------------------------------------------------");
+		out.printf("detail for blockSize = %d: submitted = %d, invalidated = %d (%.2f%%), queries = %d, endorsement failures = %d%n", detail.getBlockSize(),
+				detail.getSubmittedCount(), detail.getInvalidatedCount(), rate(detail.getInvalidatedCount(), detail.getSubmittedCount()), detail.getQueryCount(), detail.getEndorsementFailureCount());
+		out.println();
+		out.printf("top %d conflicting keys (invalidations caused):%n", top);
+		for(Map.Entry<String,Integer> entry : ContentionStats.top(detail.getConflictKeys(), top)) {
+			out.printf("  %8d  %5.1f%%  %s%n", entry.getValue(), rate(entry.getValue(), detail.getInvalidatedCount()), displayKey(entry.getKey()));
+		}
+		out.println();
+		out.printf("top %d written keys (committed writes):%n", top);
+		for(Map.Entry<String,Integer> entry : ContentionStats.top(detail.getWrittenKeys(), top)) {
+			out.printf("  %8d  %5.1f%%  %s%n", entry.getValue(), rate(entry.getValue(), detail.getCommittedCount()), displayKey(entry.getKey()));
+		}
+		out.println();
+		out.println("conflict rate per function:");
+		out.printf("  %-32s %10s %10s %10s %9s%n", "function", "submitted", "mvcc", "phantom", "rate");
+		for(Map.Entry<String,long[]> entry : detail.getFunctions().entrySet()) {
+			long[] counts = entry.getValue();
+			out.printf("  %-32s %10d %10d %10d %8.2f%%%n", entry.getKey(), counts[0], counts[1], counts[2], rate(counts[1] + counts[2], counts[0]));
+		}
+		out.println();
+		out.println("write-set size distribution (keys / bytes per transaction):");
+		for(double percentile : new double[] {50, 90, 99, 100}) {
+			out.printf("  p%-5s %6d keys %10d bytes%n", percentile == 100 ? "max" : String.valueOf((int) percentile),
+					ContentionStats.percentile(detail.getWriteSetSizes(), percentile), ContentionStats.percentile(detail.getWriteSetBytes(), percentile));
+		}
+		out.println();
+		out.printf("throughput estimate (endorsers = %d, in-process costs: block time = blockSize * endorse / endorsers + validate & commit):%n", endorsers);
+		out.printf("  %9s %8s %12s %11s %12s %12s %12s%n", "blockSize", "blocks", "valid/block", "valid rate", "endorse ms", "commit ms", "est. tx/s");
+		for(ContentionStats stats : results) {
+			double validPerBlock = stats.getBlockCount() == 0 ? 0 : (double) stats.getCommittedCount() / stats.getBlockCount();
+			double blockMillis = stats.getBlockSize() * stats.getAverageEndorseMillis() / endorsers + stats.getAverageCommitMillis();
+			out.printf("  %9d %8d %12.1f %10.2f%% %12.3f %12.3f %12.0f%n", stats.getBlockSize(), stats.getBlockCount(), validPerBlock,
+					rate(stats.getCommittedCount(), stats.getSubmittedCount()), stats.getAverageEndorseMillis(), stats.getAverageCommitMillis(),
+					blockMillis == 0 ? 0 : validPerBlock * 1000 / blockMillis);
+		}
+		out.println("----------------------------------------------------------------");
+	}
+	
+	protected static double rate(long count, long total) {
+		return total == 0 ? 0 : count * 100.0 / total;
+	}
+	
+	/**
+	 * 组合键的可读形式：CUSTOMER_ACCOUNT_/6225000000000001
+	 */
+	protected static String displayKey(String key) {
+		String text = key.startsWith("\u0000") ? key.substring(1) : key;
+		text = text.endsWith("\u0000") ? text.substring(0, text.length() - 1) : text;
+		return text.replace('\u0000', '/');
+	}
+	
+}
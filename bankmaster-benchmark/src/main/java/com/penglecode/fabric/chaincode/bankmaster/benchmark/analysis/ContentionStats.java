@@ -0,0 +1,187 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation.ValidationCode;
+
+/**
+ * 一次回放的冲突统计：按key统计导致失效的次数及有效写入次数，按方法统计失效率，以及写集大小分布
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月18日 下午2:31:07
+ */
+public class ContentionStats {
+
+	private final int blockSize;
+	
+	private final Map<String,Integer> conflictKeys = new HashMap<String,Integer>();
+	
+	private final Map<String,Integer> writtenKeys = new HashMap<String,Integer>();
+	
+	/**
+	 * 方法名 -> [提交数, MVCC失效数, 幻读失效数]
+	 */
+	private final Map<String,long[]> functions = new TreeMap<String,long[]>();
+	
+	private final List<Integer> writeSetSizes = new ArrayList<Integer>();
+	
+	private final List<Integer> writeSetBytes = new ArrayList<Integer>();
+	
+	private long queryCount;
+	
+	private long endorsementFailureCount;
+	
+	private long blockCount;
+	
+	private long endorseNanos;
+	
+	private long endorseCount;
+	
+	private long commitNanos;
+	
+	public ContentionStats(int blockSize) {
+		super();
+		this.blockSize = blockSize;
+	}
+
+	public void recordEndorsement(long nanos) {
+		endorseNanos += nanos;
+		endorseCount++;
+	}
+	
+	public void recordQuery() {
+		queryCount++;
+	}
+	
+	public void recordEndorsementFailure() {
+		endorsementFailureCount++;
+	}
+	
+	public void recordBlock(List<TransactionSimulation> transactions, long nanos) {
+		blockCount++;
+		commitNanos += nanos;
+		for(TransactionSimulation transaction : transactions) {
+			long[] counts = functions.get(transaction.getFunction());
+			if(counts == null) {
+				functions.put(transaction.getFunction(), counts = new long[3]);
+			}
+			counts[0]++;
+			int bytes = 0;
+			for(byte[] value : transaction.getWriteSet().values()) {
+				bytes += value == null ? 0 : value.length;
+			}
+			writeSetSizes.add(transaction.getWriteSet().size());
+			writeSetBytes.add(bytes);
+			if(transaction.getValidationCode() == ValidationCode.VALID) {
+				for(String key : transaction.getWriteSet().keySet()) {
+					writtenKeys.merge(key, 1, Integer::sum);
+				}
+			} else {
+				counts[transaction.getValidationCode() == ValidationCode.PHANTOM_READ_CONFLICT ? 2 : 1]++;
+				if(transaction.getConflictKey() != null) {
+					conflictKeys.merge(transaction.getConflictKey(), 1, Integer::sum);
+				}
+			}
+		}
+	}
+	
+	public long getSubmittedCount() {
+		long count = 0;
+		for(long[] counts : functions.values()) {
+			count += counts[0];
+		}
+		return count;
+	}
+	
+	public long getInvalidatedCount() {
+		long count = 0;
+		for(long[] counts : functions.values()) {
+			count += counts[1] + counts[2];
+		}
+		return count;
+	}
+	
+	public long getCommittedCount() {
+		return getSubmittedCount() - getInvalidatedCount();
+	}
+	
+	public double getAverageEndorseMillis() {
+		return endorseCount == 0 ? 0 : endorseNanos / 1e6 / endorseCount;
+	}
+	
+	public double getAverageCommitMillis() {
+		return blockCount == 0 ? 0 : commitNanos / 1e6 / blockCount;
+	}
+	
+	/**
+	 * 按次数从高到低排列的前top个key
+	 */
+	public static List<Map.Entry<String,Integer>> top(Map<String,Integer> counts, int top) {
+		List<Map.Entry<String,Integer>> entries = new ArrayList<Map.Entry<String,Integer>>(counts.entrySet());
+		Collections.sort(entries, (a, b) -> {
+			int byCount = Integer.compare(b.getValue(), a.getValue());
+			return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+		});
+		return entries.subList(0, Math.min(top, entries.size()));
+	}
+	
+	/**
+	 * 百分位数(0~100)，没有数据时返回0
+	 */
+	public static int percentile(List<Integer> values, double percentile) {
+		if(values.isEmpty()) {
+			return 0;
+		}
+		int[] sorted = new int[values.size()];
+		for(int i = 0; i < sorted.length; i++) {
+			sorted[i] = values.get(i);
+		}
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public Map<String, Integer> getConflictKeys() {
+		return conflictKeys;
+	}
+
+	public Map<String, Integer> getWrittenKeys() {
+		return writtenKeys;
+	}
+
+	public Map<String, long[]> getFunctions() {
+		return functions;
+	}
+
+	public List<Integer> getWriteSetSizes() {
+		return writeSetSizes;
+	}
+
+	public List<Integer> getWriteSetBytes() {
+		return writeSetBytes;
+	}
+
+	public long getQueryCount() {
+		return queryCount;
+	}
+
+	public long getEndorsementFailureCount() {
+		return endorsementFailureCount;
+	}
+
+	public long getBlockCount() {
+		return blockCount;
+	}
+	
+}
@@ -0,0 +1,70 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.analysis;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.workload.WorkloadGenerator;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.workload.WorkloadOperation;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 录制的负载文件：每行一次链码调用 {"function":"depositMoney","args":["6225000000000001","100"],"transients":{"transactionTime":"2019-01-01 00:00:01"}}
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月18日 下午2:12:45
+ */
+public class WorkloadFile {
+
+	private static final TypeReference<Map<String,Object>> LINE_TYPE = new TypeReference<Map<String,Object>>() {};
+	
+	@SuppressWarnings("unchecked")
+	public static List<WorkloadOperation> read(File file) throws IOException {
+		List<WorkloadOperation> operations = new ArrayList<WorkloadOperation>();
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.trim().isEmpty()) {
+					continue;
+				}
+				Map<String,Object> item = JsonUtils.json2Object(line, LINE_TYPE);
+				String function = (String) item.get("function");
+				List<String> args = item.get("args") == null ? new ArrayList<String>() : (List<String>) item.get("args");
+				Map<String,byte[]> transients = new LinkedHashMap<String,byte[]>();
+				if(item.get("transients") != null) {
+					for(Map.Entry<String,String> entry : ((Map<String,String>) item.get("transients")).entrySet()) {
+						transients.put(entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+					}
+				}
+				operations.add(new WorkloadOperation(function, args, transients, WorkloadGenerator.QUERY_FUNCTIONS.contains(function)));
+			}
+		}
+		return operations;
+	}
+	
+	public static void write(File file, List<WorkloadOperation> operations) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			for(WorkloadOperation operation : operations) {
+				Map<String,String> transients = new LinkedHashMap<String,String>();
+				for(Map.Entry<String,byte[]> entry : operation.getTransients().entrySet()) {
+					transients.put(entry.getKey(), new String(entry.getValue(), StandardCharsets.UTF_8));
+				}
+				Map<String,Object> item = new LinkedHashMap<String,Object>();
+				item.put("function", operation.getFunction());
+				item.put("args", operation.getArgs());
+				item.put("transients", transients);
+				writer.write(JsonUtils.object2Json(item));
+				writer.newLine();
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,72 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 将模拟账本提交的区块写入文件形式的区块流(每行一个区块的json)，供链下读模型(bankmaster-projector)消费
+ * 
+ * 格式：{"blockNumber":0,"transactions":[{"txId":"...","function":"...","validationCode":"VALID",
+ * 			"writes":[{"key":"...","value":"<base64，删除时为null>"}],"eventName":"...","eventPayload":"<base64>"}]}
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 上午10:21:08
+ */
+public class BlockFeedWriter implements Closeable {
+
+	private static final byte NEW_LINE = '\n';
+	
+	private final OutputStream out;
+	
+	public BlockFeedWriter(File file) throws IOException {
+		super();
+		this.out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+	}
+	
+	public synchronized void write(long blockNumber, List<TransactionSimulation> transactions) {
+		List<Map<String,Object>> feedTransactions = new ArrayList<Map<String,Object>>(transactions.size());
+		for(TransactionSimulation transaction : transactions) {
+			List<Map<String,Object>> writes = new ArrayList<Map<String,Object>>(transaction.getWriteSet().size());
+			for(Map.Entry<String,byte[]> entry : transaction.getWriteSet().entrySet()) {
+				Map<String,Object> write = new LinkedHashMap<String,Object>();
+				write.put("key", entry.getKey());
+				write.put("value", entry.getValue());
+				writes.add(write);
+			}
+			Map<String,Object> feedTransaction = new LinkedHashMap<String,Object>();
+			feedTransaction.put("txId", transaction.getTxId());
+			feedTransaction.put("function", transaction.getFunction());
+			feedTransaction.put("validationCode", transaction.getValidationCode() == null ? null : transaction.getValidationCode().name());
+			feedTransaction.put("writes", writes);
+			feedTransaction.put("eventName", transaction.getEventName());
+			feedTransaction.put("eventPayload", transaction.getEventPayload());
+			feedTransactions.add(feedTransaction);
+		}
+		Map<String,Object> block = new LinkedHashMap<String,Object>();
+		block.put("blockNumber", blockNumber);
+		block.put("transactions", feedTransactions);
+		try {
+			out.write(JsonUtils.object2JsonBytes(block));
+			out.write(NEW_LINE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+	
+}
@@ -0,0 +1,388 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.hyperledger.fabric.protos.peer.ChaincodeEventPackage.ChaincodeEvent;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponseMetadata;
+import org.hyperledger.fabric.protos.peer.ProposalPackage.SignedProposal;
+import org.hyperledger.fabric.shim.Chaincode.Response;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyModification;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation.RangeQueryRead;
+
+/**
+ * 基于模拟账本的ChaincodeStub实现，读操作记录到交易的读集，写操作只记录到写集，提交区块时才生效
+ * 
+ * 与peer一致的约束：
+ * 1、读不到本交易自己的写入
+ * 2、分页查询只允许在只读交易中使用
+ * 3、每笔交易只保留最后一次setEvent的事件
+ * 4、invokeChaincode只支持同一模拟通道上的链码，被调用链码的读写集记入本交易
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 下午1:45:21
+ */
+public class SimulatedChaincodeStub implements ChaincodeStub {
+
+	private static final String MAX_UNICODE_RUNE = "\udbff\udfff";
+	
+	private final SimulatedLedger ledger;
+	
+	private final TransactionSimulation simulation;
+	
+	private final Map<String,byte[]> transients;
+	
+	private final Instant txTimestamp = Instant.now();
+	
+	private boolean paginatedQueriesPerformed;
+	
+	public SimulatedChaincodeStub(SimulatedLedger ledger, TransactionSimulation simulation, Map<String,byte[]> transients) {
+		super();
+		this.ledger = ledger;
+		this.simulation = simulation;
+		this.transients = transients == null ? Collections.<String,byte[]>emptyMap() : Collections.unmodifiableMap(transients);
+	}
+
+	@Override
+	public List<byte[]> getArgs() {
+		List<byte[]> args = new ArrayList<byte[]>();
+		for(String arg : getStringArgs()) {
+			args.add(arg.getBytes(StandardCharsets.UTF_8));
+		}
+		return args;
+	}
+
+	@Override
+	public List<String> getStringArgs() {
+		List<String> args = new ArrayList<String>();
+		args.add(simulation.getFunction());
+		args.addAll(simulation.getArgs());
+		return args;
+	}
+
+	@Override
+	public String getFunction() {
+		return simulation.getFunction();
+	}
+
+	@Override
+	public List<String> getParameters() {
+		return simulation.getArgs();
+	}
+
+	@Override
+	public String getTxId() {
+		return simulation.getTxId();
+	}
+
+	@Override
+	public String getChannelId() {
+		return ledger.getChannelId();
+	}
+
+	@Override
+	public Response invokeChaincode(String chaincodeName, List<byte[]> args, String channel) {
+		if(ledger.getChannel() == null) {
+			throw new UnsupportedOperationException("invokeChaincode is only supported by ledgers deployed on a simulated channel");
+		}
+		if(channel != null && !channel.isEmpty() && !channel.equals(getChannelId())) {
+			throw new UnsupportedOperationException("cross-channel invokeChaincode is not supported by the simulated channel");
+		}
+		return ledger.getChannel().invokeChaincode(simulation, chaincodeName, args, transients);
+	}
+
+	@Override
+	public byte[] getState(String key) {
+		VersionedValue value = ledger.getCommitted(key);
+		if(!simulation.getReadSet().containsKey(key)) {
+			simulation.getReadSet().put(key, value == null ? 0L : value.getVersion());
+		}
+		return value == null ? new byte[0] : value.getValue();
+	}
+
+	@Override
+	public byte[] getStateValidationParameter(String key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void putState(String key, byte[] value) {
+		if(paginatedQueriesPerformed) {
+			throw new IllegalStateException("transaction has already performed a paginated query. Writes are not allowed");
+		}
+		if(key == null || key.isEmpty()) {
+			throw new IllegalArgumentException("key cannot be null or empty");
+		}
+		simulation.getWriteSet().put(key, value);
+	}
+
+	@Override
+	public void setStateValidationParameter(String key, byte[] value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void delState(String key) {
+		if(paginatedQueriesPerformed) {
+			throw new IllegalStateException("transaction has already performed a paginated query. Writes are not allowed");
+		}
+		simulation.getWriteSet().put(key, null);
+	}
+
+	@Override
+	public QueryResultsIterator<KeyValue> getStateByRange(String startKey, String endKey) {
+		validateSimpleKeys(startKey, endKey);
+		return executeRangeQuery(startKey == null ? "" : startKey, endKey == null ? "" : endKey);
+	}
+
+	@Override
+	public QueryResultsIteratorWithMetadata<KeyValue> getStateByRangeWithPagination(String startKey, String endKey, int pageSize, String bookmark) {
+		validateSimpleKeys(startKey, endKey);
+		return executePaginatedRangeQuery(startKey == null ? "" : startKey, endKey == null ? "" : endKey, pageSize, bookmark);
+	}
+
+	/**
+	 * 与shim一致：范围查询只能使用简单key，以组合键命名空间(\u0000)开头的key会被拒绝，组合键只能用部分组合键查询
+	 */
+	private static void validateSimpleKeys(String... keys) {
+		for(String key : keys) {
+			if(key != null && key.startsWith(CompositeKey.NAMESPACE)) {
+				throw new IllegalArgumentException(String.format("First character of the key [%s] contains a null character which is not allowed", key));
+			}
+		}
+	}
+
+	@Override
+	public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(String compositeKey) {
+		String startKey = compositeKey == null || compositeKey.isEmpty() ? CompositeKey.NAMESPACE : compositeKey;
+		return executeRangeQuery(startKey, startKey + MAX_UNICODE_RUNE);
+	}
+
+	@Override
+	public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(String objectType, String... attributes) {
+		return getStateByPartialCompositeKey(new CompositeKey(objectType, attributes));
+	}
+
+	@Override
+	public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(CompositeKey compositeKey) {
+		return getStateByPartialCompositeKey(compositeKey == null ? null : compositeKey.toString());
+	}
+
+	@Override
+	public QueryResultsIteratorWithMetadata<KeyValue> getStateByPartialCompositeKeyWithPagination(CompositeKey compositeKey, int pageSize, String bookmark) {
+		String startKey = compositeKey == null ? CompositeKey.NAMESPACE : compositeKey.toString();
+		return executePaginatedRangeQuery(startKey, startKey + MAX_UNICODE_RUNE, pageSize, bookmark);
+	}
+
+	@Override
+	public CompositeKey createCompositeKey(String objectType, String... attributes) {
+		return new CompositeKey(objectType, attributes);
+	}
+
+	@Override
+	public CompositeKey splitCompositeKey(String compositeKey) {
+		return CompositeKey.parseCompositeKey(compositeKey);
+	}
+
+	@Override
+	public QueryResultsIterator<KeyValue> getQueryResult(String query) {
+		throw new UnsupportedOperationException("rich queries are not supported by the simulated ledger");
+	}
+
+	@Override
+	public QueryResultsIteratorWithMetadata<KeyValue> getQueryResultWithPagination(String query, int pageSize, String bookmark) {
+		throw new UnsupportedOperationException("rich queries are not supported by the simulated ledger");
+	}
+
+	@Override
+	public QueryResultsIterator<KeyModification> getHistoryForKey(String key) {
+		final List<KeyModification> modifications = ledger.getHistory(key);
+		return new QueryResultsIterator<KeyModification>() {
+			@Override
+			public Iterator<KeyModification> iterator() {
+				return modifications.iterator();
+			}
+			@Override
+			public void close() throws Exception {
+			}
+		};
+	}
+
+	@Override
+	public byte[] getPrivateData(String collection, String key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void putPrivateData(String collection, String key, byte[] value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void delPrivateData(String collection, String key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void setEvent(String name, byte[] payload) {
+		if(name == null || name.trim().isEmpty()) {
+			throw new IllegalArgumentException("event name can not be nil string");
+		}
+		simulation.setEvent(name, payload);
+	}
+
+	@Override
+	public ChaincodeEvent getEvent() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public SignedProposal getSignedProposal() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Instant getTxTimestamp() {
+		return txTimestamp;
+	}
+
+	@Override
+	public Map<String, byte[]> getTransient() {
+		return transients;
+	}
+
+	@Override
+	public byte[] getCreator() {
+		return ledger.getCreator();
+	}
+
+	@Override
+	public byte[] getBinding() {
+		return new byte[0];
+	}
+	
+	protected QueryResultsIterator<KeyValue> executeRangeQuery(String startKey, String endKey) {
+		RangeQueryRead rangeRead = new RangeQueryRead(startKey, endKey);
+		rangeRead.setExhausted(false);
+		simulation.getRangeReads().add(rangeRead);
+		return new RangeQueryIterator(ledger.getCommittedRange(startKey, endKey).entrySet().iterator(), rangeRead);
+	}
+	
+	protected QueryResultsIteratorWithMetadata<KeyValue> executePaginatedRangeQuery(String startKey, String endKey, int pageSize, String bookmark) {
+		if(!simulation.getWriteSet().isEmpty()) {
+			throw new IllegalStateException("txid [" + getTxId() + "]: unsuccessful attempt to execute paginated query in a transaction with writes");
+		}
+		paginatedQueriesPerformed = true;
+		String fromKey = bookmark == null || bookmark.isEmpty() ? startKey : bookmark;
+		final List<KeyValue> page = new ArrayList<KeyValue>();
+		String nextBookmark = "";
+		for(Map.Entry<String,VersionedValue> entry : ledger.getCommittedRange(fromKey, endKey).entrySet()) {
+			if(page.size() == pageSize) {
+				nextBookmark = entry.getKey();
+				break;
+			}
+			page.add(new SimulatedKeyValue(entry.getKey(), entry.getValue().getValue()));
+		}
+		final QueryResponseMetadata metadata = QueryResponseMetadata.newBuilder().setFetchedRecordsCount(page.size()).setBookmark(nextBookmark).build();
+		return new QueryResultsIteratorWithMetadata<KeyValue>() {
+			@Override
+			public Iterator<KeyValue> iterator() {
+				return page.iterator();
+			}
+			@Override
+			public void close() throws Exception {
+			}
+			@Override
+			public QueryResponseMetadata getMetadata() {
+				return metadata;
+			}
+		};
+	}
+	
+	/**
+	 * 范围查询迭代器，迭代的同时记录范围读集
+	 */
+	static class RangeQueryIterator implements QueryResultsIterator<KeyValue>, Iterator<KeyValue> {
+		
+		private final Iterator<Map.Entry<String,VersionedValue>> delegate;
+		
+		private final RangeQueryRead rangeRead;
+		
+		public RangeQueryIterator(Iterator<Map.Entry<String,VersionedValue>> delegate, RangeQueryRead rangeRead) {
+			super();
+			this.delegate = delegate;
+			this.rangeRead = rangeRead;
+		}
+
+		@Override
+		public Iterator<KeyValue> iterator() {
+			return this;
+		}
+
+		@Override
+		public boolean hasNext() {
+			boolean hasNext = delegate.hasNext();
+			if(!hasNext) {
+				rangeRead.setExhausted(true);
+			}
+			return hasNext;
+		}
+
+		@Override
+		public KeyValue next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Map.Entry<String,VersionedValue> entry = delegate.next();
+			rangeRead.getResults().put(entry.getKey(), entry.getValue().getVersion());
+			return new SimulatedKeyValue(entry.getKey(), entry.getValue().getValue());
+		}
+
+		@Override
+		public void close() throws Exception {
+		}
+		
+	}
+	
+	static class SimulatedKeyValue implements KeyValue {
+		
+		private final String key;
+		
+		private final byte[] value;
+
+		public SimulatedKeyValue(String key, byte[] value) {
+			super();
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		public byte[] getValue() {
+			return value;
+		}
+
+		@Override
+		public String getStringValue() {
+			return new String(value, StandardCharsets.UTF_8);
+		}
+		
+	}
+	
+}
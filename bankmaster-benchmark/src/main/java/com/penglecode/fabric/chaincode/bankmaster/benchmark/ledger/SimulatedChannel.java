@@ -0,0 +1,201 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.hyperledger.fabric.shim.Chaincode;
+import org.hyperledger.fabric.shim.Chaincode.Response;
+
+/**
+ * 进程内模拟通道：同一通道上部署多个链码(例如多个账户分片)，每个链码拥有独立的世界状态(命名空间)
+ *
+ * 链码之间可以通过invokeChaincode互相调用，与peer一致，被调用链码的读写集记入调用方的交易，
+ * 提交区块时各个命名空间的读集一同校验，全部通过后各个命名空间的写集一同生效
+ *
+ * @author 	pengpeng
+ * @date	2019年1月21日 下午2:12:36
+ */
+public class SimulatedChannel {
+	
+	private final String channelId;
+	
+	private final Map<String,SimulatedLedger> ledgers = new LinkedHashMap<String,SimulatedLedger>();
+	
+	private final Map<String,Chaincode> chaincodes = new LinkedHashMap<String,Chaincode>();
+	
+	private final AtomicLong txSequence = new AtomicLong();
+	
+	/**
+	 * 通道上所有命名空间共用的读写锁：背书期间持有读锁，提交区块时持有写锁
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	/**
+	 * 被调用的链码在peer上运行于独立的链码容器中，这里用独立的线程执行，避免与调用方共享ThreadLocal等线程状态
+	 */
+	private final ExecutorService invokeExecutor = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "simulated-invoke-chaincode");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private long blockHeight;
+	
+	public SimulatedChannel(String channelId) {
+		super();
+		this.channelId = channelId;
+	}
+	
+	/**
+	 * 在通道上部署链码，返回该链码命名空间的账本
+	 */
+	public synchronized SimulatedLedger deploy(String chaincodeName, Chaincode chaincode) {
+		if(ledgers.containsKey(chaincodeName)) {
+			throw new IllegalArgumentException("Chaincode already deployed: " + chaincodeName);
+		}
+		SimulatedLedger ledger = new SimulatedLedger(this, channelId, chaincodeName);
+		ledger.setBlockHeight(blockHeight);
+		ledgers.put(chaincodeName, ledger);
+		chaincodes.put(chaincodeName, chaincode);
+		return ledger;
+	}
+	
+	public TransactionSimulation simulateInit(String chaincodeName, List<String> args) {
+		return getLedger(chaincodeName).simulateInit(chaincodes.get(chaincodeName), args);
+	}
+	
+	public TransactionSimulation simulate(String chaincodeName, String function, List<String> args, Map<String,byte[]> transients) {
+		return getLedger(chaincodeName).simulate(chaincodes.get(chaincodeName), function, args, transients);
+	}
+	
+	/**
+	 * 执行caller交易中的invokeChaincode调用：被调用链码在其命名空间的已提交状态上执行，读写集合并到caller的invokedSimulations中
+	 */
+	protected Response invokeChaincode(TransactionSimulation caller, String chaincodeName, List<byte[]> args, final Map<String,byte[]> transients) {
+		final SimulatedLedger ledger = ledgers.get(chaincodeName);
+		final Chaincode chaincode = chaincodes.get(chaincodeName);
+		if(ledger == null) {
+			return new Response(Response.Status.INTERNAL_SERVER_ERROR, String.format("chaincode %s not found on channel %s", chaincodeName, channelId), null);
+		}
+		if(args == null || args.isEmpty()) {
+			return new Response(Response.Status.INTERNAL_SERVER_ERROR, "function name is required", null);
+		}
+		List<String> stringArgs = new ArrayList<String>(args.size());
+		for(byte[] arg : args) {
+			stringArgs.add(new String(arg, StandardCharsets.UTF_8));
+		}
+		final TransactionSimulation invoked = new TransactionSimulation(caller.getTxId(), stringArgs.get(0), stringArgs.subList(1, stringArgs.size()));
+		try {
+			invokeExecutor.submit(() -> ledger.executeLocked(chaincode, invoked, transients, false)).get(); //调用方交易已持有通道级读锁
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		merge(caller.getInvokedSimulations(), invoked);
+		return invoked.getResponse();
+	}
+	
+	/**
+	 * 将一次invokeChaincode的读写集(包括其嵌套调用的读写集)合并到调用方同一命名空间的读写集中
+	 */
+	protected void merge(Map<String,TransactionSimulation> target, TransactionSimulation invoked) {
+		TransactionSimulation merged = target.get(invoked.getChaincodeName());
+		if(merged == null) {
+			merged = new TransactionSimulation(invoked.getTxId(), invoked.getFunction(), invoked.getArgs());
+			merged.setChaincodeName(invoked.getChaincodeName());
+			target.put(invoked.getChaincodeName(), merged);
+		}
+		for(Map.Entry<String,Long> entry : invoked.getReadSet().entrySet()) {
+			if(!merged.getReadSet().containsKey(entry.getKey())) {
+				merged.getReadSet().put(entry.getKey(), entry.getValue());
+			}
+		}
+		merged.getRangeReads().addAll(invoked.getRangeReads());
+		merged.getWriteSet().putAll(invoked.getWriteSet());
+		for(TransactionSimulation nested : invoked.getInvokedSimulations().values()) {
+			merge(target, nested);
+		}
+	}
+	
+	/**
+	 * 按区块顺序校验并提交交易，交易在任一命名空间上的读集校验失败都会导致整个交易失效
+	 * @param transactions	- 已背书成功的交易(可以属于通道上的不同链码)
+	 * @return 区块号
+	 */
+	public synchronized long commitBlock(List<TransactionSimulation> transactions) {
+		lock.writeLock().lock();
+		try {
+			long blockNumber = blockHeight;
+			Instant timestamp = Instant.now();
+			for(int txIndex = 0, size = transactions.size(); txIndex < size; txIndex++) {
+				TransactionSimulation transaction = transactions.get(txIndex);
+				transaction.setBlockNumber(blockNumber);
+				if(!validate(transaction)) {
+					continue;
+				}
+				long version = VersionedValue.version(blockNumber, txIndex);
+				getLedger(transaction.getChaincodeName()).apply(transaction, version, timestamp);
+				for(TransactionSimulation invoked : transaction.getInvokedSimulations().values()) {
+					getLedger(invoked.getChaincodeName()).apply(invoked, version, timestamp);
+				}
+			}
+			blockHeight = blockNumber + 1;
+			for(SimulatedLedger ledger : ledgers.values()) {
+				ledger.setBlockHeight(blockHeight);
+			}
+			return blockNumber;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	protected boolean validate(TransactionSimulation transaction) {
+		if(!getLedger(transaction.getChaincodeName()).validate(transaction)) {
+			return false;
+		}
+		for(TransactionSimulation invoked : transaction.getInvokedSimulations().values()) {
+			if(!getLedger(invoked.getChaincodeName()).validate(invoked)) {
+				transaction.setValidationCode(invoked.getValidationCode());
+				transaction.setConflictKey(invoked.getConflictKey());
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	protected String nextTxId() {
+		return String.format("tx%016x", txSequence.incrementAndGet());
+	}
+	
+	public SimulatedLedger getLedger(String chaincodeName) {
+		SimulatedLedger ledger = ledgers.get(chaincodeName);
+		if(ledger == null) {
+			throw new IllegalArgumentException("Chaincode not deployed: " + chaincodeName);
+		}
+		return ledger;
+	}
+	
+	ReentrantReadWriteLock getLock() {
+		return lock;
+	}
+	
+	public String getChannelId() {
+		return channelId;
+	}
+	
+	public long getBlockHeight() {
+		return blockHeight;
+	}
+
+}
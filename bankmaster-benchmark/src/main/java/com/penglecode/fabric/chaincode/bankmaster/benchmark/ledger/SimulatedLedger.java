@@ -0,0 +1,350 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.hyperledger.fabric.shim.Chaincode;
+import org.hyperledger.fabric.shim.ledger.KeyModification;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation.RangeQueryRead;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation.ValidationCode;
+
+/**
+ * 进程内模拟账本：带版本号的世界状态 + 历史库，按peer的方式先背书(模拟执行)后按区块顺序做MVCC校验并提交
+ * 
+ * 背书期间持有读锁，保证一次模拟执行看到的是一致的已提交状态；提交区块时持有写锁。
+ * 与真实peer一样，链码在同一笔交易中读不到自己写入的值(没有read-your-writes)。
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 上午11:12:40
+ */
+public class SimulatedLedger {
+
+	private final String channelId;
+	
+	/**
+	 * 所属的模拟通道及链码名称(命名空间)，独立使用时均为null
+	 */
+	private final SimulatedChannel channel;
+	
+	private final String chaincodeName;
+	
+	private final NavigableMap<String,VersionedValue> state = new TreeMap<String,VersionedValue>();
+	
+	private final Map<String,List<KeyModification>> history = new HashMap<String,List<KeyModification>>();
+	
+	/**
+	 * 属于模拟通道时使用通道级的锁，保证跨命名空间的invokeChaincode看到的是同一个已提交状态
+	 */
+	private final ReentrantReadWriteLock lock;
+	
+	private final AtomicLong txSequence = new AtomicLong();
+	
+	private volatile long blockHeight;
+	
+	private volatile byte[] creator = new byte[0];
+	
+	private volatile BlockFeedWriter blockFeedWriter;
+	
+	public SimulatedLedger(String channelId) {
+		this(null, channelId, null);
+	}
+	
+	SimulatedLedger(SimulatedChannel channel, String channelId, String chaincodeName) {
+		super();
+		this.channel = channel;
+		this.channelId = channelId;
+		this.chaincodeName = chaincodeName;
+		this.lock = channel != null ? channel.getLock() : new ReentrantReadWriteLock();
+	}
+
+	/**
+	 * 模拟执行链码的init方法
+	 */
+	public TransactionSimulation simulateInit(Chaincode chaincode, List<String> args) {
+		return simulate(chaincode, "init", args, Collections.<String,byte[]>emptyMap(), true);
+	}
+	
+	/**
+	 * 模拟执行链码的invoke方法(背书)
+	 */
+	public TransactionSimulation simulate(Chaincode chaincode, String function, List<String> args, Map<String,byte[]> transients) {
+		return simulate(chaincode, function, args, transients, false);
+	}
+	
+	protected TransactionSimulation simulate(Chaincode chaincode, String function, List<String> args, Map<String,byte[]> transients, boolean init) {
+		String txId = channel != null ? channel.nextTxId() : String.format("tx%016x", txSequence.incrementAndGet());
+		TransactionSimulation simulation = new TransactionSimulation(txId, function, args);
+		execute(chaincode, simulation, transients, init);
+		return simulation;
+	}
+	
+	/**
+	 * 在当前已提交状态上执行链码，读写集记录到simulation中
+	 */
+	protected void execute(Chaincode chaincode, TransactionSimulation simulation, Map<String,byte[]> transients, boolean init) {
+		lock.readLock().lock();
+		try {
+			executeLocked(chaincode, simulation, transients, init);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * 执行链码，调用方需持有读锁(invokeChaincode的被调用方由调用方交易持有的通道级读锁保护)
+	 */
+	protected void executeLocked(Chaincode chaincode, TransactionSimulation simulation, Map<String,byte[]> transients, boolean init) {
+		simulation.setChaincodeName(chaincodeName);
+		SimulatedChaincodeStub stub = new SimulatedChaincodeStub(this, simulation, transients);
+		simulation.setResponse(init ? chaincode.init(stub) : chaincode.invoke(stub));
+	}
+	
+	/**
+	 * 按区块顺序校验并提交交易：读集版本或范围查询结果发生变化的交易被标记为失效，其写集不生效
+	 * 
+	 * 属于模拟通道的账本由通道统一提交(交易可能跨多个命名空间)
+	 * @param transactions	- 已背书成功的交易
+	 * @return 区块号
+	 */
+	public long commitBlock(List<TransactionSimulation> transactions) {
+		if(channel != null) {
+			return channel.commitBlock(transactions);
+		}
+		lock.writeLock().lock();
+		try {
+			long blockNumber = blockHeight;
+			Instant timestamp = Instant.now();
+			for(int txIndex = 0, size = transactions.size(); txIndex < size; txIndex++) {
+				TransactionSimulation transaction = transactions.get(txIndex);
+				transaction.setBlockNumber(blockNumber);
+				if(validate(transaction)) {
+					apply(transaction, VersionedValue.version(blockNumber, txIndex), timestamp);
+				}
+			}
+			blockHeight = blockNumber + 1;
+			if(blockFeedWriter != null) {
+				blockFeedWriter.write(blockNumber, transactions);
+			}
+			return blockNumber;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * 将已通过校验的交易写集应用到世界状态及历史库，调用方需持有写锁
+	 */
+	protected void apply(TransactionSimulation transaction, long version, Instant timestamp) {
+		for(Map.Entry<String,byte[]> entry : transaction.getWriteSet().entrySet()) {
+			String key = entry.getKey();
+			byte[] value = entry.getValue();
+			if(value == null) {
+				state.remove(key);
+			} else {
+				state.put(key, new VersionedValue(value, version));
+			}
+			List<KeyModification> modifications = history.get(key);
+			if(modifications == null) {
+				history.put(key, modifications = new ArrayList<KeyModification>());
+			}
+			modifications.add(new SimulatedKeyModification(transaction.getTxId(), value, timestamp));
+		}
+	}
+	
+	protected boolean validate(TransactionSimulation transaction) {
+		for(Map.Entry<String,Long> entry : transaction.getReadSet().entrySet()) {
+			if(getVersion(entry.getKey()) != entry.getValue()) {
+				transaction.setValidationCode(ValidationCode.MVCC_READ_CONFLICT);
+				transaction.setConflictKey(entry.getKey());
+				return false;
+			}
+		}
+		for(RangeQueryRead rangeRead : transaction.getRangeReads()) {
+			String conflictKey = validateRangeRead(rangeRead);
+			if(conflictKey != null) {
+				transaction.setValidationCode(ValidationCode.PHANTOM_READ_CONFLICT);
+				transaction.setConflictKey(conflictKey);
+				return false;
+			}
+		}
+		transaction.setValidationCode(ValidationCode.VALID);
+		return true;
+	}
+	
+	/**
+	 * 重新执行范围查询并与背书时的结果比较，返回第一个发生变化的key，没有变化则返回null
+	 */
+	protected String validateRangeRead(RangeQueryRead rangeRead) {
+		Map<String,Long> results = rangeRead.getResults();
+		String endKey = rangeRead.getEndKey();
+		boolean endInclusive = false;
+		if(!rangeRead.isExhausted()) { //未遍历完的查询只校验到最后读取的key为止
+			if(results.isEmpty()) {
+				return null;
+			}
+			String lastKey = null;
+			for(String key : results.keySet()) {
+				lastKey = key;
+			}
+			endKey = lastKey;
+			endInclusive = true;
+		}
+		NavigableMap<String,VersionedValue> current = endKey.isEmpty() ? state.tailMap(rangeRead.getStartKey(), true) : state.subMap(rangeRead.getStartKey(), true, endKey, endInclusive);
+		if(current.size() != results.size()) {
+			for(String key : current.keySet()) {
+				if(!results.containsKey(key)) {
+					return key;
+				}
+			}
+			for(String key : results.keySet()) {
+				if(!current.containsKey(key)) {
+					return key;
+				}
+			}
+		}
+		for(Map.Entry<String,VersionedValue> entry : current.entrySet()) {
+			Long version = results.get(entry.getKey());
+			if(version == null || version != entry.getValue().getVersion()) {
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 获取key的已提交版本，key不存在时返回0
+	 */
+	protected long getVersion(String key) {
+		VersionedValue value = state.get(key);
+		return value == null ? 0 : value.getVersion();
+	}
+	
+	protected VersionedValue getCommitted(String key) {
+		return state.get(key);
+	}
+	
+	protected NavigableMap<String,VersionedValue> getCommittedRange(String startKey, String endKey) {
+		return endKey.isEmpty() ? state.tailMap(startKey, true) : state.subMap(startKey, true, endKey, false);
+	}
+	
+	protected List<KeyModification> getHistory(String key) {
+		List<KeyModification> modifications = history.get(key);
+		return modifications == null ? Collections.<KeyModification>emptyList() : new ArrayList<KeyModification>(modifications);
+	}
+	
+	/**
+	 * 当前已提交状态中key的数量
+	 */
+	public int getStateSize() {
+		lock.readLock().lock();
+		try {
+			return state.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * 读取key的已提交值(不参与任何交易)
+	 */
+	public String getCommittedStringValue(String key) {
+		lock.readLock().lock();
+		try {
+			VersionedValue value = state.get(key);
+			return value == null ? null : new String(value.getValue(), StandardCharsets.UTF_8);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	public String getChannelId() {
+		return channelId;
+	}
+
+	public SimulatedChannel getChannel() {
+		return channel;
+	}
+
+	public String getChaincodeName() {
+		return chaincodeName;
+	}
+	
+	void setBlockHeight(long blockHeight) {
+		this.blockHeight = blockHeight;
+	}
+
+	public long getBlockHeight() {
+		return blockHeight;
+	}
+
+	public byte[] getCreator() {
+		return creator;
+	}
+
+	/**
+	 * 设置后续模拟交易的提交者身份(序列化的SerializedIdentity)
+	 */
+	public void setCreator(byte[] creator) {
+		this.creator = creator;
+	}
+	
+	/**
+	 * 设置区块流输出，此后提交的每个区块都会写入区块流
+	 */
+	public void setBlockFeedWriter(BlockFeedWriter blockFeedWriter) {
+		this.blockFeedWriter = blockFeedWriter;
+	}
+	
+	static class SimulatedKeyModification implements KeyModification {
+
+		private final String txId;
+		
+		private final byte[] value;
+		
+		private final Instant timestamp;
+		
+		public SimulatedKeyModification(String txId, byte[] value, Instant timestamp) {
+			super();
+			this.txId = txId;
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+
+		@Override
+		public String getTxId() {
+			return txId;
+		}
+
+		@Override
+		public byte[] getValue() {
+			return value == null ? new byte[0] : value;
+		}
+
+		@Override
+		public String getStringValue() {
+			return new String(getValue(), StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public Instant getTimestamp() {
+			return timestamp;
+		}
+
+		@Override
+		public boolean isDeleted() {
+			return value == null;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,221 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hyperledger.fabric.shim.Chaincode.Response;
+
+/**
+ * 一笔交易在模拟账本上的背书(模拟执行)结果：响应、读集、范围查询读集、写集以及链码事件
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 上午11:02:47
+ */
+public class TransactionSimulation {
+
+	private final String txId;
+	
+	private final String function;
+	
+	private final List<String> args;
+	
+	/**
+	 * 读集：key -> 读取时的已提交版本(0表示读取时key不存在)
+	 */
+	private final Map<String,Long> readSet = new LinkedHashMap<String,Long>();
+	
+	/**
+	 * 范围查询读集，提交时用于幻读校验
+	 */
+	private final List<RangeQueryRead> rangeReads = new ArrayList<RangeQueryRead>();
+	
+	/**
+	 * 写集：key -> 新值(null表示删除)
+	 */
+	private final Map<String,byte[]> writeSet = new LinkedHashMap<String,byte[]>();
+	
+	/**
+	 * 通过invokeChaincode调用同一通道上的其他链码时，在被调用链码命名空间上产生的读写集：链码名称 -> 读写集
+	 */
+	private final Map<String,TransactionSimulation> invokedSimulations = new LinkedHashMap<String,TransactionSimulation>();
+	
+	/**
+	 * 交易所在的链码名称(命名空间)，不属于模拟通道时为null
+	 */
+	private String chaincodeName;
+	
+	private Response response;
+	
+	private String eventName;
+	
+	private byte[] eventPayload;
+	
+	private ValidationCode validationCode;
+	
+	/**
+	 * 导致交易失效的key
+	 */
+	private String conflictKey;
+	
+	private long blockNumber = -1;
+	
+	public TransactionSimulation(String txId, String function, List<String> args) {
+		super();
+		this.txId = txId;
+		this.function = function;
+		this.args = args;
+	}
+
+	public boolean isReadOnly() {
+		if(!writeSet.isEmpty()) {
+			return false;
+		}
+		for(TransactionSimulation invoked : invokedSimulations.values()) {
+			if(!invoked.isReadOnly()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public boolean isEndorsed() {
+		return response != null && response.getStatus() == Response.Status.SUCCESS;
+	}
+	
+	public String getTxId() {
+		return txId;
+	}
+
+	public String getFunction() {
+		return function;
+	}
+
+	public List<String> getArgs() {
+		return args;
+	}
+
+	public Map<String, Long> getReadSet() {
+		return readSet;
+	}
+
+	public List<RangeQueryRead> getRangeReads() {
+		return rangeReads;
+	}
+
+	public Map<String, byte[]> getWriteSet() {
+		return writeSet;
+	}
+
+	public Map<String, TransactionSimulation> getInvokedSimulations() {
+		return invokedSimulations;
+	}
+
+	public String getChaincodeName() {
+		return chaincodeName;
+	}
+
+	public void setChaincodeName(String chaincodeName) {
+		this.chaincodeName = chaincodeName;
+	}
+
+	public Response getResponse() {
+		return response;
+	}
+
+	public void setResponse(Response response) {
+		this.response = response;
+	}
+
+	public String getEventName() {
+		return eventName;
+	}
+
+	public byte[] getEventPayload() {
+		return eventPayload;
+	}
+
+	public void setEvent(String eventName, byte[] eventPayload) {
+		this.eventName = eventName;
+		this.eventPayload = eventPayload;
+	}
+
+	public ValidationCode getValidationCode() {
+		return validationCode;
+	}
+
+	public void setValidationCode(ValidationCode validationCode) {
+		this.validationCode = validationCode;
+	}
+
+	public String getConflictKey() {
+		return conflictKey;
+	}
+
+	public void setConflictKey(String conflictKey) {
+		this.conflictKey = conflictKey;
+	}
+
+	public long getBlockNumber() {
+		return blockNumber;
+	}
+
+	public void setBlockNumber(long blockNumber) {
+		this.blockNumber = blockNumber;
+	}
+
+	/**
+	 * 交易的校验结果，对应peer的TxValidationCode
+	 */
+	public static enum ValidationCode {
+		
+		VALID, MVCC_READ_CONFLICT, PHANTOM_READ_CONFLICT;
+		
+	}
+	
+	/**
+	 * 一次范围查询的读集：查询区间以及查询结果中各key的版本
+	 */
+	public static class RangeQueryRead {
+		
+		private final String startKey;
+		
+		private final String endKey;
+		
+		private final Map<String,Long> results = new LinkedHashMap<String,Long>();
+		
+		/**
+		 * 查询是否被提前终止(迭代器未遍历完)，此时只校验已读到的最后一个key之前的区间
+		 */
+		private boolean exhausted = true;
+
+		public RangeQueryRead(String startKey, String endKey) {
+			super();
+			this.startKey = startKey;
+			this.endKey = endKey;
+		}
+
+		public String getStartKey() {
+			return startKey;
+		}
+
+		public String getEndKey() {
+			return endKey;
+		}
+
+		public Map<String, Long> getResults() {
+			return results;
+		}
+
+		public boolean isExhausted() {
+			return exhausted;
+		}
+
+		public void setExhausted(boolean exhausted) {
+			this.exhausted = exhausted;
+		}
+		
+	}
+	
+}
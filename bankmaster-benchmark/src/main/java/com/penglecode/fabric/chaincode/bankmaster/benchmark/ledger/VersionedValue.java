@@ -0,0 +1,36 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger;
+
+/**
+ * 模拟账本中带版本号的已提交值
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 上午11:05:13
+ */
+public class VersionedValue {
+
+	private final byte[] value;
+	
+	/**
+	 * 版本号：(区块号 << 20) | 交易在区块中的序号，始终大于0
+	 */
+	private final long version;
+	
+	public VersionedValue(byte[] value, long version) {
+		super();
+		this.value = value;
+		this.version = version;
+	}
+
+	public byte[] getValue() {
+		return value;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+	
+	public static long version(long blockNumber, int txIndex) {
+		return ((blockNumber + 1) << 20) | txIndex;
+	}
+	
+}
@@ -0,0 +1,283 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.sharding;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.SimulatedChannel;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation.ValidationCode;
+import com.penglecode.fabric.chaincode.bankmaster.chaincode.BankMasterChaincode;
+import com.penglecode.fabric.chaincode.bankmaster.domain.ShardConfig;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 跨分片转账协议检查：在同一个模拟通道上部署多个账户分片，执行同分片转账以及跨分片的holdTransfer/creditTransfer/releaseTransfer，
+ * 跨分片转账按阶段成批推进(同时存在多笔在途转账)，其中转入账户不存在的转账走cancelTransfer撤销，另有入账与撤销并发提交的竞争场景，
+ * 最后校验每个账户的余额、各分片汇总的银行资产以及在途金额，不一致时抛出异常(链码工程的单元测试及本模块的verify阶段都会执行该检查)
+ *
+ * 运行：mvn -q compile exec:java -Dexec.mainClass=com.penglecode.fabric.chaincode.bankmaster.benchmark.sharding.ShardedTransferCheck -Dexec.args="4 40 400"
+ *
+ * @author 	pengpeng
+ * @date	2019年1月21日 下午3:26:18
+ */
+public class ShardedTransferCheck {
+	
+	private static final String CHAINCODE_NAME_PREFIX = "bankmaster";
+	
+	private static final double SHARD_BANK_BALANCE = 1000000;
+	
+	private static final double INITIAL_ACCOUNT_BALANCE = 10000;
+	
+	private static final double EPSILON = 1e-6;
+	
+	private final int shardCount;
+	
+	private final int accountCount;
+	
+	private final int transferCount;
+	
+	private final Random random = new Random(20190121L);
+	
+	private final SimulatedChannel channel = new SimulatedChannel("bankchannel");
+	
+	private final ShardConfig router = new ShardConfig();
+	
+	/**
+	 * 账户卡号 -> 期望余额
+	 */
+	private final Map<String,Double> expectedBalances = new LinkedHashMap<String,Double>();
+	
+	private final Map<String,byte[]> transients = new HashMap<String,byte[]>();
+	
+	private int transferSeq;
+	
+	public ShardedTransferCheck(int shardCount, int accountCount, int transferCount) {
+		super();
+		this.shardCount = shardCount;
+		this.accountCount = accountCount;
+		this.transferCount = transferCount;
+		this.router.setShardCount(shardCount);
+		this.transients.put("transactionTime", "2019-01-21 15:00:00".getBytes(StandardCharsets.UTF_8));
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int shardCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+		int transferCount = args.length > 2 ? Integer.parseInt(args[2]) : 400;
+		new ShardedTransferCheck(shardCount, accountCount, transferCount).run(System.out);
+	}
+	
+	public void run(PrintStream out) {
+		prepare();
+		int localCount = 0, settledCount = 0, cancelledCount = 0;
+		List<String[]> crossShard = new ArrayList<String[]>();
+		List<String> accountNos = new ArrayList<String>(expectedBalances.keySet());
+		for(int i = 0; i < transferCount; i++) {
+			String outAccountNo = accountNos.get(random.nextInt(accountNos.size()));
+			String inAccountNo = accountNos.get(random.nextInt(accountNos.size()));
+			if(outAccountNo.equals(inAccountNo)) {
+				continue;
+			}
+			double amount = 1 + random.nextInt(100);
+			if(random.nextInt(10) == 0) { //转入账户不存在，入账失败后撤销
+				inAccountNo = createMissingAccountNo(outAccountNo);
+			}
+			if(router.routeShard(outAccountNo) == router.routeShard(inAccountNo)) {
+				execute(router.routeShard(outAccountNo), "transferAccount", outAccountNo, inAccountNo, String.valueOf(amount));
+				transfer(outAccountNo, inAccountNo, amount);
+				localCount++;
+			} else {
+				crossShard.add(new String[] {String.format("T%08d", ++transferSeq), outAccountNo, inAccountNo, String.valueOf(amount)});
+			}
+			if(crossShard.size() == 50 || i == transferCount - 1) {
+				int[] counts = runCrossShard(crossShard);
+				settledCount += counts[0];
+				cancelledCount += counts[1];
+				crossShard.clear();
+			}
+		}
+		boolean raceResolved = runCreditCancelRace(accountNos);
+		verify(raceResolved);
+		out.printf("shards=%d accounts=%d local=%d crossShardSettled=%d crossShardCancelled=%d creditCancelRace=%s%n",
+				shardCount, accountCount, localCount, settledCount, cancelledCount, raceResolved ? "OK" : "FAILED");
+		out.println("Sharded transfer check passed.");
+	}
+	
+	protected void prepare() {
+		List<String> chaincodeNames = new ArrayList<String>();
+		for(int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+			chaincodeNames.add(CHAINCODE_NAME_PREFIX + shardIndex);
+		}
+		router.setChaincodeNames(chaincodeNames);
+		List<TransactionSimulation> block = new ArrayList<TransactionSimulation>();
+		for(int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+			channel.deploy(chaincodeNames.get(shardIndex), new BankMasterChaincode());
+			String shardConfig = String.format("{\"shardIndex\":%d,\"shardCount\":%d,\"chaincodeNames\":%s}", shardIndex, shardCount, JsonUtils.object2Json(chaincodeNames));
+			block.add(checkEndorsed(channel.simulateInit(chaincodeNames.get(shardIndex), Arrays.asList(String.valueOf(SHARD_BANK_BALANCE), shardConfig))));
+		}
+		commitValid(block); //各分片的命名空间互不冲突，可以在同一区块提交
+		for(int i = 1; i <= accountCount; i++) {
+			String accountNo = String.format("6225%012d", i);
+			String profile = "{\"accountNo\":\"" + accountNo + "\",\"realName\":\"测试\",\"idCardNo\":\"342425198607284712\",\"mobilePhone\":\"15151887280\",\"createdTime\":\"2019-01-21 09:00:00\",\"accountBalance\":" + INITIAL_ACCOUNT_BALANCE + "}";
+			execute(router.routeShard(accountNo), "createAccount", profile);
+			expectedBalances.put(accountNo, INITIAL_ACCOUNT_BALANCE);
+		}
+	}
+	
+	/**
+	 * 按阶段推进一批跨分片转账：全部冻结 -> 全部入账(部分因转入账户不存在而失败) -> 结清或撤销，并穿插客户端重试
+	 * 
+	 * 同一分片上的交易都会读写该分片的BANK_BALANCE，因此每笔交易单独成块提交
+	 * @return [结清笔数, 撤销笔数]
+	 */
+	protected int[] runCrossShard(List<String[]> transfers) {
+		for(String[] transfer : transfers) {
+			execute(router.routeShard(transfer[1]), "holdTransfer", transfer);
+		}
+		for(String[] transfer : transfers) { //重复冻结不能再次扣款
+			TransactionSimulation simulation = endorse(router.routeShard(transfer[1]), "holdTransfer", transfer);
+			if(!simulation.isReadOnly()) {
+				throw new IllegalStateException("holdTransfer retry wrote to the ledger: " + transfer[0]);
+			}
+		}
+		
+		List<String[]> credited = new ArrayList<String[]>(), failed = new ArrayList<String[]>();
+		for(String[] transfer : transfers) {
+			TransactionSimulation simulation = channel.simulate(chaincodeName(transfer[2]), "creditTransfer", Arrays.asList(transfer[0], transfer[1]), transients);
+			if(simulation.isEndorsed()) {
+				commitValid(Collections.singletonList(simulation));
+				credited.add(transfer);
+			} else if (expectedBalances.containsKey(transfer[2])) {
+				throw new IllegalStateException("creditTransfer failed: " + simulation.getResponse().getMessage());
+			} else {
+				failed.add(transfer);
+			}
+		}
+		
+		for(String[] transfer : credited) {
+			execute(router.routeShard(transfer[1]), "releaseTransfer", transfer[0]);
+			transfer(transfer[1], transfer[2], Double.parseDouble(transfer[3]));
+		}
+		for(String[] transfer : failed) {
+			execute(router.routeShard(transfer[1]), "cancelTransfer", transfer[0]);
+		}
+		for(String[] transfer : credited) { //结清之后不能再撤销
+			TransactionSimulation simulation = channel.simulate(chaincodeName(transfer[1]), "cancelTransfer", Collections.singletonList(transfer[0]), transients);
+			if(simulation.isEndorsed()) {
+				throw new IllegalStateException("cancelTransfer succeeded after release: " + transfer[0]);
+			}
+		}
+		return new int[] {credited.size(), failed.size()};
+	}
+	
+	/**
+	 * 入账与撤销基于同一已提交状态并发背书并在同一区块提交，只能有一方有效；之后再按有效的一方结清或确认撤销
+	 */
+	protected boolean runCreditCancelRace(List<String> accountNos) {
+		String outAccountNo = accountNos.get(0), inAccountNo = null;
+		for(String accountNo : accountNos) {
+			if(router.routeShard(accountNo) != router.routeShard(outAccountNo)) {
+				inAccountNo = accountNo;
+				break;
+			}
+		}
+		if(inAccountNo == null) {
+			return true; //只有一个分片
+		}
+		String transferId = String.format("T%08d", ++transferSeq);
+		execute(router.routeShard(outAccountNo), "holdTransfer", transferId, outAccountNo, inAccountNo, "10");
+		TransactionSimulation credit = endorse(router.routeShard(inAccountNo), "creditTransfer", transferId, outAccountNo);
+		TransactionSimulation cancel = endorse(router.routeShard(outAccountNo), "cancelTransfer", transferId);
+		channel.commitBlock(Arrays.asList(cancel, credit));
+		if(cancel.getValidationCode() != ValidationCode.VALID || credit.getValidationCode() == ValidationCode.VALID) {
+			return false;
+		}
+		TransactionSimulation release = channel.simulate(chaincodeName(outAccountNo), "releaseTransfer", Collections.singletonList(transferId), transients);
+		TransactionSimulation retry = channel.simulate(chaincodeName(inAccountNo), "creditTransfer", Arrays.asList(transferId, outAccountNo), transients);
+		return !release.isEndorsed() && !retry.isEndorsed();
+	}
+	
+	protected void verify(boolean raceResolved) {
+		if(!raceResolved) {
+			throw new IllegalStateException("Concurrent creditTransfer and cancelTransfer were not serialized!");
+		}
+		for(Map.Entry<String,Double> entry : expectedBalances.entrySet()) {
+			TransactionSimulation simulation = endorse(router.routeShard(entry.getKey()), "getAccountBalance", entry.getKey());
+			double balance = Double.parseDouble(simulation.getResponse().getStringPayload());
+			if(Math.abs(balance - entry.getValue()) > EPSILON) {
+				throw new IllegalStateException(String.format("Balance mismatch for %s: expected %s, actual %s", entry.getKey(), entry.getValue(), balance));
+			}
+		}
+		TransactionSimulation simulation = endorse(0, "getTotalBankBalance");
+		Map<String,Object> total = JsonUtils.json2Object(simulation.getResponse().getStringPayload(), new TypeReference<Map<String,Object>>() {});
+		double expectedTotal = shardCount * SHARD_BANK_BALANCE + accountCount * INITIAL_ACCOUNT_BALANCE;
+		double totalBankBalance = ((Number) total.get("totalBankBalance")).doubleValue();
+		double totalEscrowBalance = ((Number) total.get("totalEscrowBalance")).doubleValue();
+		if(Math.abs(totalBankBalance - expectedTotal) > EPSILON || Math.abs(totalEscrowBalance) > EPSILON) {
+			throw new IllegalStateException(String.format("Bank balance mismatch: expected total %s with no escrow, actual %s", expectedTotal, total));
+		}
+	}
+	
+	protected void transfer(String outAccountNo, String inAccountNo, double amount) {
+		expectedBalances.put(outAccountNo, expectedBalances.get(outAccountNo) - amount);
+		expectedBalances.put(inAccountNo, expectedBalances.get(inAccountNo) + amount);
+	}
+	
+	/**
+	 * 生成一个未开户、且与转出账户不在同一分片的卡号
+	 */
+	protected String createMissingAccountNo(String outAccountNo) {
+		for(int i = accountCount + 1;; i++) {
+			String accountNo = String.format("6225%012d", i);
+			if(router.routeShard(accountNo) != router.routeShard(outAccountNo)) {
+				return accountNo;
+			}
+		}
+	}
+	
+	protected String chaincodeName(String accountNo) {
+		return CHAINCODE_NAME_PREFIX + router.routeShard(accountNo);
+	}
+	
+	protected TransactionSimulation endorse(int shardIndex, String function, String... args) {
+		return checkEndorsed(channel.simulate(CHAINCODE_NAME_PREFIX + shardIndex, function, Arrays.asList(args), transients));
+	}
+	
+	/**
+	 * 背书并单独成块提交
+	 */
+	protected TransactionSimulation execute(int shardIndex, String function, String... args) {
+		TransactionSimulation simulation = endorse(shardIndex, function, args);
+		commitValid(Collections.singletonList(simulation));
+		return simulation;
+	}
+	
+	protected TransactionSimulation checkEndorsed(TransactionSimulation simulation) {
+		if(!simulation.isEndorsed()) {
+			throw new IllegalStateException(simulation.getFunction() + " failed: " + simulation.getResponse().getMessage());
+		}
+		return simulation;
+	}
+	
+	protected void commitValid(List<TransactionSimulation> transactions) {
+		if(transactions.isEmpty()) {
+			return;
+		}
+		channel.commitBlock(transactions);
+		for(TransactionSimulation transaction : transactions) {
+			if(transaction.getValidationCode() != ValidationCode.VALID) {
+				throw new IllegalStateException(String.format("%s %s was invalidated (%s) by key %s", transaction.getFunction(), transaction.getArgs(), transaction.getValidationCode(), transaction.getConflictKey()));
+			}
+		}
+	}
+
+}
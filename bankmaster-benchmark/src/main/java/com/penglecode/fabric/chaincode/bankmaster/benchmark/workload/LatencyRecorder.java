@@ -0,0 +1,43 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.workload;
+
+import java.util.Arrays;
+
+/**
+ * 延迟记录器(线程安全)，记录所有样本以便计算精确的百分位数
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 下午3:28:44
+ */
+public class LatencyRecorder {
+
+	private long[] samples = new long[1024];
+	
+	private int count;
+	
+	public synchronized void record(long latencyNanos) {
+		if(count == samples.length) {
+			samples = Arrays.copyOf(samples, count * 2);
+		}
+		samples[count++] = latencyNanos;
+	}
+	
+	public synchronized int getCount() {
+		return count;
+	}
+	
+	/**
+	 * 计算百分位数(单位：毫秒)
+	 * @param percentile	- 0~100
+	 * @return
+	 */
+	public synchronized double getPercentileMillis(double percentile) {
+		if(count == 0) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+		return sorted[Math.max(0, Math.min(index, count - 1))] / 1000000.0;
+	}
+	
+}
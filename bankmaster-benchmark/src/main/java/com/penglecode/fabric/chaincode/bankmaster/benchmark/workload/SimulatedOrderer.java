@@ -0,0 +1,124 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.SimulatedLedger;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+
+/**
+ * 模拟排序服务：按区块大小(BatchSize.MaxMessageCount)或超时时间(BatchTimeout)切块，并交给模拟账本校验提交
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 下午3:41:52
+ */
+public class SimulatedOrderer implements Runnable {
+
+	private final SimulatedLedger ledger;
+	
+	private final int blockSize;
+	
+	private final long blockTimeoutMillis;
+	
+	private final BlockingQueue<PendingTransaction> queue = new LinkedBlockingQueue<PendingTransaction>();
+	
+	private final AtomicLong blockCount = new AtomicLong();
+	
+	private volatile boolean running = true;
+	
+	private Thread thread;
+	
+	public SimulatedOrderer(SimulatedLedger ledger, int blockSize, long blockTimeoutMillis) {
+		super();
+		this.ledger = ledger;
+		this.blockSize = blockSize;
+		this.blockTimeoutMillis = blockTimeoutMillis;
+	}
+
+	public void start() {
+		thread = new Thread(this, "simulated-orderer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	public void shutdown() throws InterruptedException {
+		running = false;
+		if(thread != null) {
+			thread.join();
+		}
+	}
+	
+	/**
+	 * 提交已背书的交易，返回的Future在交易所在区块提交后完成
+	 */
+	public CompletableFuture<TransactionSimulation> submit(TransactionSimulation transaction) {
+		PendingTransaction pending = new PendingTransaction(transaction);
+		queue.add(pending);
+		return pending.future;
+	}
+	
+	@Override
+	public void run() {
+		List<PendingTransaction> batch = new ArrayList<PendingTransaction>(blockSize);
+		List<TransactionSimulation> transactions = new ArrayList<TransactionSimulation>(blockSize);
+		while(running || !queue.isEmpty()) {
+			try {
+				PendingTransaction first = queue.poll(blockTimeoutMillis, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+				while(batch.size() < blockSize) {
+					long waitNanos = deadline - System.nanoTime();
+					PendingTransaction next = waitNanos > 0 ? queue.poll(waitNanos, TimeUnit.NANOSECONDS) : queue.poll();
+					if(next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				for(PendingTransaction pending : batch) {
+					transactions.add(pending.transaction);
+				}
+				ledger.commitBlock(transactions);
+				blockCount.incrementAndGet();
+				for(PendingTransaction pending : batch) {
+					pending.future.complete(pending.transaction);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				for(PendingTransaction pending : batch) {
+					pending.future.completeExceptionally(e);
+				}
+			} finally {
+				batch.clear();
+				transactions.clear();
+			}
+		}
+	}
+	
+	public long getBlockCount() {
+		return blockCount.get();
+	}
+
+	static class PendingTransaction {
+		
+		final TransactionSimulation transaction;
+		
+		final CompletableFuture<TransactionSimulation> future = new CompletableFuture<TransactionSimulation>();
+
+		PendingTransaction(TransactionSimulation transaction) {
+			super();
+			this.transaction = transaction;
+		}
+		
+	}
+	
+}
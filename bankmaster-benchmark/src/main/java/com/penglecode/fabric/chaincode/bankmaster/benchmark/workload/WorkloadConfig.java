@@ -0,0 +1,183 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.workload;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测配置，通过命令行参数(--name=value)覆盖默认值
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 下午2:51:36
+ */
+public class WorkloadConfig {
+
+	/**
+	 * 预先开户的账户数量
+	 */
+	private int accounts = 1000;
+	
+	/**
+	 * 压测期间执行的操作总数
+	 */
+	private int operations = 20000;
+	
+	/**
+	 * 并发客户端数量，即同时在途(已背书未提交)的交易数
+	 */
+	private int concurrency = 32;
+	
+	/**
+	 * 每个区块最多包含的交易数
+	 */
+	private int blockSize = 50;
+	
+	/**
+	 * 切块超时时间
+	 */
+	private long blockTimeoutMillis = 20;
+	
+	/**
+	 * 账户热度的Zipf倾斜度，0表示均匀分布
+	 */
+	private double zipfSkew = 0.99;
+	
+	/**
+	 * 操作配比：方法名:权重
+	 */
+	private Map<String,Integer> mix = parseMix("createAccount:2,depositMoney:30,drawalMoney:20,transferAccount:30,getAccountBalance:13,getAccountTransactionRecords:5");
+	
+	/**
+	 * 交易因MVCC冲突失效后的最大重试次数
+	 */
+	private int maxRetries = 5;
+	
+	/**
+	 * 重试退避的基准时间，第n次重试等待 backoffMillis * 2^(n-1) * [0.5, 1.5) 毫秒
+	 */
+	private long backoffMillis = 2;
+	
+	/**
+	 * 初始化链码时的银行资产
+	 */
+	private String bankBalance = "100000000";
+	
+	private long seed = 20190110L;
+	
+	/**
+	 * 区块流输出文件，不为空时将提交的区块写入该文件(供bankmaster-projector消费)
+	 */
+	private String blockFeed;
+	
+	public static WorkloadConfig parse(String[] args) {
+		WorkloadConfig config = new WorkloadConfig();
+		for(String arg : args) {
+			if(!arg.startsWith("--") || arg.indexOf('=') < 0) {
+				throw new IllegalArgumentException("Illegal argument: " + arg + ", expected --name=value");
+			}
+			String name = arg.substring(2, arg.indexOf('='));
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if("accounts".equals(name)) {
+				config.accounts = Integer.parseInt(value);
+			} else if ("operations".equals(name)) {
+				config.operations = Integer.parseInt(value);
+			} else if ("concurrency".equals(name)) {
+				config.concurrency = Integer.parseInt(value);
+			} else if ("blockSize".equals(name)) {
+				config.blockSize = Integer.parseInt(value);
+			} else if ("blockTimeoutMillis".equals(name)) {
+				config.blockTimeoutMillis = Long.parseLong(value);
+			} else if ("zipfSkew".equals(name)) {
+				config.zipfSkew = Double.parseDouble(value);
+			} else if ("mix".equals(name)) {
+				config.mix = parseMix(value);
+			} else if ("maxRetries".equals(name)) {
+				config.maxRetries = Integer.parseInt(value);
+			} else if ("backoffMillis".equals(name)) {
+				config.backoffMillis = Long.parseLong(value);
+			} else if ("bankBalance".equals(name)) {
+				config.bankBalance = value;
+			} else if ("seed".equals(name)) {
+				config.seed = Long.parseLong(value);
+			} else if ("blockFeed".equals(name)) {
+				config.blockFeed = value;
+			} else {
+				throw new IllegalArgumentException("Unknown argument: " + name);
+			}
+		}
+		return config;
+	}
+	
+	protected static Map<String,Integer> parseMix(String value) {
+		Map<String,Integer> mix = new LinkedHashMap<String,Integer>();
+		for(String item : value.split(",")) {
+			String[] pair = item.trim().split(":");
+			if(pair.length != 2) {
+				throw new IllegalArgumentException("Illegal mix item: " + item + ", expected function:weight");
+			}
+			int weight = Integer.parseInt(pair[1].trim());
+			if(weight > 0) {
+				mix.put(pair[0].trim(), weight);
+			}
+		}
+		if(mix.isEmpty()) {
+			throw new IllegalArgumentException("Operation mix can not be empty!");
+		}
+		return mix;
+	}
+
+	public int getAccounts() {
+		return accounts;
+	}
+
+	public int getOperations() {
+		return operations;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public long getBlockTimeoutMillis() {
+		return blockTimeoutMillis;
+	}
+
+	public double getZipfSkew() {
+		return zipfSkew;
+	}
+
+	public Map<String, Integer> getMix() {
+		return mix;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public long getBackoffMillis() {
+		return backoffMillis;
+	}
+
+	public String getBankBalance() {
+		return bankBalance;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public String getBlockFeed() {
+		return blockFeed;
+	}
+
+	@Override
+	public String toString() {
+		return "accounts=" + accounts + ", operations=" + operations + ", concurrency=" + concurrency
+				+ ", blockSize=" + blockSize + ", blockTimeoutMillis=" + blockTimeoutMillis + ", zipfSkew=" + zipfSkew
+				+ ", mix=" + mix + ", maxRetries=" + maxRetries + ", backoffMillis=" + backoffMillis;
+	}
+	
+}
@@ -0,0 +1,186 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.workload;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hyperledger.fabric.shim.Chaincode;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.BlockFeedWriter;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.SimulatedLedger;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation.ValidationCode;
+import com.penglecode.fabric.chaincode.bankmaster.chaincode.BankMasterChaincode;
+
+/**
+ * 端到端压测驱动：多个并发客户端按配置的操作配比持续背书并提交交易到模拟排序服务，
+ * 交易因MVCC冲突失效时按指数退避(带随机抖动)重新背书重试
+ * 
+ * 统计：提交成功的写交易TPS、查询QPS、端到端延迟(含重试)的p50/p99、MVCC失效率
+ * 
+ * 运行：java ... WorkloadDriver --accounts=1000 --operations=20000 --concurrency=32 --blockSize=50 --zipfSkew=0.99
+ * 指定--blockFeed=blocks.jsonl时同时输出区块流
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 下午4:12:23
+ */
+public class WorkloadDriver {
+
+	private final WorkloadConfig config;
+	
+	private final SimulatedLedger ledger = new SimulatedLedger("bankchannel");
+	
+	private final Chaincode chaincode = new BankMasterChaincode();
+	
+	private final WorkloadGenerator generator;
+	
+	private final LatencyRecorder writeLatencies = new LatencyRecorder();
+	
+	private final LatencyRecorder queryLatencies = new LatencyRecorder();
+	
+	private final AtomicLong submittedCount = new AtomicLong();
+	
+	private final AtomicLong committedCount = new AtomicLong();
+	
+	private final AtomicLong invalidatedCount = new AtomicLong();
+	
+	private final AtomicLong abandonedCount = new AtomicLong();
+	
+	private final AtomicLong endorsementFailureCount = new AtomicLong();
+	
+	public WorkloadDriver(WorkloadConfig config) {
+		super();
+		this.config = config;
+		this.generator = new WorkloadGenerator(config);
+	}
+
+	public static void main(String[] args) throws Exception {
+		WorkloadConfig config = WorkloadConfig.parse(args);
+		new WorkloadDriver(config).run(System.out);
+	}
+	
+	public void run(PrintStream out) throws Exception {
+		if(config.getBlockFeed() == null) {
+			runWorkload(out);
+		} else {
+			try (BlockFeedWriter blockFeedWriter = new BlockFeedWriter(new File(config.getBlockFeed()))) {
+				ledger.setBlockFeedWriter(blockFeedWriter);
+				runWorkload(out);
+			} finally {
+				ledger.setBlockFeedWriter(null);
+			}
+			out.println("block feed written to " + config.getBlockFeed());
+		}
+	}
+	
+	protected void runWorkload(PrintStream out) throws Exception {
+		out.println("workload: " + config);
+		prepare();
+		out.println("prepared " + config.getAccounts() + " accounts, world state keys = " + ledger.getStateSize());
+		
+		SimulatedOrderer orderer = new SimulatedOrderer(ledger, config.getBlockSize(), config.getBlockTimeoutMillis());
+		orderer.start();
+		final AtomicInteger remaining = new AtomicInteger(config.getOperations());
+		ExecutorService clients = Executors.newFixedThreadPool(config.getConcurrency());
+		long startTime = System.nanoTime();
+		for(int i = 0; i < config.getConcurrency(); i++) {
+			final Random random = new Random(config.getSeed() + i);
+			clients.execute(() -> {
+				while(remaining.getAndDecrement() > 0) {
+					execute(orderer, generator.next(random), random);
+				}
+			});
+		}
+		clients.shutdown();
+		clients.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		long elapsedNanos = System.nanoTime() - startTime;
+		orderer.shutdown();
+		report(out, elapsedNanos, orderer.getBlockCount());
+	}
+	
+	/**
+	 * 初始化链码并预先开户，每笔交易单独成块以避免开户交易之间的冲突
+	 */
+	protected void prepare() {
+		TransactionSimulation init = ledger.simulateInit(chaincode, Collections.singletonList(config.getBankBalance()));
+		if(!init.isEndorsed()) {
+			throw new IllegalStateException("Init chaincode failed: " + init.getResponse().getMessage());
+		}
+		ledger.commitBlock(Collections.singletonList(init));
+		for(String accountNo : generator.getAccountNos()) {
+			WorkloadOperation operation = generator.newCreateAccount(accountNo);
+			TransactionSimulation simulation = ledger.simulate(chaincode, operation.getFunction(), operation.getArgs(), operation.getTransients());
+			if(!simulation.isEndorsed()) {
+				throw new IllegalStateException("Create account failed: " + simulation.getResponse().getMessage());
+			}
+			ledger.commitBlock(Collections.singletonList(simulation));
+		}
+	}
+	
+	protected void execute(SimulatedOrderer orderer, WorkloadOperation operation, Random random) {
+		long startTime = System.nanoTime();
+		for(int attempt = 0; ; attempt++) {
+			TransactionSimulation simulation = ledger.simulate(chaincode, operation.getFunction(), operation.getArgs(), operation.getTransients());
+			if(!simulation.isEndorsed()) {
+				endorsementFailureCount.incrementAndGet();
+				return;
+			}
+			if(operation.isQuery() || simulation.isReadOnly()) {
+				queryLatencies.record(System.nanoTime() - startTime);
+				return;
+			}
+			submittedCount.incrementAndGet();
+			try {
+				simulation = orderer.submit(simulation).get();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			if(simulation.getValidationCode() == ValidationCode.VALID) {
+				committedCount.incrementAndGet();
+				writeLatencies.record(System.nanoTime() - startTime);
+				return;
+			}
+			invalidatedCount.incrementAndGet();
+			if(attempt >= config.getMaxRetries()) {
+				abandonedCount.incrementAndGet();
+				return;
+			}
+			backoff(attempt, random);
+		}
+	}
+	
+	/**
+	 * 冲突退避：backoffMillis * 2^attempt * [0.5, 1.5)，随机抖动避免冲突的客户端同时重试再次冲突
+	 */
+	protected void backoff(int attempt, Random random) {
+		long maxMillis = config.getBackoffMillis() << Math.min(attempt, 10);
+		long sleepMicros = (long) (maxMillis * 1000 * (0.5 + random.nextDouble()));
+		try {
+			TimeUnit.MICROSECONDS.sleep(sleepMicros);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	protected void report(PrintStream out, long elapsedNanos, long blockCount) {
+		double seconds = elapsedNanos / 1e9;
+		long submitted = submittedCount.get();
+		out.println("----------------------------------------------------------------");
+		out.printf("elapsed                 : %.2f s, blocks = %d%n", seconds, blockCount);
+		out.printf("committed write tx      : %d (%.1f tx/s)%n", committedCount.get(), committedCount.get() / seconds);
+		out.printf("write latency (e2e)     : p50 = %.2f ms, p99 = %.2f ms%n", writeLatencies.getPercentileMillis(50), writeLatencies.getPercentileMillis(99));
+		out.printf("queries                 : %d (%.1f q/s), p50 = %.2f ms, p99 = %.2f ms%n", queryLatencies.getCount(), queryLatencies.getCount() / seconds,
+				queryLatencies.getPercentileMillis(50), queryLatencies.getPercentileMillis(99));
+		out.printf("submitted / invalidated : %d / %d (MVCC invalidation rate = %.2f%%)%n", submitted, invalidatedCount.get(), submitted == 0 ? 0 : invalidatedCount.get() * 100.0 / submitted);
+		out.printf("abandoned after retries : %d%n", abandonedCount.get());
+		out.printf("endorsement failures    : %d%n", endorsementFailureCount.get());
+		out.println("----------------------------------------------------------------");
+	}
+	
+}
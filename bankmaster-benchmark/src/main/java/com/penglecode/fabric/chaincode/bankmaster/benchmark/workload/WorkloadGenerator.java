@@ -0,0 +1,134 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.workload;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按配置的操作配比和Zipf账户热度生成链码调用，并注入链码所需的transients[transactionTime]
+ * 
+ * 交易时间来自一个模拟时钟，每生成一笔操作前进一秒，保证交易时间单调递增且与本机时间无关
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 下午3:05:37
+ */
+public class WorkloadGenerator {
+
+	public static final Set<String> QUERY_FUNCTIONS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("getAccountBalance", "getAllAccounts", "getAccountTransactionRecords")));
+	
+	private static final DateTimeFormatter TRANSACTION_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+	
+	private static final LocalDateTime CLOCK_BASE = LocalDateTime.of(2019, 1, 1, 0, 0, 0);
+	
+	private static final long ACCOUNT_NO_BASE = 6225000000000000L;
+	
+	private final List<String> accountNos;
+	
+	private final ZipfGenerator zipf;
+	
+	private final String[] functions;
+	
+	private final int[] cumulativeWeights;
+	
+	private final AtomicLong clock = new AtomicLong();
+	
+	private final AtomicInteger nextAccountIndex;
+	
+	public WorkloadGenerator(WorkloadConfig config) {
+		super();
+		this.accountNos = new ArrayList<String>(config.getAccounts());
+		for(int i = 0; i < config.getAccounts(); i++) {
+			accountNos.add(toAccountNo(i));
+		}
+		this.nextAccountIndex = new AtomicInteger(config.getAccounts());
+		this.zipf = new ZipfGenerator(config.getAccounts(), config.getZipfSkew());
+		this.functions = config.getMix().keySet().toArray(new String[0]);
+		this.cumulativeWeights = new int[functions.length];
+		int sum = 0;
+		for(int i = 0; i < functions.length; i++) {
+			sum += config.getMix().get(functions[i]);
+			cumulativeWeights[i] = sum;
+		}
+	}
+	
+	/**
+	 * 预先开户的账户卡号，按热度从高到低排列
+	 */
+	public List<String> getAccountNos() {
+		return accountNos;
+	}
+	
+	public WorkloadOperation newCreateAccount(String accountNo) {
+		String time = nextTransactionTime();
+		String profile = "{\"accountNo\":\"" + accountNo + "\",\"realName\":\"压测用户" + accountNo.substring(12) + "\",\"idCardNo\":\"34242519860728" + accountNo.substring(12)
+				+ "\",\"mobilePhone\":\"1515188" + accountNo.substring(12) + "\",\"createdTime\":\"" + time + "\",\"accountBalance\":1000.0}";
+		return new WorkloadOperation("createAccount", Collections.singletonList(profile), transients(time), false);
+	}
+	
+	public WorkloadOperation next(Random random) {
+		int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		String function = functions[functions.length - 1];
+		for(int i = 0; i < cumulativeWeights.length; i++) {
+			if(pick < cumulativeWeights[i]) {
+				function = functions[i];
+				break;
+			}
+		}
+		return newOperation(function, random);
+	}
+	
+	protected WorkloadOperation newOperation(String function, Random random) {
+		String amount = String.valueOf(1 + random.nextInt(1000));
+		if("createAccount".equals(function)) {
+			return newCreateAccount(toAccountNo(nextAccountIndex.getAndIncrement()));
+		} else if ("depositMoney".equals(function) || "drawalMoney".equals(function)) {
+			return new WorkloadOperation(function, Arrays.asList(nextAccountNo(random), amount), transients(nextTransactionTime()), false);
+		} else if ("transferAccount".equals(function)) {
+			String accountANo = nextAccountNo(random);
+			String accountBNo = nextAccountNo(random);
+			while(accountBNo.equals(accountANo) && accountNos.size() > 1) {
+				accountBNo = nextAccountNo(random);
+			}
+			return new WorkloadOperation(function, Arrays.asList(accountANo, accountBNo, amount), transients(nextTransactionTime()), false);
+		} else if ("getAccountBalance".equals(function)) {
+			return new WorkloadOperation(function, Collections.singletonList(nextAccountNo(random)), transients(null), true);
+		} else if ("getAccountTransactionRecords".equals(function)) {
+			return new WorkloadOperation(function, Arrays.asList(nextAccountNo(random), "10"), transients(null), true);
+		} else if ("getAllAccounts".equals(function)) {
+			return new WorkloadOperation(function, Collections.<String>emptyList(), transients(null), true);
+		}
+		throw new IllegalArgumentException("Unsupported function in workload mix: " + function);
+	}
+	
+	protected String nextAccountNo(Random random) {
+		return accountNos.get(zipf.next(random));
+	}
+	
+	protected String nextTransactionTime() {
+		return CLOCK_BASE.plusSeconds(clock.incrementAndGet()).format(TRANSACTION_TIME_FORMATTER);
+	}
+	
+	protected Map<String,byte[]> transients(String transactionTime) {
+		Map<String,byte[]> transients = new HashMap<String,byte[]>();
+		if(transactionTime != null) {
+			transients.put("transactionTime", transactionTime.getBytes(StandardCharsets.UTF_8));
+		}
+		return transients;
+	}
+	
+	protected static String toAccountNo(int index) {
+		return String.valueOf(ACCOUNT_NO_BASE + index);
+	}
+	
+}
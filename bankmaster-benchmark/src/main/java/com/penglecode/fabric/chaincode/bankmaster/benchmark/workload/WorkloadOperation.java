@@ -0,0 +1,54 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.workload;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次链码调用：方法名、参数以及transient数据
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 下午2:58:10
+ */
+public class WorkloadOperation {
+
+	private final String function;
+	
+	private final List<String> args;
+	
+	private final Map<String,byte[]> transients;
+	
+	private final boolean query;
+	
+	public WorkloadOperation(String function, List<String> args, Map<String,byte[]> transients, boolean query) {
+		super();
+		this.function = function;
+		this.args = args;
+		this.transients = transients;
+		this.query = query;
+	}
+
+	public String getFunction() {
+		return function;
+	}
+
+	public List<String> getArgs() {
+		return args;
+	}
+
+	public Map<String, byte[]> getTransients() {
+		return transients;
+	}
+
+	/**
+	 * 是否是只读查询(只背书不提交)
+	 */
+	public boolean isQuery() {
+		return query;
+	}
+
+	@Override
+	public String toString() {
+		return function + args;
+	}
+	
+}
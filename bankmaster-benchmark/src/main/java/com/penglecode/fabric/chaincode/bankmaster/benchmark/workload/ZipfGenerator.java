@@ -0,0 +1,40 @@
+package com.penglecode.fabric.chaincode.bankmaster.benchmark.workload;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf分布的随机数生成器：返回[0, n)区间的序号，序号越小被选中的概率越高(P(k) ∝ 1/(k+1)^skew)
+ * 
+ * skew = 0时退化为均匀分布；skew越大热点越集中
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月10日 下午3:20:09
+ */
+public class ZipfGenerator {
+
+	private final double[] cdf;
+	
+	public ZipfGenerator(int n, double skew) {
+		super();
+		if(n <= 0) {
+			throw new IllegalArgumentException("Parameter 'n' must be greater than 0!");
+		}
+		this.cdf = new double[n];
+		double sum = 0;
+		for(int i = 0; i < n; i++) {
+			sum += 1.0 / Math.pow(i + 1, skew);
+			cdf[i] = sum;
+		}
+		for(int i = 0; i < n; i++) {
+			cdf[i] /= sum;
+		}
+	}
+	
+	public int next(Random random) {
+		int index = Arrays.binarySearch(cdf, random.nextDouble());
+		index = index < 0 ? -index - 1 : index;
+		return Math.min(index, cdf.length - 1);
+	}
+	
+}
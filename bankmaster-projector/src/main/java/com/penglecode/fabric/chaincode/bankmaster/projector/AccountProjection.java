@@ -0,0 +1,326 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransaction;
+import com.penglecode.fabric.chaincode.bankmaster.domain.CustomerAccount;
+import com.penglecode.fabric.chaincode.bankmaster.projector.feed.BlockFeedReader;
+import com.penglecode.fabric.chaincode.bankmaster.projector.feed.FeedBlock;
+import com.penglecode.fabric.chaincode.bankmaster.projector.feed.FeedTransaction;
+import com.penglecode.fabric.chaincode.bankmaster.projector.feed.FeedWrite;
+import com.penglecode.fabric.chaincode.bankmaster.projector.store.ProjectionCheckpoint;
+import com.penglecode.fabric.chaincode.bankmaster.projector.store.SegmentRecord;
+import com.penglecode.fabric.chaincode.bankmaster.projector.store.SegmentStore;
+import com.penglecode.fabric.chaincode.common.util.CompositeKeyBuilder;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 账户读模型：按区块顺序消费有效交易的写集，将账户及账户交易记录增量投影到本地段存储，
+ * 并在内存中维护 账户号 -> 最新账户记录 以及 账户号 -> 交易记录列表(按提交顺序) 的索引
+ * 
+ * 提供与链码getAllAccounts/getAccountTransactionRecords相同的查询，报表类查询无需再访问peer。
+ * 链码归档时删除的交易记录key不会从读模型中删除，读模型始终保留完整的交易记录。
+ * 休眠账户(DORMANT_ACCOUNT_)单独索引，与链码一致getAllAccounts只返回活跃账户，getAccount两者都查找。
+ * 
+ * 每投影checkpointInterval个区块写一次检查点，重启时只需扫描本地段存储重建索引，再从检查点的下一个区块继续消费
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 下午3:48:19
+ */
+public class AccountProjection implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AccountProjection.class);
+	
+	public static final int DEFAULT_FETCH_SIZE = 10;
+	
+	private static final byte RECORD_ACCOUNT = 1;
+	
+	private static final byte RECORD_ACCOUNT_DELETED = 2;
+	
+	private static final byte RECORD_TRANSACTION = 3;
+	
+	private static final byte RECORD_DORMANT_ACCOUNT = 4;
+	
+	private static final byte RECORD_DORMANT_ACCOUNT_DELETED = 5;
+	
+	private static final String CUSTOMER_ACCOUNT_KEY_PREFIX = new CompositeKeyBuilder("CUSTOMER_ACCOUNT_").getPrefix();
+	
+	private static final String DORMANT_ACCOUNT_KEY_PREFIX = new CompositeKeyBuilder("DORMANT_ACCOUNT_").getPrefix();
+	
+	private static final String ACCOUNT_TRANSACTION_KEY_PREFIX = new CompositeKeyBuilder("ACCOUNT_TRANSACTION_").getPrefix();
+	
+	private final File directory;
+	
+	private final SegmentStore store;
+	
+	private final int checkpointInterval;
+	
+	/**
+	 * 账户号 -> 最新账户记录的指针，按账户号排序(与链码中账户key的顺序一致)
+	 */
+	private final TreeMap<String,Long> accountIndex = new TreeMap<String,Long>();
+	
+	/**
+	 * 账户号 -> 最新休眠账户记录的指针，账户转为休眠/转回活跃时同一交易中两个key一删一写，两个索引各自维护即可，与写集顺序无关
+	 */
+	private final TreeMap<String,Long> dormantAccountIndex = new TreeMap<String,Long>();
+	
+	/**
+	 * 账户号 -> 该账户所有交易记录的指针(按提交顺序)
+	 */
+	private final Map<String,PointerList> transactionIndex = new HashMap<String,PointerList>();
+	
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	private long lastBlockNumber;
+	
+	private int uncheckpointedBlocks;
+	
+	public AccountProjection(File directory, int segmentSize, int checkpointInterval) throws IOException {
+		super();
+		ProjectionCheckpoint checkpoint = ProjectionCheckpoint.load(directory);
+		this.directory = directory;
+		this.store = new SegmentStore(directory, segmentSize, checkpoint.getWritePointer());
+		this.checkpointInterval = Math.max(1, checkpointInterval);
+		this.lastBlockNumber = checkpoint.getBlockNumber();
+		store.scan(this::index);
+		LOGGER.info(">>> 打开账户读模型，checkpoint blockNumber = {}, accounts = {}, dormantAccounts = {}", lastBlockNumber, accountIndex.size(), dormantAccountIndex.size());
+	}
+	
+	/**
+	 * 消费区块流中尚未投影的区块，返回本次投影的区块数
+	 */
+	public int projectFeed(BlockFeedReader reader) throws IOException {
+		int projectedBlocks = 0;
+		FeedBlock block;
+		while((block = reader.next()) != null) {
+			if(block.getBlockNumber() > lastBlockNumber) { //检查点之前的区块已经投影过
+				project(block);
+				projectedBlocks++;
+			}
+		}
+		checkpoint();
+		return projectedBlocks;
+	}
+	
+	/**
+	 * 投影一个区块，区块号必须大于已投影的最后一个区块号
+	 */
+	public void project(FeedBlock block) throws IOException {
+		lock.writeLock().lock();
+		try {
+			if(block.getBlockNumber() <= lastBlockNumber) {
+				throw new IllegalStateException("Block " + block.getBlockNumber() + " has already been projected, last block number = " + lastBlockNumber);
+			}
+			for(FeedTransaction transaction : block.getTransactions()) {
+				if(!transaction.isValid()) { //失效交易的写集不生效
+					continue;
+				}
+				for(FeedWrite write : transaction.getWrites()) {
+					project(write);
+				}
+			}
+			lastBlockNumber = block.getBlockNumber();
+			if(++uncheckpointedBlocks >= checkpointInterval) {
+				checkpoint();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	protected void project(FeedWrite write) throws IOException {
+		String key = write.getKey();
+		if(key.startsWith(CUSTOMER_ACCOUNT_KEY_PREFIX)) {
+			String accountNo = getFirstAttribute(key, CUSTOMER_ACCOUNT_KEY_PREFIX);
+			if(write.isDelete()) {
+				index(store.append(RECORD_ACCOUNT_DELETED, encode(accountNo, null)), RECORD_ACCOUNT_DELETED, accountNo);
+			} else {
+				index(store.append(RECORD_ACCOUNT, encode(accountNo, write.getValue())), RECORD_ACCOUNT, accountNo);
+			}
+		} else if(key.startsWith(DORMANT_ACCOUNT_KEY_PREFIX)) {
+			String accountNo = getFirstAttribute(key, DORMANT_ACCOUNT_KEY_PREFIX);
+			if(write.isDelete()) {
+				index(store.append(RECORD_DORMANT_ACCOUNT_DELETED, encode(accountNo, null)), RECORD_DORMANT_ACCOUNT_DELETED, accountNo);
+			} else {
+				index(store.append(RECORD_DORMANT_ACCOUNT, encode(accountNo, write.getValue())), RECORD_DORMANT_ACCOUNT, accountNo);
+			}
+		} else if(key.startsWith(ACCOUNT_TRANSACTION_KEY_PREFIX) && !write.isDelete()) { //归档时删除的交易记录在读模型中保留
+			String accountNo = getFirstAttribute(key, ACCOUNT_TRANSACTION_KEY_PREFIX);
+			index(store.append(RECORD_TRANSACTION, encode(accountNo, write.getValue())), RECORD_TRANSACTION, accountNo);
+		}
+	}
+	
+	/**
+	 * 写检查点：先将段存储刷盘，再原子替换检查点文件
+	 */
+	public void checkpoint() throws IOException {
+		lock.writeLock().lock();
+		try {
+			store.force();
+			new ProjectionCheckpoint(lastBlockNumber, store.getWritePointer()).save(directory);
+			uncheckpointedBlocks = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * 获取所有活跃账户(按账户号排序)，与链码getAllAccounts一致
+	 */
+	public List<CustomerAccount> getAllAccounts() {
+		lock.readLock().lock();
+		try {
+			List<CustomerAccount> accounts = new ArrayList<CustomerAccount>(accountIndex.size());
+			for(Long pointer : accountIndex.values()) {
+				accounts.add(JsonUtils.json2Object(getValue(store.read(pointer)), CustomerAccount.class));
+			}
+			return accounts;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * 获取账户(活跃账户或休眠账户)，不存在时返回null
+	 */
+	public CustomerAccount getAccount(String accountNo) {
+		lock.readLock().lock();
+		try {
+			Long pointer = accountIndex.get(accountNo);
+			if(pointer == null) {
+				pointer = dormantAccountIndex.get(accountNo);
+			}
+			return pointer == null ? null : JsonUtils.json2Object(getValue(store.read(pointer)), CustomerAccount.class);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * 获取账户最近的fetchSize条交易记录(按时间倒序)，与链码getAccountTransactionRecords一致
+	 */
+	public List<AccountTransaction> getAccountTransactionRecords(String accountNo, int fetchSize) {
+		lock.readLock().lock();
+		try {
+			List<AccountTransaction> transactions = new ArrayList<AccountTransaction>();
+			PointerList pointers = transactionIndex.get(accountNo);
+			if(pointers != null) {
+				for(int i = pointers.size() - 1; i >= 0 && transactions.size() < fetchSize; i--) {
+					transactions.add(JsonUtils.json2Object(getValue(store.read(pointers.get(i))), AccountTransaction.class));
+				}
+			}
+			return transactions;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	public long getLastBlockNumber() {
+		lock.readLock().lock();
+		try {
+			return lastBlockNumber;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	protected void index(long pointer, SegmentRecord record) {
+		index(pointer, record.getType(), getAccountNo(record));
+	}
+	
+	protected void index(long pointer, byte type, String accountNo) {
+		if(type == RECORD_ACCOUNT) {
+			accountIndex.put(accountNo, pointer);
+		} else if(type == RECORD_ACCOUNT_DELETED) {
+			accountIndex.remove(accountNo);
+		} else if(type == RECORD_DORMANT_ACCOUNT) {
+			dormantAccountIndex.put(accountNo, pointer);
+		} else if(type == RECORD_DORMANT_ACCOUNT_DELETED) {
+			dormantAccountIndex.remove(accountNo);
+		} else if(type == RECORD_TRANSACTION) {
+			PointerList pointers = transactionIndex.get(accountNo);
+			if(pointers == null) {
+				transactionIndex.put(accountNo, pointers = new PointerList());
+			}
+			pointers.add(pointer);
+		}
+	}
+	
+	/**
+	 * 记录数据：short 账户号长度 + 账户号 + 世界状态中的json值
+	 */
+	protected static byte[] encode(String accountNo, byte[] value) {
+		byte[] accountNoBytes = accountNo.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(2 + accountNoBytes.length + (value == null ? 0 : value.length));
+		buffer.putShort((short) accountNoBytes.length).put(accountNoBytes);
+		if(value != null) {
+			buffer.put(value);
+		}
+		return buffer.array();
+	}
+	
+	protected static String getAccountNo(SegmentRecord record) {
+		ByteBuffer buffer = ByteBuffer.wrap(record.getData());
+		int length = buffer.getShort() & 0xffff;
+		return new String(record.getData(), 2, length, StandardCharsets.UTF_8);
+	}
+	
+	protected static String getValue(SegmentRecord record) {
+		byte[] data = record.getData();
+		int offset = 2 + (ByteBuffer.wrap(data).getShort() & 0xffff);
+		return new String(data, offset, data.length - offset, StandardCharsets.UTF_8);
+	}
+	
+	protected static String getFirstAttribute(String key, String prefix) {
+		int end = key.indexOf('\u0000', prefix.length());
+		return end < 0 ? key.substring(prefix.length()) : key.substring(prefix.length(), end);
+	}
+
+	@Override
+	public void close() throws IOException {
+		checkpoint();
+		store.close();
+	}
+	
+	/**
+	 * 不装箱的long列表，每个账户的交易记录指针只追加不删除
+	 */
+	static class PointerList {
+		
+		private long[] pointers = new long[8];
+		
+		private int size;
+		
+		public void add(long pointer) {
+			if(size == pointers.length) {
+				pointers = Arrays.copyOf(pointers, size << 1);
+			}
+			pointers[size++] = pointer;
+		}
+		
+		public long get(int index) {
+			return pointers[index];
+		}
+		
+		public int size() {
+			return size;
+		}
+		
+	}
+	
+}
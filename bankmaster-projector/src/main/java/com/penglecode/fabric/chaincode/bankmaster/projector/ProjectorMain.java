@@ -0,0 +1,62 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.penglecode.fabric.chaincode.bankmaster.projector.feed.BlockFeedReader;
+import com.penglecode.fabric.chaincode.bankmaster.projector.store.SegmentStore;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 读模型投影入口：消费区块流文件中尚未投影的区块，然后(可选)执行一次查询并输出json结果
+ * 
+ * 运行：java ... ProjectorMain --feed=blocks.jsonl --dataDir=projection [--query=getAllAccounts]
+ * 		java ... ProjectorMain --dataDir=projection --query=getAccountTransactionRecords --accountNo=6225000000000001 [--fetchSize=10]
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 下午5:02:37
+ */
+public class ProjectorMain {
+
+	public static void main(String[] args) throws Exception {
+		Map<String,String> options = parseOptions(args);
+		String dataDir = options.get("dataDir");
+		if(dataDir == null) {
+			throw new IllegalArgumentException("Argument --dataDir is required!");
+		}
+		int segmentSize = options.containsKey("segmentSize") ? Integer.parseInt(options.get("segmentSize")) : SegmentStore.DEFAULT_SEGMENT_SIZE;
+		int checkpointInterval = options.containsKey("checkpointInterval") ? Integer.parseInt(options.get("checkpointInterval")) : 100;
+		try (AccountProjection projection = new AccountProjection(new File(dataDir), segmentSize, checkpointInterval)) {
+			if(options.containsKey("feed")) {
+				long startTime = System.nanoTime();
+				int projectedBlocks;
+				try (BlockFeedReader reader = new BlockFeedReader(new File(options.get("feed")))) {
+					projectedBlocks = projection.projectFeed(reader);
+				}
+				System.out.printf("projected %d blocks in %.1f ms, last block number = %d%n", projectedBlocks, (System.nanoTime() - startTime) / 1e6, projection.getLastBlockNumber());
+			}
+			String query = options.get("query");
+			if("getAllAccounts".equals(query)) {
+				System.out.println(JsonUtils.object2Json(projection.getAllAccounts()));
+			} else if("getAccountTransactionRecords".equals(query)) {
+				int fetchSize = options.containsKey("fetchSize") ? Integer.parseInt(options.get("fetchSize")) : AccountProjection.DEFAULT_FETCH_SIZE;
+				System.out.println(JsonUtils.object2Json(projection.getAccountTransactionRecords(options.get("accountNo"), fetchSize)));
+			} else if(query != null) {
+				throw new IllegalArgumentException("Unknown query: " + query);
+			}
+		}
+	}
+	
+	protected static Map<String,String> parseOptions(String[] args) {
+		Map<String,String> options = new HashMap<String,String>();
+		for(String arg : args) {
+			if(!arg.startsWith("--") || arg.indexOf('=') < 0) {
+				throw new IllegalArgumentException("Illegal argument: " + arg + ", expected --name=value");
+			}
+			options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+		return options;
+	}
+	
+}
@@ -0,0 +1,53 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector.feed;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 文件形式的区块流读取器：每行一个区块的json(格式见bankmaster-benchmark的BlockFeedWriter)，区块号必须递增
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 下午2:12:26
+ */
+public class BlockFeedReader implements Closeable {
+
+	private final BufferedReader reader;
+	
+	private long lastBlockNumber = -1;
+	
+	public BlockFeedReader(File file) throws IOException {
+		super();
+		this.reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * 读取下一个区块，已读到末尾时返回null
+	 */
+	public FeedBlock next() throws IOException {
+		String line;
+		while((line = reader.readLine()) != null) {
+			if(line.trim().isEmpty()) {
+				continue;
+			}
+			FeedBlock block = JsonUtils.json2Object(line, FeedBlock.class);
+			if(block.getBlockNumber() <= lastBlockNumber) {
+				throw new IllegalStateException("Block number must be increasing, but got " + block.getBlockNumber() + " after " + lastBlockNumber);
+			}
+			lastBlockNumber = block.getBlockNumber();
+			return block;
+		}
+		return null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+	
+}
@@ -0,0 +1,34 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 区块流中的一个区块
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 下午2:01:35
+ */
+public class FeedBlock {
+
+	private long blockNumber;
+	
+	private List<FeedTransaction> transactions = new ArrayList<FeedTransaction>();
+
+	public long getBlockNumber() {
+		return blockNumber;
+	}
+
+	public void setBlockNumber(long blockNumber) {
+		this.blockNumber = blockNumber;
+	}
+
+	public List<FeedTransaction> getTransactions() {
+		return transactions;
+	}
+
+	public void setTransactions(List<FeedTransaction> transactions) {
+		this.transactions = transactions;
+	}
+	
+}
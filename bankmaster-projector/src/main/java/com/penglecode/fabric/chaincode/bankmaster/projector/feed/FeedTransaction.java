@@ -0,0 +1,95 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 区块流中的一笔交易
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 下午2:05:47
+ */
+public class FeedTransaction {
+
+	public static final String VALIDATION_CODE_VALID = "VALID";
+	
+	private String txId;
+	
+	/**
+	 * 智能合约方法名
+	 */
+	private String function;
+	
+	/**
+	 * 提交时的校验结果，只有VALID的交易写集才生效
+	 */
+	private String validationCode;
+	
+	/**
+	 * 写集
+	 */
+	private List<FeedWrite> writes = new ArrayList<FeedWrite>();
+	
+	/**
+	 * 链码事件名称
+	 */
+	private String eventName;
+	
+	/**
+	 * 链码事件内容
+	 */
+	private byte[] eventPayload;
+
+	public boolean isValid() {
+		return VALIDATION_CODE_VALID.equals(validationCode);
+	}
+	
+	public String getTxId() {
+		return txId;
+	}
+
+	public void setTxId(String txId) {
+		this.txId = txId;
+	}
+
+	public String getFunction() {
+		return function;
+	}
+
+	public void setFunction(String function) {
+		this.function = function;
+	}
+
+	public String getValidationCode() {
+		return validationCode;
+	}
+
+	public void setValidationCode(String validationCode) {
+		this.validationCode = validationCode;
+	}
+
+	public List<FeedWrite> getWrites() {
+		return writes;
+	}
+
+	public void setWrites(List<FeedWrite> writes) {
+		this.writes = writes;
+	}
+
+	public String getEventName() {
+		return eventName;
+	}
+
+	public void setEventName(String eventName) {
+		this.eventName = eventName;
+	}
+
+	public byte[] getEventPayload() {
+		return eventPayload;
+	}
+
+	public void setEventPayload(byte[] eventPayload) {
+		this.eventPayload = eventPayload;
+	}
+	
+}
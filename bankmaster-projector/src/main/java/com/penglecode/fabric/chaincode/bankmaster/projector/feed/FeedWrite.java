@@ -0,0 +1,41 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector.feed;
+
+/**
+ * 区块流中交易写集的一个key
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 下午2:03:11
+ */
+public class FeedWrite {
+
+	/**
+	 * 世界状态key
+	 */
+	private String key;
+	
+	/**
+	 * 写入的值，删除key时为null
+	 */
+	private byte[] value;
+
+	public String getKey() {
+		return key;
+	}
+
+	public void setKey(String key) {
+		this.key = key;
+	}
+
+	public byte[] getValue() {
+		return value;
+	}
+
+	public void setValue(byte[] value) {
+		this.value = value;
+	}
+
+	public boolean isDelete() {
+		return value == null;
+	}
+	
+}
@@ -0,0 +1,73 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * 投影检查点：已投影的最后一个区块号及其对应的段存储写入位置，重启时据此恢复而无需从创世区块重放
+ * 
+ * 检查点先写入临时文件再原子重命名，保证任何时刻磁盘上的检查点都是完整的
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 下午3:26:44
+ */
+public class ProjectionCheckpoint {
+
+	private static final String CHECKPOINT_FILE = "checkpoint.properties";
+	
+	/**
+	 * 已投影的最后一个区块号，-1表示尚未投影任何区块
+	 */
+	private final long blockNumber;
+	
+	/**
+	 * 投影完该区块后段存储的写入位置
+	 */
+	private final long writePointer;
+
+	public ProjectionCheckpoint(long blockNumber, long writePointer) {
+		super();
+		this.blockNumber = blockNumber;
+		this.writePointer = writePointer;
+	}
+	
+	/**
+	 * 读取目录下的检查点，不存在时返回初始检查点
+	 */
+	public static ProjectionCheckpoint load(File directory) throws IOException {
+		File file = new File(directory, CHECKPOINT_FILE);
+		if(!file.exists()) {
+			return new ProjectionCheckpoint(-1, 0);
+		}
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			properties.load(in);
+		}
+		return new ProjectionCheckpoint(Long.parseLong(properties.getProperty("blockNumber")), Long.parseLong(properties.getProperty("writePointer")));
+	}
+	
+	public void save(File directory) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("blockNumber", String.valueOf(blockNumber));
+		properties.setProperty("writePointer", String.valueOf(writePointer));
+		File tempFile = new File(directory, CHECKPOINT_FILE + ".tmp");
+		try (OutputStream out = Files.newOutputStream(tempFile.toPath())) {
+			properties.store(out, null);
+		}
+		Files.move(tempFile.toPath(), new File(directory, CHECKPOINT_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public long getBlockNumber() {
+		return blockNumber;
+	}
+
+	public long getWritePointer() {
+		return writePointer;
+	}
+	
+}
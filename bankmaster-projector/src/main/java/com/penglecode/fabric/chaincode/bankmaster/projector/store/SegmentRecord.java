@@ -0,0 +1,29 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector.store;
+
+/**
+ * 段存储中的一条记录
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 下午2:38:15
+ */
+public class SegmentRecord {
+
+	private final byte type;
+	
+	private final byte[] data;
+
+	public SegmentRecord(byte type, byte[] data) {
+		super();
+		this.type = type;
+		this.data = data;
+	}
+
+	public byte getType() {
+		return type;
+	}
+
+	public byte[] getData() {
+		return data;
+	}
+	
+}
@@ -0,0 +1,224 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 基于内存映射文件的追加写存储：数据按固定大小的段文件(segment-000000.dat, segment-000001.dat ...)顺序追加，
+ * 记录一旦写入不再修改，通过记录指针(段号 << 32 | 段内偏移)随机读取
+ * 
+ * 记录格式：int 数据长度 + byte 记录类型 + 数据 + int CRC32(记录类型 + 数据)，长度为0表示段内已无记录
+ * 
+ * 写入只由投影线程进行，读取可以并发进行(每次读取使用映射缓冲区的独立视图)
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月16日 下午2:40:52
+ */
+public class SegmentStore implements Closeable {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	
+	private static final int RECORD_OVERHEAD = 4 + 1 + 4;
+	
+	private static final String SEGMENT_FILE_PREFIX = "segment-";
+	
+	private static final String SEGMENT_FILE_SUFFIX = ".dat";
+	
+	private final File directory;
+	
+	private final int segmentSize;
+	
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+	
+	private volatile long writePointer;
+	
+	/**
+	 * 上次force()之后写入过的第一个段号
+	 */
+	private int firstDirtySegment;
+	
+	/**
+	 * 打开存储目录并将写入位置恢复到指定的记录指针(通常是最近一次检查点的位置)，该位置之后的数据(检查点之后未完成的写入)将被丢弃
+	 * @param directory
+	 * @param segmentSize
+	 * @param recoverPointer
+	 * @throws IOException
+	 */
+	public SegmentStore(File directory, int segmentSize, long recoverPointer) throws IOException {
+		super();
+		if(segmentSize <= RECORD_OVERHEAD) {
+			throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can not create directory: " + directory);
+		}
+		int recoverSegment = segmentOf(recoverPointer);
+		int recoverOffset = offsetOf(recoverPointer);
+		File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX));
+		Arrays.sort(files);
+		for(File file : files) {
+			int segmentNo = Integer.parseInt(file.getName().substring(SEGMENT_FILE_PREFIX.length(), file.getName().length() - SEGMENT_FILE_SUFFIX.length()));
+			if(segmentNo > recoverSegment) {
+				if(!file.delete()) {
+					throw new IOException("Can not delete segment file: " + file);
+				}
+			} else if(segmentNo != segments.size()) {
+				throw new IOException("Segment file is missing before: " + file);
+			} else {
+				segments.add(map(file));
+			}
+		}
+		if(segments.isEmpty()) {
+			segments.add(map(segmentFile(0)));
+		}
+		if(recoverSegment >= segments.size()) {
+			throw new IOException("Segment " + recoverSegment + " of the recover pointer does not exist in " + directory);
+		}
+		ByteBuffer segment = segments.get(recoverSegment).duplicate();
+		segment.position(recoverOffset);
+		byte[] zeros = new byte[8192];
+		while(segment.hasRemaining()) { //清除检查点之后的残留数据
+			segment.put(zeros, 0, Math.min(zeros.length, segment.remaining()));
+		}
+		this.writePointer = recoverPointer;
+		this.firstDirtySegment = recoverSegment;
+	}
+	
+	/**
+	 * 追加一条记录
+	 * @param type		- 记录类型
+	 * @param data
+	 * @return 记录指针
+	 */
+	public long append(byte type, byte[] data) throws IOException {
+		int recordSize = RECORD_OVERHEAD + data.length;
+		if(recordSize > segmentSize) {
+			throw new IllegalArgumentException("Record size " + recordSize + " exceeds segment size " + segmentSize);
+		}
+		int segmentNo = segmentOf(writePointer);
+		int offset = offsetOf(writePointer);
+		if(offset + recordSize > segmentSize) { //当前段剩余空间不足，滚动到新段
+			segmentNo++;
+			offset = 0;
+			segments.add(map(segmentFile(segmentNo)));
+		}
+		CRC32 crc = new CRC32();
+		crc.update(type);
+		crc.update(data);
+		ByteBuffer buffer = segments.get(segmentNo).duplicate();
+		buffer.position(offset);
+		buffer.putInt(data.length).put(type).put(data).putInt((int) crc.getValue());
+		long pointer = pointer(segmentNo, offset);
+		writePointer = pointer(segmentNo, offset + recordSize);
+		return pointer;
+	}
+	
+	/**
+	 * 读取指定指针处的记录
+	 */
+	public SegmentRecord read(long pointer) {
+		ByteBuffer buffer = segments.get(segmentOf(pointer)).duplicate();
+		buffer.position(offsetOf(pointer));
+		return readRecord(buffer, pointer);
+	}
+	
+	/**
+	 * 按写入顺序遍历从头开始到当前写入位置的所有记录
+	 */
+	public void scan(RecordVisitor visitor) {
+		long endPointer = writePointer;
+		for(int segmentNo = 0; segmentNo <= segmentOf(endPointer); segmentNo++) {
+			ByteBuffer buffer = segments.get(segmentNo).duplicate();
+			int endOffset = segmentNo == segmentOf(endPointer) ? offsetOf(endPointer) : segmentSize;
+			while(buffer.position() + RECORD_OVERHEAD <= endOffset && buffer.getInt(buffer.position()) > 0) {
+				long pointer = pointer(segmentNo, buffer.position());
+				visitor.visit(pointer, readRecord(buffer, pointer));
+			}
+		}
+	}
+	
+	protected SegmentRecord readRecord(ByteBuffer buffer, long pointer) {
+		int length = buffer.getInt();
+		if(length <= 0 || length > segmentSize - RECORD_OVERHEAD) {
+			throw new IllegalStateException("Corrupted record at segment " + segmentOf(pointer) + ", offset " + offsetOf(pointer));
+		}
+		byte type = buffer.get();
+		byte[] data = new byte[length];
+		buffer.get(data);
+		CRC32 crc = new CRC32();
+		crc.update(type);
+		crc.update(data);
+		if(buffer.getInt() != (int) crc.getValue()) {
+			throw new IllegalStateException("CRC mismatch at segment " + segmentOf(pointer) + ", offset " + offsetOf(pointer));
+		}
+		return new SegmentRecord(type, data);
+	}
+	
+	/**
+	 * 将上次force()之后写入的段刷到磁盘，写检查点之前必须调用
+	 */
+	public void force() {
+		int lastSegment = segmentOf(writePointer);
+		for(int segmentNo = firstDirtySegment; segmentNo <= lastSegment; segmentNo++) {
+			segments.get(segmentNo).force();
+		}
+		firstDirtySegment = lastSegment;
+	}
+	
+	/**
+	 * 当前写入位置(下一条记录的指针)
+	 */
+	public long getWritePointer() {
+		return writePointer;
+	}
+	
+	protected MappedByteBuffer map(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize); //文件不足segmentSize时自动扩展(以0填充)
+		}
+	}
+	
+	protected File segmentFile(int segmentNo) {
+		return new File(directory, String.format("%s%06d%s", SEGMENT_FILE_PREFIX, segmentNo, SEGMENT_FILE_SUFFIX));
+	}
+	
+	public static long pointer(int segmentNo, int offset) {
+		return ((long) segmentNo << 32) | (offset & 0xffffffffL);
+	}
+	
+	public static int segmentOf(long pointer) {
+		return (int) (pointer >>> 32);
+	}
+	
+	public static int offsetOf(long pointer) {
+		return (int) pointer;
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		segments.clear(); //映射缓冲区随GC释放
+	}
+	
+	/**
+	 * 记录遍历回调
+	 */
+	@FunctionalInterface
+	public static interface RecordVisitor {
+		
+		public void visit(long pointer, SegmentRecord record);
+		
+	}
+	
+}
@@ -0,0 +1,218 @@
+package com.penglecode.fabric.chaincode.bankmaster.projector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransaction;
+import com.penglecode.fabric.chaincode.bankmaster.domain.CustomerAccount;
+import com.penglecode.fabric.chaincode.bankmaster.projector.feed.BlockFeedReader;
+import com.penglecode.fabric.chaincode.bankmaster.projector.feed.FeedBlock;
+import com.penglecode.fabric.chaincode.bankmaster.projector.feed.FeedTransaction;
+import com.penglecode.fabric.chaincode.bankmaster.projector.feed.FeedWrite;
+import com.penglecode.fabric.chaincode.common.util.CompositeKeyBuilder;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 账户读模型重启测试：关闭后重新打开从检查点恢复索引，只消费检查点之后的区块；
+ * 未写检查点就中断时丢弃检查点之后的写入，重新消费这些区块不会产生重复的交易记录
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月30日 上午10:20:36
+ */
+public class AccountProjectionTest {
+
+	private static final String ACCOUNT_A = "6225000000000001";
+	
+	private static final String ACCOUNT_B = "6225000000000002";
+	
+	private static final int SEGMENT_SIZE = 64 * 1024;
+	
+	private static final CompositeKeyBuilder CUSTOMER_ACCOUNT_KEY_BUILDER = new CompositeKeyBuilder("CUSTOMER_ACCOUNT_");
+	
+	private static final CompositeKeyBuilder DORMANT_ACCOUNT_KEY_BUILDER = new CompositeKeyBuilder("DORMANT_ACCOUNT_");
+	
+	private static final CompositeKeyBuilder ACCOUNT_TRANSACTION_KEY_BUILDER = new CompositeKeyBuilder("ACCOUNT_TRANSACTION_");
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private File directory;
+	
+	private List<FeedBlock> blocks;
+	
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("projection");
+		blocks = new ArrayList<FeedBlock>();
+		//区块1：开户
+		blocks.add(block(1, transaction(FeedTransaction.VALIDATION_CODE_VALID,
+				write(CUSTOMER_ACCOUNT_KEY_BUILDER.build(ACCOUNT_A), account(ACCOUNT_A, 100, 0)),
+				write(CUSTOMER_ACCOUNT_KEY_BUILDER.build(ACCOUNT_B), account(ACCOUNT_B, 200, 0)))));
+		//区块2：A存款，同一区块中一笔失效交易的写集不生效
+		blocks.add(block(2, transaction(FeedTransaction.VALIDATION_CODE_VALID,
+				write(CUSTOMER_ACCOUNT_KEY_BUILDER.build(ACCOUNT_A), account(ACCOUNT_A, 110, 1)),
+				write(transactionKey(ACCOUNT_A, 1), transaction(ACCOUNT_A, 1, 100, 110))),
+				transaction("MVCC_READ_CONFLICT",
+				write(CUSTOMER_ACCOUNT_KEY_BUILDER.build(ACCOUNT_B), account(ACCOUNT_B, 999, 1)))));
+		//区块3：A取款，B转为休眠
+		blocks.add(block(3, transaction(FeedTransaction.VALIDATION_CODE_VALID,
+				write(CUSTOMER_ACCOUNT_KEY_BUILDER.build(ACCOUNT_A), account(ACCOUNT_A, 90, 2)),
+				write(transactionKey(ACCOUNT_A, 2), transaction(ACCOUNT_A, 2, 110, 90))),
+				transaction(FeedTransaction.VALIDATION_CODE_VALID,
+				write(CUSTOMER_ACCOUNT_KEY_BUILDER.build(ACCOUNT_B), null),
+				write(DORMANT_ACCOUNT_KEY_BUILDER.build(ACCOUNT_B), account(ACCOUNT_B, 200, 0)))));
+		//区块4：A存款
+		blocks.add(block(4, transaction(FeedTransaction.VALIDATION_CODE_VALID,
+				write(CUSTOMER_ACCOUNT_KEY_BUILDER.build(ACCOUNT_A), account(ACCOUNT_A, 95, 3)),
+				write(transactionKey(ACCOUNT_A, 3), transaction(ACCOUNT_A, 3, 90, 95)))));
+	}
+	
+	@Test
+	public void testRestartFromCheckpoint() throws IOException {
+		try(AccountProjection projection = new AccountProjection(directory, SEGMENT_SIZE, 2)) {
+			for(int i = 0; i < 3; i++) {
+				projection.project(blocks.get(i));
+			}
+		}
+		
+		try(AccountProjection projection = new AccountProjection(directory, SEGMENT_SIZE, 2)) {
+			assertEquals(3, projection.getLastBlockNumber());
+			assertBlock3Projected(projection);
+			try {
+				projection.project(blocks.get(2));
+				fail("projecting a block twice should be rejected");
+			} catch (IllegalStateException e) {
+				assertTrue(e.getMessage().contains("already been projected"));
+			}
+			
+			try(BlockFeedReader reader = new BlockFeedReader(writeFeed(blocks))) {
+				assertEquals(1, projection.projectFeed(reader)); //只消费检查点之后的区块4
+			}
+			assertEquals(4, projection.getLastBlockNumber());
+			assertEquals(95.0, projection.getAccount(ACCOUNT_A).getAccountBalance(), 0);
+			assertTransactionSeqs(projection, ACCOUNT_A, 3, 2, 1);
+		}
+	}
+	
+	@Test
+	public void testRestartAfterUncheckpointedBlocksAreLost() throws IOException {
+		AccountProjection crashed = new AccountProjection(directory, SEGMENT_SIZE, 2);
+		for(int i = 0; i < 3; i++) {
+			crashed.project(blocks.get(i)); //区块2之后写了检查点，区块3尚未写检查点
+		}
+		//不调用close()，模拟进程中断
+		
+		try(AccountProjection projection = new AccountProjection(directory, SEGMENT_SIZE, 2)) {
+			assertEquals(2, projection.getLastBlockNumber());
+			assertEquals(110.0, projection.getAccount(ACCOUNT_A).getAccountBalance(), 0);
+			assertEquals(2, projection.getAllAccounts().size());
+			assertEquals(200.0, projection.getAccount(ACCOUNT_B).getAccountBalance(), 0); //失效交易的写集没有生效
+			assertTransactionSeqs(projection, ACCOUNT_A, 1);
+			
+			try(BlockFeedReader reader = new BlockFeedReader(writeFeed(blocks.subList(0, 3)))) {
+				assertEquals(1, projection.projectFeed(reader));
+			}
+			assertBlock3Projected(projection);
+		}
+	}
+	
+	private static void assertBlock3Projected(AccountProjection projection) {
+		List<CustomerAccount> accounts = projection.getAllAccounts();
+		assertEquals(1, accounts.size()); //休眠账户不在活跃账户中
+		assertEquals(ACCOUNT_A, accounts.get(0).getAccountNo());
+		assertEquals(90.0, accounts.get(0).getAccountBalance(), 0);
+		CustomerAccount dormant = projection.getAccount(ACCOUNT_B);
+		assertNotNull(dormant);
+		assertEquals(200.0, dormant.getAccountBalance(), 0);
+		assertTransactionSeqs(projection, ACCOUNT_A, 2, 1);
+	}
+	
+	/**
+	 * 断言账户的交易记录(按时间倒序)恰好是指定的序号，没有重复
+	 */
+	private static void assertTransactionSeqs(AccountProjection projection, String accountNo, long... expectedSeqs) {
+		List<AccountTransaction> transactions = projection.getAccountTransactionRecords(accountNo, AccountProjection.DEFAULT_FETCH_SIZE);
+		assertEquals(expectedSeqs.length, transactions.size());
+		for(int i = 0; i < expectedSeqs.length; i++) {
+			assertEquals(expectedSeqs[i], transactions.get(i).getTransactionSeq().longValue());
+		}
+	}
+	
+	/**
+	 * 按bankmaster-benchmark的BlockFeedWriter的格式写区块流文件，每行一个区块
+	 */
+	private File writeFeed(List<FeedBlock> feedBlocks) throws IOException {
+		File file = folder.newFile();
+		try(OutputStream out = Files.newOutputStream(file.toPath())) {
+			for(FeedBlock block : feedBlocks) {
+				out.write(JsonUtils.object2JsonBytes(block));
+				out.write('\n');
+			}
+		}
+		return file;
+	}
+	
+	private static FeedBlock block(long blockNumber, FeedTransaction... transactions) {
+		FeedBlock block = new FeedBlock();
+		block.setBlockNumber(blockNumber);
+		for(FeedTransaction transaction : transactions) {
+			transaction.setTxId(blockNumber + "-" + block.getTransactions().size());
+			block.getTransactions().add(transaction);
+		}
+		return block;
+	}
+	
+	private static FeedTransaction transaction(String validationCode, FeedWrite... writes) {
+		FeedTransaction transaction = new FeedTransaction();
+		transaction.setValidationCode(validationCode);
+		for(FeedWrite write : writes) {
+			transaction.getWrites().add(write);
+		}
+		return transaction;
+	}
+	
+	private static FeedWrite write(String key, byte[] value) {
+		FeedWrite write = new FeedWrite();
+		write.setKey(key);
+		write.setValue(value);
+		return write;
+	}
+	
+	private static byte[] account(String accountNo, double balance, long transactionSeq) {
+		CustomerAccount account = new CustomerAccount();
+		account.setAccountNo(accountNo);
+		account.setRealName("测试" + accountNo.substring(12));
+		account.setAccountBalance(balance);
+		account.setTransactionSeq(transactionSeq);
+		return JsonUtils.object2JsonBytes(account);
+	}
+	
+	private static byte[] transaction(String accountNo, long transactionSeq, double beforeBalance, double afterBalance) {
+		AccountTransaction transaction = new AccountTransaction();
+		transaction.setTransactionAccountNo(accountNo);
+		transaction.setTransactionSeq(transactionSeq);
+		transaction.setBeforeAccountBalance(beforeBalance);
+		transaction.setAfterAccountBalance(afterBalance);
+		transaction.setTransactionBalance(Math.abs(afterBalance - beforeBalance));
+		return JsonUtils.object2JsonBytes(transaction);
+	}
+	
+	private static String transactionKey(String accountNo, long transactionSeq) {
+		return ACCOUNT_TRANSACTION_KEY_BUILDER.build(accountNo, transactionSeq, 10);
+	}
+	
+}
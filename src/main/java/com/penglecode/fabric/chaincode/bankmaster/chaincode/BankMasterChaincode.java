@@ -1,464 +1,2726 @@
-package com.penglecode.fabric.chaincode.bankmaster.chaincode;
-
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-
-import org.apache.commons.lang3.ArrayUtils;
-import org.apache.commons.lang3.ObjectUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.apache.commons.lang3.math.NumberUtils;
-import org.hyperledger.fabric.shim.ChaincodeBase;
-import org.hyperledger.fabric.shim.ChaincodeStub;
-import org.hyperledger.fabric.shim.ledger.KeyModification;
-import org.hyperledger.fabric.shim.ledger.KeyValue;
-import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.util.CollectionUtils;
-
-import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransaction;
-import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransactionType;
-import com.penglecode.fabric.chaincode.bankmaster.domain.CustomerAccount;
-import com.penglecode.fabric.chaincode.common.util.JsonUtils;
-
-/**
- * BankMaster应用的智能合约
- * 
- * !!!注意：请不要在在链码中使用与本机相关的信息(例如本机当前时间)，以免可能造成背书结果不一致而导致事物失败，请在SDK客户端使用transient data进行传递!!!
- * 
- * @author 	pengpeng
- * @date	2018年12月25日 下午4:09:58
- */
-public class BankMasterChaincode extends ChaincodeBase {
-
-	private static final Logger LOGGER = LoggerFactory.getLogger(BankMasterChaincode.class);
-	
-	private static final Charset CHARSET = StandardCharsets.UTF_8;
-	
-	private static final Double DEFAULT_ACCOUNT_BALANCE = 0.0;
-	
-	private static final String KEY_BANK_BALANCE = "BANK_BALANCE";
-	
-	private static final String KEY_PREFIX_CUSTOMER_ACCOUNT = "CUSTOMER_ACCOUNT_";
-	
-	private static final String KEY_PREFIX_ACCOUNT_TRANSACTION = "ACCOUNT_TRANSACTION_";
-	
-	/**
-	 * 智能合约初始化
-	 * 参数列表：parameters[0] = 100		<银行资产金额>
-	 */
-	@Override
-	public Response init(ChaincodeStub stub) {
-		List<String> parameters = stub.getParameters();
-		LOGGER.info(">>> parameters = {}, args = {}", stub.getParameters(), stub.getStringArgs());
-		Double bankBalance = DEFAULT_ACCOUNT_BALANCE;
-		if(parameters.size() == 1 && NumberUtils.isCreatable(StringUtils.trimToEmpty(parameters.get(0))) 
-				&& (bankBalance = Double.parseDouble(StringUtils.trimToEmpty(parameters.get(0)))) > 0) {
-			stub.putStringState(KEY_BANK_BALANCE, bankBalance.toString()); //初始化银行资产
-			return newSuccessResponse("初始化智能合约成功!");
-        } else {
-        	return newErrorResponse("初始化智能合约失败：参数只能有一个，并且为非负数值类型数据!");
-        }
-	}
-
-	/**
-	 * 调用智能合约
-	 */
-	@Override
-	public Response invoke(ChaincodeStub stub) {
-		String function = stub.getFunction();
-        List<String> args = stub.getParameters();
-        LOGGER.info(">>> 调用智能合约开始，function = {}, args = {}", function, args);
-        Response response = null;
-        try {
-	        response = doInvoke(stub, function, args);
-        } catch (Throwable e) {
-        	LOGGER.error(e.getMessage(), e);
-        	response = newErrorResponse(String.format("调用智能合约出错：%s", ExceptionUtils.getRootCauseMessage(e)));
-        }
-        LOGGER.info("<<< 调用智能合约结束，response = [status = {}, message = {}, payload = {}]", response.getStatus().getCode(), response.getMessage(), response.getPayload() == null ? null : new String(response.getPayload(), CHARSET));
-        return response;
-	}
-	
-	protected Response doInvoke(ChaincodeStub stub, String function, List<String> args) throws Exception {
-		if("createAccount".equals(function)) {
-        	return createAccount(stub, args);
-        } else if ("depositMoney".equals(function)) {
-        	return depositMoney(stub, args);
-        } else if ("drawalMoney".equals(function)) {
-        	return drawalMoney(stub, args);
-        } else if ("transferAccount".equals(function)) {
-        	return transferAccount(stub, args);
-        } else if ("getAccountBalance".equals(function)) {
-        	return getAccountBalance(stub, args);
-        } else if ("getAllAccounts".equals(function)) {
-        	return getAllAccounts(stub, args);
-        } else if ("getAccountTransactionRecords".equals(function)) {
-        	return getAccountTransactionRecords(stub, args);
-        }
-		return newErrorResponse(String.format("不存在的智能合约方法名: %s", function));
-	}
-	
-	/**
-	 * 客户开户
-	 * 参数列表：parameters[0] = {"accountNo":null,"realName":"彭三","idCardNo":"342425198607284712","mobilePhone":"15151887280"} 		<客户资料json>
-	 * @param stub
-	 * @param args
-	 * @return
-	 * @throws Exception
-	 */
-	protected Response createAccount(ChaincodeStub stub, List<String> args) throws Exception {
-		String requestBody = null;
-		if(args.size() == 1 && JsonUtils.isJsonObject((requestBody = args.get(0)))) {
-			CustomerAccount account = JsonUtils.json2Object(requestBody, CustomerAccount.class);
-			if(StringUtils.isBlank(account.getRealName())) {
-				return newErrorResponse("请求参数不合法：开户人真实姓名不能为空!");
-			}
-			if(StringUtils.isBlank(account.getIdCardNo())) {
-				return newErrorResponse("请求参数不合法：开户人身份证号码不能为空!");
-			}
-			if(StringUtils.isBlank(account.getMobilePhone())) {
-				return newErrorResponse("请求参数不合法：开户人手机号码不能为空!");
-			}
-			account.setAccountBalance(ObjectUtils.defaultIfNull(account.getAccountBalance(), DEFAULT_ACCOUNT_BALANCE));
-			
-			String jsonAccount = saveCustomerAccount(stub, account); //保存账户
-			
-			AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), 0.0,
-					account.getAccountBalance(), account.getAccountBalance(), null,
-					AccountTransactionType.CREATE_ACCOUNT.name(), AccountTransactionType.CREATE_ACCOUNT.getDescription(), account.getCreatedTime());
-			
-			saveAccountTransaction(stub, transaction); //保存账户交易快照
-			
-			saveBankBalance(stub, account.getAccountBalance()); //保存银行余额
-			
-			return newSuccessResponse("开户成功!", jsonAccount.getBytes(CHARSET));
-		} else {
-			return newErrorResponse("请求参数不合法：参数只能有一个，并且为json类型数据!");
-		}
-	}
-	
-	/**
-	 * 客户存款
-	 * 参数列表：parameters[0] = 6225778834761431			<客户账户卡号>
-	 * 			 parameters[1] = 500						<存款金额>
-	 * @param stub
-	 * @param args
-	 * @return
-	 * @throws Exception
-	 */
-	protected synchronized Response depositMoney(ChaincodeStub stub, List<String> args) throws Exception {
-		Map<String,byte[]> transients = stub.getTransient();
-		String accountNo = null;
-		String amountValue = null;
-		if(args.size() == 2) {
-			accountNo = StringUtils.trimToEmpty(args.get(0));
-			if(!accountNo.matches("\\d{16}")) {
-				return newErrorResponse("请求参数不合法：第一个参数为账户卡号，必须是16位银行卡号!");
-			}
-			amountValue = StringUtils.trimToEmpty(args.get(1));
-			if(!NumberUtils.isCreatable(amountValue)) {
-				return newErrorResponse("请求参数不合法：第二个参数为存款金额，必须是大于0的数值类型!");
-			}
-			Double amount = Double.valueOf(amountValue);
-			if(amount <= 0) {
-				return newErrorResponse("请求参数不合法：第二个参数为存款金额，必须是大于0的数值类型!");
-			}
-			
-			CustomerAccount account = getCustomerAccountByNo(stub, accountNo);
-			if(account == null) {
-				return newErrorResponse(String.format("对不起，账号(%s)不存在!", accountNo));
-			}
-			
-			byte[] transactionTimeBytes = transients.get("transactionTime");
-			if(ArrayUtils.isEmpty(transactionTimeBytes)) {
-				return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
-			}
-			String transactionTime = new String(transactionTimeBytes, CHARSET);
-			
-			double balance = account.getAccountBalance();
-			account.setAccountBalance(balance + amount); //更新余额
-			
-			saveCustomerAccount(stub, account); //保存账户
-			
-			AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), balance,
-					account.getAccountBalance(), amount, null,
-					AccountTransactionType.DEPOSITE_MONEY.name(), AccountTransactionType.DEPOSITE_MONEY.getDescription(), transactionTime);
-			
-			saveAccountTransaction(stub, transaction); //保存账户交易快照
-			
-			saveBankBalance(stub, amount); //保存银行余额
-			
-			return newSuccessResponse("存款成功!", account.getAccountBalance().toString().getBytes(CHARSET));
-		} else {
-			return newErrorResponse("请求参数不合法：参数只能有两个!");
-		}
-	}
-	
-	/**
-	 * 客户取款
-	 * 参数列表：parameters[0] = 6225778834761431			<客户账户卡号>
-	 * 			 parameters[1] = 500						<取款金额>
-	 * @param stub
-	 * @param args
-	 * @return
-	 * @throws Exception
-	 */
-	protected synchronized Response drawalMoney(ChaincodeStub stub, List<String> args) throws Exception {
-		Map<String,byte[]> transients = stub.getTransient();
-		String accountNo = null;
-		String amountValue = null;
-		if(args.size() == 2) {
-			accountNo = StringUtils.trimToEmpty(args.get(0));
-			if(!accountNo.matches("\\d{16}")) {
-				return newErrorResponse("请求参数不合法：第一个参数为账户卡号，必须是16位银行卡号!");
-			}
-			amountValue = StringUtils.trimToEmpty(args.get(1));
-			if(!NumberUtils.isCreatable(amountValue)) {
-				return newErrorResponse("请求参数不合法：第二个参数为取款金额，必须是大于0的数值类型!");
-			}
-			Double amount = Double.valueOf(amountValue);
-			if(amount <= 0) {
-				return newErrorResponse("请求参数不合法：第二个参数为取款金额，必须是大于0的数值类型!");
-			}
-			
-			CustomerAccount account = getCustomerAccountByNo(stub, accountNo);
-			if(account == null) {
-				return newErrorResponse(String.format("对不起，账号(%s)不存在!", accountNo));
-			}
-			
-			byte[] transactionTimeBytes = transients.get("transactionTime");
-			if(ArrayUtils.isEmpty(transactionTimeBytes)) {
-				return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
-			}
-			String transactionTime = new String(transactionTimeBytes, CHARSET);
-			
-			double balance = account.getAccountBalance();
-			account.setAccountBalance(balance - amount); //更新余额
-			
-			saveCustomerAccount(stub, account); //保存账户
-			
-			AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), balance,
-					account.getAccountBalance(), amount, null,
-					AccountTransactionType.DRAWAL_MONEY.name(), AccountTransactionType.DRAWAL_MONEY.getDescription(), transactionTime);
-			
-			saveAccountTransaction(stub, transaction); //保存账户交易快照
-			
-			saveBankBalance(stub, -amount); //保存银行余额
-			
-			return newSuccessResponse("取款成功!", account.getAccountBalance().toString().getBytes(CHARSET));
-		} else {
-			return newErrorResponse("请求参数不合法：参数只能有两个!");
-		}
-	}
-	
-	/**
-	 * 客户转账
-	 * 参数列表：parameters[0] = 6225778834761431			<转出账户卡号>
-	 * 			 parameters[1] = 6225778834761432			<转入账户卡号>
-	 * 			 parameters[2] = 500						<转账金额>
-	 * @param stub
-	 * @param args
-	 * @return
-	 * @throws Exception
-	 */
-	protected synchronized Response transferAccount(ChaincodeStub stub, List<String> args) throws Exception {
-		Map<String,byte[]> transients = stub.getTransient();
-		String accountANo = null, accountBNo = null;
-		String amountValue = null;
-		if(args.size() == 3) {
-			accountANo = StringUtils.trimToEmpty(args.get(0));
-			if(!accountANo.matches("\\d{16}")) {
-				return newErrorResponse("请求参数不合法：第一个参数为转出账户卡号，必须是16位银行卡号!");
-			}
-			accountBNo = StringUtils.trimToEmpty(args.get(1));
-			if(!accountBNo.matches("\\d{16}")) {
-				return newErrorResponse("请求参数不合法：第二个参数为转入账户卡号，必须是16位银行卡号!");
-			}
-			amountValue = StringUtils.trimToEmpty(args.get(2));
-			if(!NumberUtils.isCreatable(amountValue)) {
-				return newErrorResponse("请求参数不合法：第三个参数为转账金额，必须是大于0的数值类型!");
-			}
-			Double amount = Double.valueOf(amountValue);
-			if(amount <= 0) {
-				return newErrorResponse("请求参数不合法：第三个参数为转账金额，必须是大于0的数值类型!");
-			}
-			
-			CustomerAccount accountA = getCustomerAccountByNo(stub, accountANo);
-			if(accountA == null) {
-				return newErrorResponse(String.format("对不起，转出账号(%s)不存在!", accountANo));
-			}
-			CustomerAccount accountB = getCustomerAccountByNo(stub, accountBNo);
-			if(accountB == null) {
-				return newErrorResponse(String.format("对不起，转入账号(%s)不存在!", accountBNo));
-			}
-			
-			byte[] transactionTimeBytes = transients.get("transactionTime");
-			if(ArrayUtils.isEmpty(transactionTimeBytes)) {
-				return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
-			}
-			String transactionTime = new String(transactionTimeBytes, CHARSET);
-			
-			double balanceA = accountA.getAccountBalance();
-			accountA.setAccountBalance(balanceA - amount); //更新余额
-			
-			double balanceB = accountB.getAccountBalance();
-			accountB.setAccountBalance(balanceB + amount); //更新余额
-			
-			saveCustomerAccount(stub, accountA); //保存账户
-			
-			AccountTransaction transactionA = new AccountTransaction(stub.getTxId(), accountA.getAccountNo(), balanceA,
-					accountA.getAccountBalance(), amount, accountB.getAccountNo(),
-					AccountTransactionType.TRANSFER_OUT.name(), AccountTransactionType.TRANSFER_OUT.getDescription(), transactionTime);
-			
-			saveAccountTransaction(stub, transactionA); //保存账户交易快照
-			
-			saveBankBalance(stub, -amount); //保存银行余额
-			
-			saveCustomerAccount(stub, accountB); //保存账户
-			
-			AccountTransaction transactionB = new AccountTransaction(stub.getTxId(), accountB.getAccountNo(), balanceB,
-					accountB.getAccountBalance(), amount, accountA.getAccountNo(),
-					AccountTransactionType.TRANSFER_IN.name(), AccountTransactionType.TRANSFER_IN.getDescription(), transactionTime);
-			
-			saveAccountTransaction(stub, transactionB); //保存账户交易快照
-			
-			saveBankBalance(stub, amount); //保存银行余额
-			
-			return newSuccessResponse("转账成功!", accountA.getAccountBalance().toString().getBytes(CHARSET));
-		} else {
-			return newErrorResponse("请求参数不合法：参数只能有三个!");
-		}
-	}
-	
-	/**
-	 * 查询账户余额
-	 * 参数列表：parameters[0] = 6225778834761431			<账户卡号>
-	 * @param stub
-	 * @param args
-	 * @return
-	 * @throws Exception
-	 */
-	protected Response getAccountBalance(ChaincodeStub stub, List<String> args) throws Exception {
-		String accountNo = null;
-		if(args.size() == 1 && (accountNo = StringUtils.trimToEmpty(args.get(0))).matches("\\d{16}")) {
-			CustomerAccount account = getCustomerAccountByNo(stub, accountNo);
-			if(account == null) {
-				return newErrorResponse(String.format("对不起，账号(%s)不存在!", accountNo));
-			}
-			return newSuccessResponse("查询余额成功!", account.getAccountBalance().toString().getBytes(CHARSET));
-		} else {
-			return newErrorResponse("请求参数不合法：参数只能有一个，且必须是16位银行卡号!");
-		}
-	}
-	
-	/**
-	 * 查询所有账户列表
-	 * @param stub
-	 * @param args
-	 * @return
-	 * @throws Exception
-	 */
-	protected Response getAllAccounts(ChaincodeStub stub, List<String> args) throws Exception {
-		List<String> accounts = new ArrayList<String>();
-		String compositeKey = stub.createCompositeKey(KEY_PREFIX_CUSTOMER_ACCOUNT).toString();
-		QueryResultsIterator<KeyValue> results = stub.getStateByPartialCompositeKey(compositeKey);
-		for(Iterator<KeyValue> it = results.iterator(); it.hasNext();) {
-			KeyValue kv = it.next();
-			accounts.add(kv.getStringValue());
-		}
-		results.close();
-		String payload = "[" + StringUtils.join(accounts, ",") + "]";
-		return newSuccessResponse("查询所有账户列表成功!", payload.getBytes(CHARSET));
-	}
-	
-	/**
-	 * 查询账户的最近多少条交易记录
-	 * 参数列表：parameters[0] = 6225778834761431			<账户卡号>
-	 * 			 parameters[1] = 10							<返回记录条数>
-	 * @param stub
-	 * @param args
-	 * @return
-	 * @throws Exception
-	 */
-	protected Response getAccountTransactionRecords(ChaincodeStub stub, List<String> args) throws Exception {
-		String accountNo = null;
-		int fetchSize = 10;
-		if(CollectionUtils.isEmpty(args)) {
-			return newErrorResponse("请求参数不合法：至少需要1个参数(16位银行卡号)!");
-		} else if (!(accountNo = StringUtils.trimToEmpty(args.get(0))).matches("\\d{16}")) {
-			return newErrorResponse("请求参数不合法：第1个参数必须是16位银行卡号!");
-		} else if (args.size() > 2) {
-			return newErrorResponse("请求参数不合法：参数最多只能有2个，且第一个是16位银行卡号、第2个是返回记录条数!");
-		} else {
-			if(args.size() == 2) {
-				try {
-					fetchSize = Integer.valueOf(args.get(1));
-					fetchSize = fetchSize > 0 ? fetchSize : 10;
-				} catch (Exception e) {}
-			}
-			List<String> records = new ArrayList<String>();
-			String key = createAccountTransactionKey(stub, accountNo);
-			QueryResultsIterator<KeyModification> qrIterator = stub.getHistoryForKey(key);
-			int count = 0;
-			if(qrIterator != null) {
-				Iterator<KeyModification> it = qrIterator.iterator();
-				while(it.hasNext()) {
-					records.add(it.next().getStringValue());
-					if(++count >= fetchSize) {
-						break;
-					}
-				}
-			}
-			return newSuccessResponse("查询账户交易记录成功!", records.toString().getBytes(CHARSET));
-		}
-	}
-	
-	protected String createCustomerAccountKey(ChaincodeStub stub, String accountNo) {
-		return stub.createCompositeKey(KEY_PREFIX_CUSTOMER_ACCOUNT, accountNo).toString();
-	}
-	
-	protected String createAccountTransactionKey(ChaincodeStub stub, String accountNo) {
-		return stub.createCompositeKey(KEY_PREFIX_ACCOUNT_TRANSACTION, accountNo).toString();
-	}
-	
-	protected CustomerAccount getCustomerAccountByNo(ChaincodeStub stub, String accountNo) {
-		String key = createCustomerAccountKey(stub, accountNo);
-		String value = stub.getStringState(key);
-		if(!StringUtils.isEmpty(value)) {
-			return JsonUtils.json2Object(value, CustomerAccount.class);
-		}
-		return null;
-	}
-	
-	protected String saveCustomerAccount(ChaincodeStub stub, CustomerAccount account) {
-		String jsonAccount = JsonUtils.object2Json(account);
-		stub.putStringState(createCustomerAccountKey(stub, account.getAccountNo()), jsonAccount); //修改账本
-		return jsonAccount;
-	}
-	
-	protected String saveAccountTransaction(ChaincodeStub stub, AccountTransaction transaction) {
-		String jsonTransaction = JsonUtils.object2Json(transaction);
-		stub.putStringState(createAccountTransactionKey(stub, transaction.getTransactionAccountNo()), jsonTransaction); //修改账本
-		return jsonTransaction;
-	}
-	
-	protected Double saveBankBalance(ChaincodeStub stub, Double delta) {
-		Double bankBalance = Double.valueOf(stub.getStringState(KEY_BANK_BALANCE));
-		bankBalance = bankBalance + delta;
-		stub.putStringState(KEY_BANK_BALANCE, String.valueOf(bankBalance));
-		return bankBalance;
-	}
-	
-	public static void main(String[] args) {
-		LOGGER.info(">>> Chaincode starting, args = {}", Arrays.toString(args));
-        new BankMasterChaincode().start(args);
-    }
-
-}
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hyperledger.fabric.shim.ChaincodeBase;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.KeyModification;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.protos.msp.Identities.SerializedIdentity;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransaction;
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransactionArchive;
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransactionCheckpoint;
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransactionType;
+import com.penglecode.fabric.chaincode.bankmaster.domain.ChaincodeConfig;
+import com.penglecode.fabric.chaincode.bankmaster.domain.CustomerAccount;
+import com.penglecode.fabric.chaincode.bankmaster.domain.RequestDedupRecord;
+import com.penglecode.fabric.chaincode.bankmaster.domain.SettlementCheckpoint;
+import com.penglecode.fabric.chaincode.bankmaster.domain.SettlementRule;
+import com.penglecode.fabric.chaincode.bankmaster.domain.ShardBalance;
+import com.penglecode.fabric.chaincode.bankmaster.domain.ShardConfig;
+import com.penglecode.fabric.chaincode.bankmaster.domain.ShardTransfer;
+import com.penglecode.fabric.chaincode.bankmaster.domain.ShardTransferStatus;
+import com.penglecode.fabric.chaincode.bankmaster.event.AccountEvent;
+import com.penglecode.fabric.chaincode.bankmaster.exception.FabricChaincodeException;
+import com.penglecode.fabric.chaincode.bankmaster.snapshot.SnapshotPageWriter;
+import com.penglecode.fabric.chaincode.common.util.CompositeKeyBuilder;
+import com.penglecode.fabric.chaincode.common.util.DateTimeUtils;
+import com.penglecode.fabric.chaincode.common.util.GzipUtils;
+import com.penglecode.fabric.chaincode.common.util.HashUtils;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+import com.penglecode.fabric.chaincode.common.util.ThresholdGzipOutputStream;
+
+/**
+ * BankMaster应用的智能合约
+ * 
+ * !!!注意：请不要在在链码中使用与本机相关的信息(例如本机当前时间)，以免可能造成背书结果不一致而导致事物失败，请在SDK客户端使用transient data进行传递!!!
+ * 
+ * @author 	pengpeng
+ * @date	2018年12月25日 下午4:09:58
+ */
+public class BankMasterChaincode extends ChaincodeBase {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BankMasterChaincode.class);
+	
+	private static final Charset CHARSET = StandardCharsets.UTF_8;
+	
+	private static final Double DEFAULT_ACCOUNT_BALANCE = 0.0;
+	
+	private static final String KEY_BANK_BALANCE = "BANK_BALANCE";
+	
+	/**
+	 * 跨分片转账中已从本分片账户扣款、尚未结清或撤销的在途金额
+	 */
+	private static final String KEY_ESCROW_BALANCE = "ESCROW_BALANCE";
+	
+	private static final String KEY_SHARD_CONFIG = "SHARD_CONFIG";
+	
+	/**
+	 * 链码运行配置(分页大小、批量上限等)，见ChaincodeConfig
+	 */
+	private static final String KEY_CHAINCODE_CONFIG = "CONFIG";
+	
+	private static final String KEY_PREFIX_CUSTOMER_ACCOUNT = "CUSTOMER_ACCOUNT_";
+	
+	private static final String KEY_PREFIX_ACCOUNT_TRANSACTION = "ACCOUNT_TRANSACTION_";
+	
+	private static final String KEY_PREFIX_ACCOUNT_TRANSACTION_ARCHIVE = "ACCOUNT_TRANSACTION_ARCHIVE_";
+	
+	private static final CompositeKeyBuilder CUSTOMER_ACCOUNT_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_CUSTOMER_ACCOUNT);
+	
+	/**
+	 * 休眠账户(长期没有客户交易的账户)单独存放，活跃账户的全量扫描不再经过这些key
+	 */
+	private static final String KEY_PREFIX_DORMANT_ACCOUNT = "DORMANT_ACCOUNT_";
+	
+	private static final CompositeKeyBuilder DORMANT_ACCOUNT_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_DORMANT_ACCOUNT);
+	
+	private static final CompositeKeyBuilder ACCOUNT_TRANSACTION_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_ACCOUNT_TRANSACTION);
+	
+	private static final CompositeKeyBuilder ACCOUNT_TRANSACTION_ARCHIVE_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_ACCOUNT_TRANSACTION_ARCHIVE);
+	
+	/**
+	 * 账户交易记录检查点(每transactionCheckpointInterval条交易记录一个)，见AccountTransactionCheckpoint
+	 */
+	private static final String KEY_PREFIX_ACCOUNT_TRANSACTION_CHECKPOINT = "ACCOUNT_TRANSACTION_CHECKPOINT_";
+	
+	private static final CompositeKeyBuilder ACCOUNT_TRANSACTION_CHECKPOINT_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_ACCOUNT_TRANSACTION_CHECKPOINT);
+	
+	private static final String KEY_PREFIX_REQUEST_DEDUP = "REQUEST_DEDUP_";
+	
+	private static final CompositeKeyBuilder REQUEST_DEDUP_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_REQUEST_DEDUP);
+	
+	/**
+	 * 请求去重记录的过期索引(请求日期 + requestId)，按日期有序，供purgeRequestDedups按日期清理
+	 */
+	private static final String KEY_PREFIX_REQUEST_DEDUP_EXPIRY = "REQUEST_DEDUP_EXPIRY_";
+	
+	private static final CompositeKeyBuilder REQUEST_DEDUP_EXPIRY_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_REQUEST_DEDUP_EXPIRY);
+	
+	private static final String KEY_PREFIX_SETTLEMENT_RULE = "SETTLEMENT_RULE_";
+	
+	private static final CompositeKeyBuilder SETTLEMENT_RULE_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_SETTLEMENT_RULE);
+	
+	private static final String KEY_PREFIX_SETTLEMENT_CHECKPOINT = "SETTLEMENT_CHECKPOINT_";
+	
+	private static final CompositeKeyBuilder SETTLEMENT_CHECKPOINT_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_SETTLEMENT_CHECKPOINT);
+	
+	private static final String KEY_PREFIX_SHARD_TRANSFER = "SHARD_TRANSFER_";
+	
+	private static final CompositeKeyBuilder SHARD_TRANSFER_KEY_BUILDER = new CompositeKeyBuilder(KEY_PREFIX_SHARD_TRANSFER);
+	
+	/**
+	 * 结算规则ID：1~64位字母、数字、下划线或中划线
+	 */
+	private static final String SETTLEMENT_RULE_ID_REGEX = "[A-Za-z0-9_\\-]{1,64}";
+	
+	/**
+	 * 跨分片转账ID：1~64位字母、数字、下划线或中划线
+	 */
+	private static final String SHARD_TRANSFER_ID_REGEX = "[A-Za-z0-9_\\-]{1,64}";
+	
+	/**
+	 * 最多支持的分片数
+	 */
+	private static final int MAX_SHARD_COUNT = 64;
+	
+	private static final int ACCOUNT_NO_LENGTH = 16;
+	
+	/**
+	 * 交易时间所在的时区，固定为东八区以保证各个背书节点解析结果一致
+	 */
+	private static final ZoneOffset TRANSACTION_TIME_ZONE = ZoneOffset.ofHours(8);
+	
+	private static final String INVALID_TRANSACTION_TIME_MESSAGE = "请求参数不合法：交易时间(transients[transactionTime])格式必须是yyyy-MM-dd HH:mm:ss[.SSS]!";
+	
+	private static final int TRANSACTION_SEQ_WIDTH = 10;
+	
+	private static final int ARCHIVE_BUCKET_SEQ_WIDTH = 6;
+	
+	private static final String RESPONSE_ENCODING_GZIP = "gzip";
+	
+	/**
+	 * 导出快照时活跃账户导出完毕后继续导出休眠账户，这一阶段的bookmark以此为前缀
+	 */
+	private static final String SNAPSHOT_DORMANT_BOOKMARK_PREFIX = "DORMANT:";
+	
+	/**
+	 * 未设置CONFIG key时使用的默认运行配置
+	 */
+	private static final ChaincodeConfig DEFAULT_CHAINCODE_CONFIG = new ChaincodeConfig();
+	
+	private static final String INVALID_CHAINCODE_CONFIG_MESSAGE = "链码运行配置json不合法：各项上限必须是正整数(maxAccountsPageSize可以为0)，默认值不能超过对应的上限，默认开户金额不能为负数!";
+	
+	/**
+	 * 查询结果经过压缩时响应消息的前缀，客户端据此判断是否需要解压payload
+	 */
+	private static final String RESPONSE_ENCODING_GZIP_TAG = "[encoding=gzip]";
+	
+	/**
+	 * 会修改账本的智能合约方法，只有这些方法支持基于transients[requestId]的幂等提交，且执行成功后发出账户变动事件
+	 */
+	private static final Set<String> WRITE_FUNCTIONS = new HashSet<String>(Arrays.asList("createAccount", "createAccounts", "depositMoney", "drawalMoney", "transferAccount", "transferToMany", "archiveTransactions", "purgeRequestDedups", "saveSettlementRule", "runSettlement", "holdTransfer", "creditTransfer", "releaseTransfer", "cancelTransfer", "updateConfig", "markDormant"));
+	
+	/**
+	 * 当前invoke收集的账户变动事件，由saveAccountTransaction逐条添加，invoke成功结束时一次性发出
+	 */
+	private static final ThreadLocal<AccountEvent> CURRENT_ACCOUNT_EVENT = new ThreadLocal<AccountEvent>();
+	
+	/**
+	 * 当前invoke使用的运行配置，每次invoke开始时只读取一次CONFIG key
+	 */
+	private static final ThreadLocal<ChaincodeConfig> CURRENT_CHAINCODE_CONFIG = new ThreadLocal<ChaincodeConfig>();
+	
+	/**
+	 * 调用次数计数，用于调用日志的采样
+	 */
+	private static final AtomicLong INVOKE_COUNTER = new AtomicLong();
+	
+	/**
+	 * 最近一次解析的分片配置(原始值 -> 解析结果)，分片配置在init之后不再变化，避免每次调用都解析json
+	 */
+	private volatile Map.Entry<byte[],ShardConfig> cachedShardConfig;
+	
+	/**
+	 * 最近一次解析的运行配置(原始值 -> 解析结果)，CONFIG key的值不变时不再重复解析json
+	 */
+	private volatile Map.Entry<byte[],ChaincodeConfig> cachedChaincodeConfig;
+	
+	/**
+	 * 智能合约初始化
+	 * 参数列表：parameters[0] = 100		<银行资产金额>
+	 * 			 parameters[1] = {"shardIndex":0,"shardCount":4,"chaincodeNames":["bankmaster0","bankmaster1","bankmaster2","bankmaster3"]}		<可选，分片配置json，不分片时可为空>
+	 * 			 parameters[2] = {"adminMspIds":["Org1MSP"],"defaultFetchSize":10,"maxAccountsPageSize":1000}		<可选，运行配置json，见ChaincodeConfig>
+	 */
+	@Override
+	public Response init(ChaincodeStub stub) {
+		List<String> parameters = stub.getParameters();
+		LOGGER.info(">>> parameters = {}, args = {}", stub.getParameters(), stub.getStringArgs());
+		Double bankBalance = DEFAULT_ACCOUNT_BALANCE;
+		if(parameters.size() >= 1 && parameters.size() <= 3 && NumberUtils.isCreatable(StringUtils.trimToEmpty(parameters.get(0))) 
+				&& (bankBalance = Double.parseDouble(StringUtils.trimToEmpty(parameters.get(0)))) > 0) {
+			if(parameters.size() == 3) {
+				ChaincodeConfig config = parseChaincodeConfig(parameters.get(2));
+				if(config == null) {
+					return newErrorResponse("初始化智能合约失败：第三个参数为" + INVALID_CHAINCODE_CONFIG_MESSAGE);
+				}
+				stub.putState(KEY_CHAINCODE_CONFIG, JsonUtils.object2JsonBytes(config)); //初始化运行配置
+			}
+			if(parameters.size() >= 2 && !StringUtils.isBlank(parameters.get(1))) {
+				ShardConfig shardConfig = parseShardConfig(parameters.get(1));
+				if(shardConfig == null) {
+					return newErrorResponse(String.format("初始化智能合约失败：第二个参数为分片配置json，分片数必须在1~%s之间，分片序号必须小于分片数，且每个分片都必须指定链码名称!", MAX_SHARD_COUNT));
+				}
+				stub.putState(KEY_SHARD_CONFIG, JsonUtils.object2JsonBytes(shardConfig)); //初始化分片配置
+			}
+			stub.putStringState(KEY_BANK_BALANCE, bankBalance.toString()); //初始化银行资产
+			return newSuccessResponse("初始化智能合约成功!");
+        } else {
+        	return newErrorResponse("初始化智能合约失败：参数为1~3个，第一个参数为非负数值类型的银行资产金额，第二个参数为可选的分片配置json，第三个参数为可选的运行配置json!");
+        }
+	}
+
+	/**
+	 * 调用智能合约
+	 */
+	@Override
+	public Response invoke(ChaincodeStub stub) {
+		String function = stub.getFunction();
+        List<String> args = stub.getParameters();
+        Response response = null;
+        boolean logSampled = true;
+        try {
+        	ChaincodeConfig config = getChaincodeConfig(stub); //每次调用只读取一次运行配置
+        	CURRENT_CHAINCODE_CONFIG.set(config);
+        	logSampled = isLogSampled(config);
+        	if(logSampled) {
+        		LOGGER.info(">>> 调用智能合约开始，function = {}, args = {}", function, args); //参数化日志，只在INFO级别开启时才格式化
+        	}
+        	if(WRITE_FUNCTIONS.contains(function)) {
+        		CURRENT_ACCOUNT_EVENT.set(new AccountEvent(function));
+        	}
+        	String requestId = getRequestId(stub, function);
+        	if(requestId == null) {
+        		response = doInvoke(stub, function, args);
+        	} else {
+        		response = doIdempotentInvoke(stub, function, args, requestId);
+        	}
+        	AccountEvent event = CURRENT_ACCOUNT_EVENT.get();
+        	if(event != null && !event.isEmpty() && response.getStatus() == Response.Status.SUCCESS) {
+        		stub.setEvent(AccountEvent.EVENT_NAME, event.encode()); //一笔交易只能有一个事件，批量方法也只发出一个聚合事件，没有交易记录及账户状态变化时不发出事件
+        	}
+        } catch (Throwable e) {
+        	LOGGER.error(e.getMessage(), e);
+        	response = newErrorResponse(String.format("调用智能合约出错：%s", ExceptionUtils.getRootCauseMessage(e)));
+        } finally {
+        	CURRENT_ACCOUNT_EVENT.remove();
+        	CURRENT_CHAINCODE_CONFIG.remove();
+        }
+        if(logSampled && LOGGER.isInfoEnabled()) { //避免在日志关闭时仍然解码payload
+        	LOGGER.info("<<< 调用智能合约结束，response = [status = {}, message = {}, payload = {}]", response.getStatus().getCode(), response.getMessage(), response.getPayload() == null ? null : new String(response.getPayload(), CHARSET));
+        }
+        return response;
+	}
+	
+	/**
+	 * 幂等调用：首次执行成功后将响应结果记录在去重key上，相同requestId的重复请求(例如客户端在MVCC冲突或超时后的重试)直接返回首次的响应结果而不再重复执行
+	 * 
+	 * 去重key只由requestId决定，与交易时间无关，跨过零点或更换了交易时间的重试也能命中首次的记录；
+	 * 首次执行时另按交易日期(transients[transactionTime])写入一个过期索引，过期的记录通过purgeRequestDedups方法按日期清理
+	 * @param stub
+	 * @param function
+	 * @param args
+	 * @param requestId
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response doIdempotentInvoke(ChaincodeStub stub, String function, List<String> args, String requestId) throws Exception {
+		String requestDay = getTransactionDay(getTransactionTime(stub));
+		if(requestDay == null) {
+			return newErrorResponse("请求参数不合法：使用transients[requestId]时交易时间(transients[transactionTime])不能为空且必须以yyyy-MM-dd开头!");
+		}
+		String requestDigest = DigestUtils.md5DigestAsHex((function + "\u0000" + StringUtils.join(args, "\u0000")).getBytes(CHARSET));
+		String dedupKey = createRequestDedupKey(stub, requestId);
+		String value = stub.getStringState(dedupKey);
+		if(!StringUtils.isEmpty(value)) {
+			RequestDedupRecord record = JsonUtils.json2Object(value, RequestDedupRecord.class);
+			if(!requestDigest.equals(record.getRequestDigest())) {
+				return newErrorResponse(String.format("请求参数不合法：requestId(%s)已被其他请求使用!", requestId));
+			}
+			LOGGER.info(">>> 重复的请求，直接返回首次执行结果，requestId = {}, transactionId = {}", requestId, record.getTransactionId());
+			CURRENT_ACCOUNT_EVENT.remove(); //首次执行时已发出过事件
+			return newSuccessResponse(record.getMessage(), record.getPayload());
+		}
+		Response response = doInvoke(stub, function, args);
+		if(response.getStatus() == Response.Status.SUCCESS) {
+			RequestDedupRecord record = new RequestDedupRecord(requestId, stub.getTxId(), requestDigest, response.getMessage(), response.getPayload());
+			stub.putStringState(dedupKey, JsonUtils.object2Json(record)); //修改账本
+			stub.putState(createRequestDedupExpiryKey(stub, requestDay, requestId), new byte[] {0}); //过期索引只需要key
+		}
+		return response;
+	}
+	
+	protected Response doInvoke(ChaincodeStub stub, String function, List<String> args) throws Exception {
+		if("createAccount".equals(function)) {
+        	return createAccount(stub, args);
+        } else if ("createAccounts".equals(function)) {
+        	return createAccounts(stub, args);
+        } else if ("depositMoney".equals(function)) {
+        	return depositMoney(stub, args);
+        } else if ("drawalMoney".equals(function)) {
+        	return drawalMoney(stub, args);
+        } else if ("transferAccount".equals(function)) {
+        	return transferAccount(stub, args);
+        } else if ("transferToMany".equals(function)) {
+        	return transferToMany(stub, args);
+        } else if ("getAccountBalance".equals(function)) {
+        	return getAccountBalance(stub, args);
+        } else if ("getAccountBalances".equals(function)) {
+        	return getAccountBalances(stub, args);
+        } else if ("getAllAccounts".equals(function)) {
+        	return getAllAccounts(stub, args);
+        } else if ("exportSnapshot".equals(function)) {
+        	return exportSnapshot(stub, args);
+        } else if ("getAccountTransactionRecords".equals(function)) {
+        	return getAccountTransactionRecords(stub, args);
+        } else if ("archiveTransactions".equals(function)) {
+        	return archiveTransactions(stub, args);
+        } else if ("purgeRequestDedups".equals(function)) {
+        	return purgeRequestDedups(stub, args);
+        } else if ("saveSettlementRule".equals(function)) {
+        	return saveSettlementRule(stub, args);
+        } else if ("runSettlement".equals(function)) {
+        	return runSettlement(stub, args);
+        } else if ("getBankBalance".equals(function)) {
+        	return getBankBalance(stub, args);
+        } else if ("getTotalBankBalance".equals(function)) {
+        	return getTotalBankBalance(stub, args);
+        } else if ("holdTransfer".equals(function)) {
+        	return holdTransfer(stub, args);
+        } else if ("creditTransfer".equals(function)) {
+        	return creditTransfer(stub, args);
+        } else if ("releaseTransfer".equals(function)) {
+        	return releaseTransfer(stub, args);
+        } else if ("cancelTransfer".equals(function)) {
+        	return cancelTransfer(stub, args);
+        } else if ("getShardTransfer".equals(function)) {
+        	return getShardTransfer(stub, args);
+        } else if ("markDormant".equals(function)) {
+        	return markDormant(stub, args);
+        } else if ("updateConfig".equals(function)) {
+        	return updateConfig(stub, args);
+        } else if ("getConfig".equals(function)) {
+        	return getConfig(stub, args);
+        } else if ("verifyAccount".equals(function)) {
+        	return verifyAccount(stub, args);
+        }
+		return newErrorResponse(String.format("不存在的智能合约方法名: %s", function));
+	}
+	
+	/**
+	 * 客户开户
+	 * 参数列表：parameters[0] = {"accountNo":"6225778834761431","realName":"彭三","idCardNo":"342425198607284712","mobilePhone":"15151887280"} 		<客户资料json>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response createAccount(ChaincodeStub stub, List<String> args) throws Exception {
+		String requestBody = null;
+		if(args.size() == 1 && JsonUtils.isJsonObject((requestBody = args.get(0)))) {
+			CustomerAccount account = JsonUtils.json2Object(requestBody, CustomerAccount.class);
+			if(StringUtils.isBlank(account.getRealName())) {
+				return newErrorResponse("请求参数不合法：开户人真实姓名不能为空!");
+			}
+			if(StringUtils.isBlank(account.getIdCardNo())) {
+				return newErrorResponse("请求参数不合法：开户人身份证号码不能为空!");
+			}
+			if(StringUtils.isBlank(account.getMobilePhone())) {
+				return newErrorResponse("请求参数不合法：开户人手机号码不能为空!");
+			}
+			if(account.getCreatedTime() != null && !isTransactionTime(account.getCreatedTime())) {
+				return newErrorResponse("请求参数不合法：开户时间格式必须是yyyy-MM-dd HH:mm:ss[.SSS]!");
+			}
+			if(account.getAccountBalance() != null && !(account.getAccountBalance() >= 0 && isCentAmount(account.getAccountBalance()))) {
+				return newErrorResponse("请求参数不合法：开户金额不能为负数，且最多两位小数!");
+			}
+			if(!isAccountNo(account.getAccountNo())) { //与批量开户一致，分批扫描账户时按16位卡号拆分查询范围
+				return newErrorResponse("请求参数不合法：账户卡号必须是16位银行卡号!");
+			}
+			ShardConfig shardConfig = getShardConfig(stub);
+			if(shardConfig != null) { //启用分片时卡号决定账户所在的分片
+				String shardError = checkLocalAccount(shardConfig, account.getAccountNo());
+				if(shardError != null) {
+					return newErrorResponse(shardError);
+				}
+			}
+			//与批量开户一致，活跃账户及休眠账户中都不能已存在
+			if(!ArrayUtils.isEmpty(stub.getState(createCustomerAccountKey(stub, account.getAccountNo())))) {
+				return newErrorResponse(String.format("对不起，账号(%s)已存在!", account.getAccountNo()));
+			} else if (!ArrayUtils.isEmpty(stub.getState(createDormantAccountKey(stub, account.getAccountNo())))) {
+				return newErrorResponse(String.format("对不起，账号(%s)已存在(休眠账户)!", account.getAccountNo()));
+			}
+			account.setAccountBalance(ObjectUtils.defaultIfNull(account.getAccountBalance(), getCurrentConfig().getDefaultAccountBalance()));
+			account.setTransactionSeq(null);
+			account.setArchivedTransactionSeq(null);
+			account.setArchiveBucketCount(null);
+			account.setLastActivityTime(null);
+			account.setDormantTime(null);
+			account.setTransactionHash(null);
+			account.setLastCheckpointSeq(null);
+			
+			AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), 0.0,
+					account.getAccountBalance(), account.getAccountBalance(), null,
+					AccountTransactionType.CREATE_ACCOUNT.name(), AccountTransactionType.CREATE_ACCOUNT.getDescription(), account.getCreatedTime());
+			
+			saveAccountTransaction(stub, account, transaction); //保存账户交易快照
+			
+			byte[] jsonAccount = saveCustomerAccount(stub, account); //保存账户
+			
+			saveBankBalance(stub, account.getAccountBalance()); //保存银行余额
+			
+			return newSuccessResponse("开户成功!", jsonAccount);
+		} else {
+			return newErrorResponse("请求参数不合法：参数只能有一个，并且为json类型数据!");
+		}
+	}
+	
+	/**
+	 * 批量开户(用于网点迁移等场景)：先校验全部客户资料，全部合法时才一次性开户并只更新一次银行资产，否则整批拒绝
+	 * 校验内容包括：卡号必须是16位数字，姓名/身份证号/手机号不能为空，开户金额不能为负，卡号在本批次内不能重复且账户不能已存在
+	 * 参数列表：parameters[0] = [{"accountNo":"6225778834761431","realName":"彭三","idCardNo":"342425198607284712","mobilePhone":"15151887280"}, ...] 		<客户资料json数组，或者其gzip压缩后的base64>
+	 * 返回逐行结果：[{"row":0,"accountNo":"6225778834761431","status":"CREATED"}, {"row":1,"accountNo":"...","status":"ALREADY_EXISTS","message":"..."}, ...]
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response createAccounts(ChaincodeStub stub, List<String> args) throws Exception {
+		List<CustomerAccount> accounts = null;
+		if(args.size() != 1 || (accounts = parseCustomerAccounts(args.get(0))) == null) {
+			return newErrorResponse("请求参数不合法：参数只能有一个，并且为json数组或者gzip压缩后的base64编码的json数组!");
+		} else if (accounts.isEmpty() || accounts.size() > getCurrentConfig().getMaxCreateAccounts()) {
+			return newErrorResponse(String.format("请求参数不合法：一次批量开户的账户数必须在1~%s之间!", getCurrentConfig().getMaxCreateAccounts()));
+		}
+		ShardConfig shardConfig = getShardConfig(stub);
+		Map<String,Integer> accountNoCounts = new HashMap<String,Integer>();
+		for(CustomerAccount account : accounts) {
+			if(account != null && account.getAccountNo() != null) {
+				accountNoCounts.merge(account.getAccountNo(), 1, Integer::sum);
+			}
+		}
+		List<Map<String,Object>> results = new ArrayList<Map<String,Object>>(accounts.size());
+		boolean allValid = true;
+		for(int row = 0, size = accounts.size(); row < size; row++) {
+			CustomerAccount account = accounts.get(row);
+			String accountNo = account == null ? null : account.getAccountNo();
+			String status = "CREATED", message = null;
+			if(account == null) {
+				status = "INVALID";
+				message = "客户资料不能为空!";
+			} else if (!isAccountNo(accountNo)) {
+				status = "INVALID";
+				message = "账户卡号必须是16位银行卡号!";
+			} else if (StringUtils.isBlank(account.getRealName())) {
+				status = "INVALID";
+				message = "开户人真实姓名不能为空!";
+			} else if (StringUtils.isBlank(account.getIdCardNo())) {
+				status = "INVALID";
+				message = "开户人身份证号码不能为空!";
+			} else if (StringUtils.isBlank(account.getMobilePhone())) {
+				status = "INVALID";
+				message = "开户人手机号码不能为空!";
+			} else if (account.getAccountBalance() != null && !(account.getAccountBalance() >= 0 && isCentAmount(account.getAccountBalance()))) {
+				status = "INVALID";
+				message = "开户金额不能为负数，且最多两位小数!";
+			} else if (account.getCreatedTime() != null && !isTransactionTime(account.getCreatedTime())) {
+				status = "INVALID";
+				message = "开户时间格式必须是yyyy-MM-dd HH:mm:ss[.SSS]!";
+			} else if ((message = checkLocalAccount(shardConfig, accountNo)) != null) {
+				status = "WRONG_SHARD";
+			} else if (accountNoCounts.get(accountNo) > 1) {
+				status = "DUPLICATE_IN_BATCH";
+				message = String.format("账号(%s)在本批次中重复出现!", accountNo);
+			} else if (!ArrayUtils.isEmpty(stub.getState(createCustomerAccountKey(stub, accountNo))) || !ArrayUtils.isEmpty(stub.getState(createDormantAccountKey(stub, accountNo)))) {
+				status = "ALREADY_EXISTS";
+				message = String.format("账号(%s)已存在!", accountNo);
+			}
+			Map<String,Object> result = new LinkedHashMap<String,Object>();
+			result.put("row", row);
+			result.put("accountNo", accountNo);
+			result.put("status", status);
+			if(message != null) {
+				result.put("message", message);
+				allValid = false;
+			}
+			results.add(result);
+		}
+		if(!allValid) {
+			return newErrorResponse("批量开户失败：部分客户资料不合法，整批未开户!", JsonUtils.object2JsonBytes(results));
+		}
+		
+		double totalBalance = 0;
+		for(CustomerAccount account : accounts) {
+			account.setAccountBalance(ObjectUtils.defaultIfNull(account.getAccountBalance(), getCurrentConfig().getDefaultAccountBalance()));
+			account.setTransactionSeq(null);
+			account.setArchivedTransactionSeq(null);
+			account.setArchiveBucketCount(null);
+			account.setLastActivityTime(null);
+			account.setDormantTime(null);
+			account.setTransactionHash(null);
+			account.setLastCheckpointSeq(null);
+			
+			AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), 0.0,
+					account.getAccountBalance(), account.getAccountBalance(), null,
+					AccountTransactionType.CREATE_ACCOUNT.name(), AccountTransactionType.CREATE_ACCOUNT.getDescription(), account.getCreatedTime());
+			
+			saveAccountTransaction(stub, account, transaction); //保存账户交易快照
+			
+			saveCustomerAccount(stub, account); //保存账户
+			
+			totalBalance += account.getAccountBalance();
+		}
+		saveBankBalance(stub, totalBalance); //整批只更新一次银行余额
+		
+		return newSuccessResponse(String.format("批量开户成功，共开户%s个!", accounts.size()), JsonUtils.object2JsonBytes(results));
+	}
+	
+	/**
+	 * 解析批量开户的客户资料：json数组，或者gzip压缩后base64编码的json数组，格式不正确时返回null
+	 * @param requestBody
+	 * @return
+	 */
+	protected List<CustomerAccount> parseCustomerAccounts(String requestBody) {
+		String json = StringUtils.trimToEmpty(requestBody);
+		if(!json.startsWith("[")) {
+			try {
+				byte[] bytes = Base64.getDecoder().decode(json);
+				json = StringUtils.trimToEmpty(new String(GzipUtils.isGzipped(bytes) ? GzipUtils.decompress(bytes) : bytes, CHARSET));
+			} catch (IllegalArgumentException | UncheckedIOException e) {
+				return null;
+			}
+		}
+		if(!JsonUtils.isJsonArray(json)) {
+			return null;
+		}
+		try {
+			return JsonUtils.json2Object(json, new TypeReference<List<CustomerAccount>>() {});
+		} catch (JsonUtils.JacksonJsonException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * 客户存款
+	 * 参数列表：parameters[0] = 6225778834761431			<客户账户卡号>
+	 * 			 parameters[1] = 500						<存款金额>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected synchronized Response depositMoney(ChaincodeStub stub, List<String> args) throws Exception {
+		String accountNo = null;
+		if(args.size() == 2) {
+			accountNo = StringUtils.trimToEmpty(args.get(0));
+			if(!isAccountNo(accountNo)) {
+				return newErrorResponse("请求参数不合法：第一个参数为账户卡号，必须是16位银行卡号!");
+			}
+			String shardError = checkLocalAccount(getShardConfig(stub), accountNo);
+			if(shardError != null) {
+				return newErrorResponse(shardError);
+			}
+			double amount = parseAmount(args.get(1));
+			if(amount <= 0) {
+				return newErrorResponse("请求参数不合法：第二个参数为存款金额，必须是大于0且最多两位小数的数值类型!");
+			}
+			
+			CustomerAccount account = getCustomerAccountByNo(stub, accountNo);
+			if(account == null) {
+				return newErrorResponse(String.format("对不起，账号(%s)不存在!", accountNo));
+			}
+			
+			String transactionTime = getTransactionTime(stub);
+			if(transactionTime == null) {
+				return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
+			} else if (!isTransactionTime(transactionTime)) {
+				return newErrorResponse(INVALID_TRANSACTION_TIME_MESSAGE);
+			}
+			
+			double balance = account.getAccountBalance();
+			account.setAccountBalance(balance + amount); //更新余额
+			
+			AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), balance,
+					account.getAccountBalance(), amount, null,
+					AccountTransactionType.DEPOSITE_MONEY.name(), AccountTransactionType.DEPOSITE_MONEY.getDescription(), transactionTime);
+			
+			saveAccountTransaction(stub, account, transaction); //保存账户交易快照
+			
+			saveCustomerAccount(stub, account); //保存账户
+			
+			saveBankBalance(stub, amount); //保存银行余额
+			
+			return newSuccessResponse("存款成功!", account.getAccountBalance().toString().getBytes(CHARSET));
+		} else {
+			return newErrorResponse("请求参数不合法：参数只能有两个!");
+		}
+	}
+	
+	/**
+	 * 客户取款
+	 * 参数列表：parameters[0] = 6225778834761431			<客户账户卡号>
+	 * 			 parameters[1] = 500						<取款金额>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected synchronized Response drawalMoney(ChaincodeStub stub, List<String> args) throws Exception {
+		String accountNo = null;
+		if(args.size() == 2) {
+			accountNo = StringUtils.trimToEmpty(args.get(0));
+			if(!isAccountNo(accountNo)) {
+				return newErrorResponse("请求参数不合法：第一个参数为账户卡号，必须是16位银行卡号!");
+			}
+			String shardError = checkLocalAccount(getShardConfig(stub), accountNo);
+			if(shardError != null) {
+				return newErrorResponse(shardError);
+			}
+			double amount = parseAmount(args.get(1));
+			if(amount <= 0) {
+				return newErrorResponse("请求参数不合法：第二个参数为取款金额，必须是大于0且最多两位小数的数值类型!");
+			}
+			
+			CustomerAccount account = getCustomerAccountByNo(stub, accountNo);
+			if(account == null) {
+				return newErrorResponse(String.format("对不起，账号(%s)不存在!", accountNo));
+			}
+			
+			String transactionTime = getTransactionTime(stub);
+			if(transactionTime == null) {
+				return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
+			} else if (!isTransactionTime(transactionTime)) {
+				return newErrorResponse(INVALID_TRANSACTION_TIME_MESSAGE);
+			}
+			
+			double balance = account.getAccountBalance();
+			account.setAccountBalance(balance - amount); //更新余额
+			
+			AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), balance,
+					account.getAccountBalance(), amount, null,
+					AccountTransactionType.DRAWAL_MONEY.name(), AccountTransactionType.DRAWAL_MONEY.getDescription(), transactionTime);
+			
+			saveAccountTransaction(stub, account, transaction); //保存账户交易快照
+			
+			saveCustomerAccount(stub, account); //保存账户
+			
+			saveBankBalance(stub, -amount); //保存银行余额
+			
+			return newSuccessResponse("取款成功!", account.getAccountBalance().toString().getBytes(CHARSET));
+		} else {
+			return newErrorResponse("请求参数不合法：参数只能有两个!");
+		}
+	}
+	
+	/**
+	 * 客户转账
+	 * 参数列表：parameters[0] = 6225778834761431			<转出账户卡号>
+	 * 			 parameters[1] = 6225778834761432			<转入账户卡号>
+	 * 			 parameters[2] = 500						<转账金额>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected synchronized Response transferAccount(ChaincodeStub stub, List<String> args) throws Exception {
+		String accountANo = null, accountBNo = null;
+		if(args.size() == 3) {
+			accountANo = StringUtils.trimToEmpty(args.get(0));
+			if(!isAccountNo(accountANo)) {
+				return newErrorResponse("请求参数不合法：第一个参数为转出账户卡号，必须是16位银行卡号!");
+			}
+			accountBNo = StringUtils.trimToEmpty(args.get(1));
+			if(!isAccountNo(accountBNo)) {
+				return newErrorResponse("请求参数不合法：第二个参数为转入账户卡号，必须是16位银行卡号!");
+			}
+			if(accountBNo.equals(accountANo)) {
+				return newErrorResponse("请求参数不合法：转出账户与转入账户不能相同!");
+			}
+			ShardConfig shardConfig = getShardConfig(stub);
+			String shardError = checkLocalAccount(shardConfig, accountANo);
+			if(shardError != null) {
+				return newErrorResponse(shardError);
+			} else if (checkLocalAccount(shardConfig, accountBNo) != null) {
+				return newErrorResponse(String.format("对不起，转入账号(%s)不在当前分片，跨分片转账请依次调用holdTransfer、creditTransfer、releaseTransfer!", accountBNo));
+			}
+			double amount = parseAmount(args.get(2));
+			if(amount <= 0) {
+				return newErrorResponse("请求参数不合法：第三个参数为转账金额，必须是大于0且最多两位小数的数值类型!");
+			}
+			
+			CustomerAccount accountA = getCustomerAccountByNo(stub, accountANo);
+			if(accountA == null) {
+				return newErrorResponse(String.format("对不起，转出账号(%s)不存在!", accountANo));
+			}
+			CustomerAccount accountB = getCustomerAccountByNo(stub, accountBNo);
+			if(accountB == null) {
+				return newErrorResponse(String.format("对不起，转入账号(%s)不存在!", accountBNo));
+			}
+			
+			String transactionTime = getTransactionTime(stub);
+			if(transactionTime == null) {
+				return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
+			} else if (!isTransactionTime(transactionTime)) {
+				return newErrorResponse(INVALID_TRANSACTION_TIME_MESSAGE);
+			}
+			
+			double balanceA = accountA.getAccountBalance();
+			accountA.setAccountBalance(balanceA - amount); //更新余额
+			
+			double balanceB = accountB.getAccountBalance();
+			accountB.setAccountBalance(balanceB + amount); //更新余额
+			
+			AccountTransaction transactionA = new AccountTransaction(stub.getTxId(), accountA.getAccountNo(), balanceA,
+					accountA.getAccountBalance(), amount, accountB.getAccountNo(),
+					AccountTransactionType.TRANSFER_OUT.name(), AccountTransactionType.TRANSFER_OUT.getDescription(), transactionTime);
+			
+			saveAccountTransaction(stub, accountA, transactionA); //保存账户交易快照
+			
+			saveCustomerAccount(stub, accountA); //保存账户
+			
+			AccountTransaction transactionB = new AccountTransaction(stub.getTxId(), accountB.getAccountNo(), balanceB,
+					accountB.getAccountBalance(), amount, accountA.getAccountNo(),
+					AccountTransactionType.TRANSFER_IN.name(), AccountTransactionType.TRANSFER_IN.getDescription(), transactionTime);
+			
+			saveAccountTransaction(stub, accountB, transactionB); //保存账户交易快照
+			
+			saveCustomerAccount(stub, accountB); //保存账户
+			
+			//银行内部账户之间转账不改变银行资产，无需读写BANK_BALANCE
+			
+			return newSuccessResponse("转账成功!", accountA.getAccountBalance().toString().getBytes(CHARSET));
+		} else {
+			return newErrorResponse("请求参数不合法：参数只能有三个!");
+		}
+	}
+	
+	/**
+	 * 一对多转账(例如代发工资)：转出账户只读写一次，逐笔写入转出/转入交易记录，银行内部转账不改变银行资产
+	 * 参数列表：parameters[0] = 6225778834761431			<转出账户卡号>
+	 * 			 parameters[1] = 6225778834761432			<第1个转入账户卡号>
+	 * 			 parameters[2] = 500						<第1笔转账金额>
+	 * 			 parameters[3] = 6225778834761433			<第2个转入账户卡号>
+	 * 			 parameters[4] = 800						<第2笔转账金额>
+	 * 			 ...
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected synchronized Response transferToMany(ChaincodeStub stub, List<String> args) throws Exception {
+		if(args.size() < 3 || args.size() % 2 == 0) {
+			return newErrorResponse("请求参数不合法：参数依次为转出账户卡号以及一个或多个(转入账户卡号, 转账金额)对!");
+		}
+		int legCount = (args.size() - 1) / 2;
+		int maxTransferLegs = getCurrentConfig().getMaxTransferLegs();
+		if(legCount > maxTransferLegs) {
+			return newErrorResponse("请求参数不合法：单次最多只能转入" + maxTransferLegs + "个账户!");
+		}
+		String sourceNo = StringUtils.trimToEmpty(args.get(0));
+		if(!isAccountNo(sourceNo)) {
+			return newErrorResponse("请求参数不合法：第一个参数为转出账户卡号，必须是16位银行卡号!");
+		}
+		ShardConfig shardConfig = getShardConfig(stub);
+		String shardError = checkLocalAccount(shardConfig, sourceNo);
+		if(shardError != null) {
+			return newErrorResponse(shardError);
+		}
+		String[] targetNos = new String[legCount];
+		double[] amounts = new double[legCount];
+		for(int i = 0; i < legCount; i++) {
+			targetNos[i] = StringUtils.trimToEmpty(args.get(i * 2 + 1));
+			if(!isAccountNo(targetNos[i])) {
+				return newErrorResponse(String.format("请求参数不合法：第%s个转入账户卡号(%s)必须是16位银行卡号!", i + 1, targetNos[i]));
+			}
+			if(targetNos[i].equals(sourceNo)) {
+				return newErrorResponse(String.format("请求参数不合法：第%s个转入账户不能与转出账户相同!", i + 1));
+			}
+			if(checkLocalAccount(shardConfig, targetNos[i]) != null) {
+				return newErrorResponse(String.format("对不起，第%s个转入账号(%s)不在当前分片，批量转账只支持同一分片内的账户!", i + 1, targetNos[i]));
+			}
+			if((amounts[i] = parseAmount(args.get(i * 2 + 2))) <= 0) {
+				return newErrorResponse(String.format("请求参数不合法：第%s笔转账金额必须是大于0且最多两位小数的数值类型!", i + 1));
+			}
+		}
+		
+		CustomerAccount source = getCustomerAccountByNo(stub, sourceNo);
+		if(source == null) {
+			return newErrorResponse(String.format("对不起，转出账号(%s)不存在!", sourceNo));
+		}
+		Map<String,CustomerAccount> targets = new LinkedHashMap<String,CustomerAccount>();
+		for(String targetNo : targetNos) {
+			if(!targets.containsKey(targetNo)) { //同一转入账户出现多次时只读一次
+				CustomerAccount target = getCustomerAccountByNo(stub, targetNo);
+				if(target == null) {
+					return newErrorResponse(String.format("对不起，转入账号(%s)不存在!", targetNo));
+				}
+				targets.put(targetNo, target);
+			}
+		}
+		
+		String transactionTime = getTransactionTime(stub);
+		if(transactionTime == null) {
+			return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
+		} else if (!isTransactionTime(transactionTime)) {
+			return newErrorResponse(INVALID_TRANSACTION_TIME_MESSAGE);
+		}
+		
+		double sourceBalance = source.getAccountBalance();
+		for(int i = 0; i < legCount; i++) {
+			CustomerAccount target = targets.get(targetNos[i]);
+			double amount = amounts[i];
+			
+			AccountTransaction transactionOut = new AccountTransaction(stub.getTxId(), sourceNo, sourceBalance,
+					sourceBalance - amount, amount, targetNos[i],
+					AccountTransactionType.TRANSFER_OUT.name(), AccountTransactionType.TRANSFER_OUT.getDescription(), transactionTime);
+			sourceBalance -= amount;
+			
+			saveAccountTransaction(stub, source, transactionOut); //保存账户交易快照
+			
+			double targetBalance = target.getAccountBalance();
+			target.setAccountBalance(targetBalance + amount); //更新余额
+			
+			AccountTransaction transactionIn = new AccountTransaction(stub.getTxId(), targetNos[i], targetBalance,
+					target.getAccountBalance(), amount, sourceNo,
+					AccountTransactionType.TRANSFER_IN.name(), AccountTransactionType.TRANSFER_IN.getDescription(), transactionTime);
+			
+			saveAccountTransaction(stub, target, transactionIn); //保存账户交易快照
+		}
+		
+		source.setAccountBalance(sourceBalance); //一次性扣减转出总额
+		saveCustomerAccount(stub, source); //保存账户
+		for(CustomerAccount target : targets.values()) {
+			saveCustomerAccount(stub, target); //保存账户
+		}
+		
+		return newSuccessResponse("批量转账成功!", source.getAccountBalance().toString().getBytes(CHARSET));
+	}
+	
+	/**
+	 * 查询账户余额
+	 * 参数列表：parameters[0] = 6225778834761431			<账户卡号>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response getAccountBalance(ChaincodeStub stub, List<String> args) throws Exception {
+		String accountNo = null;
+		if(args.size() == 1 && isAccountNo(accountNo = StringUtils.trimToEmpty(args.get(0)))) {
+			CustomerAccount account = getCustomerAccountByNo(stub, accountNo);
+			if(account == null) {
+				return newErrorResponse(String.format("对不起，账号(%s)不存在!", accountNo));
+			}
+			return newSuccessResponse("查询余额成功!", account.getAccountBalance().toString().getBytes(CHARSET));
+		} else {
+			return newErrorResponse("请求参数不合法：参数只能有一个，且必须是16位银行卡号!");
+		}
+	}
+	
+	/**
+	 * 批量查询账户余额，不存在或卡号不合法的账户在结果中逐条标明，不影响其他账户的查询
+	 * 参数列表(两种形式)：
+	 * 		1、parameters[0..n] = 6225778834761431					<每个参数一个账户卡号>
+	 * 		2、parameters[0] = 62257788347614316225778834761432	<多个16位账户卡号直接拼接(也可用逗号分隔)的紧凑形式>
+	 * 
+	 * 返回：[{"accountNo":"6225778834761431","accountBalance":500.0},{"accountNo":"6225778834761432","error":"NOT_FOUND"}]
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response getAccountBalances(ChaincodeStub stub, List<String> args) throws Exception {
+		if(CollectionUtils.isEmpty(args)) {
+			return newErrorResponse("请求参数不合法：至少需要1个账户卡号!");
+		}
+		List<String> accountNos = args.size() == 1 ? splitPackedAccountNos(args.get(0)) : args;
+		int maxBatchQueryAccounts = getCurrentConfig().getMaxBatchQueryAccounts();
+		if(accountNos.size() > maxBatchQueryAccounts) {
+			return newErrorResponse("请求参数不合法：单次最多查询" + maxBatchQueryAccounts + "个账户!");
+		}
+		StringBuilder payload = new StringBuilder(accountNos.size() * 64 + 2).append('[');
+		for(int i = 0, size = accountNos.size(); i < size; i++) {
+			String accountNo = accountNos.get(i);
+			if(i > 0) {
+				payload.append(',');
+			}
+			payload.append("{\"accountNo\":\"");
+			if(!isAccountNo(accountNo)) {
+				appendJsonEscaped(payload, accountNo).append("\",\"error\":\"INVALID_ACCOUNT_NO\"}");
+				continue;
+			}
+			payload.append(accountNo);
+			byte[] value = stub.getState(createCustomerAccountKey(stub, accountNo));
+			if(ArrayUtils.isEmpty(value)) {
+				value = stub.getState(createDormantAccountKey(stub, accountNo));
+			}
+			Double balance = ArrayUtils.isEmpty(value) ? null : readAccountBalance(value);
+			if(balance == null) {
+				payload.append("\",\"error\":\"NOT_FOUND\"}");
+			} else {
+				payload.append("\",\"accountBalance\":").append(balance.doubleValue()).append('}');
+			}
+		}
+		payload.append(']');
+		return newSuccessResponse("批量查询余额成功!", payload.toString().getBytes(CHARSET));
+	}
+	
+	/**
+	 * 拆分紧凑形式的账户卡号列表：16位卡号直接拼接，或者以逗号/空白分隔
+	 * @param packed
+	 * @return
+	 */
+	protected List<String> splitPackedAccountNos(String packed) {
+		int length = packed.length();
+		List<String> accountNos = new ArrayList<String>(length / ACCOUNT_NO_LENGTH + 1);
+		int start = 0;
+		for(int i = 0; i <= length; i++) {
+			if(i < length && packed.charAt(i) != ',' && !Character.isWhitespace(packed.charAt(i))) {
+				continue;
+			}
+			int tokenLength = i - start;
+			if(tokenLength > ACCOUNT_NO_LENGTH && tokenLength % ACCOUNT_NO_LENGTH == 0) { //多个卡号直接拼接
+				for(int from = start; from < i; from += ACCOUNT_NO_LENGTH) {
+					accountNos.add(packed.substring(from, from + ACCOUNT_NO_LENGTH));
+				}
+			} else if (tokenLength > 0) {
+				accountNos.add(packed.substring(start, i));
+			}
+			start = i + 1;
+		}
+		return accountNos;
+	}
+	
+	/**
+	 * 解析交易金额，不是合法的有限数值或者超过两位小数(精确到分)时返回-1(调用方统一按"必须大于0"校验)，不产生装箱对象
+	 * @param amountValue
+	 * @return
+	 */
+	protected double parseAmount(String amountValue) {
+		try {
+			double amount = Double.parseDouble(amountValue); //自身会忽略首尾空白
+			return amount < Double.POSITIVE_INFINITY && isCentAmount(amount) ? amount : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * 金额是否精确到分(最多两位小数)：交易记录的hash按分计算金额，背书时就拒绝分以下的金额，
+	 * 否则例如0.001与0.004换算为分后相同，hash无法区分
+	 * 容差远小于半分，只用于吸收十进制小数的二进制表示误差(例如0.29 * 100 = 28.999999999999996)
+	 */
+	protected static boolean isCentAmount(double amount) {
+		double cents = amount * 100;
+		return Math.abs(cents - Math.rint(cents)) < 0.000001;
+	}
+	
+	/**
+	 * 获取交易时间transients[transactionTime]，未传时返回null
+	 * @param stub
+	 * @return
+	 */
+	protected String getTransactionTime(ChaincodeStub stub) {
+		byte[] transactionTimeBytes = stub.getTransient().get("transactionTime");
+		return ArrayUtils.isEmpty(transactionTimeBytes) ? null : new String(transactionTimeBytes, CHARSET);
+	}
+	
+	/**
+	 * 判断是否是16位数字的账户卡号(不使用正则，避免每次调用创建Matcher)
+	 * @param accountNo
+	 * @return
+	 */
+	protected boolean isAccountNo(String accountNo) {
+		if(accountNo == null || accountNo.length() != ACCOUNT_NO_LENGTH) {
+			return false;
+		}
+		for(int i = 0; i < ACCOUNT_NO_LENGTH; i++) {
+			char c = accountNo.charAt(i);
+			if(c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 从账户json中流式读取accountBalance字段，避免反序列化整个CustomerAccount对象
+	 * @param jsonAccount
+	 * @return
+	 * @throws IOException
+	 */
+	protected Double readAccountBalance(byte[] jsonAccount) throws IOException {
+		try (JsonParser parser = JsonUtils.getDefaultObjectMapper().getFactory().createParser(jsonAccount)) {
+			if(parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if("accountBalance".equals(fieldName)) {
+					return token == JsonToken.VALUE_NULL ? DEFAULT_ACCOUNT_BALANCE : parser.getDoubleValue();
+				}
+				parser.skipChildren();
+			}
+		}
+		return DEFAULT_ACCOUNT_BALANCE;
+	}
+	
+	private static StringBuilder appendJsonEscaped(StringBuilder builder, String text) {
+		for(int i = 0, length = text.length(); i < length; i++) {
+			char c = text.charAt(i);
+			if(c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < 0x20) {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder;
+	}
+	
+	/**
+	 * 查询所有(活跃)账户列表，不包括休眠账户，运行配置的maxAccountsPageSize大于0时必须分页查询
+	 * 参数列表：parameters[0] = 500					<每页账户数，可选，默认不分页或者为maxAccountsPageSize>
+	 * 			 parameters[1] = 6225778834761431		<bookmark，即上一页返回的下一个账户卡号，第一页为空>
+	 * 
+	 * 还有下一页时响应消息以[bookmark=下一个账户卡号]结尾
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response getAllAccounts(ChaincodeStub stub, List<String> args) throws Exception {
+		int maxPageSize = getCurrentConfig().getMaxAccountsPageSize();
+		int pageSize = maxPageSize;
+		String bookmark = args.size() > 1 ? StringUtils.trimToEmpty(args.get(1)) : "";
+		if(args.size() > 2) {
+			return newErrorResponse("请求参数不合法：参数最多只能有2个(每页账户数，bookmark)!");
+		} else if (!args.isEmpty() && !StringUtils.isEmpty(args.get(0)) && !(NumberUtils.isDigits(StringUtils.trimToEmpty(args.get(0))) 
+				&& (pageSize = NumberUtils.toInt(StringUtils.trimToEmpty(args.get(0)))) > 0 && (maxPageSize == 0 || pageSize <= maxPageSize))) {
+			return newErrorResponse(maxPageSize == 0 ? "请求参数不合法：第1个参数(每页账户数)必须是正整数!" : String.format("请求参数不合法：第1个参数(每页账户数)必须是1~%s之间的整数!", maxPageSize));
+		} else if (!bookmark.isEmpty() && (!isAccountNo(bookmark) || pageSize == 0)) {
+			return newErrorResponse("请求参数不合法：第2个参数(bookmark)必须为空或者是16位银行卡号，且只能用于分页查询!");
+		}
+		ThresholdGzipOutputStream payload = newResponsePayload(stub);
+		payload.write('[');
+		String nextBookmark = null;
+		if(pageSize == 0) {
+			String compositeKey = CUSTOMER_ACCOUNT_KEY_BUILDER.getPrefix();
+			QueryResultsIterator<KeyValue> results = stub.getStateByPartialCompositeKey(compositeKey);
+			for(Iterator<KeyValue> it = results.iterator(); it.hasNext();) { //边迭代边写入，结果较大时直接流式压缩
+				KeyValue kv = it.next();
+				payload.write(kv.getValue());
+				if(it.hasNext()) {
+					payload.write(',');
+				}
+			}
+			results.close();
+		} else {
+			String prefix = CUSTOMER_ACCOUNT_KEY_BUILDER.getPrefix();
+			QueryResultsIteratorWithMetadata<KeyValue> results = stub.getStateByPartialCompositeKeyWithPagination(stub.createCompositeKey(KEY_PREFIX_CUSTOMER_ACCOUNT), pageSize,
+					bookmark.isEmpty() ? "" : createCustomerAccountKey(stub, bookmark));
+			int fetchedCount = 0;
+			try {
+				for(KeyValue kv : results) {
+					if(fetchedCount++ > 0) {
+						payload.write(',');
+					}
+					payload.write(kv.getValue());
+				}
+			} finally {
+				results.close();
+			}
+			String nextKey = results.getMetadata() == null ? "" : results.getMetadata().getBookmark();
+			if(fetchedCount == pageSize && !StringUtils.isEmpty(nextKey) && nextKey.startsWith(prefix)) {
+				nextBookmark = nextKey.substring(prefix.length(), nextKey.length() - 1);
+			}
+		}
+		payload.write(']');
+		return newEncodedSuccessResponse(nextBookmark == null ? "查询所有账户列表成功!" : "查询所有账户列表成功![bookmark=" + nextBookmark + "]", payload);
+	}
+	
+	/**
+	 * 分页导出账户快照：每次调用返回一页二进制数据(格式见SnapshotPageWriter)，客户端按顺序将各页拼接即为完整的快照文件，可用SnapshotFileReader读取
+	 * 第一页(bookmark为空)额外包含银行资产，最后一页带有结束标志，中断后用最后收到的一页的bookmark继续导出即可
+	 * 活跃账户导出完毕后继续导出休眠账户，这一阶段的bookmark带有"DORMANT:"前缀
+	 * 参数列表：parameters[0] = 500					<每页账户数，可选，默认及上限见运行配置(默认500，最大1000)>
+	 * 			 parameters[1] = 6225778834761431		<bookmark，即上一页返回的下一个账户卡号(或者DORMANT:卡号)，第一页为空>
+	 * 			 parameters[2] = gzip					<页体压缩方式：gzip或none，可选，默认gzip>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response exportSnapshot(ChaincodeStub stub, List<String> args) throws Exception {
+		int pageSize = getCurrentConfig().getDefaultSnapshotPageSize();
+		int maxPageSize = getCurrentConfig().getMaxSnapshotPageSize();
+		String bookmark = args.size() > 1 ? StringUtils.trimToEmpty(args.get(1)) : "";
+		String compression = args.size() > 2 ? StringUtils.trimToEmpty(args.get(2)) : "gzip";
+		if(args.size() > 3) {
+			return newErrorResponse("请求参数不合法：参数最多只能有3个(每页账户数，bookmark，压缩方式)!");
+		} else if (!args.isEmpty() && !StringUtils.isEmpty(args.get(0)) && !(NumberUtils.isDigits(StringUtils.trimToEmpty(args.get(0))) 
+				&& (pageSize = NumberUtils.toInt(StringUtils.trimToEmpty(args.get(0)))) > 0 && pageSize <= maxPageSize)) {
+			return newErrorResponse(String.format("请求参数不合法：第1个参数(每页账户数)必须是1~%s之间的整数!", maxPageSize));
+		}
+		boolean dormantPhase = bookmark.startsWith(SNAPSHOT_DORMANT_BOOKMARK_PREFIX);
+		String bookmarkAccountNo = dormantPhase ? bookmark.substring(SNAPSHOT_DORMANT_BOOKMARK_PREFIX.length()) : bookmark;
+		if (!bookmarkAccountNo.isEmpty() && !isAccountNo(bookmarkAccountNo)) {
+			return newErrorResponse("请求参数不合法：第2个参数(bookmark)必须为空或者是(DORMANT:前缀加)16位银行卡号!");
+		} else if (!"gzip".equals(compression) && !"none".equals(compression)) {
+			return newErrorResponse("请求参数不合法：第3个参数(压缩方式)只能是gzip或none!");
+		}
+		SnapshotPageWriter writer = new SnapshotPageWriter("gzip".equals(compression));
+		if(bookmark.isEmpty()) { //第一页包含银行资产
+			byte[] bankBalance = stub.getState(KEY_BANK_BALANCE);
+			if(!ArrayUtils.isEmpty(bankBalance)) {
+				writer.addRecord(SnapshotPageWriter.RECORD_BANK_BALANCE, KEY_BANK_BALANCE, bankBalance);
+			}
+		}
+		CompositeKeyBuilder keyBuilder = dormantPhase ? DORMANT_ACCOUNT_KEY_BUILDER : CUSTOMER_ACCOUNT_KEY_BUILDER;
+		byte recordType = dormantPhase ? SnapshotPageWriter.RECORD_DORMANT_ACCOUNT : SnapshotPageWriter.RECORD_CUSTOMER_ACCOUNT;
+		String prefix = keyBuilder.getPrefix();
+		QueryResultsIteratorWithMetadata<KeyValue> results = stub.getStateByPartialCompositeKeyWithPagination(stub.createCompositeKey(dormantPhase ? KEY_PREFIX_DORMANT_ACCOUNT : KEY_PREFIX_CUSTOMER_ACCOUNT), pageSize,
+				bookmarkAccountNo.isEmpty() ? "" : keyBuilder.build(bookmarkAccountNo));
+		int fetchedCount = 0;
+		try {
+			for(KeyValue kv : results) {
+				String key = kv.getKey();
+				writer.addRecord(recordType, key.substring(prefix.length(), key.length() - 1), kv.getValue()); //去掉前缀及末尾的分隔符即为卡号
+				fetchedCount++;
+			}
+		} finally {
+			results.close();
+		}
+		String nextKey = results.getMetadata() == null ? "" : results.getMetadata().getBookmark();
+		String nextBookmark = null; //不足一页或者没有下一页的bookmark即为最后一页
+		if(fetchedCount == pageSize && !StringUtils.isEmpty(nextKey) && nextKey.startsWith(prefix)) {
+			nextBookmark = nextKey.substring(prefix.length(), nextKey.length() - 1);
+		}
+		if(dormantPhase && nextBookmark != null) {
+			nextBookmark = SNAPSHOT_DORMANT_BOOKMARK_PREFIX + nextBookmark;
+		} else if (!dormantPhase && nextBookmark == null) { //活跃账户导出完毕，下一页开始导出休眠账户
+			nextBookmark = SNAPSHOT_DORMANT_BOOKMARK_PREFIX;
+		}
+		return newSuccessResponse("导出快照成功!", writer.toPage(nextBookmark));
+	}
+	
+	/**
+	 * 查询账户的最近多少条交易记录(按交易序号倒序)，已归档的交易记录会从归档桶中透明读取
+	 * 参数列表：parameters[0] = 6225778834761431			<账户卡号>
+	 * 			 parameters[1] = 10							<返回记录条数，可选，默认及上限见运行配置(默认10，最大1000)>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response getAccountTransactionRecords(ChaincodeStub stub, List<String> args) throws Exception {
+		String accountNo = null;
+		int defaultFetchSize = getCurrentConfig().getDefaultFetchSize();
+		int fetchSize = defaultFetchSize;
+		if(CollectionUtils.isEmpty(args)) {
+			return newErrorResponse("请求参数不合法：至少需要1个参数(16位银行卡号)!");
+		} else if (!isAccountNo(accountNo = StringUtils.trimToEmpty(args.get(0)))) {
+			return newErrorResponse("请求参数不合法：第1个参数必须是16位银行卡号!");
+		} else if (args.size() > 2) {
+			return newErrorResponse("请求参数不合法：参数最多只能有2个，且第一个是16位银行卡号、第2个是返回记录条数!");
+		} else {
+			if(args.size() == 2) {
+				try {
+					fetchSize = Integer.valueOf(args.get(1));
+					fetchSize = fetchSize > 0 ? fetchSize : defaultFetchSize;
+				} catch (Exception e) {}
+			}
+			fetchSize = Math.min(fetchSize, getCurrentConfig().getMaxFetchSize());
+			CustomerAccount account = getCustomerAccountByNo(stub, accountNo);
+			if(account == null) {
+				return newErrorResponse(String.format("对不起，账号(%s)不存在!", accountNo));
+			}
+			ThresholdGzipOutputStream payload = newResponsePayload(stub);
+			payload.write('[');
+			int count = 0; //已写入的记录条数，记录之间以", "分隔
+			long archivedSeq = ObjectUtils.defaultIfNull(account.getArchivedTransactionSeq(), 0L);
+			//1、从账本中按序号倒序读取未归档的交易记录
+			for(long seq = ObjectUtils.defaultIfNull(account.getTransactionSeq(), 0L); seq > archivedSeq && count < fetchSize; seq--) {
+				byte[] record = stub.getState(createAccountTransactionKey(stub, accountNo, seq));
+				if(!ArrayUtils.isEmpty(record)) {
+					writeRecord(payload, record, count++);
+				}
+			}
+			//2、不足fetchSize条时，从最新的归档桶开始倒序读取
+			for(int bucketSeq = ObjectUtils.defaultIfNull(account.getArchiveBucketCount(), 0) - 1; bucketSeq >= 0 && count < fetchSize; bucketSeq--) {
+				AccountTransactionArchive archive = getAccountTransactionArchive(stub, accountNo, bucketSeq);
+				if(archive != null) {
+					List<AccountTransaction> transactions = archive.getTransactions();
+					for(int i = transactions.size() - 1; i >= 0 && count < fetchSize; i--) {
+						writeRecord(payload, JsonUtils.object2Json(transactions.get(i)).getBytes(CHARSET), count++);
+					}
+				}
+			}
+			//3、仍不足fetchSize条时，读取旧版本链码写在单个key上的历史交易记录
+			if(count < fetchSize) {
+				QueryResultsIterator<KeyModification> qrIterator = stub.getHistoryForKey(createAccountTransactionKey(stub, accountNo));
+				if(qrIterator != null) {
+					Iterator<KeyModification> it = qrIterator.iterator();
+					while(it.hasNext() && count < fetchSize) {
+						writeRecord(payload, it.next().getValue(), count++);
+					}
+					qrIterator.close();
+				}
+			}
+			payload.write(']');
+			return newEncodedSuccessResponse("查询账户交易记录成功!", payload);
+		}
+	}
+	
+	/**
+	 * 校验账户交易记录的hash链：从指定的检查点(或第一条交易记录)开始，逐条校验其后交易记录的序号连续性、previousHash、交易前余额及hash，
+	 * 最后校验账户的hash链头及余额与最后一条交易记录一致，校验成本只与检查点之后的交易记录数有关
+	 * 参数列表：parameters[0] = 6225778834761431			<账户卡号>
+	 * 			 parameters[1] = 300						<受信任的检查点序号(可选)，为空时从第一条交易记录开始校验>
+	 * 
+	 * 返回的latestCheckpointSeq为该账户最新的检查点序号(记录在账户上，无需扫描检查点)，可作为下一次审计的起点
+	 * 注意：旧版本链码写入的不带hash的交易记录(位于hash链之前)只校验序号连续性，写在单个key上的历史交易记录不在校验范围内
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response verifyAccount(ChaincodeStub stub, List<String> args) throws Exception {
+		String accountNo = null;
+		long fromSeq = 0;
+		if(CollectionUtils.isEmpty(args)) {
+			return newErrorResponse("请求参数不合法：至少需要1个参数(16位银行卡号)!");
+		} else if (!isAccountNo(accountNo = StringUtils.trimToEmpty(args.get(0)))) {
+			return newErrorResponse("请求参数不合法：第1个参数必须是16位银行卡号!");
+		} else if (args.size() > 2) {
+			return newErrorResponse("请求参数不合法：参数最多只能有2个，且第一个是16位银行卡号、第2个是检查点序号!");
+		}
+		if(args.size() == 2 && !StringUtils.isBlank(args.get(1))) {
+			String checkpointSeq = args.get(1).trim();
+			if(!NumberUtils.isDigits(checkpointSeq) || checkpointSeq.length() > TRANSACTION_SEQ_WIDTH) {
+				return newErrorResponse("请求参数不合法：第2个参数(检查点序号)必须为空或者是正整数!");
+			}
+			fromSeq = Long.parseLong(checkpointSeq);
+		}
+		CustomerAccount account = getCustomerAccountByNo(stub, accountNo);
+		if(account == null) {
+			return newErrorResponse(String.format("对不起，账号(%s)不存在!", accountNo));
+		}
+		
+		String headHash = null;
+		Double balance = null;
+		if(fromSeq > 0) {
+			AccountTransactionCheckpoint checkpoint = getAccountTransactionCheckpoint(stub, accountNo, fromSeq);
+			if(checkpoint == null) {
+				return newErrorResponse(String.format("对不起，账号(%s)不存在序号为%s的检查点!", accountNo, fromSeq));
+			}
+			headHash = checkpoint.getTransactionHash();
+			balance = checkpoint.getAccountBalance();
+		}
+		long transactionSeq = ObjectUtils.defaultIfNull(account.getTransactionSeq(), 0L);
+		long archivedSeq = ObjectUtils.defaultIfNull(account.getArchivedTransactionSeq(), 0L);
+		long seq = fromSeq; //最后一条已校验的交易记录序号
+		long verifiedCount = 0;
+		String error = null;
+		
+		//1、检查点落在已归档的范围内时，从最新的归档桶开始倒序找到包含检查点之后第一条记录的归档桶，再按顺序校验
+		List<AccountTransactionArchive> archives = new ArrayList<AccountTransactionArchive>();
+		if(seq < archivedSeq) {
+			for(int bucketSeq = ObjectUtils.defaultIfNull(account.getArchiveBucketCount(), 0) - 1; bucketSeq >= 0; bucketSeq--) {
+				AccountTransactionArchive archive = getAccountTransactionArchive(stub, accountNo, bucketSeq);
+				if(archive != null) {
+					archives.add(archive);
+					if(archive.getFirstTransactionSeq() <= seq + 1) {
+						break;
+					}
+				}
+			}
+		}
+		for(int i = archives.size() - 1; i >= 0 && error == null; i--) {
+			for(AccountTransaction transaction : archives.get(i).getTransactions()) {
+				if(transaction.getTransactionSeq() <= seq) {
+					continue;
+				}
+				if((error = verifyTransaction(transaction, seq + 1, headHash, balance)) != null) {
+					break;
+				}
+				seq = transaction.getTransactionSeq();
+				headHash = transaction.getHash();
+				balance = transaction.getAfterAccountBalance();
+				verifiedCount++;
+			}
+		}
+		//2、按序号顺序校验未归档的交易记录
+		for(long nextSeq = seq + 1; error == null && nextSeq <= transactionSeq; nextSeq++) {
+			byte[] value = stub.getState(createAccountTransactionKey(stub, accountNo, nextSeq));
+			if(ArrayUtils.isEmpty(value)) {
+				error = "交易记录缺失";
+				break;
+			}
+			AccountTransaction transaction = JsonUtils.json2Object(value, AccountTransaction.class);
+			if((error = verifyTransaction(transaction, nextSeq, headHash, balance)) != null) {
+				break;
+			}
+			seq = nextSeq;
+			headHash = transaction.getHash();
+			balance = transaction.getAfterAccountBalance();
+			verifiedCount++;
+		}
+		//3、校验账户的hash链头及余额
+		if(error == null && seq < transactionSeq) {
+			error = "交易记录缺失";
+		} else if (error == null && !StringUtils.equals(headHash, account.getTransactionHash())) {
+			error = "账户的hash链头与最后一条交易记录的hash不一致";
+		} else if (error == null && balance != null && !balance.equals(account.getAccountBalance())) {
+			error = "账户余额与最后一条交易记录的交易后余额不一致";
+		}
+		
+		Map<String,Object> result = new LinkedHashMap<String,Object>();
+		result.put("accountNo", accountNo);
+		result.put("fromSeq", fromSeq);
+		result.put("toSeq", seq);
+		result.put("verifiedCount", verifiedCount);
+		result.put("valid", error == null);
+		result.put("brokenSeq", error == null ? null : seq + 1);
+		result.put("error", error);
+		result.put("headHash", headHash);
+		result.put("latestCheckpointSeq", account.getLastCheckpointSeq());
+		return newSuccessResponse(error == null ? "账户交易记录校验通过!" : "账户交易记录校验不通过!", JsonUtils.object2JsonBytes(result));
+	}
+	
+	/**
+	 * 校验单条交易记录与hash链上前一条记录的衔接，返回不通过的原因，通过时返回null
+	 * 位于hash链之前的旧记录(没有hash且前面也没有带hash的记录)只校验序号
+	 * @param transaction
+	 * @param expectedSeq		- 期望的序号
+	 * @param previousHash		- 前一条交易记录的hash
+	 * @param previousBalance	- 前一条交易记录的交易后余额，从第一条交易记录开始校验时为null
+	 * @return
+	 */
+	protected String verifyTransaction(AccountTransaction transaction, long expectedSeq, String previousHash, Double previousBalance) {
+		if(transaction.getTransactionSeq() == null || transaction.getTransactionSeq() != expectedSeq) {
+			return "交易记录序号不连续";
+		}
+		if(transaction.getHash() == null) {
+			return previousHash == null ? null : "交易记录缺少hash";
+		}
+		if(!StringUtils.equals(transaction.getPreviousHash(), previousHash)) {
+			return "previousHash与前一条交易记录的hash不一致";
+		}
+		if(previousBalance != null && !previousBalance.equals(transaction.getBeforeAccountBalance())) {
+			return "交易前余额与前一条交易记录的交易后余额不一致";
+		}
+		if(!transaction.getHash().equals(computeTransactionHash(transaction))) {
+			return "交易记录hash校验失败";
+		}
+		return null;
+	}
+	
+	/**
+	 * 归档账户的历史交易记录：将交易时间早于beforeDay的交易记录按月打包压缩成归档桶，并删除原交易记录
+	 * 参数列表：parameters[0] = 6225778834761431			<账户卡号>
+	 * 			 parameters[1] = 2018-12-01					<归档截止日期(不含)，格式yyyy-MM-dd>
+	 * 
+	 * 每次调用最多归档maxArchiveTransactions(见运行配置)条记录，未归档完的可再次调用继续归档
+	 * 每个归档桶最多maxArchiveBucketTransactions(见运行配置)条记录，同一个月的记录超出时滚动到新的归档桶，避免单个value无限增长
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected synchronized Response archiveTransactions(ChaincodeStub stub, List<String> args) throws Exception {
+		String accountNo = null;
+		String beforeDay = null;
+		if(args.size() == 2) {
+			accountNo = StringUtils.trimToEmpty(args.get(0));
+			if(!isAccountNo(accountNo)) {
+				return newErrorResponse("请求参数不合法：第一个参数为账户卡号，必须是16位银行卡号!");
+			}
+			beforeDay = StringUtils.trimToEmpty(args.get(1));
+			if(!beforeDay.matches("\\d{4}-\\d{2}-\\d{2}")) {
+				return newErrorResponse("请求参数不合法：第二个参数为归档截止日期，格式必须是yyyy-MM-dd!");
+			}
+			
+			CustomerAccount account = getCustomerAccountByNo(stub, accountNo);
+			if(account == null) {
+				return newErrorResponse(String.format("对不起，账号(%s)不存在!", accountNo));
+			}
+			
+			long archivedSeq = ObjectUtils.defaultIfNull(account.getArchivedTransactionSeq(), 0L);
+			long lastSeq = Math.min(ObjectUtils.defaultIfNull(account.getTransactionSeq(), 0L), archivedSeq + getCurrentConfig().getMaxArchiveTransactions());
+			int bucketCount = ObjectUtils.defaultIfNull(account.getArchiveBucketCount(), 0);
+			int maxBucketTransactions = getCurrentConfig().getMaxArchiveBucketTransactions();
+			
+			AccountTransactionArchive archive = null;
+			if(bucketCount > 0) { //最后一个归档桶可能还未满一个月，如果月份相同且未满则继续追加
+				archive = getAccountTransactionArchive(stub, accountNo, bucketCount - 1);
+			}
+			List<AccountTransactionArchive> changedArchives = new ArrayList<AccountTransactionArchive>();
+			int archivedCount = 0;
+			for(long seq = archivedSeq + 1; seq <= lastSeq; seq++) {
+				String key = createAccountTransactionKey(stub, accountNo, seq);
+				String record = stub.getStringState(key);
+				if(StringUtils.isEmpty(record)) {
+					archivedSeq = seq;
+					continue;
+				}
+				AccountTransaction transaction = JsonUtils.json2Object(record, AccountTransaction.class);
+				String transactionDay = getTransactionDay(transaction.getTransactionTime());
+				if(transactionDay != null && transactionDay.compareTo(beforeDay) >= 0) {
+					break;
+				}
+				String month = transactionDay == null ? null : transactionDay.substring(0, 7);
+				if(archive == null || (month != null && archive.getBucketMonth() != null && !month.equals(archive.getBucketMonth()))
+						|| archive.getTransactions().size() >= maxBucketTransactions) {
+					archive = new AccountTransactionArchive();
+					archive.setAccountNo(accountNo);
+					archive.setBucketSeq(bucketCount++);
+					archive.setFirstTransactionSeq(seq);
+				}
+				if(archive.getBucketMonth() == null) {
+					archive.setBucketMonth(month);
+				}
+				archive.getTransactions().add(transaction);
+				archive.setLastTransactionSeq(seq);
+				if(!changedArchives.contains(archive)) {
+					changedArchives.add(archive);
+				}
+				stub.delState(key); //删除已归档的原交易记录
+				archivedSeq = seq;
+				archivedCount++;
+			}
+			
+			for(AccountTransactionArchive changedArchive : changedArchives) {
+				saveAccountTransactionArchive(stub, changedArchive); //保存归档桶
+			}
+			
+			account.setArchivedTransactionSeq(archivedSeq);
+			account.setArchiveBucketCount(bucketCount);
+			saveCustomerAccount(stub, account); //保存账户
+			
+			Map<String,Object> result = new LinkedHashMap<String,Object>();
+			result.put("accountNo", accountNo);
+			result.put("archivedCount", archivedCount);
+			result.put("archivedTransactionSeq", archivedSeq);
+			result.put("archiveBucketCount", bucketCount);
+			return newSuccessResponse("归档账户交易记录成功!", JsonUtils.object2Json(result).getBytes(CHARSET));
+		} else {
+			return newErrorResponse("请求参数不合法：参数只能有两个!");
+		}
+	}
+	
+	/**
+	 * 清理过期的请求去重记录：按过期索引删除请求日期早于beforeDay的所有去重记录
+	 * 参数列表：parameters[0] = 2018-12-01					<清理截止日期(不含)，格式yyyy-MM-dd>
+	 * 
+	 * 每次调用最多删除maxPurgeRequestDedups(见运行配置)条记录，未清理完的可再次调用继续清理
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response purgeRequestDedups(ChaincodeStub stub, List<String> args) throws Exception {
+		String beforeDay = null;
+		if(args.size() == 1 && (beforeDay = StringUtils.trimToEmpty(args.get(0))).matches("\\d{4}-\\d{2}-\\d{2}")) {
+			int purgedCount = 0;
+			int maxPurgedCount = getCurrentConfig().getMaxPurgeRequestDedups();
+			boolean finished = true;
+			String compositeKey = REQUEST_DEDUP_EXPIRY_KEY_BUILDER.getPrefix();
+			QueryResultsIterator<KeyValue> results = stub.getStateByPartialCompositeKey(compositeKey);
+			for(Iterator<KeyValue> it = results.iterator(); it.hasNext();) {
+				String key = it.next().getKey();
+				List<String> attributes = stub.splitCompositeKey(key).getAttributes();
+				String requestDay = attributes.get(0);
+				if(requestDay.compareTo(beforeDay) >= 0) { //过期索引按日期有序，后面的都未过期
+					break;
+				}
+				if(purgedCount >= maxPurgedCount) {
+					finished = false;
+					break;
+				}
+				stub.delState(createRequestDedupKey(stub, attributes.get(1))); //删除去重记录
+				stub.delState(key); //删除过期索引
+				purgedCount++;
+			}
+			results.close();
+			Map<String,Object> result = new LinkedHashMap<String,Object>();
+			result.put("purgedCount", purgedCount);
+			result.put("finished", finished);
+			return newSuccessResponse("清理请求去重记录成功!", JsonUtils.object2Json(result).getBytes(CHARSET));
+		} else {
+			return newErrorResponse("请求参数不合法：参数只能有一个，且必须是yyyy-MM-dd格式的清理截止日期!");
+		}
+	}
+	
+	/**
+	 * 标记休眠账户：将最近活动时间早于beforeDay的活跃账户移到休眠账户key空间，活跃账户的全量扫描(getAllAccounts、日终结算等)随之变小
+	 * 休眠账户发生存取款、转账时会自动转回活跃账户，转为休眠/转回活跃都会在账户变动事件中各有一条状态条目
+	 * 参数列表：parameters[0] = 2018-01-01					<休眠截止日期(不含)，格式yyyy-MM-dd>
+	 * 			 parameters[1] = 6225778834761431			<bookmark，即上一次调用返回的nextBookmark，第一次为空>
+	 * 
+	 * 每次调用最多扫描maxDormantChunkSize(见运行配置)个活跃账户，返回的nextBookmark不为空时从该账户之后继续，扫描到最后一个账户时nextBookmark为空
+	 * 注意：写交易中不能使用分页查询，这里与日终结算一样通过部分组合键查询从bookmark之后的账户继续(见getCustomerAccountsAfter)
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response markDormant(ChaincodeStub stub, List<String> args) throws Exception {
+		String beforeDay = args.isEmpty() ? "" : StringUtils.trimToEmpty(args.get(0));
+		String bookmark = args.size() > 1 ? StringUtils.trimToEmpty(args.get(1)) : "";
+		if(args.isEmpty() || args.size() > 2) {
+			return newErrorResponse("请求参数不合法：参数为1~2个(休眠截止日期，bookmark)!");
+		} else if (!beforeDay.matches("\\d{4}-\\d{2}-\\d{2}")) {
+			return newErrorResponse("请求参数不合法：第1个参数为休眠截止日期，格式必须是yyyy-MM-dd!");
+		} else if (!bookmark.isEmpty() && !isAccountNo(bookmark)) {
+			return newErrorResponse("请求参数不合法：第2个参数(bookmark)必须为空或者是16位银行卡号!");
+		}
+		String transactionTime = getTransactionTime(stub);
+		if(transactionTime == null) {
+			return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
+		} else if (!isTransactionTime(transactionTime)) {
+			return newErrorResponse(INVALID_TRANSACTION_TIME_MESSAGE);
+		}
+		
+		int chunkSize = getCurrentConfig().getMaxDormantChunkSize();
+		int scannedCount = 0, dormantCount = 0;
+		String lastAccountNo = null;
+		boolean finished = true;
+		QueryResultsIterator<KeyValue> results = getCustomerAccountsAfter(stub, bookmark); //从bookmark之后继续扫描
+		try {
+			Iterator<KeyValue> iterator = results.iterator();
+			while(scannedCount < chunkSize && iterator.hasNext()) {
+				KeyValue kv = iterator.next();
+				CustomerAccount account = JsonUtils.json2Object(kv.getValue(), CustomerAccount.class);
+				String lastActivityTime = getLastActivityTime(stub, account);
+				if(lastActivityTime != null && lastActivityTime.compareTo(beforeDay) < 0) {
+					stub.delState(kv.getKey()); //移出活跃账户
+					account.setDormantTime(transactionTime);
+					saveCustomerAccount(stub, account); //保存为休眠账户
+					AccountEvent event = CURRENT_ACCOUNT_EVENT.get();
+					if(event != null) {
+						event.addStatus(AccountTransactionType.ACCOUNT_DORMANT, account.getAccountNo(), account.getAccountBalance(), ObjectUtils.defaultIfNull(account.getTransactionSeq(), 0L), transactionTime);
+					}
+					dormantCount++;
+				}
+				lastAccountNo = account.getAccountNo();
+				scannedCount++;
+			}
+			finished = !iterator.hasNext(); //本批次恰好扫描到最后一个账户时即为完成，不返回nextBookmark
+		} finally {
+			results.close();
+		}
+		Map<String,Object> result = new LinkedHashMap<String,Object>();
+		result.put("scannedCount", scannedCount);
+		result.put("dormantCount", dormantCount);
+		result.put("nextBookmark", finished ? null : lastAccountNo);
+		return newSuccessResponse(finished ? "标记休眠账户完成!" : "标记休眠账户批次完成，请从nextBookmark继续!", JsonUtils.object2JsonBytes(result));
+	}
+	
+	/**
+	 * 保存日终结算规则(新增或修改)
+	 * 参数列表：parameters[0] = {"ruleId":"DAILY_DEFAULT","ruleName":"活期日终结算","dailyInterestRate":0.0001,"dailyFee":0.5,"feeWaiverBalance":10000} 		<结算规则json>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response saveSettlementRule(ChaincodeStub stub, List<String> args) throws Exception {
+		String requestBody = null;
+		if(args.size() == 1 && JsonUtils.isJsonObject((requestBody = StringUtils.trimToEmpty(args.get(0))))) {
+			SettlementRule rule = JsonUtils.json2Object(requestBody, SettlementRule.class);
+			if(rule.getRuleId() == null || !rule.getRuleId().matches(SETTLEMENT_RULE_ID_REGEX)) {
+				return newErrorResponse("请求参数不合法：规则ID不能为空，且只能由1~64位字母、数字、下划线或中划线组成!");
+			}
+			if(rule.getDailyInterestRate() == null || !(rule.getDailyInterestRate() >= 0 && rule.getDailyInterestRate() < 1)) {
+				return newErrorResponse("请求参数不合法：日利率不能为空，且必须在[0, 1)之间!");
+			}
+			if(rule.getDailyFee() == null || !(rule.getDailyFee() >= 0)) {
+				return newErrorResponse("请求参数不合法：每日账户管理费不能为空，且不能为负数!");
+			}
+			if(rule.getFeeWaiverBalance() != null && !(rule.getFeeWaiverBalance() >= 0)) {
+				return newErrorResponse("请求参数不合法：免收管理费的余额不能为负数!");
+			}
+			byte[] jsonRule = JsonUtils.object2JsonBytes(rule);
+			stub.putState(createSettlementRuleKey(stub, rule.getRuleId()), jsonRule); //修改账本
+			return newSuccessResponse("保存结算规则成功!", jsonRule);
+		} else {
+			return newErrorResponse("请求参数不合法：参数只能有一个，并且为json类型数据!");
+		}
+	}
+	
+	/**
+	 * 日终结算：按卡号顺序分批对所有活跃账户(休眠账户不参与)按规则结息并扣收账户管理费，每批次写入SETTLE_INTEREST/SETTLE_FEE交易记录，银行资产只按批次汇总更新一次
+	 * (银行资产与开户/存取款的口径一致，即随账户余额的增减同步增减)
+	 * 
+	 * 营业日取自transients[transactionTime]，每个规则每个营业日有一个检查点key，记录已结算到的账户位置：
+	 * 每批次从检查点之后继续，bookmark必须与检查点一致(第一批为空)，否则视为已处理过的批次(例如超时重试)，直接返回当前检查点而不会重复结算；
+	 * 已结算完成的营业日再次调用同样直接返回检查点。
+	 * 
+	 * 注意：写交易中不能使用分页查询，这里通过部分组合键查询从检查点之后的账户继续(见getCustomerAccountsAfter)，应在营业日切换后(账户余额不再变动时)执行
+	 * 
+	 * 参数列表：parameters[0] = DAILY_DEFAULT					<结算规则ID>
+	 * 			 parameters[1] = 6225778834761431				<bookmark，即上一批次返回的lastAccountNo，第一批为空>
+	 * 			 parameters[2] = 200							<每批次结算的账户数，可选，默认及上限见运行配置(默认200，最大500)>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response runSettlement(ChaincodeStub stub, List<String> args) throws Exception {
+		String ruleId = args.isEmpty() ? "" : StringUtils.trimToEmpty(args.get(0));
+		String bookmark = args.size() > 1 ? StringUtils.trimToEmpty(args.get(1)) : "";
+		int chunkSize = getCurrentConfig().getDefaultSettlementChunkSize();
+		int maxChunkSize = getCurrentConfig().getMaxSettlementChunkSize();
+		if(args.isEmpty() || args.size() > 3) {
+			return newErrorResponse("请求参数不合法：参数为1~3个(结算规则ID，bookmark，每批次账户数)!");
+		} else if (ruleId.isEmpty()) {
+			return newErrorResponse("请求参数不合法：第1个参数(结算规则ID)不能为空!");
+		} else if (!bookmark.isEmpty() && !isAccountNo(bookmark)) {
+			return newErrorResponse("请求参数不合法：第2个参数(bookmark)必须为空或者是16位银行卡号!");
+		} else if (args.size() > 2 && !StringUtils.isEmpty(args.get(2)) && !(NumberUtils.isDigits(StringUtils.trimToEmpty(args.get(2))) 
+				&& (chunkSize = NumberUtils.toInt(StringUtils.trimToEmpty(args.get(2)))) > 0 && chunkSize <= maxChunkSize)) {
+			return newErrorResponse(String.format("请求参数不合法：第3个参数(每批次账户数)必须是1~%s之间的整数!", maxChunkSize));
+		}
+		String transactionTime = getTransactionTime(stub);
+		String businessDay = getTransactionDay(transactionTime);
+		if(businessDay == null) {
+			return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空且必须以yyyy-MM-dd开头!");
+		} else if (!isTransactionTime(transactionTime)) {
+			return newErrorResponse(INVALID_TRANSACTION_TIME_MESSAGE);
+		}
+		SettlementRule rule = getSettlementRule(stub, ruleId);
+		if(rule == null) {
+			return newErrorResponse(String.format("对不起，结算规则(%s)不存在!", ruleId));
+		}
+		
+		String checkpointKey = createSettlementCheckpointKey(stub, businessDay, ruleId);
+		byte[] checkpointValue = stub.getState(checkpointKey);
+		SettlementCheckpoint checkpoint = null;
+		if(ArrayUtils.isEmpty(checkpointValue)) {
+			checkpoint = new SettlementCheckpoint();
+			checkpoint.setRuleId(ruleId);
+			checkpoint.setBusinessDay(businessDay);
+			checkpoint.setProcessedCount(0L);
+			checkpoint.setTotalInterest(0.0);
+			checkpoint.setTotalFee(0.0);
+			checkpoint.setFinished(false);
+		} else {
+			checkpoint = JsonUtils.json2Object(checkpointValue, SettlementCheckpoint.class);
+			if(Boolean.TRUE.equals(checkpoint.getFinished())) {
+				return newSuccessResponse("该营业日已结算完成!", checkpointValue);
+			}
+		}
+		String lastAccountNo = StringUtils.defaultString(checkpoint.getLastAccountNo());
+		if(!bookmark.equals(lastAccountNo)) { //已处理过的批次，不重复结算
+			return newSuccessResponse("该批次已结算，请从检查点继续!", JsonUtils.object2JsonBytes(checkpoint));
+		}
+		
+		int processedCount = 0;
+		double chunkInterest = 0, chunkFee = 0;
+		boolean finished = true;
+		QueryResultsIterator<KeyValue> results = getCustomerAccountsAfter(stub, lastAccountNo); //从检查点之后继续结算
+		try {
+			Iterator<KeyValue> iterator = results.iterator();
+			while(processedCount < chunkSize && iterator.hasNext()) {
+				KeyValue kv = iterator.next();
+				CustomerAccount account = JsonUtils.json2Object(kv.getValue(), CustomerAccount.class);
+				double balance = account.getAccountBalance();
+				double interest = balance > 0 ? roundAmount(balance * rule.getDailyInterestRate()) : 0;
+				double fee = 0;
+				if(rule.getFeeWaiverBalance() == null || balance < rule.getFeeWaiverBalance()) {
+					fee = roundAmount(Math.max(0, Math.min(rule.getDailyFee(), balance + interest))); //管理费最多扣到余额为0，透支账户不扣费
+				}
+				if(interest > 0) {
+					AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), balance,
+							balance + interest, interest, null,
+							AccountTransactionType.SETTLE_INTEREST.name(), AccountTransactionType.SETTLE_INTEREST.getDescription(), transactionTime);
+					saveAccountTransaction(stub, account, transaction); //保存账户交易快照
+					balance += interest;
+				}
+				if(fee > 0) {
+					AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), balance,
+							balance - fee, fee, null,
+							AccountTransactionType.SETTLE_FEE.name(), AccountTransactionType.SETTLE_FEE.getDescription(), transactionTime);
+					saveAccountTransaction(stub, account, transaction); //保存账户交易快照
+					balance -= fee;
+				}
+				if(interest > 0 || fee > 0) {
+					account.setAccountBalance(balance);
+					saveCustomerAccount(stub, account); //保存账户
+				}
+				chunkInterest += interest;
+				chunkFee += fee;
+				lastAccountNo = account.getAccountNo();
+				processedCount++;
+			}
+			finished = !iterator.hasNext(); //本批次恰好处理到最后一个账户时即为完成，不需要再多调用一次
+		} finally {
+			results.close();
+		}
+		if(chunkInterest != 0 || chunkFee != 0) {
+			saveBankBalance(stub, chunkInterest - chunkFee); //每批次只更新一次银行余额
+		}
+		
+		checkpoint.setLastAccountNo(lastAccountNo.isEmpty() ? null : lastAccountNo);
+		checkpoint.setProcessedCount(checkpoint.getProcessedCount() + processedCount);
+		checkpoint.setTotalInterest(roundAmount(checkpoint.getTotalInterest() + chunkInterest));
+		checkpoint.setTotalFee(roundAmount(checkpoint.getTotalFee() + chunkFee));
+		checkpoint.setFinished(finished);
+		checkpoint.setLastTransactionId(stub.getTxId());
+		byte[] jsonCheckpoint = JsonUtils.object2JsonBytes(checkpoint);
+		stub.putState(checkpointKey, jsonCheckpoint); //保存检查点
+		return newSuccessResponse(finished ? "日终结算完成!" : "日终结算批次完成，请从检查点继续!", jsonCheckpoint);
+	}
+	
+	/**
+	 * 金额四舍五入到分
+	 */
+	protected static double roundAmount(double amount) {
+		return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).doubleValue();
+	}
+	
+	/**
+	 * 查询当前分片的银行资产
+	 * 返回：{"shardIndex":0,"bankBalance":100000.0,"escrowBalance":500.0}
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response getBankBalance(ChaincodeStub stub, List<String> args) throws Exception {
+		if(!args.isEmpty()) {
+			return newErrorResponse("请求参数不合法：该方法没有参数!");
+		}
+		ShardConfig shardConfig = getShardConfig(stub);
+		ShardBalance balance = new ShardBalance(shardConfig == null ? 0 : shardConfig.getShardIndex(), 
+				Double.parseDouble(stub.getStringState(KEY_BANK_BALANCE)), getEscrowBalance(stub));
+		return newSuccessResponse("查询银行资产成功!", JsonUtils.object2JsonBytes(balance));
+	}
+	
+	/**
+	 * 汇总查询所有分片的银行资产(只读)，其他分片的资产通过invokeChaincode调用其getBankBalance方法获取
+	 * 
+	 * 跨分片转账在冻结之后、入账之前只计入转出分片的在途金额，在入账之后、解冻之前同时计入转入分片的银行资产及转出分片的在途金额，
+	 * 因此没有在途转账时totalBankBalance与不分片时的银行资产一致
+	 * 
+	 * 返回：{"shardCount":2,"totalBankBalance":200000.0,"totalEscrowBalance":500.0,"shards":[{"shardIndex":0,...},{"shardIndex":1,...}]}
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response getTotalBankBalance(ChaincodeStub stub, List<String> args) throws Exception {
+		if(!args.isEmpty()) {
+			return newErrorResponse("请求参数不合法：该方法没有参数!");
+		}
+		ShardConfig shardConfig = getShardConfig(stub);
+		int shardCount = shardConfig == null ? 1 : shardConfig.getShardCount();
+		int localShardIndex = shardConfig == null ? 0 : shardConfig.getShardIndex();
+		List<ShardBalance> shards = new ArrayList<ShardBalance>(shardCount);
+		double totalBankBalance = 0, totalEscrowBalance = 0;
+		for(int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+			ShardBalance balance;
+			if(shardIndex == localShardIndex) {
+				balance = new ShardBalance(shardIndex, Double.parseDouble(stub.getStringState(KEY_BANK_BALANCE)), getEscrowBalance(stub));
+			} else {
+				balance = JsonUtils.json2Object(invokeShard(stub, shardConfig, shardIndex, "getBankBalance"), ShardBalance.class);
+			}
+			totalBankBalance += balance.getBankBalance();
+			totalEscrowBalance += balance.getEscrowBalance();
+			shards.add(balance);
+		}
+		Map<String,Object> result = new LinkedHashMap<String,Object>();
+		result.put("shardCount", shardCount);
+		result.put("totalBankBalance", totalBankBalance);
+		result.put("totalEscrowBalance", totalEscrowBalance);
+		result.put("shards", shards);
+		return newSuccessResponse("汇总查询银行资产成功!", JsonUtils.object2JsonBytes(result));
+	}
+	
+	/**
+	 * 跨分片转账第一阶段(在转出账户所在的分片调用)：从转出账户扣款，扣款金额计入本分片的在途金额，并记录HELD状态的转账记录
+	 * 
+	 * 之后由客户端在转入账户所在的分片调用creditTransfer入账，入账成功后回到本分片调用releaseTransfer结清，入账失败(例如转入账户不存在)则调用cancelTransfer撤销
+	 * 参数列表：parameters[0] = T201901210001				<跨分片转账ID，由客户端生成>
+	 * 			 parameters[1] = 6225778834761431			<转出账户卡号(本分片)>
+	 * 			 parameters[2] = 6225778834761432			<转入账户卡号(其他分片)>
+	 * 			 parameters[3] = 500						<转账金额>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected synchronized Response holdTransfer(ChaincodeStub stub, List<String> args) throws Exception {
+		if(args.size() != 4) {
+			return newErrorResponse("请求参数不合法：参数依次为跨分片转账ID、转出账户卡号、转入账户卡号以及转账金额!");
+		}
+		String transferId = StringUtils.trimToEmpty(args.get(0));
+		String outAccountNo = StringUtils.trimToEmpty(args.get(1));
+		String inAccountNo = StringUtils.trimToEmpty(args.get(2));
+		double amount = parseAmount(args.get(3));
+		if(!transferId.matches(SHARD_TRANSFER_ID_REGEX)) {
+			return newErrorResponse("请求参数不合法：第一个参数为跨分片转账ID，只能由1~64位字母、数字、下划线或中划线组成!");
+		} else if (!isAccountNo(outAccountNo)) {
+			return newErrorResponse("请求参数不合法：第二个参数为转出账户卡号，必须是16位银行卡号!");
+		} else if (!isAccountNo(inAccountNo)) {
+			return newErrorResponse("请求参数不合法：第三个参数为转入账户卡号，必须是16位银行卡号!");
+		} else if (amount <= 0) {
+			return newErrorResponse("请求参数不合法：第四个参数为转账金额，必须是大于0且最多两位小数的数值类型!");
+		}
+		ShardConfig shardConfig = getShardConfig(stub);
+		if(shardConfig == null) {
+			return newErrorResponse("对不起，当前未启用分片，请使用transferAccount转账!");
+		}
+		String shardError = checkLocalAccount(shardConfig, outAccountNo);
+		if(shardError != null) {
+			return newErrorResponse(shardError);
+		}
+		int targetShardIndex = shardConfig.routeShard(inAccountNo);
+		if(targetShardIndex == shardConfig.getShardIndex()) {
+			return newErrorResponse(String.format("对不起，转入账号(%s)与转出账号在同一分片，请使用transferAccount转账!", inAccountNo));
+		}
+		
+		ShardTransfer existing = getShardTransferById(stub, transferId);
+		if(existing != null) {
+			if(outAccountNo.equals(existing.getOutAccountNo()) && inAccountNo.equals(existing.getInAccountNo()) && amount == existing.getAmount()) {
+				return newSuccessResponse(String.format("跨分片转账(%s)已冻结过，当前状态为%s!", transferId, existing.getStatus()), JsonUtils.object2JsonBytes(existing)); //客户端重试
+			}
+			return newErrorResponse(String.format("请求参数不合法：跨分片转账ID(%s)已被其他转账使用!", transferId));
+		}
+		
+		CustomerAccount account = getCustomerAccountByNo(stub, outAccountNo);
+		if(account == null) {
+			return newErrorResponse(String.format("对不起，转出账号(%s)不存在!", outAccountNo));
+		}
+		
+		String transactionTime = getTransactionTime(stub);
+		if(transactionTime == null) {
+			return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
+		} else if (!isTransactionTime(transactionTime)) {
+			return newErrorResponse(INVALID_TRANSACTION_TIME_MESSAGE);
+		}
+		
+		double balance = account.getAccountBalance();
+		account.setAccountBalance(balance - amount); //更新余额
+		
+		AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), balance,
+				account.getAccountBalance(), amount, inAccountNo,
+				AccountTransactionType.SHARD_TRANSFER_OUT.name(), AccountTransactionType.SHARD_TRANSFER_OUT.getDescription(), transactionTime);
+		
+		saveAccountTransaction(stub, account, transaction); //保存账户交易快照
+		
+		saveCustomerAccount(stub, account); //保存账户
+		
+		ShardTransfer transfer = new ShardTransfer();
+		transfer.setTransferId(transferId);
+		transfer.setOutAccountNo(outAccountNo);
+		transfer.setInAccountNo(inAccountNo);
+		transfer.setAmount(amount);
+		transfer.setSourceShardIndex(shardConfig.getShardIndex());
+		transfer.setTargetShardIndex(targetShardIndex);
+		transfer.setStatus(ShardTransferStatus.HELD.name());
+		transfer.setTransactionId(stub.getTxId());
+		transfer.setTransactionTime(transactionTime);
+		byte[] jsonTransfer = saveShardTransfer(stub, transfer); //保存转账记录
+		
+		saveBankBalance(stub, -amount); //资金离开本分片
+		
+		saveEscrowBalance(stub, amount); //计入在途金额
+		
+		return newSuccessResponse("跨分片转账扣款冻结成功!", jsonTransfer);
+	}
+	
+	/**
+	 * 跨分片转账第二阶段(在转入账户所在的分片调用)：通过invokeChaincode读取转出分片上的转账记录，确认其处于HELD状态后给转入账户入账
+	 * 
+	 * 对转出分片转账记录的读取同样记入本交易的读集，若转出分片上的撤销(cancelTransfer)先于本交易提交，本交易会因MVCC冲突而失效，反之亦然
+	 * 参数列表：parameters[0] = T201901210001				<跨分片转账ID>
+	 * 			 parameters[1] = 6225778834761431			<转出账户卡号(用于定位转出分片)>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected synchronized Response creditTransfer(ChaincodeStub stub, List<String> args) throws Exception {
+		if(args.size() != 2) {
+			return newErrorResponse("请求参数不合法：参数依次为跨分片转账ID以及转出账户卡号!");
+		}
+		String transferId = StringUtils.trimToEmpty(args.get(0));
+		String outAccountNo = StringUtils.trimToEmpty(args.get(1));
+		if(!transferId.matches(SHARD_TRANSFER_ID_REGEX)) {
+			return newErrorResponse("请求参数不合法：第一个参数为跨分片转账ID，只能由1~64位字母、数字、下划线或中划线组成!");
+		} else if (!isAccountNo(outAccountNo)) {
+			return newErrorResponse("请求参数不合法：第二个参数为转出账户卡号，必须是16位银行卡号!");
+		}
+		ShardConfig shardConfig = getShardConfig(stub);
+		if(shardConfig == null) {
+			return newErrorResponse("对不起，当前未启用分片，请使用transferAccount转账!");
+		}
+		int sourceShardIndex = shardConfig.routeShard(outAccountNo);
+		if(sourceShardIndex == shardConfig.getShardIndex()) {
+			return newErrorResponse(String.format("对不起，转出账号(%s)在当前分片，请在转入账号所在的分片调用该方法!", outAccountNo));
+		}
+		
+		ShardTransfer existing = getShardTransferById(stub, transferId);
+		if(existing != null) {
+			if(outAccountNo.equals(existing.getOutAccountNo()) && ShardTransferStatus.CREDITED.name().equals(existing.getStatus())) {
+				return newSuccessResponse(String.format("跨分片转账(%s)已入账过!", transferId), JsonUtils.object2JsonBytes(existing)); //客户端重试
+			}
+			return newErrorResponse(String.format("请求参数不合法：跨分片转账ID(%s)已被其他转账使用!", transferId));
+		}
+		
+		byte[] value = invokeShard(stub, shardConfig, sourceShardIndex, "getShardTransfer", transferId);
+		ShardTransfer transfer = ArrayUtils.isEmpty(value) ? null : JsonUtils.json2Object(value, ShardTransfer.class);
+		if(transfer == null || !outAccountNo.equals(transfer.getOutAccountNo())) {
+			return newErrorResponse(String.format("对不起，转出分片(%s)上不存在跨分片转账(%s)!", sourceShardIndex, transferId));
+		} else if (!ShardTransferStatus.HELD.name().equals(transfer.getStatus())) {
+			return newErrorResponse(String.format("对不起，跨分片转账(%s)在转出分片上的状态为%s，不能入账!", transferId, transfer.getStatus()));
+		}
+		String shardError = checkLocalAccount(shardConfig, transfer.getInAccountNo());
+		if(shardError != null) {
+			return newErrorResponse(shardError);
+		}
+		
+		CustomerAccount account = getCustomerAccountByNo(stub, transfer.getInAccountNo());
+		if(account == null) {
+			return newErrorResponse(String.format("对不起，转入账号(%s)不存在，请在转出分片调用cancelTransfer撤销该转账!", transfer.getInAccountNo()));
+		}
+		
+		String transactionTime = getTransactionTime(stub);
+		if(transactionTime == null) {
+			return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
+		} else if (!isTransactionTime(transactionTime)) {
+			return newErrorResponse(INVALID_TRANSACTION_TIME_MESSAGE);
+		}
+		
+		double amount = transfer.getAmount();
+		double balance = account.getAccountBalance();
+		account.setAccountBalance(balance + amount); //更新余额
+		
+		AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), balance,
+				account.getAccountBalance(), amount, outAccountNo,
+				AccountTransactionType.SHARD_TRANSFER_IN.name(), AccountTransactionType.SHARD_TRANSFER_IN.getDescription(), transactionTime);
+		
+		saveAccountTransaction(stub, account, transaction); //保存账户交易快照
+		
+		saveCustomerAccount(stub, account); //保存账户
+		
+		transfer.setStatus(ShardTransferStatus.CREDITED.name());
+		transfer.setTransactionId(stub.getTxId());
+		transfer.setTransactionTime(transactionTime);
+		byte[] jsonTransfer = saveShardTransfer(stub, transfer); //保存入账记录
+		
+		saveBankBalance(stub, amount); //资金进入本分片
+		
+		return newSuccessResponse("跨分片转账入账成功!", jsonTransfer);
+	}
+	
+	/**
+	 * 跨分片转账第三阶段(在转出账户所在的分片调用)：确认转入分片已入账后将转账记录置为RELEASED，并从在途金额中扣除
+	 * 参数列表：parameters[0] = T201901210001				<跨分片转账ID>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected synchronized Response releaseTransfer(ChaincodeStub stub, List<String> args) throws Exception {
+		String transferId = null;
+		if(args.size() != 1 || !(transferId = StringUtils.trimToEmpty(args.get(0))).matches(SHARD_TRANSFER_ID_REGEX)) {
+			return newErrorResponse("请求参数不合法：参数只能有一个，且为1~64位字母、数字、下划线或中划线组成的跨分片转账ID!");
+		}
+		ShardConfig shardConfig = getShardConfig(stub);
+		if(shardConfig == null) {
+			return newErrorResponse("对不起，当前未启用分片，不存在跨分片转账!");
+		}
+		ShardTransfer transfer = getShardTransferById(stub, transferId);
+		if(transfer == null) {
+			return newErrorResponse(String.format("对不起，跨分片转账(%s)不存在!", transferId));
+		} else if (!shardConfig.isLocalAccount(transfer.getOutAccountNo())) {
+			return newErrorResponse(String.format("对不起，跨分片转账(%s)的转出账号不在当前分片，请在转出分片(%s)调用该方法!", transferId, transfer.getSourceShardIndex()));
+		}
+		if(ShardTransferStatus.RELEASED.name().equals(transfer.getStatus())) {
+			return newSuccessResponse(String.format("跨分片转账(%s)已结清过!", transferId), JsonUtils.object2JsonBytes(transfer)); //客户端重试
+		} else if (!ShardTransferStatus.HELD.name().equals(transfer.getStatus())) {
+			return newErrorResponse(String.format("对不起，跨分片转账(%s)的状态为%s，不能结清!", transferId, transfer.getStatus()));
+		}
+		
+		byte[] value = invokeShard(stub, shardConfig, transfer.getTargetShardIndex(), "getShardTransfer", transferId);
+		ShardTransfer credit = ArrayUtils.isEmpty(value) ? null : JsonUtils.json2Object(value, ShardTransfer.class);
+		if(credit == null || !ShardTransferStatus.CREDITED.name().equals(credit.getStatus())) {
+			return newErrorResponse(String.format("对不起，跨分片转账(%s)尚未在转入分片(%s)入账，不能结清!", transferId, transfer.getTargetShardIndex()));
+		}
+		
+		transfer.setStatus(ShardTransferStatus.RELEASED.name());
+		transfer.setTransactionId(stub.getTxId());
+		byte[] jsonTransfer = saveShardTransfer(stub, transfer); //保存转账记录
+		
+		saveEscrowBalance(stub, -transfer.getAmount()); //扣除在途金额
+		
+		return newSuccessResponse("跨分片转账结清成功!", jsonTransfer);
+	}
+	
+	/**
+	 * 撤销跨分片转账(在转出账户所在的分片调用)：确认转入分片未入账后将冻结金额退回转出账户
+	 * 
+	 * 对转入分片入账记录的读取记入本交易的读集，与creditTransfer并发时只有先提交的一方有效
+	 * 参数列表：parameters[0] = T201901210001				<跨分片转账ID>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected synchronized Response cancelTransfer(ChaincodeStub stub, List<String> args) throws Exception {
+		String transferId = null;
+		if(args.size() != 1 || !(transferId = StringUtils.trimToEmpty(args.get(0))).matches(SHARD_TRANSFER_ID_REGEX)) {
+			return newErrorResponse("请求参数不合法：参数只能有一个，且为1~64位字母、数字、下划线或中划线组成的跨分片转账ID!");
+		}
+		ShardConfig shardConfig = getShardConfig(stub);
+		if(shardConfig == null) {
+			return newErrorResponse("对不起，当前未启用分片，不存在跨分片转账!");
+		}
+		ShardTransfer transfer = getShardTransferById(stub, transferId);
+		if(transfer == null) {
+			return newErrorResponse(String.format("对不起，跨分片转账(%s)不存在!", transferId));
+		} else if (!shardConfig.isLocalAccount(transfer.getOutAccountNo())) {
+			return newErrorResponse(String.format("对不起，跨分片转账(%s)的转出账号不在当前分片，请在转出分片(%s)调用该方法!", transferId, transfer.getSourceShardIndex()));
+		}
+		if(ShardTransferStatus.CANCELLED.name().equals(transfer.getStatus())) {
+			return newSuccessResponse(String.format("跨分片转账(%s)已撤销过!", transferId), JsonUtils.object2JsonBytes(transfer)); //客户端重试
+		} else if (!ShardTransferStatus.HELD.name().equals(transfer.getStatus())) {
+			return newErrorResponse(String.format("对不起，跨分片转账(%s)的状态为%s，不能撤销!", transferId, transfer.getStatus()));
+		}
+		
+		byte[] value = invokeShard(stub, shardConfig, transfer.getTargetShardIndex(), "getShardTransfer", transferId);
+		if(!ArrayUtils.isEmpty(value)) {
+			return newErrorResponse(String.format("对不起，跨分片转账(%s)已在转入分片(%s)入账，请调用releaseTransfer结清!", transferId, transfer.getTargetShardIndex()));
+		}
+		
+		CustomerAccount account = getCustomerAccountByNo(stub, transfer.getOutAccountNo());
+		if(account == null) {
+			return newErrorResponse(String.format("对不起，转出账号(%s)不存在!", transfer.getOutAccountNo()));
+		}
+		
+		String transactionTime = getTransactionTime(stub);
+		if(transactionTime == null) {
+			return newErrorResponse("请求参数不合法：交易时间(transients[transactionTime])不能为空!");
+		} else if (!isTransactionTime(transactionTime)) {
+			return newErrorResponse(INVALID_TRANSACTION_TIME_MESSAGE);
+		}
+		
+		double amount = transfer.getAmount();
+		double balance = account.getAccountBalance();
+		account.setAccountBalance(balance + amount); //更新余额
+		
+		AccountTransaction transaction = new AccountTransaction(stub.getTxId(), account.getAccountNo(), balance,
+				account.getAccountBalance(), amount, transfer.getInAccountNo(),
+				AccountTransactionType.SHARD_TRANSFER_REFUND.name(), AccountTransactionType.SHARD_TRANSFER_REFUND.getDescription(), transactionTime);
+		
+		saveAccountTransaction(stub, account, transaction); //保存账户交易快照
+		
+		saveCustomerAccount(stub, account); //保存账户
+		
+		transfer.setStatus(ShardTransferStatus.CANCELLED.name());
+		transfer.setTransactionId(stub.getTxId());
+		transfer.setTransactionTime(transactionTime);
+		byte[] jsonTransfer = saveShardTransfer(stub, transfer); //保存转账记录
+		
+		saveBankBalance(stub, amount); //资金退回本分片
+		
+		saveEscrowBalance(stub, -amount); //扣除在途金额
+		
+		return newSuccessResponse("跨分片转账撤销成功!", jsonTransfer);
+	}
+	
+	/**
+	 * 查询本分片上的跨分片转账记录(转出分片上的冻结记录或转入分片上的入账记录)，供其他分片通过invokeChaincode调用
+	 * 记录不存在时返回成功响应及空的payload，以便调用方区分"不存在"与"调用失败"
+	 * 参数列表：parameters[0] = T201901210001				<跨分片转账ID>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response getShardTransfer(ChaincodeStub stub, List<String> args) throws Exception {
+		String transferId = null;
+		if(args.size() == 1 && (transferId = StringUtils.trimToEmpty(args.get(0))).matches(SHARD_TRANSFER_ID_REGEX)) {
+			byte[] value = stub.getState(createShardTransferKey(stub, transferId));
+			if(ArrayUtils.isEmpty(value)) {
+				return newSuccessResponse(String.format("跨分片转账(%s)不存在!", transferId), new byte[0]);
+			}
+			return newSuccessResponse("查询跨分片转账成功!", value);
+		} else {
+			return newErrorResponse("请求参数不合法：参数只能有一个，且为1~64位字母、数字、下划线或中划线组成的跨分片转账ID!");
+		}
+	}
+	
+	/**
+	 * 修改链码运行配置，只有运行配置中adminMspIds所列组织的成员才能调用，修改后的配置对之后的交易生效
+	 * 参数列表：parameters[0] = {"adminMspIds":["Org1MSP"],"defaultFetchSize":20,"maxAccountsPageSize":1000}		<运行配置json，未指定的字段取默认值>
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response updateConfig(ChaincodeStub stub, List<String> args) throws Exception {
+		if(args.size() != 1) {
+			return newErrorResponse("请求参数不合法：参数只能有一个，且为运行配置json!");
+		}
+		List<String> adminMspIds = getCurrentConfig().getAdminMspIds();
+		String mspId = getCreatorMspId(stub);
+		if(mspId == null || adminMspIds == null || !adminMspIds.contains(mspId)) {
+			return newErrorResponse(String.format("对不起，组织(%s)没有修改链码运行配置的权限!", mspId));
+		}
+		ChaincodeConfig config = parseChaincodeConfig(args.get(0));
+		if(config == null) {
+			return newErrorResponse("请求参数不合法：" + INVALID_CHAINCODE_CONFIG_MESSAGE);
+		}
+		if(CollectionUtils.isEmpty(config.getAdminMspIds())) { //避免修改后再也无人能修改配置
+			return newErrorResponse("请求参数不合法：运行配置的adminMspIds不能为空!");
+		}
+		byte[] jsonConfig = JsonUtils.object2JsonBytes(config);
+		stub.putState(KEY_CHAINCODE_CONFIG, jsonConfig); //修改账本
+		return newSuccessResponse("修改链码运行配置成功!", jsonConfig);
+	}
+	
+	/**
+	 * 查询当前生效的链码运行配置(未设置的字段为默认值)
+	 * @param stub
+	 * @param args
+	 * @return
+	 * @throws Exception
+	 */
+	protected Response getConfig(ChaincodeStub stub, List<String> args) throws Exception {
+		return newSuccessResponse("查询链码运行配置成功!", JsonUtils.object2JsonBytes(getCurrentConfig()));
+	}
+	
+	/**
+	 * 获取transients[requestId]，只有会修改账本的方法才启用幂等提交，其他方法返回null
+	 * @param stub
+	 * @param function
+	 * @return
+	 */
+	protected String getRequestId(ChaincodeStub stub, String function) {
+		if(WRITE_FUNCTIONS.contains(function)) {
+			byte[] requestIdBytes = stub.getTransient().get("requestId");
+			if(!ArrayUtils.isEmpty(requestIdBytes)) {
+				return StringUtils.trimToNull(new String(requestIdBytes, CHARSET));
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 创建查询结果的输出流：客户端通过transients[responseEncoding]=gzip开启压缩时，写入的数据超过阈值后自动切换为流式压缩，否则原样输出
+	 * @param stub
+	 * @return
+	 */
+	protected ThresholdGzipOutputStream newResponsePayload(ChaincodeStub stub) {
+		byte[] encodingBytes = stub.getTransient().get("responseEncoding");
+		boolean gzip = !ArrayUtils.isEmpty(encodingBytes) && RESPONSE_ENCODING_GZIP.equalsIgnoreCase(StringUtils.trim(new String(encodingBytes, CHARSET)));
+		return new ThresholdGzipOutputStream(gzip ? getCurrentConfig().getResponseCompressionThreshold() : -1);
+	}
+	
+	/**
+	 * 结束查询结果的写入并返回成功响应，结果经过压缩时在响应消息前加上RESPONSE_ENCODING_GZIP_TAG
+	 * @param message
+	 * @param payload
+	 * @return
+	 */
+	protected Response newEncodedSuccessResponse(String message, ThresholdGzipOutputStream payload) {
+		payload.close();
+		return newSuccessResponse(payload.isCompressed() ? RESPONSE_ENCODING_GZIP_TAG + message : message, payload.toByteArray());
+	}
+	
+	/**
+	 * 向查询结果中写入一条JSON记录，与List.toString()一样以", "分隔
+	 * @param payload
+	 * @param record
+	 * @param index		- 该记录的序号(从0开始)
+	 */
+	protected void writeRecord(ThresholdGzipOutputStream payload, byte[] record, int index) {
+		if(index > 0) {
+			payload.write(',');
+			payload.write(' ');
+		}
+		payload.write(record);
+	}
+	
+	/**
+	 * 检测交易时间是否是yyyy-MM-dd HH:mm:ss[.SSS]格式
+	 * @param transactionTime
+	 * @return
+	 */
+	protected boolean isTransactionTime(String transactionTime) {
+		return DateTimeUtils.parseEpochMillis(transactionTime, TRANSACTION_TIME_ZONE) != DateTimeUtils.INVALID_EPOCH_MILLIS;
+	}
+	
+	/**
+	 * 将交易时间解析为epoch毫秒数，交易时间为空或格式不正确时返回null
+	 * @param transactionTime
+	 * @return
+	 */
+	protected Long parseTransactionTimestamp(String transactionTime) {
+		long timestamp = DateTimeUtils.parseEpochMillis(transactionTime, TRANSACTION_TIME_ZONE);
+		return timestamp == DateTimeUtils.INVALID_EPOCH_MILLIS ? null : timestamp;
+	}
+	
+	/**
+	 * 获取交易时间所在的日期(yyyy-MM-dd)，交易时间为空或格式不正确时返回null
+	 * @param transactionTime
+	 * @return
+	 */
+	protected String getTransactionDay(String transactionTime) {
+		if(isTransactionTime(transactionTime)) { //标准格式直接截取，无需正则匹配
+			return transactionTime.substring(0, 10);
+		}
+		String dateTimeText = DateTimeUtils.normalizeDateTime(StringUtils.trimToNull(transactionTime));
+		if(dateTimeText != null && dateTimeText.length() >= 10 && dateTimeText.substring(0, 10).matches("\\d{4}-\\d{2}-\\d{2}")) {
+			return dateTimeText.substring(0, 10);
+		}
+		return null;
+	}
+	
+	protected String createCustomerAccountKey(ChaincodeStub stub, String accountNo) {
+		return CUSTOMER_ACCOUNT_KEY_BUILDER.build(accountNo);
+	}
+	
+	/**
+	 * 按key顺序查询bookmark之后(不含bookmark)的活跃账户，bookmark为空时从第一个账户开始
+	 * 
+	 * shim的getStateByRange只接受简单key，组合键不能直接从bookmark之后开始范围查询，
+	 * 这里把"大于bookmark的16位卡号"拆成若干个互不重叠的卡号前缀：从最后一位往前，每一位依次取比bookmark该位大的数字，
+	 * 例如bookmark为...0200时依次是...0201~...0209、...021~...029、...03~...09、...，再按顺序逐个执行部分组合键查询，
+	 * 分批扫描时每批只读取本批的账户(最多多执行16*9个空查询)，不会重复读取之前已处理过的账户
+	 * 开户时卡号必须是16位数字；旧版本链码可能写入过其他格式的卡号，bookmark不是16位卡号时退回到从头扫描并跳过bookmark及之前的账户，
+	 * 而bookmark为16位卡号时不会再查到排在其后的非数字卡号(这类账户本来也不能存取款/转账)
+	 * @param stub
+	 * @param bookmark		- 上一批最后处理的账号
+	 * @return
+	 */
+	protected QueryResultsIterator<KeyValue> getCustomerAccountsAfter(ChaincodeStub stub, String bookmark) {
+		String prefix = CUSTOMER_ACCOUNT_KEY_BUILDER.getPrefix();
+		if(StringUtils.isEmpty(bookmark)) {
+			return stub.getStateByPartialCompositeKey(prefix);
+		} else if (!isAccountNo(bookmark)) {
+			return new ChainedQueryResultsIterator(stub, Collections.singletonList(prefix), createCustomerAccountKey(stub, bookmark));
+		}
+		List<String> partialKeys = new ArrayList<String>();
+		for(int i = ACCOUNT_NO_LENGTH - 1; i >= 0; i--) {
+			for(char digit = (char) (bookmark.charAt(i) + 1); digit <= '9'; digit++) {
+				partialKeys.add(prefix + bookmark.substring(0, i) + digit);
+			}
+		}
+		return new ChainedQueryResultsIterator(stub, partialKeys, null);
+	}
+	
+	/**
+	 * 休眠账户的key(与活跃账户分开存放，全量扫描活跃账户时不会读到休眠账户)
+	 */
+	protected String createDormantAccountKey(ChaincodeStub stub, String accountNo) {
+		return DORMANT_ACCOUNT_KEY_BUILDER.build(accountNo);
+	}
+	
+	/**
+	 * 旧版本链码使用的单key交易记录(所有交易记录都是该key的历史版本)
+	 */
+	protected String createAccountTransactionKey(ChaincodeStub stub, String accountNo) {
+		return ACCOUNT_TRANSACTION_KEY_BUILDER.build(accountNo);
+	}
+	
+	protected String createAccountTransactionKey(ChaincodeStub stub, String accountNo, long transactionSeq) {
+		return ACCOUNT_TRANSACTION_KEY_BUILDER.build(accountNo, transactionSeq, TRANSACTION_SEQ_WIDTH);
+	}
+	
+	protected String createAccountTransactionCheckpointKey(ChaincodeStub stub, String accountNo, long transactionSeq) {
+		return ACCOUNT_TRANSACTION_CHECKPOINT_KEY_BUILDER.build(accountNo, transactionSeq, TRANSACTION_SEQ_WIDTH);
+	}
+	
+	protected String createRequestDedupKey(ChaincodeStub stub, String requestId) {
+		return REQUEST_DEDUP_KEY_BUILDER.build(requestId);
+	}
+	
+	protected String createRequestDedupExpiryKey(ChaincodeStub stub, String requestDay, String requestId) {
+		return REQUEST_DEDUP_EXPIRY_KEY_BUILDER.build(requestDay, requestId);
+	}
+	
+	protected String createAccountTransactionArchiveKey(ChaincodeStub stub, String accountNo, int bucketSeq) {
+		return ACCOUNT_TRANSACTION_ARCHIVE_KEY_BUILDER.build(accountNo, bucketSeq, ARCHIVE_BUCKET_SEQ_WIDTH);
+	}
+	
+	protected String createSettlementRuleKey(ChaincodeStub stub, String ruleId) {
+		return SETTLEMENT_RULE_KEY_BUILDER.build(ruleId);
+	}
+	
+	protected String createSettlementCheckpointKey(ChaincodeStub stub, String businessDay, String ruleId) {
+		return SETTLEMENT_CHECKPOINT_KEY_BUILDER.build(businessDay, ruleId);
+	}
+	
+	protected SettlementRule getSettlementRule(ChaincodeStub stub, String ruleId) {
+		if(!ruleId.matches(SETTLEMENT_RULE_ID_REGEX)) {
+			return null;
+		}
+		byte[] value = stub.getState(createSettlementRuleKey(stub, ruleId));
+		if(!ArrayUtils.isEmpty(value)) {
+			return JsonUtils.json2Object(value, SettlementRule.class);
+		}
+		return null;
+	}
+	
+	protected String createShardTransferKey(ChaincodeStub stub, String transferId) {
+		return SHARD_TRANSFER_KEY_BUILDER.build(transferId);
+	}
+	
+	protected ShardTransfer getShardTransferById(ChaincodeStub stub, String transferId) {
+		byte[] value = stub.getState(createShardTransferKey(stub, transferId));
+		if(!ArrayUtils.isEmpty(value)) {
+			return JsonUtils.json2Object(value, ShardTransfer.class);
+		}
+		return null;
+	}
+	
+	protected byte[] saveShardTransfer(ChaincodeStub stub, ShardTransfer transfer) {
+		byte[] jsonTransfer = JsonUtils.object2JsonBytes(transfer);
+		stub.putState(createShardTransferKey(stub, transfer.getTransferId()), jsonTransfer); //修改账本
+		return jsonTransfer;
+	}
+	
+	/**
+	 * 获取分片配置，未启用分片时返回null
+	 * @param stub
+	 * @return
+	 */
+	protected ShardConfig getShardConfig(ChaincodeStub stub) {
+		byte[] value = stub.getState(KEY_SHARD_CONFIG);
+		if(ArrayUtils.isEmpty(value)) {
+			return null;
+		}
+		Map.Entry<byte[],ShardConfig> cached = cachedShardConfig;
+		if(cached == null || !Arrays.equals(cached.getKey(), value)) {
+			cachedShardConfig = cached = new AbstractMap.SimpleImmutableEntry<byte[],ShardConfig>(value, JsonUtils.json2Object(value, ShardConfig.class));
+		}
+		return cached.getValue();
+	}
+	
+	/**
+	 * 解析并校验init时传入的分片配置，不合法时返回null
+	 * @param json
+	 * @return
+	 */
+	protected ShardConfig parseShardConfig(String json) {
+		if(!JsonUtils.isJsonObject(json)) {
+			return null;
+		}
+		ShardConfig shardConfig;
+		try {
+			shardConfig = JsonUtils.json2Object(json, ShardConfig.class);
+		} catch (JsonUtils.JacksonJsonException e) {
+			return null;
+		}
+		Integer shardCount = shardConfig.getShardCount(), shardIndex = shardConfig.getShardIndex();
+		List<String> chaincodeNames = shardConfig.getChaincodeNames();
+		if(shardCount == null || shardCount < 1 || shardCount > MAX_SHARD_COUNT || shardIndex == null || shardIndex < 0 || shardIndex >= shardCount
+				|| chaincodeNames == null || chaincodeNames.size() != shardCount) {
+			return null;
+		}
+		for(String chaincodeName : chaincodeNames) {
+			if(StringUtils.isBlank(chaincodeName)) {
+				return null;
+			}
+		}
+		return shardConfig;
+	}
+	
+	/**
+	 * 读取链码运行配置，未设置时返回默认配置；按原始值缓存解析结果，配置未变化时只有一次getState而不会重复解析
+	 * @param stub
+	 * @return
+	 */
+	protected ChaincodeConfig getChaincodeConfig(ChaincodeStub stub) {
+		byte[] value = stub.getState(KEY_CHAINCODE_CONFIG);
+		if(ArrayUtils.isEmpty(value)) {
+			return DEFAULT_CHAINCODE_CONFIG;
+		}
+		Map.Entry<byte[],ChaincodeConfig> cached = cachedChaincodeConfig;
+		if(cached == null || !Arrays.equals(cached.getKey(), value)) {
+			cachedChaincodeConfig = cached = new AbstractMap.SimpleImmutableEntry<byte[],ChaincodeConfig>(value, JsonUtils.json2Object(value, ChaincodeConfig.class));
+		}
+		return cached.getValue();
+	}
+	
+	/**
+	 * 获取当前invoke使用的运行配置
+	 * @return
+	 */
+	protected ChaincodeConfig getCurrentConfig() {
+		ChaincodeConfig config = CURRENT_CHAINCODE_CONFIG.get();
+		return config == null ? DEFAULT_CHAINCODE_CONFIG : config;
+	}
+	
+	/**
+	 * 解析并校验运行配置，不合法时返回null
+	 * @param json
+	 * @return
+	 */
+	protected ChaincodeConfig parseChaincodeConfig(String json) {
+		if(!JsonUtils.isJsonObject(json)) {
+			return null;
+		}
+		ChaincodeConfig config;
+		try {
+			config = JsonUtils.json2Object(json, ChaincodeConfig.class);
+		} catch (JsonUtils.JacksonJsonException e) {
+			return null;
+		}
+		Integer[] limits = {config.getDefaultFetchSize(), config.getMaxFetchSize(), config.getMaxBatchQueryAccounts(), config.getMaxCreateAccounts(),
+				config.getMaxTransferLegs(), config.getMaxArchiveTransactions(), config.getMaxArchiveBucketTransactions(), config.getMaxPurgeRequestDedups(), config.getDefaultSettlementChunkSize(),
+				config.getMaxSettlementChunkSize(), config.getMaxDormantChunkSize(), config.getDefaultSnapshotPageSize(), config.getMaxSnapshotPageSize(), config.getLogSampleInterval(),
+				config.getTransactionCheckpointInterval()};
+		for(Integer limit : limits) {
+			if(limit == null || limit <= 0) {
+				return null;
+			}
+		}
+		if(config.getMaxAccountsPageSize() == null || config.getMaxAccountsPageSize() < 0
+				|| config.getResponseCompressionThreshold() == null || config.getResponseCompressionThreshold() < 0
+				|| config.getDefaultAccountBalance() == null || !(config.getDefaultAccountBalance() >= 0) || config.getDefaultAccountBalance().isInfinite()
+				|| !isCentAmount(config.getDefaultAccountBalance())) {
+			return null;
+		}
+		if(config.getDefaultFetchSize() > config.getMaxFetchSize() || config.getDefaultSettlementChunkSize() > config.getMaxSettlementChunkSize()
+				|| config.getDefaultSnapshotPageSize() > config.getMaxSnapshotPageSize()) {
+			return null;
+		}
+		if(config.getAdminMspIds() != null) {
+			for(String mspId : config.getAdminMspIds()) {
+				if(StringUtils.isBlank(mspId)) {
+					return null;
+				}
+			}
+		}
+		return config;
+	}
+	
+	/**
+	 * 本次调用是否记录开始/结束日志(每logSampleInterval次调用记录一次)，日志不影响背书结果，各节点采样不一致也无妨
+	 * @param config
+	 * @return
+	 */
+	protected boolean isLogSampled(ChaincodeConfig config) {
+		int interval = config.getLogSampleInterval();
+		return interval <= 1 || INVOKE_COUNTER.incrementAndGet() % interval == 0;
+	}
+	
+	/**
+	 * 获取交易提交者所属组织的MSP ID，无法解析时返回null
+	 * @param stub
+	 * @return
+	 */
+	protected String getCreatorMspId(ChaincodeStub stub) {
+		byte[] creator = stub.getCreator();
+		if(ArrayUtils.isEmpty(creator)) {
+			return null;
+		}
+		try {
+			return StringUtils.trimToNull(SerializedIdentity.parseFrom(creator).getMspid());
+		} catch (InvalidProtocolBufferException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * 检测账户是否属于当前分片(未启用分片时所有账户都属于当前分片)，不属于时返回错误提示，否则返回null
+	 * @param shardConfig
+	 * @param accountNo
+	 * @return
+	 */
+	protected String checkLocalAccount(ShardConfig shardConfig, String accountNo) {
+		if(shardConfig == null || shardConfig.isLocalAccount(accountNo)) {
+			return null;
+		}
+		return String.format("对不起，账号(%s)属于分片(%s)，不在当前分片(%s)!", accountNo, shardConfig.routeShard(accountNo), shardConfig.getShardIndex());
+	}
+	
+	/**
+	 * 通过invokeChaincode调用同一通道上其他分片的方法，被调用方的读写集同样记入本交易，调用失败时抛出异常
+	 * @param stub
+	 * @param shardConfig
+	 * @param shardIndex
+	 * @param function
+	 * @param args
+	 * @return 被调用方法返回的payload
+	 */
+	protected byte[] invokeShard(ChaincodeStub stub, ShardConfig shardConfig, int shardIndex, String function, String... args) {
+		List<String> invokeArgs = new ArrayList<String>(args.length + 1);
+		invokeArgs.add(function);
+		invokeArgs.addAll(Arrays.asList(args));
+		Response response = stub.invokeChaincodeWithStringArgs(shardConfig.getChaincodeName(shardIndex), invokeArgs);
+		if(response.getStatus() != Response.Status.SUCCESS) {
+			throw new FabricChaincodeException(String.format("调用分片(%s)的%s方法出错：%s", shardIndex, function, response.getMessage()));
+		}
+		return response.getPayload();
+	}
+	
+	/**
+	 * 获取账户，活跃账户中不存在时再查找休眠账户(休眠账户的dormantTime不为空)
+	 * @param stub
+	 * @param accountNo
+	 * @return
+	 */
+	protected CustomerAccount getCustomerAccountByNo(ChaincodeStub stub, String accountNo) {
+		String key = createCustomerAccountKey(stub, accountNo);
+		byte[] value = stub.getState(key);
+		if(ArrayUtils.isEmpty(value)) {
+			value = stub.getState(createDormantAccountKey(stub, accountNo));
+		}
+		if(!ArrayUtils.isEmpty(value)) {
+			return JsonUtils.json2Object(value, CustomerAccount.class);
+		}
+		return null;
+	}
+	
+	/**
+	 * 获取账户的最近活动时间：旧版本链码创建的账户没有lastActivityTime，取最新一条未归档交易记录的时间，仍无法确定时返回null
+	 * @param stub
+	 * @param account
+	 * @return
+	 */
+	protected String getLastActivityTime(ChaincodeStub stub, CustomerAccount account) {
+		if(account.getLastActivityTime() != null) {
+			return account.getLastActivityTime();
+		}
+		long transactionSeq = ObjectUtils.defaultIfNull(account.getTransactionSeq(), 0L);
+		if(transactionSeq > ObjectUtils.defaultIfNull(account.getArchivedTransactionSeq(), 0L)) {
+			byte[] value = stub.getState(createAccountTransactionKey(stub, account.getAccountNo(), transactionSeq));
+			if(!ArrayUtils.isEmpty(value)) {
+				return JsonUtils.json2Object(value, AccountTransaction.class).getTransactionTime();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 保存账户：dormantTime为空时保存为活跃账户，否则保存为休眠账户
+	 */
+	protected byte[] saveCustomerAccount(ChaincodeStub stub, CustomerAccount account) {
+		byte[] jsonAccount = JsonUtils.object2JsonBytes(account);
+		String key = account.getDormantTime() == null ? createCustomerAccountKey(stub, account.getAccountNo()) : createDormantAccountKey(stub, account.getAccountNo());
+		stub.putState(key, jsonAccount); //修改账本
+		return jsonAccount;
+	}
+	
+	/**
+	 * 保存账户交易记录，每条交易记录使用独立的序号key，同时更新账户的最新交易序号(需要随后保存账户)，并将其加入当前invoke的账户变动事件
+	 * 客户发起的交易还会更新账户的最近活动时间，休眠账户随之转回活跃账户(随后保存账户时写回活跃账户key)
+	 * 每条交易记录带上前一条记录的hash并计算自身的hash，账户的hash链头随之前移，序号每到transactionCheckpointInterval的整数倍时保存一个检查点，并记录为账户的最新检查点序号
+	 */
+	protected byte[] saveAccountTransaction(ChaincodeStub stub, CustomerAccount account, AccountTransaction transaction) {
+		Long lastTransactionSeq = account.getTransactionSeq();
+		Long transactionSeq = lastTransactionSeq == null ? 1L : lastTransactionSeq + 1;
+		transaction.setTransactionSeq(transactionSeq);
+		account.setTransactionSeq(transactionSeq);
+		transaction.setTransactionTimestamp(parseTransactionTimestamp(transaction.getTransactionTime()));
+		if(!AccountTransactionType.SETTLE_INTEREST.name().equals(transaction.getTransactionType()) 
+				&& !AccountTransactionType.SETTLE_FEE.name().equals(transaction.getTransactionType())) { //日终结息/扣费不算客户活动
+			account.setLastActivityTime(transaction.getTransactionTime());
+			if(account.getDormantTime() != null) {
+				stub.delState(createDormantAccountKey(stub, account.getAccountNo())); //休眠账户转回活跃账户
+				account.setDormantTime(null);
+				AccountEvent event = CURRENT_ACCOUNT_EVENT.get();
+				if(event != null) {
+					event.addStatus(AccountTransactionType.ACCOUNT_REACTIVATED, account.getAccountNo(), transaction.getBeforeAccountBalance(), transactionSeq - 1, transaction.getTransactionTime()); //排在本次交易记录之前
+				}
+			}
+		}
+		transaction.setPreviousHash(account.getTransactionHash());
+		transaction.setHash(computeTransactionHash(transaction));
+		account.setTransactionHash(transaction.getHash());
+		byte[] jsonTransaction = JsonUtils.object2JsonBytes(transaction);
+		stub.putState(createAccountTransactionKey(stub, account.getAccountNo(), transactionSeq), jsonTransaction); //修改账本
+		if(transactionSeq % getCurrentConfig().getTransactionCheckpointInterval() == 0) {
+			saveAccountTransactionCheckpoint(stub, transaction);
+			account.setLastCheckpointSeq(transactionSeq);
+		}
+		AccountEvent event = CURRENT_ACCOUNT_EVENT.get();
+		if(event != null) {
+			event.add(transaction);
+		}
+		return jsonTransaction;
+	}
+	
+	/**
+	 * 计算交易记录的hash：按固定顺序将previousHash及各个关键字段的UTF-8编码以\u0000分隔后取SHA-256(小写十六进制)，
+	 * 不依赖json序列化的字段顺序，链下审计工具可以按同样的规则重算：
+	 * previousHash、交易ID、账号、交易序号、交易类型、交易金额、交易前余额、交易后余额、关联账号、交易时间
+	 * 
+	 * 其中null为空串，序号为十进制整数，金额一律换算为以分为单位的十进制整数(Math.round(amount * 100)，例如12.5为1250)，
+	 * 不使用Double.toString，避免同一金额因浮点表示不同(例如1.0E7与10000000.0)而得到不同的hash；
+	 * 按分计算不会丢失信息：交易金额及开户金额在背书时已限制为最多两位小数(见isCentAmount)，利息/管理费四舍五入到分，
+	 * 余额只由这些金额加减得到，其浮点误差远小于半分
+	 * 各字段直接编码进线程内复用的摘要缓冲区，不拼接中间字符串
+	 * @param transaction
+	 * @return
+	 */
+	protected String computeTransactionHash(AccountTransaction transaction) {
+		return HashUtils.sha256().append(transaction.getPreviousHash()).append('\u0000')
+			.append(transaction.getTransactionId()).append('\u0000')
+			.append(transaction.getTransactionAccountNo()).append('\u0000')
+			.append(transaction.getTransactionSeq()).append('\u0000')
+			.append(transaction.getTransactionType()).append('\u0000')
+			.append(toCents(transaction.getTransactionBalance())).append('\u0000')
+			.append(toCents(transaction.getBeforeAccountBalance())).append('\u0000')
+			.append(toCents(transaction.getAfterAccountBalance())).append('\u0000')
+			.append(transaction.getTransferRelateAccountNo()).append('\u0000')
+			.append(transaction.getTransactionTime())
+			.hex();
+	}
+	
+	/**
+	 * 金额换算为以分为单位的整数(四舍五入，吸收浮点加减的误差)，null按0处理
+	 */
+	protected static long toCents(Double amount) {
+		return amount == null ? 0 : Math.round(amount * 100);
+	}
+	
+	protected void saveAccountTransactionCheckpoint(ChaincodeStub stub, AccountTransaction transaction) {
+		AccountTransactionCheckpoint checkpoint = new AccountTransactionCheckpoint();
+		checkpoint.setAccountNo(transaction.getTransactionAccountNo());
+		checkpoint.setTransactionSeq(transaction.getTransactionSeq());
+		checkpoint.setAccountBalance(transaction.getAfterAccountBalance());
+		checkpoint.setTransactionHash(transaction.getHash());
+		checkpoint.setTransactionId(transaction.getTransactionId());
+		checkpoint.setTransactionTime(transaction.getTransactionTime());
+		stub.putState(createAccountTransactionCheckpointKey(stub, checkpoint.getAccountNo(), checkpoint.getTransactionSeq()), JsonUtils.object2JsonBytes(checkpoint)); //修改账本
+	}
+	
+	protected AccountTransactionCheckpoint getAccountTransactionCheckpoint(ChaincodeStub stub, String accountNo, long transactionSeq) {
+		byte[] value = stub.getState(createAccountTransactionCheckpointKey(stub, accountNo, transactionSeq));
+		if(!ArrayUtils.isEmpty(value)) {
+			return JsonUtils.json2Object(value, AccountTransactionCheckpoint.class);
+		}
+		return null;
+	}
+	
+	protected AccountTransactionArchive getAccountTransactionArchive(ChaincodeStub stub, String accountNo, int bucketSeq) {
+		byte[] value = stub.getState(createAccountTransactionArchiveKey(stub, accountNo, bucketSeq));
+		if(!ArrayUtils.isEmpty(value)) {
+			return JsonUtils.json2Object(new String(GzipUtils.decompress(value), CHARSET), AccountTransactionArchive.class);
+		}
+		return null;
+	}
+	
+	protected void saveAccountTransactionArchive(ChaincodeStub stub, AccountTransactionArchive archive) {
+		byte[] value = GzipUtils.compress(JsonUtils.object2Json(archive).getBytes(CHARSET));
+		stub.putState(createAccountTransactionArchiveKey(stub, archive.getAccountNo(), archive.getBucketSeq()), value); //修改账本
+	}
+	
+	protected double getEscrowBalance(ChaincodeStub stub) {
+		String value = stub.getStringState(KEY_ESCROW_BALANCE);
+		return StringUtils.isEmpty(value) ? 0 : Double.parseDouble(value);
+	}
+	
+	protected double saveEscrowBalance(ChaincodeStub stub, double delta) {
+		double escrowBalance = getEscrowBalance(stub) + delta;
+		stub.putStringState(KEY_ESCROW_BALANCE, String.valueOf(escrowBalance));
+		return escrowBalance;
+	}
+	
+	protected double saveBankBalance(ChaincodeStub stub, double delta) {
+		double bankBalance = Double.parseDouble(stub.getStringState(KEY_BANK_BALANCE)) + delta;
+		stub.putStringState(KEY_BANK_BALANCE, String.valueOf(bankBalance));
+		return bankBalance;
+	}
+	
+	public static void main(String[] args) {
+		LOGGER.info(">>> Chaincode starting, args = {}", Arrays.toString(args));
+        new BankMasterChaincode().start(args);
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+
+/**
+ * 按顺序依次执行多个部分组合键查询，并把结果拼接成一个迭代器
+ * 
+ * 部分组合键(前缀)互不重叠且按key顺序给出时，拼接的结果就是这些前缀范围的并集且整体按key有序；
+ * 每个查询只在前一个查询读完后才执行，调用方提前结束迭代时后面的查询不会执行；
+ * 指定了startAfterKey时跳过小于等于该key的结果
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月28日 下午2:16:40
+ */
+public class ChainedQueryResultsIterator implements QueryResultsIterator<KeyValue>, Iterator<KeyValue> {
+
+	private final ChaincodeStub stub;
+	
+	private final List<String> partialKeys;
+	
+	private final String startAfterKey;
+	
+	private int nextPartialKey;
+	
+	private QueryResultsIterator<KeyValue> current;
+	
+	private Iterator<KeyValue> currentIterator;
+	
+	private KeyValue nextValue;
+	
+	public ChainedQueryResultsIterator(ChaincodeStub stub, List<String> partialKeys, String startAfterKey) {
+		super();
+		this.stub = stub;
+		this.partialKeys = partialKeys;
+		this.startAfterKey = startAfterKey;
+	}
+	
+	@Override
+	public Iterator<KeyValue> iterator() {
+		return this;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		while(nextValue == null) {
+			if(currentIterator != null && currentIterator.hasNext()) {
+				KeyValue kv = currentIterator.next();
+				if(startAfterKey == null || kv.getKey().compareTo(startAfterKey) > 0) {
+					nextValue = kv;
+				}
+			} else {
+				closeCurrent();
+				if(nextPartialKey == partialKeys.size()) {
+					return false;
+				}
+				current = stub.getStateByPartialCompositeKey(partialKeys.get(nextPartialKey++));
+				currentIterator = current.iterator();
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public KeyValue next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		KeyValue kv = nextValue;
+		nextValue = null;
+		return kv;
+	}
+	
+	@Override
+	public void close() {
+		closeCurrent();
+		nextPartialKey = partialKeys.size();
+		nextValue = null;
+	}
+	
+	private void closeCurrent() {
+		if(current != null) {
+			try {
+				current.close();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			current = null;
+			currentIterator = null;
+		}
+	}
+	
+}
@@ -1,151 +1,203 @@
-package com.penglecode.fabric.chaincode.bankmaster.domain;
-
-import java.io.Serializable;
-
-/**
- * 客户账户交易
- * 
- * @author 	pengpeng
- * @date	2018年12月14日 下午5:24:55
- */
-public class AccountTransaction implements Serializable {
-
-	private static final long serialVersionUID = 1L;
-	
-	/**
-	 * 交易ID，同stub.getTxId()
-	 */
-	private String transactionId;
-	
-	/**
-	 * 交易账户
-	 */
-	private String transactionAccountNo;
-	
-	/**
-	 * 账户交易前金额
-	 */
-	private Double beforeAccountBalance;
-	
-	/**
-	 * 账户交易后金额
-	 */
-	private Double afterAccountBalance;
-	
-	/**
-	 * 交易金额
-	 */
-	private Double transactionBalance;
-	
-	/**
-	 * 如果是转账类型，则为对方账号
-	 */
-	private String transferRelateAccountNo;
-	
-	/**
-	 * 交易类型
-	 */
-	private String transactionType;
-	
-	/**
-	 * 交易描述
-	 */
-	private String transactionDesc;
-	
-	/**
-	 * 交易时间
-	 */
-	private String transactionTime;
-	
-	public AccountTransaction() {
-		super();
-	}
-
-	public AccountTransaction(String transactionId, String transactionAccountNo, Double beforeAccountBalance,
-			Double afterAccountBalance, Double transactionBalance, String transferRelateAccountNo,
-			String transactionType, String transactionDesc, String transactionTime) {
-		super();
-		this.transactionId = transactionId;
-		this.transactionAccountNo = transactionAccountNo;
-		this.beforeAccountBalance = beforeAccountBalance;
-		this.afterAccountBalance = afterAccountBalance;
-		this.transactionBalance = transactionBalance;
-		this.transferRelateAccountNo = transferRelateAccountNo;
-		this.transactionType = transactionType;
-		this.transactionDesc = transactionDesc;
-		this.transactionTime = transactionTime;
-	}
-
-	public String getTransactionId() {
-		return transactionId;
-	}
-
-	public void setTransactionId(String transactionId) {
-		this.transactionId = transactionId;
-	}
-
-	public String getTransactionAccountNo() {
-		return transactionAccountNo;
-	}
-
-	public void setTransactionAccountNo(String transactionAccountNo) {
-		this.transactionAccountNo = transactionAccountNo;
-	}
-
-	public Double getBeforeAccountBalance() {
-		return beforeAccountBalance;
-	}
-
-	public void setBeforeAccountBalance(Double beforeAccountBalance) {
-		this.beforeAccountBalance = beforeAccountBalance;
-	}
-
-	public Double getAfterAccountBalance() {
-		return afterAccountBalance;
-	}
-
-	public void setAfterAccountBalance(Double afterAccountBalance) {
-		this.afterAccountBalance = afterAccountBalance;
-	}
-
-	public Double getTransactionBalance() {
-		return transactionBalance;
-	}
-
-	public void setTransactionBalance(Double transactionBalance) {
-		this.transactionBalance = transactionBalance;
-	}
-
-	public String getTransferRelateAccountNo() {
-		return transferRelateAccountNo;
-	}
-
-	public void setTransferRelateAccountNo(String transferRelateAccountNo) {
-		this.transferRelateAccountNo = transferRelateAccountNo;
-	}
-
-	public String getTransactionType() {
-		return transactionType;
-	}
-
-	public void setTransactionType(String transactionType) {
-		this.transactionType = transactionType;
-	}
-
-	public String getTransactionDesc() {
-		return transactionDesc;
-	}
-
-	public void setTransactionDesc(String transactionDesc) {
-		this.transactionDesc = transactionDesc;
-	}
-
-	public String getTransactionTime() {
-		return transactionTime;
-	}
-
-	public void setTransactionTime(String transactionTime) {
-		this.transactionTime = transactionTime;
-	}
-
-}
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+
+/**
+ * 客户账户交易
+ * 
+ * @author 	pengpeng
+ * @date	2018年12月14日 下午5:24:55
+ */
+public class AccountTransaction implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * 交易ID，同stub.getTxId()
+	 */
+	private String transactionId;
+	
+	/**
+	 * 交易账户
+	 */
+	private String transactionAccountNo;
+	
+	/**
+	 * 账户交易前金额
+	 */
+	private Double beforeAccountBalance;
+	
+	/**
+	 * 账户交易后金额
+	 */
+	private Double afterAccountBalance;
+	
+	/**
+	 * 交易金额
+	 */
+	private Double transactionBalance;
+	
+	/**
+	 * 如果是转账类型，则为对方账号
+	 */
+	private String transferRelateAccountNo;
+	
+	/**
+	 * 交易类型
+	 */
+	private String transactionType;
+	
+	/**
+	 * 交易描述
+	 */
+	private String transactionDesc;
+	
+	/**
+	 * 交易时间
+	 */
+	private String transactionTime;
+	
+	/**
+	 * 交易时间对应的epoch毫秒数(按东八区解析transactionTime)，便于按时间范围检索和排序
+	 */
+	private Long transactionTimestamp;
+	
+	/**
+	 * 该交易记录在所属账户中的序号(从1开始递增)
+	 */
+	private Long transactionSeq;
+	
+	/**
+	 * 该账户上一条交易记录的hash，账户的第一条记录为null
+	 */
+	private String previousHash;
+	
+	/**
+	 * 本条交易记录的hash(SHA-256十六进制)，由各个关键字段及previousHash计算，同一账户的交易记录由此串成hash链
+	 */
+	private String hash;
+	
+	public AccountTransaction() {
+		super();
+	}
+
+	public AccountTransaction(String transactionId, String transactionAccountNo, Double beforeAccountBalance,
+			Double afterAccountBalance, Double transactionBalance, String transferRelateAccountNo,
+			String transactionType, String transactionDesc, String transactionTime) {
+		super();
+		this.transactionId = transactionId;
+		this.transactionAccountNo = transactionAccountNo;
+		this.beforeAccountBalance = beforeAccountBalance;
+		this.afterAccountBalance = afterAccountBalance;
+		this.transactionBalance = transactionBalance;
+		this.transferRelateAccountNo = transferRelateAccountNo;
+		this.transactionType = transactionType;
+		this.transactionDesc = transactionDesc;
+		this.transactionTime = transactionTime;
+	}
+
+	public String getTransactionId() {
+		return transactionId;
+	}
+
+	public void setTransactionId(String transactionId) {
+		this.transactionId = transactionId;
+	}
+
+	public String getTransactionAccountNo() {
+		return transactionAccountNo;
+	}
+
+	public void setTransactionAccountNo(String transactionAccountNo) {
+		this.transactionAccountNo = transactionAccountNo;
+	}
+
+	public Double getBeforeAccountBalance() {
+		return beforeAccountBalance;
+	}
+
+	public void setBeforeAccountBalance(Double beforeAccountBalance) {
+		this.beforeAccountBalance = beforeAccountBalance;
+	}
+
+	public Double getAfterAccountBalance() {
+		return afterAccountBalance;
+	}
+
+	public void setAfterAccountBalance(Double afterAccountBalance) {
+		this.afterAccountBalance = afterAccountBalance;
+	}
+
+	public Double getTransactionBalance() {
+		return transactionBalance;
+	}
+
+	public void setTransactionBalance(Double transactionBalance) {
+		this.transactionBalance = transactionBalance;
+	}
+
+	public String getTransferRelateAccountNo() {
+		return transferRelateAccountNo;
+	}
+
+	public void setTransferRelateAccountNo(String transferRelateAccountNo) {
+		this.transferRelateAccountNo = transferRelateAccountNo;
+	}
+
+	public String getTransactionType() {
+		return transactionType;
+	}
+
+	public void setTransactionType(String transactionType) {
+		this.transactionType = transactionType;
+	}
+
+	public String getTransactionDesc() {
+		return transactionDesc;
+	}
+
+	public void setTransactionDesc(String transactionDesc) {
+		this.transactionDesc = transactionDesc;
+	}
+
+	public String getTransactionTime() {
+		return transactionTime;
+	}
+
+	public void setTransactionTime(String transactionTime) {
+		this.transactionTime = transactionTime;
+	}
+
+	public Long getTransactionTimestamp() {
+		return transactionTimestamp;
+	}
+
+	public void setTransactionTimestamp(Long transactionTimestamp) {
+		this.transactionTimestamp = transactionTimestamp;
+	}
+
+	public Long getTransactionSeq() {
+		return transactionSeq;
+	}
+
+	public void setTransactionSeq(Long transactionSeq) {
+		this.transactionSeq = transactionSeq;
+	}
+
+	public String getPreviousHash() {
+		return previousHash;
+	}
+
+	public void setPreviousHash(String previousHash) {
+		this.previousHash = previousHash;
+	}
+
+	public String getHash() {
+		return hash;
+	}
+
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户账户交易记录归档桶(按月打包，每个桶的记录数有上限，同一个月的记录可能分布在多个桶中，压缩后存入账本)
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月8日 上午10:12:36
+ */
+public class AccountTransactionArchive implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 交易账户
+	 */
+	private String accountNo;
+	
+	/**
+	 * 归档桶序号(从0开始递增)
+	 */
+	private Integer bucketSeq;
+	
+	/**
+	 * 归档月份，格式：yyyy-MM
+	 */
+	private String bucketMonth;
+	
+	/**
+	 * 桶内第一条交易记录的序号
+	 */
+	private Long firstTransactionSeq;
+	
+	/**
+	 * 桶内最后一条交易记录的序号
+	 */
+	private Long lastTransactionSeq;
+	
+	/**
+	 * 按序号升序排列的交易记录
+	 */
+	private List<AccountTransaction> transactions = new ArrayList<AccountTransaction>();
+
+	public String getAccountNo() {
+		return accountNo;
+	}
+
+	public void setAccountNo(String accountNo) {
+		this.accountNo = accountNo;
+	}
+
+	public Integer getBucketSeq() {
+		return bucketSeq;
+	}
+
+	public void setBucketSeq(Integer bucketSeq) {
+		this.bucketSeq = bucketSeq;
+	}
+
+	public String getBucketMonth() {
+		return bucketMonth;
+	}
+
+	public void setBucketMonth(String bucketMonth) {
+		this.bucketMonth = bucketMonth;
+	}
+
+	public Long getFirstTransactionSeq() {
+		return firstTransactionSeq;
+	}
+
+	public void setFirstTransactionSeq(Long firstTransactionSeq) {
+		this.firstTransactionSeq = firstTransactionSeq;
+	}
+
+	public Long getLastTransactionSeq() {
+		return lastTransactionSeq;
+	}
+
+	public void setLastTransactionSeq(Long lastTransactionSeq) {
+		this.lastTransactionSeq = lastTransactionSeq;
+	}
+
+	public List<AccountTransaction> getTransactions() {
+		return transactions;
+	}
+
+	public void setTransactions(List<AccountTransaction> transactions) {
+		this.transactions = transactions;
+	}
+
+}
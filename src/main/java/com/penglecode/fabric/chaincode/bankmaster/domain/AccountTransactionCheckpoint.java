@@ -0,0 +1,94 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+
+/**
+ * 账户交易记录检查点：账户每产生N条交易记录保存一个，记录当时的序号、余额及hash链头，
+ * 审计时从受信任的检查点开始只需校验其后的交易记录，而不必重放账户的全部历史
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月24日 上午10:21:37
+ */
+public class AccountTransactionCheckpoint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 账户卡号
+	 */
+	private String accountNo;
+	
+	/**
+	 * 检查点所在交易记录的序号
+	 */
+	private Long transactionSeq;
+	
+	/**
+	 * 该交易记录之后的账户余额
+	 */
+	private Double accountBalance;
+	
+	/**
+	 * 该交易记录的hash，即检查点处的hash链头
+	 */
+	private String transactionHash;
+	
+	/**
+	 * 该交易记录的交易ID
+	 */
+	private String transactionId;
+	
+	/**
+	 * 该交易记录的交易时间
+	 */
+	private String transactionTime;
+	
+	public String getAccountNo() {
+		return accountNo;
+	}
+
+	public void setAccountNo(String accountNo) {
+		this.accountNo = accountNo;
+	}
+
+	public Long getTransactionSeq() {
+		return transactionSeq;
+	}
+
+	public void setTransactionSeq(Long transactionSeq) {
+		this.transactionSeq = transactionSeq;
+	}
+
+	public Double getAccountBalance() {
+		return accountBalance;
+	}
+
+	public void setAccountBalance(Double accountBalance) {
+		this.accountBalance = accountBalance;
+	}
+
+	public String getTransactionHash() {
+		return transactionHash;
+	}
+
+	public void setTransactionHash(String transactionHash) {
+		this.transactionHash = transactionHash;
+	}
+
+	public String getTransactionId() {
+		return transactionId;
+	}
+
+	public void setTransactionId(String transactionId) {
+		this.transactionId = transactionId;
+	}
+
+	public String getTransactionTime() {
+		return transactionTime;
+	}
+
+	public void setTransactionTime(String transactionTime) {
+		this.transactionTime = transactionTime;
+	}
+
+}
@@ -1,30 +1,35 @@
-package com.penglecode.fabric.chaincode.bankmaster.domain;
-
-public enum AccountTransactionType {
-
-	CREATE_ACCOUNT("开户"), DEPOSITE_MONEY("存款"), DRAWAL_MONEY("取款"), TRANSFER_IN("转入"), TRANSFER_OUT("转出");
-	
-	private String description;
-
-	private AccountTransactionType(String description) {
-		this.description = description;
-	}
-
-	public String getDescription() {
-		return description;
-	}
-
-	public void setDescription(String description) {
-		this.description = description;
-	}
-	
-	public static AccountTransactionType getTransactionType(String name) {
-		for(AccountTransactionType em : values()) {
-			if(em.name().equals(name)) {
-				return em;
-			}
-		}
-		return null;
-	}
-	
-}
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+public enum AccountTransactionType {
+
+	CREATE_ACCOUNT("开户"), DEPOSITE_MONEY("存款"), DRAWAL_MONEY("取款"), TRANSFER_IN("转入"), TRANSFER_OUT("转出"), SETTLE_INTEREST("结息"), SETTLE_FEE("扣收账户管理费"), SHARD_TRANSFER_OUT("跨分片转出"), SHARD_TRANSFER_IN("跨分片转入"), SHARD_TRANSFER_REFUND("跨分片转出退回"), ACCOUNT_DORMANT("转为休眠账户"), ACCOUNT_REACTIVATED("休眠账户转回活跃账户");
+	
+	/**
+	 * values()每次都会复制一个新数组，按名称查找时复用这一份
+	 */
+	private static final AccountTransactionType[] VALUES = values();
+	
+	private String description;
+
+	private AccountTransactionType(String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+	
+	public static AccountTransactionType getTransactionType(String name) {
+		for(AccountTransactionType em : VALUES) {
+			if(em.name().equals(name)) {
+				return em;
+			}
+		}
+		return null;
+	}
+	
+}
@@ -0,0 +1,265 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 链码运行配置：各种分页大小、批量上限等性能参数，保存在账本的CONFIG key上，修改后无需升级链码即可生效
+ *
+ * 未配置的字段取下面的默认值
+ *
+ * @author 	pengpeng
+ * @date	2019年1月23日 上午9:42:05
+ */
+public class ChaincodeConfig implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 允许修改运行配置的组织(MSP ID)列表
+	 */
+	private List<String> adminMspIds;
+
+	/**
+	 * 开户时未指定余额的默认开户金额(最多两位小数)
+	 */
+	private Double defaultAccountBalance = 0.0;
+
+	/**
+	 * 查询账户交易记录时默认返回的记录条数
+	 */
+	private Integer defaultFetchSize = 10;
+
+	/**
+	 * 查询账户交易记录时最多返回的记录条数
+	 */
+	private Integer maxFetchSize = 1000;
+
+	/**
+	 * 查询所有账户列表时每页最多的账户数，0表示不分页
+	 */
+	private Integer maxAccountsPageSize = 0;
+
+	/**
+	 * 批量查询余额时单次最多查询的账户数
+	 */
+	private Integer maxBatchQueryAccounts = 1000;
+
+	/**
+	 * 批量开户时单次最多的账户数
+	 */
+	private Integer maxCreateAccounts = 1000;
+
+	/**
+	 * 一对多转账时单次最多的转入账户数
+	 */
+	private Integer maxTransferLegs = 500;
+
+	/**
+	 * 单次归档最多处理的交易记录条数
+	 */
+	private Integer maxArchiveTransactions = 500;
+
+	/**
+	 * 每个归档桶最多的交易记录条数，同一个月的记录超出时滚动到新的归档桶
+	 */
+	private Integer maxArchiveBucketTransactions = 1000;
+
+	/**
+	 * 单次清理最多删除的请求去重记录条数
+	 */
+	private Integer maxPurgeRequestDedups = 1000;
+
+	/**
+	 * 日终结算时每批次默认结算的账户数
+	 */
+	private Integer defaultSettlementChunkSize = 200;
+
+	/**
+	 * 日终结算时每批次最多结算的账户数
+	 */
+	private Integer maxSettlementChunkSize = 500;
+
+	/**
+	 * 标记休眠账户时每次调用最多扫描的账户数
+	 */
+	private Integer maxDormantChunkSize = 500;
+
+	/**
+	 * 导出快照时每页的默认账户数
+	 */
+	private Integer defaultSnapshotPageSize = 500;
+
+	/**
+	 * 导出快照时每页最多的账户数
+	 */
+	private Integer maxSnapshotPageSize = 1000;
+
+	/**
+	 * 查询结果的压缩阈值(字节数)
+	 */
+	private Integer responseCompressionThreshold = 8 * 1024;
+
+	/**
+	 * 调用日志的采样间隔：每N次调用记录一次开始/结束日志，1表示每次都记录
+	 */
+	private Integer logSampleInterval = 1;
+
+	/**
+	 * 账户交易记录的检查点间隔：账户每产生N条交易记录保存一个检查点(序号、余额、hash链头)
+	 */
+	private Integer transactionCheckpointInterval = 100;
+
+	public List<String> getAdminMspIds() {
+		return adminMspIds;
+	}
+
+	public void setAdminMspIds(List<String> adminMspIds) {
+		this.adminMspIds = adminMspIds;
+	}
+
+	public Double getDefaultAccountBalance() {
+		return defaultAccountBalance;
+	}
+
+	public void setDefaultAccountBalance(Double defaultAccountBalance) {
+		this.defaultAccountBalance = defaultAccountBalance;
+	}
+
+	public Integer getDefaultFetchSize() {
+		return defaultFetchSize;
+	}
+
+	public void setDefaultFetchSize(Integer defaultFetchSize) {
+		this.defaultFetchSize = defaultFetchSize;
+	}
+
+	public Integer getMaxFetchSize() {
+		return maxFetchSize;
+	}
+
+	public void setMaxFetchSize(Integer maxFetchSize) {
+		this.maxFetchSize = maxFetchSize;
+	}
+
+	public Integer getMaxAccountsPageSize() {
+		return maxAccountsPageSize;
+	}
+
+	public void setMaxAccountsPageSize(Integer maxAccountsPageSize) {
+		this.maxAccountsPageSize = maxAccountsPageSize;
+	}
+
+	public Integer getMaxBatchQueryAccounts() {
+		return maxBatchQueryAccounts;
+	}
+
+	public void setMaxBatchQueryAccounts(Integer maxBatchQueryAccounts) {
+		this.maxBatchQueryAccounts = maxBatchQueryAccounts;
+	}
+
+	public Integer getMaxCreateAccounts() {
+		return maxCreateAccounts;
+	}
+
+	public void setMaxCreateAccounts(Integer maxCreateAccounts) {
+		this.maxCreateAccounts = maxCreateAccounts;
+	}
+
+	public Integer getMaxTransferLegs() {
+		return maxTransferLegs;
+	}
+
+	public void setMaxTransferLegs(Integer maxTransferLegs) {
+		this.maxTransferLegs = maxTransferLegs;
+	}
+
+	public Integer getMaxArchiveTransactions() {
+		return maxArchiveTransactions;
+	}
+
+	public void setMaxArchiveTransactions(Integer maxArchiveTransactions) {
+		this.maxArchiveTransactions = maxArchiveTransactions;
+	}
+
+	public Integer getMaxArchiveBucketTransactions() {
+		return maxArchiveBucketTransactions;
+	}
+
+	public void setMaxArchiveBucketTransactions(Integer maxArchiveBucketTransactions) {
+		this.maxArchiveBucketTransactions = maxArchiveBucketTransactions;
+	}
+
+	public Integer getMaxPurgeRequestDedups() {
+		return maxPurgeRequestDedups;
+	}
+
+	public void setMaxPurgeRequestDedups(Integer maxPurgeRequestDedups) {
+		this.maxPurgeRequestDedups = maxPurgeRequestDedups;
+	}
+
+	public Integer getDefaultSettlementChunkSize() {
+		return defaultSettlementChunkSize;
+	}
+
+	public void setDefaultSettlementChunkSize(Integer defaultSettlementChunkSize) {
+		this.defaultSettlementChunkSize = defaultSettlementChunkSize;
+	}
+
+	public Integer getMaxSettlementChunkSize() {
+		return maxSettlementChunkSize;
+	}
+
+	public void setMaxSettlementChunkSize(Integer maxSettlementChunkSize) {
+		this.maxSettlementChunkSize = maxSettlementChunkSize;
+	}
+
+	public Integer getMaxDormantChunkSize() {
+		return maxDormantChunkSize;
+	}
+
+	public void setMaxDormantChunkSize(Integer maxDormantChunkSize) {
+		this.maxDormantChunkSize = maxDormantChunkSize;
+	}
+
+	public Integer getDefaultSnapshotPageSize() {
+		return defaultSnapshotPageSize;
+	}
+
+	public void setDefaultSnapshotPageSize(Integer defaultSnapshotPageSize) {
+		this.defaultSnapshotPageSize = defaultSnapshotPageSize;
+	}
+
+	public Integer getMaxSnapshotPageSize() {
+		return maxSnapshotPageSize;
+	}
+
+	public void setMaxSnapshotPageSize(Integer maxSnapshotPageSize) {
+		this.maxSnapshotPageSize = maxSnapshotPageSize;
+	}
+
+	public Integer getResponseCompressionThreshold() {
+		return responseCompressionThreshold;
+	}
+
+	public void setResponseCompressionThreshold(Integer responseCompressionThreshold) {
+		this.responseCompressionThreshold = responseCompressionThreshold;
+	}
+
+	public Integer getLogSampleInterval() {
+		return logSampleInterval;
+	}
+
+	public void setLogSampleInterval(Integer logSampleInterval) {
+		this.logSampleInterval = logSampleInterval;
+	}
+
+	public Integer getTransactionCheckpointInterval() {
+		return transactionCheckpointInterval;
+	}
+
+	public void setTransactionCheckpointInterval(Integer transactionCheckpointInterval) {
+		this.transactionCheckpointInterval = transactionCheckpointInterval;
+	}
+
+}
@@ -1,75 +1,166 @@
-package com.penglecode.fabric.chaincode.bankmaster.domain;
-
-import java.io.Serializable;
-
-/**
- * 客户账户Model
- * 
- * @author 	pengpeng
- * @date	2018年11月28日 上午10:57:31
- */
-public class CustomerAccount implements Serializable {
-
-	private static final long serialVersionUID = 1L;
-	
-	private String accountNo;
-	
-	private String realName;
-	
-	private String idCardNo;
-	
-	private String mobilePhone;
-	
-	private String createdTime;
-	
-	private Double accountBalance;
-	
-	public String getAccountNo() {
-		return accountNo;
-	}
-
-	public void setAccountNo(String accountNo) {
-		this.accountNo = accountNo;
-	}
-
-	public String getRealName() {
-		return realName;
-	}
-
-	public void setRealName(String realName) {
-		this.realName = realName;
-	}
-
-	public String getIdCardNo() {
-		return idCardNo;
-	}
-
-	public void setIdCardNo(String idCardNo) {
-		this.idCardNo = idCardNo;
-	}
-
-	public String getMobilePhone() {
-		return mobilePhone;
-	}
-
-	public void setMobilePhone(String mobilePhone) {
-		this.mobilePhone = mobilePhone;
-	}
-
-	public String getCreatedTime() {
-		return createdTime;
-	}
-
-	public void setCreatedTime(String createdTime) {
-		this.createdTime = createdTime;
-	}
-
-	public Double getAccountBalance() {
-		return accountBalance;
-	}
-
-	public void setAccountBalance(Double accountBalance) {
-		this.accountBalance = accountBalance;
-	}
-
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+
+/**
+ * 客户账户Model
+ * 
+ * @author 	pengpeng
+ * @date	2018年11月28日 上午10:57:31
+ */
+public class CustomerAccount implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	private String accountNo;
+	
+	private String realName;
+	
+	private String idCardNo;
+	
+	private String mobilePhone;
+	
+	private String createdTime;
+	
+	private Double accountBalance;
+	
+	/**
+	 * 账户最新一条交易记录的序号
+	 */
+	private Long transactionSeq;
+	
+	/**
+	 * 已归档的最大交易记录序号
+	 */
+	private Long archivedTransactionSeq;
+	
+	/**
+	 * 交易记录归档桶的数量
+	 */
+	private Integer archiveBucketCount;
+	
+	/**
+	 * 账户最近一次由客户发起的交易(开户、存取款、转账)的时间，日终结息/扣费不计入
+	 */
+	private String lastActivityTime;
+	
+	/**
+	 * 转为休眠账户的时间，活跃账户为null
+	 */
+	private String dormantTime;
+	
+	/**
+	 * 账户最新一条交易记录的hash，即交易记录hash链的链头
+	 */
+	private String transactionHash;
+	
+	/**
+	 * 账户最新的交易记录检查点序号(没有检查点时为null)
+	 */
+	private Long lastCheckpointSeq;
+	
+	public String getAccountNo() {
+		return accountNo;
+	}
+
+	public void setAccountNo(String accountNo) {
+		this.accountNo = accountNo;
+	}
+
+	public String getRealName() {
+		return realName;
+	}
+
+	public void setRealName(String realName) {
+		this.realName = realName;
+	}
+
+	public String getIdCardNo() {
+		return idCardNo;
+	}
+
+	public void setIdCardNo(String idCardNo) {
+		this.idCardNo = idCardNo;
+	}
+
+	public String getMobilePhone() {
+		return mobilePhone;
+	}
+
+	public void setMobilePhone(String mobilePhone) {
+		this.mobilePhone = mobilePhone;
+	}
+
+	public String getCreatedTime() {
+		return createdTime;
+	}
+
+	public void setCreatedTime(String createdTime) {
+		this.createdTime = createdTime;
+	}
+
+	public Double getAccountBalance() {
+		return accountBalance;
+	}
+
+	public void setAccountBalance(Double accountBalance) {
+		this.accountBalance = accountBalance;
+	}
+
+	public Long getTransactionSeq() {
+		return transactionSeq;
+	}
+
+	public void setTransactionSeq(Long transactionSeq) {
+		this.transactionSeq = transactionSeq;
+	}
+
+	public Long getArchivedTransactionSeq() {
+		return archivedTransactionSeq;
+	}
+
+	public void setArchivedTransactionSeq(Long archivedTransactionSeq) {
+		this.archivedTransactionSeq = archivedTransactionSeq;
+	}
+
+	public Integer getArchiveBucketCount() {
+		return archiveBucketCount;
+	}
+
+	public void setArchiveBucketCount(Integer archiveBucketCount) {
+		this.archiveBucketCount = archiveBucketCount;
+	}
+
+	public String getLastActivityTime() {
+		return lastActivityTime;
+	}
+
+	public void setLastActivityTime(String lastActivityTime) {
+		this.lastActivityTime = lastActivityTime;
+	}
+
+	public String getDormantTime() {
+		return dormantTime;
+	}
+
+	public void setDormantTime(String dormantTime) {
+		this.dormantTime = dormantTime;
+	}
+
+	public String getTransactionHash() {
+		return transactionHash;
+	}
+
+	public void setTransactionHash(String transactionHash) {
+		this.transactionHash = transactionHash;
+	}
+
+	public Long getLastCheckpointSeq() {
+		return lastCheckpointSeq;
+	}
+
+	public void setLastCheckpointSeq(Long lastCheckpointSeq) {
+		this.lastCheckpointSeq = lastCheckpointSeq;
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+
+/**
+ * 客户端请求去重记录，用于实现基于requestId的幂等提交
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月9日 下午2:36:18
+ */
+public class RequestDedupRecord implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 客户端请求ID，同transients[requestId]
+	 */
+	private String requestId;
+	
+	/**
+	 * 首次执行该请求的交易ID
+	 */
+	private String transactionId;
+	
+	/**
+	 * 请求摘要(智能合约方法名+参数列表的MD5)，用于识别被不同请求重复使用的requestId
+	 */
+	private String requestDigest;
+	
+	/**
+	 * 首次执行的响应消息
+	 */
+	private String message;
+	
+	/**
+	 * 首次执行的响应数据
+	 */
+	private byte[] payload;
+	
+	public RequestDedupRecord() {
+		super();
+	}
+
+	public RequestDedupRecord(String requestId, String transactionId, String requestDigest, String message,
+			byte[] payload) {
+		super();
+		this.requestId = requestId;
+		this.transactionId = transactionId;
+		this.requestDigest = requestDigest;
+		this.message = message;
+		this.payload = payload;
+	}
+
+	public String getRequestId() {
+		return requestId;
+	}
+
+	public void setRequestId(String requestId) {
+		this.requestId = requestId;
+	}
+
+	public String getTransactionId() {
+		return transactionId;
+	}
+
+	public void setTransactionId(String transactionId) {
+		this.transactionId = transactionId;
+	}
+
+	public String getRequestDigest() {
+		return requestDigest;
+	}
+
+	public void setRequestDigest(String requestDigest) {
+		this.requestDigest = requestDigest;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public byte[] getPayload() {
+		return payload;
+	}
+
+	public void setPayload(byte[] payload) {
+		this.payload = payload;
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+
+/**
+ * 日终结算检查点：每个规则每个营业日一个，记录已结算到的账户位置，用于断点续跑及防止同一营业日重复结算
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月18日 上午10:05:31
+ */
+public class SettlementCheckpoint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 结算规则ID
+	 */
+	private String ruleId;
+	
+	/**
+	 * 营业日(yyyy-MM-dd)
+	 */
+	private String businessDay;
+	
+	/**
+	 * 已结算的最后一个账户卡号(账户按卡号顺序结算)，即下一批次的bookmark
+	 */
+	private String lastAccountNo;
+	
+	/**
+	 * 已结算的账户数
+	 */
+	private Long processedCount;
+	
+	/**
+	 * 累计结息金额
+	 */
+	private Double totalInterest;
+	
+	/**
+	 * 累计扣收的管理费
+	 */
+	private Double totalFee;
+	
+	/**
+	 * 是否已结算完所有账户
+	 */
+	private Boolean finished;
+	
+	/**
+	 * 最后一次结算批次的交易ID
+	 */
+	private String lastTransactionId;
+	
+	public String getRuleId() {
+		return ruleId;
+	}
+
+	public void setRuleId(String ruleId) {
+		this.ruleId = ruleId;
+	}
+
+	public String getBusinessDay() {
+		return businessDay;
+	}
+
+	public void setBusinessDay(String businessDay) {
+		this.businessDay = businessDay;
+	}
+
+	public String getLastAccountNo() {
+		return lastAccountNo;
+	}
+
+	public void setLastAccountNo(String lastAccountNo) {
+		this.lastAccountNo = lastAccountNo;
+	}
+
+	public Long getProcessedCount() {
+		return processedCount;
+	}
+
+	public void setProcessedCount(Long processedCount) {
+		this.processedCount = processedCount;
+	}
+
+	public Double getTotalInterest() {
+		return totalInterest;
+	}
+
+	public void setTotalInterest(Double totalInterest) {
+		this.totalInterest = totalInterest;
+	}
+
+	public Double getTotalFee() {
+		return totalFee;
+	}
+
+	public void setTotalFee(Double totalFee) {
+		this.totalFee = totalFee;
+	}
+
+	public Boolean getFinished() {
+		return finished;
+	}
+
+	public void setFinished(Boolean finished) {
+		this.finished = finished;
+	}
+
+	public String getLastTransactionId() {
+		return lastTransactionId;
+	}
+
+	public void setLastTransactionId(String lastTransactionId) {
+		this.lastTransactionId = lastTransactionId;
+	}
+	
+}
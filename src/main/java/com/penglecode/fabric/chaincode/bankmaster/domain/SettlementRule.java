@@ -0,0 +1,80 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+
+/**
+ * 日终结算规则：按日计息并扣收账户管理费，保存在账本上，由runSettlement按规则ID引用
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月18日 上午9:42:16
+ */
+public class SettlementRule implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 规则ID
+	 */
+	private String ruleId;
+	
+	/**
+	 * 规则名称
+	 */
+	private String ruleName;
+	
+	/**
+	 * 日利率(例如年化3.65%对应0.0001)，按日终余额计息，结果四舍五入到分
+	 */
+	private Double dailyInterestRate;
+	
+	/**
+	 * 每日账户管理费
+	 */
+	private Double dailyFee;
+	
+	/**
+	 * 日终余额不低于该金额时免收管理费，为空表示不减免
+	 */
+	private Double feeWaiverBalance;
+	
+	public String getRuleId() {
+		return ruleId;
+	}
+
+	public void setRuleId(String ruleId) {
+		this.ruleId = ruleId;
+	}
+
+	public String getRuleName() {
+		return ruleName;
+	}
+
+	public void setRuleName(String ruleName) {
+		this.ruleName = ruleName;
+	}
+
+	public Double getDailyInterestRate() {
+		return dailyInterestRate;
+	}
+
+	public void setDailyInterestRate(Double dailyInterestRate) {
+		this.dailyInterestRate = dailyInterestRate;
+	}
+
+	public Double getDailyFee() {
+		return dailyFee;
+	}
+
+	public void setDailyFee(Double dailyFee) {
+		this.dailyFee = dailyFee;
+	}
+
+	public Double getFeeWaiverBalance() {
+		return feeWaiverBalance;
+	}
+
+	public void setFeeWaiverBalance(Double feeWaiverBalance) {
+		this.feeWaiverBalance = feeWaiverBalance;
+	}
+	
+}
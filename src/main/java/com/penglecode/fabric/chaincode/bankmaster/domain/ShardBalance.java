@@ -0,0 +1,65 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+
+/**
+ * 单个分片的银行资产：本分片的BANK_BALANCE以及跨分片转账的在途金额
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月21日 上午10:14:45
+ */
+public class ShardBalance implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 分片序号
+	 */
+	private Integer shardIndex;
+	
+	/**
+	 * 本分片的银行资产(BANK_BALANCE)
+	 */
+	private Double bankBalance;
+	
+	/**
+	 * 已从本分片账户扣款冻结、尚未解冻结清或撤销的跨分片转账金额
+	 */
+	private Double escrowBalance;
+	
+	public ShardBalance() {
+		super();
+	}
+
+	public ShardBalance(Integer shardIndex, Double bankBalance, Double escrowBalance) {
+		super();
+		this.shardIndex = shardIndex;
+		this.bankBalance = bankBalance;
+		this.escrowBalance = escrowBalance;
+	}
+
+	public Integer getShardIndex() {
+		return shardIndex;
+	}
+
+	public void setShardIndex(Integer shardIndex) {
+		this.shardIndex = shardIndex;
+	}
+
+	public Double getBankBalance() {
+		return bankBalance;
+	}
+
+	public void setBankBalance(Double bankBalance) {
+		this.bankBalance = bankBalance;
+	}
+
+	public Double getEscrowBalance() {
+		return escrowBalance;
+	}
+
+	public void setEscrowBalance(Double escrowBalance) {
+		this.escrowBalance = escrowBalance;
+	}
+	
+}
@@ -0,0 +1,84 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 账户分片配置：账户按卡号的CRC32哈希值对分片数取模路由到各个分片，每个分片部署为同一通道上的一个独立链码实例
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月21日 上午9:36:20
+ */
+public class ShardConfig implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 当前链码实例的分片序号(从0开始)
+	 */
+	private Integer shardIndex;
+	
+	/**
+	 * 分片总数
+	 */
+	private Integer shardCount;
+	
+	/**
+	 * 各个分片的链码名称(按分片序号排列)，用于跨分片的invokeChaincode调用
+	 */
+	private List<String> chaincodeNames;
+	
+	/**
+	 * 计算账户所属的分片序号
+	 * @param accountNo
+	 * @return
+	 */
+	public int routeShard(String accountNo) {
+		if(shardCount == null || shardCount <= 1) {
+			return 0;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(accountNo.getBytes(StandardCharsets.UTF_8));
+		return (int) (crc.getValue() % shardCount);
+	}
+	
+	/**
+	 * 账户是否属于当前分片
+	 * @param accountNo
+	 * @return
+	 */
+	public boolean isLocalAccount(String accountNo) {
+		return routeShard(accountNo) == (shardIndex == null ? 0 : shardIndex);
+	}
+	
+	public String getChaincodeName(int shardIndex) {
+		return chaincodeNames.get(shardIndex);
+	}
+
+	public Integer getShardIndex() {
+		return shardIndex;
+	}
+
+	public void setShardIndex(Integer shardIndex) {
+		this.shardIndex = shardIndex;
+	}
+
+	public Integer getShardCount() {
+		return shardCount;
+	}
+
+	public void setShardCount(Integer shardCount) {
+		this.shardCount = shardCount;
+	}
+
+	public List<String> getChaincodeNames() {
+		return chaincodeNames;
+	}
+
+	public void setChaincodeNames(List<String> chaincodeNames) {
+		this.chaincodeNames = chaincodeNames;
+	}
+	
+}
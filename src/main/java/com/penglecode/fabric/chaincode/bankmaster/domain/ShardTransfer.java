@@ -0,0 +1,132 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+import java.io.Serializable;
+
+/**
+ * 跨分片转账记录：转出分片上保存冻结记录(HELD -> RELEASED/CANCELLED)，转入分片上保存入账记录(CREDITED)，两者以transferId关联
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月21日 上午9:52:08
+ */
+public class ShardTransfer implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 跨分片转账ID(由客户端生成，全局唯一)
+	 */
+	private String transferId;
+	
+	/**
+	 * 转出账户卡号
+	 */
+	private String outAccountNo;
+	
+	/**
+	 * 转入账户卡号
+	 */
+	private String inAccountNo;
+	
+	/**
+	 * 转账金额
+	 */
+	private Double amount;
+	
+	/**
+	 * 转出账户所在的分片序号
+	 */
+	private Integer sourceShardIndex;
+	
+	/**
+	 * 转入账户所在的分片序号
+	 */
+	private Integer targetShardIndex;
+	
+	/**
+	 * 转账状态，见ShardTransferStatus
+	 */
+	private String status;
+	
+	/**
+	 * 最近一次修改该记录的交易ID
+	 */
+	private String transactionId;
+	
+	/**
+	 * 交易时间
+	 */
+	private String transactionTime;
+
+	public String getTransferId() {
+		return transferId;
+	}
+
+	public void setTransferId(String transferId) {
+		this.transferId = transferId;
+	}
+
+	public String getOutAccountNo() {
+		return outAccountNo;
+	}
+
+	public void setOutAccountNo(String outAccountNo) {
+		this.outAccountNo = outAccountNo;
+	}
+
+	public String getInAccountNo() {
+		return inAccountNo;
+	}
+
+	public void setInAccountNo(String inAccountNo) {
+		this.inAccountNo = inAccountNo;
+	}
+
+	public Double getAmount() {
+		return amount;
+	}
+
+	public void setAmount(Double amount) {
+		this.amount = amount;
+	}
+
+	public Integer getSourceShardIndex() {
+		return sourceShardIndex;
+	}
+
+	public void setSourceShardIndex(Integer sourceShardIndex) {
+		this.sourceShardIndex = sourceShardIndex;
+	}
+
+	public Integer getTargetShardIndex() {
+		return targetShardIndex;
+	}
+
+	public void setTargetShardIndex(Integer targetShardIndex) {
+		this.targetShardIndex = targetShardIndex;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getTransactionId() {
+		return transactionId;
+	}
+
+	public void setTransactionId(String transactionId) {
+		this.transactionId = transactionId;
+	}
+
+	public String getTransactionTime() {
+		return transactionTime;
+	}
+
+	public void setTransactionTime(String transactionTime) {
+		this.transactionTime = transactionTime;
+	}
+	
+}
@@ -0,0 +1,30 @@
+package com.penglecode.fabric.chaincode.bankmaster.domain;
+
+public enum ShardTransferStatus {
+
+	HELD("转出方已扣款冻结"), CREDITED("转入方已入账"), RELEASED("转出方已解冻结清"), CANCELLED("转出方已撤销退回");
+	
+	private String description;
+
+	private ShardTransferStatus(String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public void setDescription(String description) {
+		this.description = description;
+	}
+	
+	public static ShardTransferStatus getTransferStatus(String name) {
+		for(ShardTransferStatus em : values()) {
+			if(em.name().equals(name)) {
+				return em;
+			}
+		}
+		return null;
+	}
+	
+}
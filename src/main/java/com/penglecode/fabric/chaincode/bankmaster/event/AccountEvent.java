@@ -0,0 +1,287 @@
+package com.penglecode.fabric.chaincode.bankmaster.event;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransaction;
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransactionType;
+import com.penglecode.fabric.chaincode.bankmaster.exception.FabricChaincodeException;
+
+/**
+ * 账户变动链码事件：一笔交易(一次invoke)只发出一个事件，包含该交易写入的所有账户交易记录，
+ * 下游系统订阅区块事件即可感知账户变动，无需轮询getAllAccounts/getAccountTransactionRecords
+ * 账户转为休眠账户(ACCOUNT_DORMANT)及休眠账户转回活跃账户(ACCOUNT_REACTIVATED)时也各有一条状态条目(金额为0，余额及序号为状态变化时的值)，
+ * 只订阅事件也能同步活跃账户集合；既没有交易记录也没有账户状态变化的写方法(例如updateConfig)不发出事件
+ * 
+ * 二进制格式(大端序)：
+ * <pre>
+ * byte		版本号(当前为2)
+ * short	智能合约方法名长度 + UTF-8字节
+ * short	交易时间长度 + UTF-8字节(可能为空)
+ * varint	记录条数
+ * 每条记录：
+ * 		byte	交易类型(AccountTransactionType.ordinal())
+ * 		short	交易账户卡号长度 + UTF-8字节
+ * 		short	对方账户卡号长度 + UTF-8字节(没有时长度为0)
+ * 		double	交易金额
+ * 		double	交易后余额
+ * 		varint	交易记录序号
+ * </pre>
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月15日 上午9:47:26
+ */
+public class AccountEvent {
+
+	public static final String EVENT_NAME = "BANKMASTER_ACCOUNT_EVENT";
+	
+	public static final byte VERSION = 2;
+	
+	/**
+	 * 每条记录除两个账户卡号及交易记录序号之外的字节数
+	 */
+	private static final int ENTRY_FIXED_SIZE = 1 + 2 + 2 + 8 + 8;
+	
+	private final String function;
+	
+	private String transactionTime;
+	
+	private final List<Entry> entries = new ArrayList<Entry>();
+	
+	public AccountEvent(String function) {
+		super();
+		this.function = function;
+	}
+
+	/**
+	 * 添加一条账户交易记录
+	 * @param transaction
+	 */
+	public void add(AccountTransaction transaction) {
+		AccountTransactionType type = AccountTransactionType.getTransactionType(transaction.getTransactionType());
+		if(type == null) {
+			throw new FabricChaincodeException("Unknown transaction type: " + transaction.getTransactionType());
+		}
+		if(transactionTime == null) {
+			transactionTime = transaction.getTransactionTime();
+		}
+		entries.add(new Entry(type, transaction.getTransactionAccountNo(), transaction.getTransferRelateAccountNo(),
+				transaction.getTransactionBalance() == null ? 0 : transaction.getTransactionBalance(),
+				transaction.getAfterAccountBalance() == null ? 0 : transaction.getAfterAccountBalance(),
+				transaction.getTransactionSeq() == null ? 0 : transaction.getTransactionSeq()));
+	}
+	
+	/**
+	 * 添加一条账户状态变化条目(ACCOUNT_DORMANT/ACCOUNT_REACTIVATED)，不对应任何交易记录
+	 * @param type
+	 * @param accountNo
+	 * @param balance			- 状态变化时的账户余额
+	 * @param transactionSeq	- 状态变化时账户的最新交易序号
+	 * @param time				- 状态变化的时间
+	 */
+	public void addStatus(AccountTransactionType type, String accountNo, double balance, long transactionSeq, String time) {
+		if(transactionTime == null) {
+			transactionTime = time;
+		}
+		entries.add(new Entry(type, accountNo, null, 0, balance, transactionSeq));
+	}
+	
+	/**
+	 * 是否没有任何条目
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+	
+	/**
+	 * 编码为二进制格式，先算出准确的字节数，直接写入最终的数组而不再复制
+	 * @return
+	 */
+	public byte[] encode() {
+		int size = 1 + 2 + utf8Length(function) + 2 + utf8Length(transactionTime) + varLongSize(entries.size());
+		for(Entry entry : entries) {
+			size += ENTRY_FIXED_SIZE + utf8Length(entry.getAccountNo()) + utf8Length(entry.getRelateAccountNo()) + varLongSize(entry.getTransactionSeq());
+		}
+		byte[] payload = new byte[size];
+		ByteBuffer buffer = ByteBuffer.wrap(payload);
+		buffer.put(VERSION);
+		putString(buffer, function);
+		putString(buffer, transactionTime);
+		putVarLong(buffer, entries.size());
+		for(Entry entry : entries) {
+			buffer.put((byte) entry.getTransactionType().ordinal());
+			putString(buffer, entry.getAccountNo());
+			putString(buffer, entry.getRelateAccountNo());
+			buffer.putDouble(entry.getAmount());
+			buffer.putDouble(entry.getAfterBalance());
+			putVarLong(buffer, entry.getTransactionSeq());
+		}
+		return payload;
+	}
+	
+	public static AccountEvent decode(byte[] payload) {
+		ByteBuffer buffer = ByteBuffer.wrap(payload);
+		byte version = buffer.get();
+		if(version != VERSION) {
+			throw new FabricChaincodeException("Unsupported account event version: " + version);
+		}
+		AccountEvent event = new AccountEvent(getString(buffer));
+		String transactionTime = getString(buffer);
+		event.transactionTime = transactionTime.isEmpty() ? null : transactionTime;
+		AccountTransactionType[] types = AccountTransactionType.values();
+		for(long i = 0, count = getVarLong(buffer); i < count; i++) {
+			AccountTransactionType type = types[buffer.get()];
+			String accountNo = getString(buffer);
+			String relateAccountNo = getString(buffer);
+			event.entries.add(new Entry(type, accountNo, relateAccountNo.isEmpty() ? null : relateAccountNo, buffer.getDouble(), buffer.getDouble(), getVarLong(buffer)));
+		}
+		return event;
+	}
+	
+	/**
+	 * 写入长度前缀(short) + UTF-8字节，null写为空串；账户卡号等ASCII字符串直接逐字节写入，不分配中间数组
+	 */
+	private static void putString(ByteBuffer buffer, String value) {
+		if(value == null) {
+			buffer.putShort((short) 0);
+			return;
+		}
+		int length = value.length();
+		if(utf8Length(value) != length) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			buffer.putShort((short) bytes.length).put(bytes);
+			return;
+		}
+		buffer.putShort((short) length);
+		for(int i = 0; i < length; i++) {
+			buffer.put((byte) value.charAt(i));
+		}
+	}
+	
+	private static int utf8Length(String value) {
+		if(value == null) {
+			return 0;
+		}
+		int bytes = 0;
+		for(int i = 0, length = value.length(); i < length; i++) {
+			char c = value.charAt(i);
+			if(c < 0x80) {
+				bytes += 1;
+			} else if (c < 0x800) {
+				bytes += 2;
+			} else if (Character.isSurrogate(c)) {
+				bytes += 2; //代理对共4个字节
+			} else {
+				bytes += 3;
+			}
+		}
+		return bytes;
+	}
+	
+	private static String getString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xffff];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static int varLongSize(long value) {
+		int size = 1;
+		while((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+	
+	private static void putVarLong(ByteBuffer buffer, long value) {
+		while((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+	
+	private static long getVarLong(ByteBuffer buffer) {
+		long value = 0;
+		for(int shift = 0; ; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+	
+	public String getFunction() {
+		return function;
+	}
+
+	public String getTransactionTime() {
+		return transactionTime;
+	}
+
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * 事件中的一条账户交易记录或账户状态变化
+	 */
+	public static class Entry {
+		
+		private final AccountTransactionType transactionType;
+		
+		private final String accountNo;
+		
+		/**
+		 * 对方账户卡号，没有时为null
+		 */
+		private final String relateAccountNo;
+		
+		private final double amount;
+		
+		private final double afterBalance;
+		
+		private final long transactionSeq;
+
+		public Entry(AccountTransactionType transactionType, String accountNo, String relateAccountNo, double amount,
+				double afterBalance, long transactionSeq) {
+			super();
+			this.transactionType = transactionType;
+			this.accountNo = accountNo;
+			this.relateAccountNo = relateAccountNo;
+			this.amount = amount;
+			this.afterBalance = afterBalance;
+			this.transactionSeq = transactionSeq;
+		}
+
+		public AccountTransactionType getTransactionType() {
+			return transactionType;
+		}
+
+		public String getAccountNo() {
+			return accountNo;
+		}
+
+		public String getRelateAccountNo() {
+			return relateAccountNo;
+		}
+
+		public double getAmount() {
+			return amount;
+		}
+
+		public double getAfterBalance() {
+			return afterBalance;
+		}
+
+		public long getTransactionSeq() {
+			return transactionSeq;
+		}
+		
+	}
+	
+}
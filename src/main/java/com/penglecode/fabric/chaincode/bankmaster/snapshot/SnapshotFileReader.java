@@ -0,0 +1,133 @@
+package com.penglecode.fabric.chaincode.bankmaster.snapshot;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import com.penglecode.fabric.chaincode.common.util.GzipUtils;
+
+/**
+ * 快照文件读取器(离线使用)：以内存映射方式打开由exportSnapshot各页拼接而成的文件，逐页校验并回调其中的记录
+ * 
+ * 文件末尾不完整或校验失败的页(例如导出中断时的半页)会被忽略，此时isComplete()为false，
+ * 调用方可将文件截断到getValidLength()，再用getNextBookmark()继续导出
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月17日 上午11:20:37
+ */
+public class SnapshotFileReader implements Closeable {
+
+	private final RandomAccessFile file;
+	
+	private final MappedByteBuffer buffer;
+	
+	private long validLength;
+	
+	private String nextBookmark;
+	
+	private boolean complete;
+	
+	public SnapshotFileReader(File snapshotFile) throws IOException {
+		super();
+		this.file = new RandomAccessFile(snapshotFile, "r");
+		if(file.length() > Integer.MAX_VALUE) {
+			file.close();
+			throw new IOException("Snapshot file is too large to map: " + snapshotFile);
+		}
+		this.buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+	}
+	
+	/**
+	 * 按顺序读取所有完整页中的记录
+	 * @param visitor
+	 * @return 读取的记录条数
+	 */
+	public long read(SnapshotRecordVisitor visitor) {
+		ByteBuffer pages = buffer.duplicate();
+		long recordCount = 0;
+		validLength = 0;
+		nextBookmark = null;
+		complete = false;
+		while(!complete && pages.remaining() >= 4) {
+			int pageLength = pages.getInt(pages.position());
+			if(pageLength <= 0 || pages.remaining() - 4 < pageLength) { //不完整的页
+				break;
+			}
+			ByteBuffer page = pages.duplicate();
+			page.position(pages.position() + 4).limit(pages.position() + 4 + pageLength);
+			if(page.getInt() != SnapshotPageWriter.MAGIC || page.get() != SnapshotPageWriter.VERSION) {
+				break;
+			}
+			byte flags = page.get();
+			byte[] bookmarkBytes = new byte[page.getShort() & 0xffff];
+			page.get(bookmarkBytes);
+			int pageRecordCount = page.getInt();
+			int checksum = page.getInt();
+			byte[] body = new byte[page.remaining()];
+			page.get(body);
+			CRC32 crc = new CRC32();
+			crc.update(body);
+			if((int) crc.getValue() != checksum) {
+				break;
+			}
+			ByteBuffer records = ByteBuffer.wrap((flags & SnapshotPageWriter.FLAG_GZIP) != 0 ? GzipUtils.decompress(body) : body);
+			for(int i = 0; i < pageRecordCount; i++) {
+				byte type = records.get();
+				byte[] key = new byte[records.getShort() & 0xffff];
+				records.get(key);
+				byte[] value = new byte[records.getInt()];
+				records.get(value);
+				visitor.visit(type, new String(key, StandardCharsets.UTF_8), value);
+			}
+			recordCount += pageRecordCount;
+			pages.position(pages.position() + 4 + pageLength);
+			validLength = pages.position();
+			nextBookmark = new String(bookmarkBytes, StandardCharsets.UTF_8);
+			complete = (flags & SnapshotPageWriter.FLAG_LAST_PAGE) != 0;
+		}
+		return recordCount;
+	}
+	
+	/**
+	 * 最后一个完整页之后的文件偏移
+	 */
+	public long getValidLength() {
+		return validLength;
+	}
+
+	/**
+	 * 最后一个完整页返回的bookmark，用于继续导出
+	 */
+	public String getNextBookmark() {
+		return nextBookmark;
+	}
+
+	/**
+	 * 是否已读到最后一页
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+	
+	/**
+	 * 快照记录回调
+	 */
+	@FunctionalInterface
+	public static interface SnapshotRecordVisitor {
+		
+		public void visit(byte type, String key, byte[] value);
+		
+	}
+	
+}
@@ -0,0 +1,101 @@
+package com.penglecode.fabric.chaincode.bankmaster.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import com.penglecode.fabric.chaincode.common.util.GzipUtils;
+
+/**
+ * 快照分页编码器：exportSnapshot每次调用返回一页，客户端按顺序将各页原样拼接即为完整的快照文件(用SnapshotFileReader读取)
+ * 
+ * 页格式(大端序)：
+ * <pre>
+ * int		页长度(不含本字段)
+ * int		魔数 "BMSP"
+ * byte		版本号(当前为1)
+ * byte		标志位：0x01 = 页体经gzip压缩，0x02 = 最后一页
+ * short	下一页bookmark长度 + UTF-8字节(最后一页为空)
+ * int		记录条数
+ * int		页体(压缩后)的CRC32
+ * 页体：
+ * 		byte	记录类型(1 = 银行资产，2 = 客户账户，3 = 休眠账户)
+ * 		short	key长度 + UTF-8字节(账户卡号，银行资产为BANK_BALANCE)
+ * 		int		value长度 + 世界状态中的原始值
+ * </pre>
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月17日 上午10:05:14
+ */
+public class SnapshotPageWriter {
+
+	public static final int MAGIC = 0x424D5350;
+	
+	public static final byte VERSION = 1;
+	
+	public static final byte FLAG_GZIP = 0x01;
+	
+	public static final byte FLAG_LAST_PAGE = 0x02;
+	
+	public static final byte RECORD_BANK_BALANCE = 1;
+	
+	public static final byte RECORD_CUSTOMER_ACCOUNT = 2;
+	
+	public static final byte RECORD_DORMANT_ACCOUNT = 3;
+	
+	private final boolean compress;
+	
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+	
+	private final DataOutputStream out = new DataOutputStream(body);
+	
+	private int recordCount;
+	
+	public SnapshotPageWriter(boolean compress) {
+		super();
+		this.compress = compress;
+	}
+	
+	public SnapshotPageWriter addRecord(byte type, String key, byte[] value) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		try {
+			out.writeByte(type);
+			out.writeShort(keyBytes.length);
+			out.write(keyBytes);
+			out.writeInt(value.length);
+			out.write(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		recordCount++;
+		return this;
+	}
+	
+	/**
+	 * 生成页数据
+	 * @param nextBookmark	- 下一页的bookmark，最后一页为null
+	 * @return
+	 */
+	public byte[] toPage(String nextBookmark) {
+		byte[] pageBody = compress ? GzipUtils.compress(body.toByteArray()) : body.toByteArray();
+		byte[] bookmarkBytes = nextBookmark == null ? new byte[0] : nextBookmark.getBytes(StandardCharsets.UTF_8);
+		CRC32 crc = new CRC32();
+		crc.update(pageBody);
+		byte flags = (byte) ((compress ? FLAG_GZIP : 0) | (nextBookmark == null ? FLAG_LAST_PAGE : 0));
+		int pageLength = 4 + 1 + 1 + 2 + bookmarkBytes.length + 4 + 4 + pageBody.length;
+		ByteBuffer page = ByteBuffer.allocate(4 + pageLength);
+		page.putInt(pageLength).putInt(MAGIC).put(VERSION).put(flags);
+		page.putShort((short) bookmarkBytes.length).put(bookmarkBytes);
+		page.putInt(recordCount).putInt((int) crc.getValue()).put(pageBody);
+		return page.array();
+	}
+	
+	public int getRecordCount() {
+		return recordCount;
+	}
+	
+}
@@ -0,0 +1,93 @@
+package com.penglecode.fabric.chaincode.common.util;
+
+/**
+ * 组合键构建器，编码格式与fabric的CompositeKey.toString()完全一致：\u0000 + objectType + \u0000 + attribute1 + \u0000 + ...
+ * 
+ * objectType前缀在构造时预先编码好，构建时复用线程内的StringBuilder，
+ * 每构建一个key只分配最终的String，而stub.createCompositeKey(...).toString()每次都会创建CompositeKey、属性列表及中间缓冲区
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月14日 下午2:05:33
+ */
+public class CompositeKeyBuilder {
+
+	private static final char DELIMITER = '\u0000';
+	
+	private static final char MAX_UNICODE_RUNE_HIGH = '\udbff';
+	
+	private static final char MAX_UNICODE_RUNE_LOW = '\udfff';
+	
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+	
+	private final String prefix;
+	
+	public CompositeKeyBuilder(String objectType) {
+		validateAttribute(objectType);
+		this.prefix = DELIMITER + objectType + DELIMITER;
+	}
+	
+	/**
+	 * 不含任何属性的部分组合键，即stub.createCompositeKey(objectType).toString()，可用于getStateByPartialCompositeKey
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+	
+	public String build(String attribute) {
+		validateAttribute(attribute);
+		return buffer().append(attribute).append(DELIMITER).toString();
+	}
+	
+	public String build(String attribute1, String attribute2) {
+		validateAttribute(attribute1);
+		validateAttribute(attribute2);
+		return buffer().append(attribute1).append(DELIMITER).append(attribute2).append(DELIMITER).toString();
+	}
+	
+	/**
+	 * 构建以定长数字(左补0)作为第二个属性的组合键，数字属性按字典序排列即按数值排列
+	 * @param attribute
+	 * @param number		- 非负数
+	 * @param width			- 数字的最小位数
+	 * @return
+	 */
+	public String build(String attribute, long number, int width) {
+		validateAttribute(attribute);
+		StringBuilder buffer = buffer().append(attribute).append(DELIMITER);
+		for(int digits = digits(number); digits < width; digits++) {
+			buffer.append('0');
+		}
+		return buffer.append(number).append(DELIMITER).toString();
+	}
+	
+	private StringBuilder buffer() {
+		StringBuilder buffer = BUFFER.get();
+		buffer.setLength(0);
+		return buffer.append(prefix);
+	}
+	
+	private static int digits(long number) {
+		if(number < 0) {
+			throw new IllegalArgumentException("Composite key number attribute can not be negative: " + number);
+		}
+		int digits = 1;
+		while(number >= 10) {
+			number /= 10;
+			digits++;
+		}
+		return digits;
+	}
+	
+	/**
+	 * 与fabric一致：属性中不能包含\u0000及U+10FFFF
+	 */
+	private static void validateAttribute(String attribute) {
+		for(int i = 0, length = attribute.length(); i < length; i++) {
+			char c = attribute.charAt(i);
+			if(c == DELIMITER || (c == MAX_UNICODE_RUNE_HIGH && i + 1 < length && attribute.charAt(i + 1) == MAX_UNICODE_RUNE_LOW)) {
+				throw new IllegalArgumentException(String.format("Composite key attribute can not contain U+%04X or U+10FFFF: %s", (int) DELIMITER, attribute.replace(DELIMITER, ' ')));
+			}
+		}
+	}
+	
+}
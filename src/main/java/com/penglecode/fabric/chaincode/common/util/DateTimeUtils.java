@@ -1,219 +1,356 @@
-package com.penglecode.fabric.chaincode.common.util;
-
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.Date;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import org.springframework.util.Assert;
-
-/**
- * 基于joda-time框架的日期时间处理工具类
- * 
- * @author	  	pengpeng
- * @date	  	2014年7月19日 下午4:45:17
- * @version  	1.0
- */
-public class DateTimeUtils {
-
-	/**
-	 * 默认的日期格式: yyyy-MM-dd
-	 */
-	public static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
-	
-	/**
-	 * 默认的日期格式: yyyy-MM-dd
-	 */
-	public static final String DEFAULT_TIME_PATTERN = "HH:mm:ss";
-	
-	/**
-	 * 默认的日期+时间格式: yyyy-MM-dd HH:mm:ss
-	 */
-	public static final String DEFAULT_DATETIME_PATTERN = DEFAULT_DATE_PATTERN + " " + DEFAULT_TIME_PATTERN;
-	
-	/**
-	 * 默认带毫秒数的时间戳格式
-	 */
-	private static final Pattern TIMESTAMP_MSEC_REGEX_PATTERN = Pattern.compile("\\d{2}:\\d{2}:\\d{2}\\.\\d{1,3}");
-	
-	/**
-	 * 默认不带毫秒数的时间戳格式
-	 */
-	private static final Pattern TIMESTAMP_REGEX_PATTERN = Pattern.compile("\\d{2}:\\d{2}:\\d{2}");
-	
-	/**
-	 * <p>将@{code java.util.Date}转换为@{code java.time.LocalDateTime}
-	 * 
-	 * @param date
-	 * @return
-	 */
-	public static LocalDateTime from(Date date){
-		Assert.notNull(date, "Parameter 'date' can not be null!");
-		return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
-	}
-	
-	/**
-	 * <p>将@{code java.util.Date}转换为@{code java.time.LocalDateTime}
-	 * 
-	 * @param date
-	 * @return
-	 */
-	public static Date from(LocalDateTime dateTime){
-		Assert.notNull(dateTime, "Parameter 'dateTime' can not be null!");
-		return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
-	}
-	
-	/**
-	 * <p>将@{code java.util.Date}以指定的日期格式格式化为字符串</p>
-	 * 
-	 * @param date
-	 * @param pattern
-	 * @return
-	 */
-	public static String format(LocalDateTime dateTime, String pattern){
-		Assert.notNull(dateTime, "Parameter 'dateTime' can not be null!");
-		Assert.hasText(pattern, "Parameter 'pattern' can not be empty!");
-		return dateTime.format(DateTimeFormatter.ofPattern(pattern));
-	}
-	
-	/**
-	 * <p>将@{code java.util.Date}以指定的日期格式格式化为字符串</p>
-	 * 
-	 * @param date
-	 * @param pattern
-	 * @return
-	 */
-	public static String format(Date date, String pattern){
-		Assert.notNull(date, "Parameter 'date' can not be null!");
-		Assert.hasText(pattern, "Parameter 'pattern' can not be empty!");
-		return from(date).format(DateTimeFormatter.ofPattern(pattern));
-	}
-	
-	/**
-	 * <p>以指定的日期格式格式化当前时间</p>
-	 * 
-	 * @param date
-	 * @param pattern
-	 * @return
-	 */
-	public static String formatNow(String pattern){
-		Assert.hasText(pattern, "Parameter 'pattern' can not be empty!");
-		return LocalDateTime.now(ZoneId.systemDefault()).format(DateTimeFormatter.ofPattern(pattern));
-	}
-	
-	/**
-	 * <p>以默认的日期格式(yyyy-MM-dd HH:mm:ss)格式化当前时间</p>
-	 * 
-	 * @param date
-	 * @param pattern
-	 * @return
-	 */
-	public static String formatNow(){
-		return formatNow(DEFAULT_DATETIME_PATTERN);
-	}
-	
-	/**
-	 * <p>将字符串格式的日期转换为@{java.time.LocalDateTime}</p>
-	 * 
-	 * @param dateTimeText		- 日期字符串形式的值
-	 * @param pattern			- 针对dateTimeText的日期格式
-	 * @return
-	 */
-	public static LocalDateTime parse2DateTime(String dateTimeText, String pattern){
-		Assert.hasText(dateTimeText, "Parameter 'dateTimeText' can not be empty!");
-		Assert.hasText(dateTimeText, "Parameter 'pattern' can not be empty!");
-		String format = pattern;
-		String text = dateTimeText;
-		Matcher matcher = null;
-		String suffix = ".SSS";
-		//dateTimeText以毫秒结尾 && 格式pattern中没有以.SSS结尾
-		if((matcher = TIMESTAMP_MSEC_REGEX_PATTERN.matcher(dateTimeText)).find() && matcher.end() == dateTimeText.length() && !pattern.endsWith(suffix)){
-			format = format + suffix;
-		//dateTimeText没有以毫秒结尾 && 格式pattern中以.SSS结尾
-		}else if((matcher = TIMESTAMP_REGEX_PATTERN.matcher(dateTimeText)).find() && matcher.end() == dateTimeText.length() && pattern.endsWith(suffix)){
-			text = text + ".0";
-		}
-		return LocalDateTime.parse(dateTimeText, DateTimeFormatter.ofPattern(format));
-	}
-	
-	/**
-	 * <p>将字符串格式的日期转换为@{code java.util.Date}</p>
-	 * 
-	 * @param dateTimeText		- 日期字符串形式的值
-	 * @param pattern			- 针对dateTimeText的日期格式
-	 * @return
-	 */
-	public static Date parse2Date(String dateTimeText, String pattern){
-		return from(parse2DateTime(dateTimeText, pattern));
-	}
-	
-	/**
-	 * 检测dateTimeText的日期格式是否是pattern
-	 * @param dateTimeText
-	 * @param pattern
-	 * @return
-	 */
-	public static boolean matchesDatePattern(String dateTimeText, String pattern) {
-		if(dateTimeText != null){
-			try {
-				LocalDateTime dateTime = parse2DateTime(dateTimeText, pattern);
-				return dateTime != null;
-			} catch (Exception e) {
-				return false;
-			}
-		}
-		return false;
-	}
-	
-	/**
-	 * 标准化dateTimeText，将其他格式的日期格式统一标准化为yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss
-	 * @param dateTimeText
-	 * @return
-	 */
-	public static String normalizeDateTime(String dateTimeText) {
-		if(dateTimeText != null) {
-			dateTimeText = dateTimeText.replace("T", " ");
-			dateTimeText = dateTimeText.replace("/", "-");
-			dateTimeText = dateTimeText.replace("年", "-");
-			dateTimeText = dateTimeText.replace("月", "-");
-			dateTimeText = dateTimeText.replace("日", "");
-			dateTimeText = dateTimeText.replace("时", ":");
-			dateTimeText = dateTimeText.replace("分", ":");
-			dateTimeText = dateTimeText.replace("秒", "");
-		}
-		return dateTimeText;
-	}
-	
-	/**
-	 * 按标准日期时间格式来解析dateTimeText
-	 * @param dateTimeText
-	 * @return
-	 */
-	public static LocalDateTime parse2DateTime(String dateTimeText) {
-		dateTimeText = DateTimeUtils.normalizeDateTime(dateTimeText);
-		if(DateTimeUtils.matchesDatePattern(dateTimeText, DateTimeUtils.DEFAULT_DATE_PATTERN)) { //yyyy-MM-dd
-			return parse2DateTime(dateTimeText, DateTimeUtils.DEFAULT_DATE_PATTERN);
-		} else if (DateTimeUtils.matchesDatePattern(dateTimeText, DateTimeUtils.DEFAULT_DATETIME_PATTERN)) { //yyyy-MM-dd HH:mm:ss
-			return parse2DateTime(dateTimeText, DateTimeUtils.DEFAULT_DATETIME_PATTERN);
-		}
-		return null;
-	}
-	
-	/**
-	 * 按标准日期时间格式来解析dateTimeText
-	 * @param dateTimeText
-	 * @return
-	 */
-	public static Date parse2Date(String dateTimeText) {
-		dateTimeText = DateTimeUtils.normalizeDateTime(dateTimeText);
-		if(DateTimeUtils.matchesDatePattern(dateTimeText, DateTimeUtils.DEFAULT_DATE_PATTERN)) { //yyyy-MM-dd
-			return parse2Date(dateTimeText, DateTimeUtils.DEFAULT_DATE_PATTERN);
-		} else if (DateTimeUtils.matchesDatePattern(dateTimeText, DateTimeUtils.DEFAULT_DATETIME_PATTERN)) { //yyyy-MM-dd HH:mm:ss
-			return parse2Date(dateTimeText, DateTimeUtils.DEFAULT_DATETIME_PATTERN);
-		}
-		return null;
-	}
-	
-}
+package com.penglecode.fabric.chaincode.common.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * 基于joda-time框架的日期时间处理工具类
+ * 
+ * @author	  	pengpeng
+ * @date	  	2014年7月19日 下午4:45:17
+ * @version  	1.0
+ */
+public class DateTimeUtils {
+
+	/**
+	 * 默认的日期格式: yyyy-MM-dd
+	 */
+	public static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd";
+	
+	/**
+	 * 默认的日期格式: yyyy-MM-dd
+	 */
+	public static final String DEFAULT_TIME_PATTERN = "HH:mm:ss";
+	
+	/**
+	 * 默认的日期+时间格式: yyyy-MM-dd HH:mm:ss
+	 */
+	public static final String DEFAULT_DATETIME_PATTERN = DEFAULT_DATE_PATTERN + " " + DEFAULT_TIME_PATTERN;
+	
+	/**
+	 * parseEpochMillis解析失败时的返回值
+	 */
+	public static final long INVALID_EPOCH_MILLIS = Long.MIN_VALUE;
+	
+	/**
+	 * 已创建的DateTimeFormatter缓存(DateTimeFormatter是线程安全的)
+	 */
+	private static final Map<String,DateTimeFormatter> FORMATTER_CACHE = new ConcurrentHashMap<String,DateTimeFormatter>();
+	
+	private static final int SECONDS_PER_DAY = 86400;
+	
+	/**
+	 * 1970-01-01距离0000-03-01的天数
+	 */
+	private static final int DAYS_0000_TO_1970 = 719468;
+	
+	/**
+	 * <p>获取指定日期格式的DateTimeFormatter，相同的pattern只创建一次</p>
+	 * 
+	 * @param pattern
+	 * @return
+	 */
+	public static DateTimeFormatter getFormatter(String pattern) {
+		Assert.hasText(pattern, "Parameter 'pattern' can not be empty!");
+		DateTimeFormatter formatter = FORMATTER_CACHE.get(pattern);
+		if(formatter == null) {
+			formatter = DateTimeFormatter.ofPattern(pattern);
+			FORMATTER_CACHE.putIfAbsent(pattern, formatter);
+		}
+		return formatter;
+	}
+	
+	/**
+	 * <p>将@{code java.util.Date}转换为@{code java.time.LocalDateTime}
+	 * 
+	 * @param date
+	 * @return
+	 */
+	public static LocalDateTime from(Date date){
+		Assert.notNull(date, "Parameter 'date' can not be null!");
+		return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+	}
+	
+	/**
+	 * <p>将@{code java.util.Date}转换为@{code java.time.LocalDateTime}
+	 * 
+	 * @param date
+	 * @return
+	 */
+	public static Date from(LocalDateTime dateTime){
+		Assert.notNull(dateTime, "Parameter 'dateTime' can not be null!");
+		return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+	}
+	
+	/**
+	 * <p>将@{code java.util.Date}以指定的日期格式格式化为字符串</p>
+	 * 
+	 * @param date
+	 * @param pattern
+	 * @return
+	 */
+	public static String format(LocalDateTime dateTime, String pattern){
+		Assert.notNull(dateTime, "Parameter 'dateTime' can not be null!");
+		Assert.hasText(pattern, "Parameter 'pattern' can not be empty!");
+		return dateTime.format(getFormatter(pattern));
+	}
+	
+	/**
+	 * <p>将@{code java.util.Date}以指定的日期格式格式化为字符串</p>
+	 * 
+	 * @param date
+	 * @param pattern
+	 * @return
+	 */
+	public static String format(Date date, String pattern){
+		Assert.notNull(date, "Parameter 'date' can not be null!");
+		Assert.hasText(pattern, "Parameter 'pattern' can not be empty!");
+		return from(date).format(getFormatter(pattern));
+	}
+	
+	/**
+	 * <p>以指定的日期格式格式化当前时间</p>
+	 * 
+	 * @param date
+	 * @param pattern
+	 * @return
+	 */
+	public static String formatNow(String pattern){
+		Assert.hasText(pattern, "Parameter 'pattern' can not be empty!");
+		return LocalDateTime.now(ZoneId.systemDefault()).format(getFormatter(pattern));
+	}
+	
+	/**
+	 * <p>以默认的日期格式(yyyy-MM-dd HH:mm:ss)格式化当前时间</p>
+	 * 
+	 * @param date
+	 * @param pattern
+	 * @return
+	 */
+	public static String formatNow(){
+		return formatNow(DEFAULT_DATETIME_PATTERN);
+	}
+	
+	/**
+	 * <p>将字符串格式的日期转换为@{java.time.LocalDateTime}</p>
+	 * 
+	 * @param dateTimeText		- 日期字符串形式的值
+	 * @param pattern			- 针对dateTimeText的日期格式
+	 * @return
+	 */
+	public static LocalDateTime parse2DateTime(String dateTimeText, String pattern){
+		Assert.hasText(dateTimeText, "Parameter 'dateTimeText' can not be empty!");
+		Assert.hasText(pattern, "Parameter 'pattern' can not be empty!");
+		String format = pattern;
+		String text = dateTimeText;
+		String suffix = ".SSS";
+		int fractionDigits = getFractionDigits(dateTimeText);
+		//dateTimeText以毫秒结尾 && 格式pattern中没有以.SSS结尾
+		if(fractionDigits > 0 && !pattern.endsWith(suffix)){
+			format = format + suffix;
+		//dateTimeText没有以毫秒结尾 && 格式pattern中以.SSS结尾
+		}else if(fractionDigits == 0 && pattern.endsWith(suffix)){
+			text = text + ".000";
+		}
+		if(fractionDigits > 0 && fractionDigits < 3) { //.SSS要求3位毫秒数，不足的右补0
+			text = text + (fractionDigits == 1 ? "00" : "0");
+		}
+		if(format.indexOf('H') < 0 && format.indexOf('h') < 0) { //仅有日期部分的格式
+			return LocalDate.parse(text, getFormatter(format)).atStartOfDay();
+		}
+		return LocalDateTime.parse(text, getFormatter(format));
+	}
+	
+	/**
+	 * <p>将yyyy-MM-dd HH:mm:ss[.SSS]格式(毫秒数为1~3位)的时间解析为以offset为时区的epoch毫秒数，
+	 * 格式或数值不正确时返回INVALID_EPOCH_MILLIS</p>
+	 * 
+	 * <p>逐字符解析，不创建任何中间对象，用于高频调用的交易时间校验</p>
+	 * 
+	 * @param dateTimeText
+	 * @param offset
+	 * @return
+	 */
+	public static long parseEpochMillis(String dateTimeText, ZoneOffset offset) {
+		if(dateTimeText == null || offset == null) {
+			return INVALID_EPOCH_MILLIS;
+		}
+		int length = dateTimeText.length();
+		if(length != 19 && (length < 21 || length > 23)) {
+			return INVALID_EPOCH_MILLIS;
+		}
+		if(dateTimeText.charAt(4) != '-' || dateTimeText.charAt(7) != '-' || dateTimeText.charAt(10) != ' '
+				|| dateTimeText.charAt(13) != ':' || dateTimeText.charAt(16) != ':' || (length > 19 && dateTimeText.charAt(19) != '.')) {
+			return INVALID_EPOCH_MILLIS;
+		}
+		int year = parseDigits(dateTimeText, 0, 4);
+		int month = parseDigits(dateTimeText, 5, 7);
+		int day = parseDigits(dateTimeText, 8, 10);
+		int hour = parseDigits(dateTimeText, 11, 13);
+		int minute = parseDigits(dateTimeText, 14, 16);
+		int second = parseDigits(dateTimeText, 17, 19);
+		int millis = length > 19 ? parseDigits(dateTimeText, 20, length) : 0;
+		if(year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+				|| hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+			return INVALID_EPOCH_MILLIS;
+		}
+		if(length == 21) {
+			millis *= 100;
+		} else if (length == 22) {
+			millis *= 10;
+		}
+		long epochSecond = toEpochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second - offset.getTotalSeconds();
+		return epochSecond * 1000 + millis;
+	}
+	
+	/**
+	 * 解析text[beginIndex, endIndex)之间的十进制数字，存在非数字字符时返回-1
+	 */
+	private static int parseDigits(String text, int beginIndex, int endIndex) {
+		int value = 0;
+		for(int i = beginIndex; i < endIndex; i++) {
+			char c = text.charAt(i);
+			if(c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+	
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+			case 2:
+				return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+			case 4:
+			case 6:
+			case 9:
+			case 11:
+				return 30;
+			default:
+				return 31;
+		}
+	}
+	
+	/**
+	 * 计算公历日期距离1970-01-01的天数(以3月为一年的开始，闰日落在年末)
+	 */
+	private static long toEpochDay(int year, int month, int day) {
+		int y = month <= 2 ? year - 1 : year;
+		int era = Math.floorDiv(y, 400);
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - DAYS_0000_TO_1970;
+	}
+	
+	/**
+	 * 获取dateTimeText末尾HH:mm:ss.S{1,3}中的毫秒位数，以HH:mm:ss结尾时返回0，其他情况返回-1
+	 */
+	private static int getFractionDigits(String dateTimeText) {
+		int length = dateTimeText.length();
+		int dotIndex = dateTimeText.lastIndexOf('.');
+		int fractionDigits = 0;
+		if(dotIndex >= 0) {
+			fractionDigits = length - dotIndex - 1;
+			if(fractionDigits < 1 || fractionDigits > 3 || parseDigits(dateTimeText, dotIndex + 1, length) < 0) {
+				return -1;
+			}
+			length = dotIndex;
+		}
+		//检测是否以HH:mm:ss结尾
+		if(length < 8 || dateTimeText.charAt(length - 3) != ':' || dateTimeText.charAt(length - 6) != ':'
+				|| parseDigits(dateTimeText, length - 2, length) < 0 || parseDigits(dateTimeText, length - 5, length - 3) < 0
+				|| parseDigits(dateTimeText, length - 8, length - 6) < 0) {
+			return -1;
+		}
+		return fractionDigits;
+	}
+	
+	/**
+	 * <p>将字符串格式的日期转换为@{code java.util.Date}</p>
+	 * 
+	 * @param dateTimeText		- 日期字符串形式的值
+	 * @param pattern			- 针对dateTimeText的日期格式
+	 * @return
+	 */
+	public static Date parse2Date(String dateTimeText, String pattern){
+		return from(parse2DateTime(dateTimeText, pattern));
+	}
+	
+	/**
+	 * 检测dateTimeText的日期格式是否是pattern
+	 * @param dateTimeText
+	 * @param pattern
+	 * @return
+	 */
+	public static boolean matchesDatePattern(String dateTimeText, String pattern) {
+		if(dateTimeText != null){
+			try {
+				LocalDateTime dateTime = parse2DateTime(dateTimeText, pattern);
+				return dateTime != null;
+			} catch (Exception e) {
+				return false;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 标准化dateTimeText，将其他格式的日期格式统一标准化为yyyy-MM-dd 或 yyyy-MM-dd HH:mm:ss
+	 * @param dateTimeText
+	 * @return
+	 */
+	public static String normalizeDateTime(String dateTimeText) {
+		if(dateTimeText != null) {
+			dateTimeText = dateTimeText.replace("T", " ");
+			dateTimeText = dateTimeText.replace("/", "-");
+			dateTimeText = dateTimeText.replace("年", "-");
+			dateTimeText = dateTimeText.replace("月", "-");
+			dateTimeText = dateTimeText.replace("日", "");
+			dateTimeText = dateTimeText.replace("时", ":");
+			dateTimeText = dateTimeText.replace("分", ":");
+			dateTimeText = dateTimeText.replace("秒", "");
+		}
+		return dateTimeText;
+	}
+	
+	/**
+	 * 按标准日期时间格式来解析dateTimeText
+	 * @param dateTimeText
+	 * @return
+	 */
+	public static LocalDateTime parse2DateTime(String dateTimeText) {
+		dateTimeText = DateTimeUtils.normalizeDateTime(dateTimeText);
+		if(DateTimeUtils.matchesDatePattern(dateTimeText, DateTimeUtils.DEFAULT_DATE_PATTERN)) { //yyyy-MM-dd
+			return parse2DateTime(dateTimeText, DateTimeUtils.DEFAULT_DATE_PATTERN);
+		} else if (DateTimeUtils.matchesDatePattern(dateTimeText, DateTimeUtils.DEFAULT_DATETIME_PATTERN)) { //yyyy-MM-dd HH:mm:ss
+			return parse2DateTime(dateTimeText, DateTimeUtils.DEFAULT_DATETIME_PATTERN);
+		}
+		return null;
+	}
+	
+	/**
+	 * 按标准日期时间格式来解析dateTimeText
+	 * @param dateTimeText
+	 * @return
+	 */
+	public static Date parse2Date(String dateTimeText) {
+		dateTimeText = DateTimeUtils.normalizeDateTime(dateTimeText);
+		if(DateTimeUtils.matchesDatePattern(dateTimeText, DateTimeUtils.DEFAULT_DATE_PATTERN)) { //yyyy-MM-dd
+			return parse2Date(dateTimeText, DateTimeUtils.DEFAULT_DATE_PATTERN);
+		} else if (DateTimeUtils.matchesDatePattern(dateTimeText, DateTimeUtils.DEFAULT_DATETIME_PATTERN)) { //yyyy-MM-dd HH:mm:ss
+			return parse2Date(dateTimeText, DateTimeUtils.DEFAULT_DATETIME_PATTERN);
+		}
+		return null;
+	}
+	
+}
@@ -0,0 +1,93 @@
+package com.penglecode.fabric.chaincode.common.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * GZIP压缩/解压工具类
+ * 
+ * 压缩结果会写入世界状态(例如交易记录归档桶)，各个背书节点必须得到逐字节相同的输出，因此不使用GZIPOutputStream：
+ * 其头部的OS字节随JDK版本而不同(JDK 16起由0改为255)。这里用固定压缩级别的原始Deflater压缩，头部(不含时间戳、文件名)与尾部(CRC32、原始长度)自己写出；
+ * 压缩数据本身仍取决于JDK所带的zlib实现，同一个链码镜像(JDK及zlib版本一致)的背书节点之间输出相同
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月8日 上午10:25:14
+ */
+public class GzipUtils {
+
+	private static final int DEFAULT_BUFFER_SIZE = 4096;
+	
+	private static final int COMPRESSION_LEVEL = 6;
+	
+	/**
+	 * 固定的GZIP头部：魔数、压缩方法(deflate)、无标志位、时间戳为0、无额外标志、OS为255(未知)
+	 */
+	private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+	
+	/**
+	 * GZIP压缩，相同的输入总是得到相同的输出(与JDK版本的GZIPOutputStream头部差异无关)
+	 * @param data
+	 * @return
+	 */
+	public static byte[] compress(byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(data.length / 4, 64));
+		out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+		Deflater deflater = new Deflater(COMPRESSION_LEVEL, true);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+			while(!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer));
+			}
+		} finally {
+			deflater.end();
+		}
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		writeIntLE(out, (int) crc.getValue());
+		writeIntLE(out, data.length); //ISIZE：原始长度(模2^32)
+		return out.toByteArray();
+	}
+	
+	/**
+	 * GZIP解压
+	 * @param data
+	 * @return
+	 */
+	public static byte[] decompress(byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data), DEFAULT_BUFFER_SIZE)) {
+			byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+			int n;
+			while((n = gzip.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * 判断数据是否是GZIP格式(以GZIP魔数开头)
+	 * @param data
+	 * @return
+	 */
+	public static boolean isGzipped(byte[] data) {
+		return data != null && data.length > 2 && (data[0] & 0xff) == 0x1f && (data[1] & 0xff) == 0x8b;
+	}
+	
+	private static void writeIntLE(ByteArrayOutputStream out, int value) {
+		out.write(value);
+		out.write(value >>> 8);
+		out.write(value >>> 16);
+		out.write(value >>> 24);
+	}
+	
+}
@@ -0,0 +1,186 @@
+package com.penglecode.fabric.chaincode.common.util;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 摘要工具类
+ * 
+ * MessageDigest.getInstance(...)每次都要查找provider并创建实例，这里每个线程复用一个摘要计算器：
+ * 各个字段按UTF-8直接编码进复用的输入缓冲区，十六进制结果也写入复用的char[]，计算一次摘要只分配最终的十六进制String
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月24日 上午10:08:12
+ */
+public class HashUtils {
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	
+	private static final int SHA256_LENGTH = 32;
+	
+	private static final ThreadLocal<Hasher> SHA256 = ThreadLocal.withInitial(() -> new Hasher("SHA-256", SHA256_LENGTH));
+	
+	/**
+	 * 取得当前线程复用的SHA-256计算器(已重置)，依次append各个字段后调用hex()取得摘要，
+	 * 在hex()之前不能再次调用本方法
+	 * @return
+	 */
+	public static Hasher sha256() {
+		return SHA256.get().reset();
+	}
+	
+	/**
+	 * 计算文本(按UTF-8编码)的SHA-256摘要，返回小写十六进制字符串
+	 * @param text
+	 * @return
+	 */
+	public static String sha256Hex(CharSequence text) {
+		return sha256().append(text).hex();
+	}
+	
+	/**
+	 * 计算SHA-256摘要，返回小写十六进制字符串
+	 * @param bytes
+	 * @return
+	 */
+	public static String sha256Hex(byte[] bytes) {
+		return sha256().append(bytes).hex();
+	}
+	
+	/**
+	 * 线程内复用的摘要计算器，append的内容先编码进输入缓冲区，hex()时一次性计算摘要
+	 */
+	public static class Hasher {
+		
+		private final MessageDigest digest;
+		
+		private final byte[] output;
+		
+		private final char[] hex;
+		
+		private byte[] input = new byte[256];
+		
+		private int length;
+		
+		Hasher(String algorithm, int digestLength) {
+			try {
+				this.digest = MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+			this.output = new byte[digestLength];
+			this.hex = new char[digestLength * 2];
+		}
+		
+		Hasher reset() {
+			length = 0;
+			return this;
+		}
+		
+		/**
+		 * 按UTF-8编码追加文本，null不追加任何内容
+		 */
+		public Hasher append(CharSequence text) {
+			if(text != null) {
+				for(int i = 0, len = text.length(); i < len; i++) {
+					char c = text.charAt(i);
+					if(c < 0x80) {
+						ensureCapacity(1);
+						input[length++] = (byte) c;
+					} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(text.charAt(i + 1))) {
+						appendCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+					} else {
+						appendCodePoint(Character.isSurrogate(c) ? '?' : c); //与String.getBytes(UTF_8)一致，孤立的代理字符编码为'?'
+					}
+				}
+			}
+			return this;
+		}
+		
+		/**
+		 * 追加单个字符(按UTF-8编码)
+		 */
+		public Hasher append(char c) {
+			appendCodePoint(Character.isSurrogate(c) ? '?' : c);
+			return this;
+		}
+		
+		/**
+		 * 追加整数的十进制文本，与Long.toString(value)的UTF-8编码一致
+		 */
+		public Hasher append(long value) {
+			if(value < 0) {
+				ensureCapacity(1);
+				input[length++] = '-';
+			} else {
+				value = -value; //统一按负数处理，Long.MIN_VALUE也不会溢出
+			}
+			int digits = 1;
+			for(long v = value; v <= -10; v /= 10) {
+				digits++;
+			}
+			ensureCapacity(digits);
+			for(int i = length + digits - 1; i >= length; i--) {
+				input[i] = (byte) ('0' - (value % 10));
+				value /= 10;
+			}
+			length += digits;
+			return this;
+		}
+		
+		public Hasher append(byte[] bytes) {
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, input, length, bytes.length);
+			length += bytes.length;
+			return this;
+		}
+		
+		/**
+		 * 计算已追加内容的摘要，返回小写十六进制字符串
+		 */
+		public String hex() {
+			digest.reset();
+			digest.update(input, 0, length);
+			try {
+				digest.digest(output, 0, output.length);
+			} catch (DigestException e) {
+				throw new IllegalStateException(e);
+			}
+			for(int i = 0; i < output.length; i++) {
+				hex[i * 2] = HEX_DIGITS[(output[i] >> 4) & 0x0f];
+				hex[i * 2 + 1] = HEX_DIGITS[output[i] & 0x0f];
+			}
+			return new String(hex);
+		}
+		
+		private void appendCodePoint(int codePoint) {
+			ensureCapacity(4);
+			if(codePoint < 0x80) {
+				input[length++] = (byte) codePoint;
+			} else if (codePoint < 0x800) {
+				input[length++] = (byte) (0xc0 | (codePoint >> 6));
+				input[length++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else if (codePoint < 0x10000) {
+				input[length++] = (byte) (0xe0 | (codePoint >> 12));
+				input[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				input[length++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else {
+				input[length++] = (byte) (0xf0 | (codePoint >> 18));
+				input[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				input[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				input[length++] = (byte) (0x80 | (codePoint & 0x3f));
+			}
+		}
+		
+		private void ensureCapacity(int extra) {
+			if(length + extra > input.length) {
+				byte[] newInput = new byte[Math.max(length + extra, input.length * 2)];
+				System.arraycopy(input, 0, newInput, 0, length);
+				input = newInput;
+			}
+		}
+		
+	}
+	
+}
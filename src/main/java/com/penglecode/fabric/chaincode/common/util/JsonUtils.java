@@ -32,6 +32,19 @@ public class JsonUtils {
 		}
 	}
 	
+	/**
+	 * 对象转json字节数组(UTF-8)，省去中间的字符串
+	 * @param object
+	 * @return
+	 */
+	public static byte[] object2JsonBytes(Object object) {
+		try {
+			return defaultObjectMapper.writeValueAsBytes(object);
+		} catch (JsonProcessingException e) {
+			throw new JacksonJsonException(e);
+		}
+	}
+	
 	/**
 	 * json字符串转普通javabean
 	 * @param <T>
@@ -47,6 +60,21 @@ public class JsonUtils {
 		}
 	}
 	
+	/**
+	 * json字节数组(UTF-8)转普通javabean，省去中间的字符串
+	 * @param <T>
+	 * @param json
+	 * @param clazz
+	 * @return
+	 */
+	public static <T> T json2Object(byte[] json, Class<T> clazz) {
+		try {
+			return defaultObjectMapper.readValue(json, clazz);
+		} catch (Exception e) {
+			throw new JacksonJsonException(e);
+		}
+	}
+	
 	/**
 	 * json字符串转泛型类对象
 	 * 示例： List<User> userList = json2Object("[{"username":"jack","accounts":[{"accountId":"","amount":1200.00},...]},...]", new TypeReference<List<User>>(){});
@@ -0,0 +1,139 @@
+package com.penglecode.fabric.chaincode.common.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 按阈值切换的GZIP压缩输出流：写入的数据先原样缓冲，累计超过阈值后将已缓冲的数据连同后续数据一起流式压缩，
+ * 调用方可以边读取边写入，超过阈值后内存中只保留压缩后的数据，不会完整物化未压缩的副本
+ *
+ * 阈值小于0时永不压缩，close()之后通过isCompressed()/toByteArray()获取结果
+ *
+ * @author 	pengpeng
+ * @date	2019年1月22日 上午10:16:48
+ */
+public class ThresholdGzipOutputStream extends OutputStream {
+
+	private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+	private final int threshold;
+
+	private ByteArrayOutputStream buffer;
+
+	private GZIPOutputStream gzip;
+
+	private boolean closed;
+
+	/**
+	 * @param threshold	- 压缩阈值(字节数)，小于0时永不压缩
+	 */
+	public ThresholdGzipOutputStream(int threshold) {
+		super();
+		this.threshold = threshold;
+		this.buffer = new ByteArrayOutputStream(threshold < 0 ? DEFAULT_BUFFER_SIZE : Math.min(threshold + 1, DEFAULT_BUFFER_SIZE));
+	}
+
+	@Override
+	public void write(int b) {
+		checkOpen();
+		if(gzip == null && threshold >= 0 && buffer.size() + 1 > threshold) {
+			switchToGzip();
+		}
+		try {
+			if(gzip != null) {
+				gzip.write(b);
+			} else {
+				buffer.write(b);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		checkOpen();
+		if(gzip == null && threshold >= 0 && buffer.size() + len > threshold) {
+			switchToGzip();
+		}
+		try {
+			if(gzip != null) {
+				gzip.write(b, off, len);
+			} else {
+				buffer.write(b, off, len);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 写入整个字节数组
+	 * @param b
+	 */
+	@Override
+	public void write(byte[] b) {
+		write(b, 0, b.length);
+	}
+
+	/**
+	 * 将已缓冲的原始数据写入新建的GZIP流，之后的数据都直接写入GZIP流
+	 */
+	protected void switchToGzip() {
+		ByteArrayOutputStream raw = buffer;
+		buffer = new ByteArrayOutputStream(Math.max(raw.size() / 4, 64));
+		try {
+			gzip = new GZIPOutputStream(buffer, DEFAULT_BUFFER_SIZE);
+			raw.writeTo(gzip);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 结束写入，已切换为压缩时写出GZIP尾部
+	 */
+	@Override
+	public void close() {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		if(gzip != null) {
+			try {
+				gzip.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * 结果是否经过了GZIP压缩
+	 * @return
+	 */
+	public boolean isCompressed() {
+		return gzip != null;
+	}
+
+	/**
+	 * 获取最终结果，必须在close()之后调用
+	 * @return
+	 */
+	public byte[] toByteArray() {
+		if(!closed) {
+			throw new IllegalStateException("Stream must be closed before toByteArray()");
+		}
+		return buffer.toByteArray();
+	}
+
+	protected void checkOpen() {
+		if(closed) {
+			throw new IllegalStateException("Stream closed");
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.allocation.AllocationBudgetCheck;
+
+/**
+ * 资金类方法的内存分配预算回归测试：每次invoke分配的字节数超出allocation-budget.properties中的预算时测试失败
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月25日 上午10:12:40
+ */
+public class BankMasterChaincodeAllocationTest {
+
+	@Test
+	public void testMoneyFunctionsWithinAllocationBudget() throws Exception {
+		AllocationBudgetCheck check = new AllocationBudgetCheck(20000, 20000);
+		assertTrue("Allocation budget exceeded, see the report above!", check.run(AllocationBudgetCheck.loadBudgets(), System.out));
+	}
+	
+}
@@ -0,0 +1,99 @@
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransaction;
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransactionArchive;
+import com.penglecode.fabric.chaincode.common.util.GzipUtils;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 交易记录归档测试：归档后的交易记录仍能按序号查出，归档桶满或跨月时滚动到新的归档桶，归档桶的value是确定的GZIP字节
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月29日 下午5:20:33
+ */
+public class BankMasterChaincodeArchiveTest {
+
+	private static final String ACCOUNT_NO = "6225000000000001";
+	
+	private ChaincodeTestLedger ledger;
+	
+	@Before
+	public void setUp() {
+		ledger = new ChaincodeTestLedger("1000000", "", "{\"adminMspIds\":[\"Org1MSP\"],\"maxArchiveBucketTransactions\":2}");
+		ledger.createAccount(ACCOUNT_NO, 100); //seq 1：2019-01-01
+		for(String day : new String[] {"2019-01-05", "2019-01-06", "2019-02-03", "2019-03-01"}) { //seq 2~5
+			ledger.invokeSuccess(ChaincodeTestLedger.transients("transactionTime", day + " 10:00:00"), "depositMoney", ACCOUNT_NO, "1");
+		}
+	}
+	
+	@Test
+	public void testBucketRollover() {
+		Map<?,?> result = archive("2019-01-02");
+		assertEquals(1, result.get("archivedCount"));
+		assertEquals(1, result.get("archiveBucketCount"));
+		
+		result = archive("2019-03-01"); //seq 2追加到未满的1月归档桶，seq 3因桶满滚动，seq 4跨月滚动
+		assertEquals(3, result.get("archivedCount"));
+		assertEquals(4, result.get("archivedTransactionSeq"));
+		assertEquals(3, result.get("archiveBucketCount"));
+		
+		result = archive("2019-04-01"); //seq 5跨月滚动到第4个归档桶
+		assertEquals(5, result.get("archivedTransactionSeq"));
+		assertEquals(4, result.get("archiveBucketCount"));
+		
+		assertEquals("[1, 5, 104.0]", summary(getRecords()));
+		assertEquals(Boolean.TRUE, JsonUtils.json2Object(ledger.invokeSuccess("verifyAccount", ACCOUNT_NO), Map.class).get("valid"));
+	}
+	
+	@Test
+	public void testRoundTrip() {
+		List<AccountTransaction> before = getRecords();
+		TransactionSimulation simulation = ledger.invoke("archiveTransactions", ACCOUNT_NO, "2019-03-01");
+		List<AccountTransactionArchive> archives = new ArrayList<AccountTransactionArchive>();
+		for(byte[] value : simulation.getWriteSet().values()) {
+			if(GzipUtils.isGzipped(value)) {
+				String json = new String(GzipUtils.decompress(value), StandardCharsets.UTF_8);
+				assertArrayEquals(value, GzipUtils.compress(json.getBytes(StandardCharsets.UTF_8))); //其他背书节点重新压缩得到相同的value
+				archives.add(JsonUtils.json2Object(json, AccountTransactionArchive.class));
+			}
+		}
+		assertEquals(3, archives.size());
+		List<AccountTransaction> after = getRecords();
+		assertEquals(before.size(), after.size());
+		for(int i = 0; i < before.size(); i++) {
+			assertEquals(JsonUtils.object2Json(before.get(i)), JsonUtils.object2Json(after.get(i)));
+		}
+	}
+	
+	private Map<?,?> archive(String beforeDay) {
+		return JsonUtils.json2Object(ledger.invokeSuccess("archiveTransactions", ACCOUNT_NO, beforeDay), Map.class);
+	}
+	
+	private List<AccountTransaction> getRecords() {
+		return JsonUtils.json2Object(ledger.invokeSuccess("getAccountTransactionRecords", ACCOUNT_NO, "10"), new TypeReference<List<AccountTransaction>>() {});
+	}
+	
+	/**
+	 * [最小序号, 最大序号, 最新余额]，同时断言序号倒序连续
+	 */
+	private static String summary(List<AccountTransaction> records) {
+		for(int i = 1; i < records.size(); i++) {
+			assertEquals(records.get(i - 1).getTransactionSeq() - 1, records.get(i).getTransactionSeq().longValue());
+		}
+		return String.format("[%s, %s, %s]", records.get(records.size() - 1).getTransactionSeq(), records.get(0).getTransactionSeq(), records.get(0).getAfterAccountBalance());
+	}
+	
+}
@@ -0,0 +1,84 @@
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransactionType;
+import com.penglecode.fabric.chaincode.bankmaster.event.AccountEvent;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 休眠账户测试：分批标记休眠账户在扫描到最后一个账户时结束，转为休眠/转回活跃都在账户变动事件中有状态条目
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月29日 上午10:12:25
+ */
+public class BankMasterChaincodeDormantTest {
+
+	private static final String[] ACCOUNTS = {"6225000000000001", "6225000000000002", "6225000000000003", "6225000000000004"};
+	
+	private final Map<String,byte[]> markTime = ChaincodeTestLedger.transients("transactionTime", "2019-07-01 00:00:00");
+	
+	private ChaincodeTestLedger ledger;
+	
+	@Before
+	public void setUp() {
+		ledger = new ChaincodeTestLedger("1000000", "", "{\"adminMspIds\":[\"Org1MSP\"],\"maxDormantChunkSize\":2}");
+		for(String accountNo : ACCOUNTS) {
+			ledger.createAccount(accountNo, 100);
+		}
+		ledger.invokeSuccess(ChaincodeTestLedger.transients("transactionTime", "2019-06-10 10:00:00"), "depositMoney", ACCOUNTS[2], "1");
+	}
+	
+	@Test
+	public void testChunkEndingAtLastAccountIsFinished() {
+		Map<?,?> result = markDormant("");
+		assertEquals(2, result.get("scannedCount"));
+		assertEquals(2, result.get("dormantCount"));
+		assertEquals(ACCOUNTS[1], result.get("nextBookmark"));
+		
+		TransactionSimulation simulation = ledger.invoke(markTime, "markDormant", "2019-06-01", ACCOUNTS[1]);
+		result = JsonUtils.json2Object(simulation.getResponse().getStringPayload(), Map.class);
+		assertEquals(2, result.get("scannedCount"));
+		assertEquals(1, result.get("dormantCount"));
+		assertNull(result.get("nextBookmark")); //恰好扫描到最后一个账户，不需要再多调用一次
+		
+		List<AccountEvent.Entry> entries = AccountEvent.decode(simulation.getEventPayload()).getEntries();
+		assertEquals(1, entries.size());
+		assertEquals(AccountTransactionType.ACCOUNT_DORMANT, entries.get(0).getTransactionType());
+		assertEquals(ACCOUNTS[3], entries.get(0).getAccountNo());
+		assertEquals(100.0, entries.get(0).getAfterBalance(), 0);
+	}
+	
+	@Test
+	public void testDormantAccountIsReactivated() {
+		markDormant("");
+		markDormant(ACCOUNTS[1]);
+		
+		TransactionSimulation simulation = ledger.invoke(ChaincodeTestLedger.transients("transactionTime", "2019-07-02 10:00:00"), "depositMoney", ACCOUNTS[0], "1");
+		assertEquals(101.0, Double.parseDouble(simulation.getResponse().getStringPayload()), 0);
+		List<AccountEvent.Entry> entries = AccountEvent.decode(simulation.getEventPayload()).getEntries();
+		assertEquals(2, entries.size());
+		assertEquals(AccountTransactionType.ACCOUNT_REACTIVATED, entries.get(0).getTransactionType());
+		assertEquals(100.0, entries.get(0).getAfterBalance(), 0);
+		assertEquals(AccountTransactionType.DEPOSITE_MONEY, entries.get(1).getTransactionType());
+		assertEquals(entries.get(0).getTransactionSeq() + 1, entries.get(1).getTransactionSeq());
+		
+		Map<?,?> result = markDormant(""); //只剩下两个活跃账户
+		assertEquals(2, result.get("scannedCount"));
+		assertEquals(0, result.get("dormantCount"));
+		assertNull(result.get("nextBookmark"));
+	}
+	
+	private Map<?,?> markDormant(String bookmark) {
+		return JsonUtils.json2Object(ledger.invokeSuccess(markTime, "markDormant", "2019-06-01", bookmark), Map.class);
+	}
+	
+}
@@ -0,0 +1,94 @@
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.hyperledger.fabric.shim.Chaincode.Response;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+
+/**
+ * 幂等提交测试：相同requestId的重试直接返回首次的结果，requestId被不同参数的请求复用时拒绝执行
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月30日 上午10:32:08
+ */
+public class BankMasterChaincodeIdempotencyTest {
+
+	private static final String ACCOUNT_A = "6225000000000001";
+	
+	private static final String ACCOUNT_B = "6225000000000002";
+	
+	private ChaincodeTestLedger ledger;
+	
+	@Before
+	public void setUp() {
+		ledger = new ChaincodeTestLedger("1000000");
+		ledger.createAccount(ACCOUNT_A, 100);
+		ledger.createAccount(ACCOUNT_B, 100);
+	}
+	
+	@Test
+	public void testReplayReturnsFirstResponse() {
+		TransactionSimulation first = ledger.invoke(request("r-1", "2019-01-10 23:59:59"), "transferAccount", ACCOUNT_A, ACCOUNT_B, "30");
+		assertEquals(Response.Status.SUCCESS, first.getResponse().getStatus());
+		
+		TransactionSimulation replay = ledger.invoke(request("r-1", "2019-01-11 00:00:05"), "transferAccount", ACCOUNT_A, ACCOUNT_B, "30"); //跨过零点的重试
+		assertEquals(Response.Status.SUCCESS, replay.getResponse().getStatus());
+		assertEquals(first.getResponse().getMessage(), replay.getResponse().getMessage());
+		assertEquals(first.getResponse().getStringPayload(), replay.getResponse().getStringPayload());
+		assertTrue(replay.isReadOnly());
+		assertNull(replay.getEventName()); //首次执行时已发出过事件
+		
+		assertEquals(70.0, ledger.getAccountBalance(ACCOUNT_A), 0);
+		assertEquals(130.0, ledger.getAccountBalance(ACCOUNT_B), 0);
+	}
+	
+	@Test
+	public void testConflictingArgsAreRejected() {
+		ledger.invokeSuccess(request("r-2", "2019-01-10 10:00:00"), "depositMoney", ACCOUNT_A, "10");
+		for(String[] args : new String[][] {{ACCOUNT_A, "20"}, {ACCOUNT_B, "10"}}) {
+			Response response = ledger.invoke(request("r-2", "2019-01-10 10:00:01"), "depositMoney", args).getResponse();
+			assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+			assertEquals("请求参数不合法：requestId(r-2)已被其他请求使用!", response.getMessage());
+		}
+		Response response = ledger.invoke(request("r-2", "2019-01-10 10:00:02"), "drawalMoney", ACCOUNT_A, "10").getResponse(); //同样的参数，不同的方法
+		assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+		
+		assertEquals(110.0, ledger.getAccountBalance(ACCOUNT_A), 0);
+		assertEquals(100.0, ledger.getAccountBalance(ACCOUNT_B), 0);
+	}
+	
+	@Test
+	public void testFailedRequestCanBeRetried() {
+		Response response = ledger.invoke(request("r-3", "2019-01-10 10:00:00"), "depositMoney", "6225000000000003", "10").getResponse();
+		assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+		ledger.createAccount("6225000000000003", 0);
+		
+		ledger.invokeSuccess(request("r-3", "2019-01-10 10:00:10"), "depositMoney", "6225000000000003", "10"); //失败的请求不记录，重试时正常执行
+		ledger.invokeSuccess(request("r-3", "2019-01-10 10:00:20"), "depositMoney", "6225000000000003", "10");
+		assertEquals(10.0, ledger.getAccountBalance("6225000000000003"), 0);
+	}
+	
+	@Test
+	public void testPurgedRequestExecutesAgain() {
+		ledger.invokeSuccess(request("r-4", "2019-01-10 10:00:00"), "depositMoney", ACCOUNT_A, "10");
+		ledger.invokeSuccess("purgeRequestDedups", "2019-01-10"); //不含截止日期当天
+		ledger.invokeSuccess(request("r-4", "2019-01-11 10:00:00"), "depositMoney", ACCOUNT_A, "10");
+		assertEquals(110.0, ledger.getAccountBalance(ACCOUNT_A), 0);
+		
+		ledger.invokeSuccess("purgeRequestDedups", "2019-01-11");
+		ledger.invokeSuccess(request("r-4", "2019-01-11 10:00:00"), "depositMoney", ACCOUNT_A, "10");
+		assertEquals(120.0, ledger.getAccountBalance(ACCOUNT_A), 0);
+	}
+	
+	private static Map<String,byte[]> request(String requestId, String transactionTime) {
+		return ChaincodeTestLedger.transients("requestId", requestId, "transactionTime", transactionTime);
+	}
+	
+}
@@ -0,0 +1,148 @@
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.penglecode.fabric.chaincode.bankmaster.domain.SettlementCheckpoint;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 日终结算测试：结息/扣费后账户余额之和与银行资产保持一致，分批结算从检查点继续且不重复结算
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月28日 上午10:05:36
+ */
+public class BankMasterChaincodeSettlementTest {
+
+	private static final double INITIAL_BANK_BALANCE = 1000000;
+	
+	private static final String[] ACCOUNTS = {"6225000000000001", "6225000000000002", "6225000000000003", "6225000000000004", "6225000000000005"};
+	
+	private final Map<String,byte[]> settlementTime = ChaincodeTestLedger.transients("transactionTime", "2019-01-09 23:59:59");
+	
+	private ChaincodeTestLedger ledger;
+	
+	@Before
+	public void setUp() {
+		ledger = new ChaincodeTestLedger(String.valueOf(INITIAL_BANK_BALANCE));
+		ledger.invokeSuccess("saveSettlementRule", "{\"ruleId\":\"DAILY\",\"dailyInterestRate\":0.001,\"dailyFee\":0.5,\"feeWaiverBalance\":10000}");
+	}
+	
+	@Test
+	public void testOverdrawnAccountIsNotCharged() {
+		ledger.createAccount(ACCOUNTS[0], 100);
+		ledger.createAccount(ACCOUNTS[1], 20000);
+		ledger.invokeSuccess(ChaincodeTestLedger.transients("transactionTime", "2019-01-09 10:00:00"), "drawalMoney", ACCOUNTS[0], "150"); //透支到-50
+		
+		SettlementCheckpoint checkpoint = settle("");
+		assertTrue(checkpoint.getFinished());
+		assertEquals(0.0, checkpoint.getTotalFee(), 0);
+		assertEquals(20.0, checkpoint.getTotalInterest(), 0);
+		assertEquals(-50.0, ledger.getAccountBalance(ACCOUNTS[0]), 0);
+		assertEquals(20020.0, ledger.getAccountBalance(ACCOUNTS[1]), 0);
+		assertFalse(ledger.invokeSuccess("getAccountTransactionRecords", ACCOUNTS[0], "10").contains("SETTLE_"));
+		assertReconciled(2);
+	}
+	
+	@Test
+	public void testFeeStopsAtZeroBalance() {
+		ledger.createAccount(ACCOUNTS[0], 0.2);
+		SettlementCheckpoint checkpoint = settle("");
+		assertEquals(0.2, checkpoint.getTotalFee(), 0);
+		assertEquals(0.0, ledger.getAccountBalance(ACCOUNTS[0]), 0);
+		assertReconciled(1);
+	}
+	
+	@Test
+	public void testResumeFromCheckpoint() {
+		for(String accountNo : ACCOUNTS) {
+			ledger.createAccount(accountNo, 1000);
+		}
+		SettlementCheckpoint checkpoint = settle("", "2");
+		assertFalse(checkpoint.getFinished());
+		assertEquals(ACCOUNTS[1], checkpoint.getLastAccountNo());
+		assertEquals(2L, checkpoint.getProcessedCount().longValue());
+		
+		//重复提交已处理过的批次不会重复结算
+		SettlementCheckpoint replayed = settle("", "2");
+		assertEquals(ACCOUNTS[1], replayed.getLastAccountNo());
+		assertEquals(2L, replayed.getProcessedCount().longValue());
+		
+		checkpoint = settle(ACCOUNTS[1], "2");
+		assertEquals(ACCOUNTS[3], checkpoint.getLastAccountNo());
+		checkpoint = settle(ACCOUNTS[3], "2");
+		assertTrue(checkpoint.getFinished());
+		assertEquals(5L, checkpoint.getProcessedCount().longValue());
+		assertEquals(5.0, checkpoint.getTotalInterest(), 0);
+		assertEquals(2.5, checkpoint.getTotalFee(), 0);
+		for(String accountNo : ACCOUNTS) {
+			assertEquals(accountNo, 1000.5, ledger.getAccountBalance(accountNo), 0);
+		}
+		assertTrue(ledger.invokeSuccess(settlementTime, "runSettlement", "DAILY", ACCOUNTS[4], "2").contains("\"finished\":true"));
+		assertReconciled(ACCOUNTS.length);
+	}
+	
+	@Test
+	public void testChunkEndingAtLastAccountIsFinished() {
+		for(int i = 0; i < 4; i++) {
+			ledger.createAccount(ACCOUNTS[i], 1000);
+		}
+		assertFalse(settle("", "2").getFinished());
+		SettlementCheckpoint checkpoint = settle(ACCOUNTS[1], "2");
+		assertTrue(checkpoint.getFinished());
+		assertEquals(ACCOUNTS[3], checkpoint.getLastAccountNo());
+		assertEquals(4L, checkpoint.getProcessedCount().longValue());
+	}
+	
+	/**
+	 * 卡号分布稀疏、跨越不同数位时，逐个账户分批结算也不会遗漏或重复
+	 */
+	@Test
+	public void testResumeCoversSparseAccountNumbers() {
+		String[] accountNos = {"0000000000000000", "0000000000000009", "6225000000000010", "6225000000000199", "6225000000000200",
+				"6225000000001000", "6225100000000000", "6229999999999999", "9999999999999999"};
+		for(String accountNo : accountNos) {
+			ledger.createAccount(accountNo, 1000);
+		}
+		List<String> settled = new ArrayList<String>();
+		String bookmark = "";
+		SettlementCheckpoint checkpoint;
+		do {
+			checkpoint = settle(bookmark, "1");
+			if(checkpoint.getLastAccountNo() != null && !checkpoint.getLastAccountNo().equals(bookmark)) {
+				settled.add(checkpoint.getLastAccountNo());
+			}
+			bookmark = StringUtils.defaultString(checkpoint.getLastAccountNo());
+		} while(!checkpoint.getFinished());
+		assertEquals(Arrays.asList(accountNos), settled);
+		assertEquals(accountNos.length, checkpoint.getProcessedCount().longValue());
+	}
+	
+	private SettlementCheckpoint settle(String bookmark, String... chunkSize) {
+		String payload = chunkSize.length == 0 ? ledger.invokeSuccess(settlementTime, "runSettlement", "DAILY", bookmark)
+				: ledger.invokeSuccess(settlementTime, "runSettlement", "DAILY", bookmark, chunkSize[0]);
+		return JsonUtils.json2Object(payload, SettlementCheckpoint.class);
+	}
+	
+	/**
+	 * 银行资产 = 初始资产 + 各账户余额之和
+	 */
+	private void assertReconciled(int accountCount) {
+		double total = INITIAL_BANK_BALANCE;
+		for(int i = 0; i < accountCount; i++) {
+			total += ledger.getAccountBalance(ACCOUNTS[i]);
+		}
+		assertEquals(total, ledger.getBankBalance(), 0.000001);
+	}
+	
+}
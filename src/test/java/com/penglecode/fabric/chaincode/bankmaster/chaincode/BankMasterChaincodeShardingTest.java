@@ -0,0 +1,20 @@
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import org.junit.Test;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.sharding.ShardedTransferCheck;
+
+/**
+ * 跨分片转账协议回归测试：多个分片部署在同一个模拟通道上，账户余额、银行资产或在途金额不一致时测试失败
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月25日 上午10:20:15
+ */
+public class BankMasterChaincodeShardingTest {
+
+	@Test
+	public void testSameShardAndCrossShardTransfers() {
+		new ShardedTransferCheck(4, 40, 400).run(System.out);
+	}
+	
+}
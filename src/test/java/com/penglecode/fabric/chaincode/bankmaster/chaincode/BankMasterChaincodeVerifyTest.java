@@ -0,0 +1,104 @@
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.hyperledger.fabric.shim.Chaincode.Response;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.penglecode.fabric.chaincode.bankmaster.domain.AccountTransaction;
+import com.penglecode.fabric.chaincode.common.util.JsonUtils;
+
+/**
+ * 交易记录hash链测试：金额必须精确到分，篡改交易记录后verifyAccount能定位到被篡改的记录
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月29日 下午3:40:18
+ */
+public class BankMasterChaincodeVerifyTest {
+
+	private static final String ACCOUNT_NO = "6225000000000001";
+	
+	private final Map<String,byte[]> transactionTime = ChaincodeTestLedger.transients("transactionTime", "2019-01-09 10:00:00");
+	
+	private ChaincodeTestLedger ledger;
+	
+	@Before
+	public void setUp() {
+		ledger = new ChaincodeTestLedger(new TamperableChaincode(), "1000000");
+		ledger.createAccount(ACCOUNT_NO, 100);
+		for(String amount : new String[] {"10", "0.29", "12.5"}) {
+			ledger.invokeSuccess(transactionTime, "depositMoney", ACCOUNT_NO, amount);
+		}
+	}
+	
+	@Test
+	public void testSubCentAmountIsRejected() {
+		for(String amount : new String[] {"0.001", "0.004", "1.005", "1e-3"}) {
+			Response response = ledger.invoke(transactionTime, "depositMoney", ACCOUNT_NO, amount).getResponse();
+			assertEquals(amount, Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+		}
+		Response response = ledger.invoke("createAccount", "{\"accountNo\":\"6225000000000002\",\"realName\":\"测试\",\"idCardNo\":\"1\",\"mobilePhone\":\"1\",\"accountBalance\":0.005}").getResponse();
+		assertEquals(Response.Status.INTERNAL_SERVER_ERROR, response.getStatus());
+		assertEquals(122.79, ledger.getAccountBalance(ACCOUNT_NO), 0);
+		assertEquals(Boolean.TRUE, verify().get("valid"));
+	}
+	
+	@Test
+	public void testIntactChainIsValid() {
+		Map<?,?> result = verify();
+		assertEquals(Boolean.TRUE, result.get("valid"));
+		assertEquals(4, result.get("verifiedCount"));
+	}
+	
+	@Test
+	public void testTamperedAmountIsDetected() {
+		ledger.invokeSuccess("tamper", "2", "transactionBalance", "10.01");
+		Map<?,?> result = verify();
+		assertEquals(Boolean.FALSE, result.get("valid"));
+		assertEquals(2, result.get("brokenSeq"));
+		assertEquals("交易记录hash校验失败", result.get("error"));
+	}
+	
+	@Test
+	public void testTamperedBalanceIsDetected() {
+		ledger.invokeSuccess("tamper", "3", "afterAccountBalance", "1000.29");
+		Map<?,?> result = verify();
+		assertEquals(Boolean.FALSE, result.get("valid"));
+		assertEquals(3, result.get("brokenSeq"));
+		assertEquals("交易记录hash校验失败", result.get("error"));
+	}
+	
+	private Map<?,?> verify() {
+		return JsonUtils.json2Object(ledger.invokeSuccess("verifyAccount", ACCOUNT_NO), Map.class);
+	}
+	
+	/**
+	 * 测试用链码：tamper函数绕过正常交易直接改写指定序号的交易记录的某个金额字段
+	 */
+	static class TamperableChaincode extends BankMasterChaincode {
+
+		@Override
+		protected Response doInvoke(ChaincodeStub stub, String function, List<String> args) throws Exception {
+			if("tamper".equals(function)) {
+				String key = createAccountTransactionKey(stub, ACCOUNT_NO, Long.parseLong(args.get(0)));
+				AccountTransaction transaction = JsonUtils.json2Object(stub.getState(key), AccountTransaction.class);
+				double amount = Double.parseDouble(args.get(2));
+				if("transactionBalance".equals(args.get(1))) {
+					transaction.setTransactionBalance(amount);
+				} else {
+					transaction.setAfterAccountBalance(amount);
+				}
+				stub.putState(key, JsonUtils.object2JsonBytes(transaction));
+				return newSuccessResponse();
+			}
+			return super.doInvoke(stub, function, args);
+		}
+		
+	}
+	
+}
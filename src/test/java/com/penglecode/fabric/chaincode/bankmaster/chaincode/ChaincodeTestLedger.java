@@ -0,0 +1,93 @@
+package com.penglecode.fabric.chaincode.bankmaster.chaincode;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hyperledger.fabric.shim.Chaincode;
+import org.hyperledger.fabric.shim.Chaincode.Response;
+
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.SimulatedLedger;
+import com.penglecode.fabric.chaincode.bankmaster.benchmark.ledger.TransactionSimulation;
+
+/**
+ * 单元测试用的模拟账本：在进程内的SimulatedLedger上部署链码，每个invoke背书成功后单独出一个区块提交
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月28日 上午9:42:18
+ */
+class ChaincodeTestLedger {
+
+	private final SimulatedLedger ledger = new SimulatedLedger("bankchannel");
+	
+	private final Chaincode chaincode;
+	
+	ChaincodeTestLedger(Chaincode chaincode, String... initArgs) {
+		this.chaincode = chaincode;
+		TransactionSimulation init = ledger.simulateInit(chaincode, Arrays.asList(initArgs));
+		assertEquals(init.getResponse().getMessage(), Response.Status.SUCCESS, init.getResponse().getStatus());
+		ledger.commitBlock(Collections.singletonList(init));
+	}
+	
+	ChaincodeTestLedger(String... initArgs) {
+		this(new BankMasterChaincode(), initArgs);
+	}
+	
+	/**
+	 * 执行一个invoke，写交易背书成功后立即提交
+	 */
+	TransactionSimulation invoke(Map<String,byte[]> transients, String function, String... args) {
+		TransactionSimulation simulation = ledger.simulate(chaincode, function, Arrays.asList(args), transients);
+		if(simulation.isEndorsed() && !simulation.isReadOnly()) {
+			ledger.commitBlock(Collections.singletonList(simulation));
+		}
+		return simulation;
+	}
+	
+	TransactionSimulation invoke(String function, String... args) {
+		return invoke(Collections.<String,byte[]>emptyMap(), function, args);
+	}
+	
+	/**
+	 * 执行一个invoke并断言成功，返回响应payload
+	 */
+	String invokeSuccess(Map<String,byte[]> transients, String function, String... args) {
+		Response response = invoke(transients, function, args).getResponse();
+		assertEquals(function + ": " + response.getMessage(), Response.Status.SUCCESS, response.getStatus());
+		return response.getPayload() == null ? null : response.getStringPayload();
+	}
+	
+	String invokeSuccess(String function, String... args) {
+		return invokeSuccess(Collections.<String,byte[]>emptyMap(), function, args);
+	}
+	
+	void createAccount(String accountNo, double balance) {
+		invokeSuccess("createAccount", String.format("{\"accountNo\":\"%s\",\"realName\":\"测试%s\",\"idCardNo\":\"%s\",\"mobilePhone\":\"13800000000\",\"createdTime\":\"2019-01-01 09:00:00\",\"accountBalance\":%s}",
+				accountNo, accountNo.substring(12), accountNo, balance));
+	}
+	
+	double getAccountBalance(String accountNo) {
+		return Double.parseDouble(invokeSuccess("getAccountBalance", accountNo));
+	}
+	
+	double getBankBalance() {
+		return Double.parseDouble(ledger.getCommittedStringValue("BANK_BALANCE"));
+	}
+	
+	SimulatedLedger getLedger() {
+		return ledger;
+	}
+	
+	static Map<String,byte[]> transients(String... keyValues) {
+		Map<String,byte[]> transients = new HashMap<String,byte[]>();
+		for(int i = 0; i < keyValues.length; i += 2) {
+			transients.put(keyValues[i], keyValues[i + 1].getBytes(StandardCharsets.UTF_8));
+		}
+		return transients;
+	}
+	
+}
@@ -0,0 +1,126 @@
+package com.penglecode.fabric.chaincode.bankmaster.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 快照文件测试：SnapshotPageWriter生成的各页拼接后由SnapshotFileReader完整读出，
+ * 末页不完整或校验失败时只读出之前的完整页，并给出截断位置及继续导出的bookmark
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月30日 下午2:08:51
+ */
+public class SnapshotFileReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private final List<byte[]> pages = Arrays.asList(
+			newPage(true, "6225000000000002", SnapshotPageWriter.RECORD_BANK_BALANCE, "BANK_BALANCE", SnapshotPageWriter.RECORD_CUSTOMER_ACCOUNT, "6225000000000001"),
+			newPage(false, "DORMANT:", SnapshotPageWriter.RECORD_CUSTOMER_ACCOUNT, "6225000000000002", SnapshotPageWriter.RECORD_CUSTOMER_ACCOUNT, "6225000000000003"),
+			newPage(true, null, SnapshotPageWriter.RECORD_DORMANT_ACCOUNT, "6225000000000004"));
+	
+	@Test
+	public void testRoundTrip() throws IOException {
+		File file = writeFile(concat(pages));
+		List<String> keys = new ArrayList<String>();
+		try (SnapshotFileReader reader = new SnapshotFileReader(file)) {
+			assertEquals(5, reader.read((type, key, value) -> {
+				assertArrayEquals(valueOf(type, key), value);
+				keys.add(type + ":" + key);
+			}));
+			assertTrue(reader.isComplete());
+			assertEquals(file.length(), reader.getValidLength());
+			assertEquals("", reader.getNextBookmark()); //最后一页没有bookmark
+		}
+		assertEquals(Arrays.asList("1:BANK_BALANCE", "2:6225000000000001", "2:6225000000000002", "2:6225000000000003", "3:6225000000000004"), keys);
+	}
+	
+	@Test
+	public void testTruncatedLastPage() throws IOException {
+		byte[] complete = concat(pages.subList(0, 2));
+		byte[] lastPage = pages.get(2);
+		for(int cut : new int[] {1, 4, 12, lastPage.length - 1}) { //中断在末页的不同位置
+			File file = writeFile(concat(Arrays.asList(complete, Arrays.copyOf(lastPage, cut))));
+			try (SnapshotFileReader reader = new SnapshotFileReader(file)) {
+				assertEquals(4, reader.read((type, key, value) -> {}));
+				assertFalse(reader.isComplete());
+				assertEquals(complete.length, reader.getValidLength());
+				assertEquals("DORMANT:", reader.getNextBookmark());
+			}
+			//截断到validLength后从bookmark继续导出，拼接出完整的文件(另写一个文件，已映射的文件在有些平台上不能截断)
+			try (SnapshotFileReader reader = new SnapshotFileReader(writeFile(concat(Arrays.asList(Arrays.copyOf(Files.readAllBytes(file.toPath()), complete.length), lastPage))))) {
+				assertEquals(5, reader.read((type, key, value) -> {}));
+				assertTrue(reader.isComplete());
+			}
+		}
+	}
+	
+	@Test
+	public void testCorruptedPage() throws IOException {
+		byte[] data = concat(pages);
+		data[pages.get(0).length + pages.get(1).length - 1] ^= 0x01; //第2页页体的最后一个字节
+		try (SnapshotFileReader reader = new SnapshotFileReader(writeFile(data))) {
+			assertEquals(2, reader.read((type, key, value) -> {}));
+			assertFalse(reader.isComplete());
+			assertEquals(pages.get(0).length, reader.getValidLength());
+			assertEquals("6225000000000002", reader.getNextBookmark());
+		}
+	}
+	
+	@Test
+	public void testEmptyFile() throws IOException {
+		try (SnapshotFileReader reader = new SnapshotFileReader(writeFile(new byte[0]))) {
+			assertEquals(0, reader.read((type, key, value) -> {}));
+			assertFalse(reader.isComplete());
+			assertEquals(0, reader.getValidLength());
+			assertNull(reader.getNextBookmark());
+		}
+	}
+	
+	/**
+	 * 参数依次为记录类型、key
+	 */
+	private static byte[] newPage(boolean compress, String nextBookmark, Object... records) {
+		SnapshotPageWriter writer = new SnapshotPageWriter(compress);
+		for(int i = 0; i < records.length; i += 2) {
+			writer.addRecord((Byte) records[i], (String) records[i + 1], valueOf((Byte) records[i], (String) records[i + 1]));
+		}
+		return writer.toPage(nextBookmark);
+	}
+	
+	private static byte[] valueOf(byte type, String key) {
+		return ("{\"type\":" + type + ",\"key\":\"" + key + "\"}").getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private static byte[] concat(List<byte[]> parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(byte[] part : parts) {
+			out.write(part, 0, part.length);
+		}
+		return out.toByteArray();
+	}
+	
+	private File writeFile(byte[] data) throws IOException {
+		File file = folder.newFile();
+		Files.write(file.toPath(), data);
+		return file;
+	}
+	
+}
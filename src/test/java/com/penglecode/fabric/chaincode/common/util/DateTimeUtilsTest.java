@@ -0,0 +1,81 @@
+package com.penglecode.fabric.chaincode.common.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * parseEpochMillis测试：逐字符解析的结果与java.time一致，闰年及非法日期、格式错误都能正确处理
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月30日 上午9:15:42
+ */
+public class DateTimeUtilsTest {
+
+	private static final ZoneOffset BEIJING = ZoneOffset.ofHours(8);
+	
+	@Test
+	public void testMatchesJavaTime() {
+		Random random = new Random(20190130);
+		for(int i = 0; i < 20000; i++) {
+			LocalDateTime dateTime = LocalDateTime.of(1 + random.nextInt(9999), 1, 1, 0, 0)
+					.plusDays(random.nextInt(366)).plusSeconds(random.nextInt(86400)).plusNanos(random.nextInt(1000) * 1000000L);
+			String text = DateTimeUtils.format(dateTime, "yyyy-MM-dd HH:mm:ss.SSS");
+			assertEquals(text, dateTime.toInstant(BEIJING).toEpochMilli(), DateTimeUtils.parseEpochMillis(text, BEIJING));
+		}
+	}
+	
+	@Test
+	public void testLeapYears() {
+		assertValid("2000-02-29 00:00:00"); //能被400整除
+		assertValid("2016-02-29 12:30:45");
+		assertValid("2400-02-29 23:59:59");
+		assertInvalid("1900-02-29 00:00:00"); //能被100整除但不能被400整除
+		assertInvalid("2100-02-29 00:00:00");
+		assertInvalid("2019-02-29 00:00:00");
+		assertInvalid("2016-02-30 00:00:00");
+		assertEquals(DateTimeUtils.parseEpochMillis("2016-03-01 00:00:00", BEIJING) - 86400000L, DateTimeUtils.parseEpochMillis("2016-02-29 00:00:00", BEIJING));
+	}
+	
+	@Test
+	public void testInvalidDates() {
+		for(String text : new String[] {"2019-00-10 10:00:00", "2019-13-10 10:00:00", "2019-04-31 10:00:00", "2019-06-00 10:00:00",
+				"2019-01-32 10:00:00", "2019-01-10 24:00:00", "2019-01-10 10:60:00", "2019-01-10 10:00:60"}) {
+			assertInvalid(text);
+		}
+		assertValid("2019-12-31 23:59:59");
+		assertValid("2019-01-31 00:00:00");
+	}
+	
+	@Test
+	public void testRejectedFormats() {
+		for(String text : new String[] {null, "", "2019-01-10", "2019-01-10 10:00", "2019-01-10T10:00:00", "2019/01/10 10:00:00",
+				"2019-01-10 10:00:00.", "2019-01-10 10:00:00.1234", "2019-01-10 10:00:00,123", "2019-1-10 10:00:00", "2019-01-10 1a:00:00",
+				"-019-01-10 10:00:00", "2019-01-10 10:00:00.12a", " 2019-01-10 10:00:00"}) {
+			assertInvalid(text);
+		}
+		assertEquals(DateTimeUtils.INVALID_EPOCH_MILLIS, DateTimeUtils.parseEpochMillis("2019-01-10 10:00:00", null));
+	}
+	
+	@Test
+	public void testFractionDigits() {
+		long base = DateTimeUtils.parseEpochMillis("2019-01-10 10:00:00", BEIJING);
+		assertEquals(base + 500, DateTimeUtils.parseEpochMillis("2019-01-10 10:00:00.5", BEIJING));
+		assertEquals(base + 50, DateTimeUtils.parseEpochMillis("2019-01-10 10:00:00.05", BEIJING));
+		assertEquals(base + 5, DateTimeUtils.parseEpochMillis("2019-01-10 10:00:00.005", BEIJING));
+		assertEquals(base + 8 * 3600000L, DateTimeUtils.parseEpochMillis("2019-01-10 10:00:00", ZoneOffset.UTC));
+	}
+	
+	private static void assertValid(String text) {
+		assertEquals(text, LocalDateTime.parse(text.replace(' ', 'T')).toInstant(BEIJING).toEpochMilli(), DateTimeUtils.parseEpochMillis(text, BEIJING));
+	}
+	
+	private static void assertInvalid(String text) {
+		assertEquals(text, DateTimeUtils.INVALID_EPOCH_MILLIS, DateTimeUtils.parseEpochMillis(text, BEIJING));
+	}
+	
+}
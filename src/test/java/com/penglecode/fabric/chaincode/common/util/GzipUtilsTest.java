@@ -0,0 +1,78 @@
+package com.penglecode.fabric.chaincode.common.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+/**
+ * GZIP压缩测试：头部固定、相同输入得到相同输出，且能被标准的GZIPInputStream解压
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月29日 下午4:52:06
+ */
+public class GzipUtilsTest {
+
+	@Test
+	public void testFixedHeader() {
+		byte[] compressed = GzipUtils.compress("hello".getBytes(StandardCharsets.UTF_8));
+		assertArrayEquals(new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff}, Arrays.copyOf(compressed, 10));
+		assertTrue(GzipUtils.isGzipped(compressed));
+	}
+	
+	@Test
+	public void testDeterministic() {
+		byte[] data = newData(100000);
+		assertArrayEquals(GzipUtils.compress(data), GzipUtils.compress(data.clone()));
+	}
+	
+	@Test
+	public void testRoundTrip() throws IOException {
+		for(int length : new int[] {0, 1, 4095, 4096, 4097, 100000}) {
+			byte[] data = newData(length);
+			byte[] compressed = GzipUtils.compress(data);
+			assertArrayEquals(String.valueOf(length), data, GzipUtils.decompress(compressed));
+			assertArrayEquals(String.valueOf(length), data, gunzip(compressed)); //标准GZIP格式(CRC32、ISIZE均正确)
+		}
+	}
+	
+	@Test
+	public void testTrailer() {
+		byte[] data = newData(5000);
+		byte[] compressed = GzipUtils.compress(data);
+		int n = compressed.length;
+		int isize = (compressed[n - 4] & 0xff) | (compressed[n - 3] & 0xff) << 8 | (compressed[n - 2] & 0xff) << 16 | (compressed[n - 1] & 0xff) << 24;
+		assertEquals(data.length, isize);
+	}
+	
+	private static byte[] newData(int length) {
+		StringBuilder sb = new StringBuilder();
+		Random random = new Random(length);
+		while(sb.length() < length) {
+			sb.append("{\"transactionSeq\":").append(random.nextInt(1000)).append(",\"transactionType\":\"DEPOSITE_MONEY\"}");
+		}
+		return sb.substring(0, length).getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private static byte[] gunzip(byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+			byte[] buffer = new byte[1024];
+			int n;
+			while((n = in.read(buffer)) != -1) {
+				out.write(buffer, 0, n);
+			}
+		}
+		return out.toByteArray();
+	}
+	
+}
@@ -0,0 +1,107 @@
+package com.penglecode.fabric.chaincode.common.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * 按阈值压缩测试：恰好等于阈值时原样输出，超过阈值1个字节即切换为压缩，且无论在哪次写入时切换，解压后都与写入的数据一致
+ * 
+ * @author 	pengpeng
+ * @date	2019年1月30日 下午3:26:17
+ */
+public class ThresholdGzipOutputStreamTest {
+
+	private static final int THRESHOLD = 100;
+	
+	private static final byte[] DATA = newData(10000);
+	
+	@Test
+	public void testAtThresholdIsNotCompressed() {
+		ThresholdGzipOutputStream out = write(THRESHOLD, THRESHOLD, 7);
+		assertFalse(out.isCompressed());
+		assertArrayEquals(Arrays.copyOf(DATA, THRESHOLD), out.toByteArray());
+		
+		out = write(THRESHOLD, THRESHOLD, 1); //逐字节写入
+		assertFalse(out.isCompressed());
+		assertArrayEquals(Arrays.copyOf(DATA, THRESHOLD), out.toByteArray());
+	}
+	
+	@Test
+	public void testOneByteOverThresholdIsCompressed() {
+		for(int chunk : new int[] {1, 7, THRESHOLD, THRESHOLD + 1}) {
+			ThresholdGzipOutputStream out = write(THRESHOLD, THRESHOLD + 1, chunk);
+			assertTrue(String.valueOf(chunk), out.isCompressed());
+			assertArrayEquals(String.valueOf(chunk), Arrays.copyOf(DATA, THRESHOLD + 1), GzipUtils.decompress(out.toByteArray()));
+		}
+	}
+	
+	@Test
+	public void testSwitchInTheMiddleOfAWrite() {
+		for(int chunk : new int[] {3, 64, 99, 1000}) {
+			ThresholdGzipOutputStream out = write(THRESHOLD, DATA.length, chunk);
+			assertTrue(out.isCompressed());
+			assertTrue(out.toByteArray().length < DATA.length);
+			assertArrayEquals(String.valueOf(chunk), DATA, GzipUtils.decompress(out.toByteArray()));
+		}
+	}
+	
+	@Test
+	public void testZeroAndNegativeThreshold() {
+		ThresholdGzipOutputStream out = write(0, 0, 1);
+		assertFalse(out.isCompressed());
+		assertEquals(0, out.toByteArray().length);
+		
+		out = write(0, 1, 1);
+		assertTrue(out.isCompressed());
+		assertArrayEquals(Arrays.copyOf(DATA, 1), GzipUtils.decompress(out.toByteArray()));
+		
+		out = write(-1, DATA.length, 1000);
+		assertFalse(out.isCompressed());
+		assertArrayEquals(DATA, out.toByteArray());
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testToByteArrayBeforeClose() {
+		ThresholdGzipOutputStream out = new ThresholdGzipOutputStream(THRESHOLD);
+		out.write(DATA, 0, 10);
+		out.toByteArray();
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testWriteAfterClose() {
+		ThresholdGzipOutputStream out = write(THRESHOLD, 10, 10);
+		out.write('x');
+	}
+	
+	/**
+	 * 将DATA的前length个字节按每次chunk个字节写入(chunk为1时使用write(int))，然后关闭
+	 */
+	private static ThresholdGzipOutputStream write(int threshold, int length, int chunk) {
+		ThresholdGzipOutputStream out = new ThresholdGzipOutputStream(threshold);
+		for(int off = 0; off < length; off += chunk) {
+			if(chunk == 1) {
+				out.write(DATA[off]);
+			} else {
+				out.write(DATA, off, Math.min(chunk, length - off));
+			}
+		}
+		out.close();
+		return out;
+	}
+	
+	private static byte[] newData(int length) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; sb.length() < length; i++) {
+			sb.append("{\"accountNo\":\"62250000").append(String.format("%08d", i)).append("\",\"accountBalance\":").append(i * 10).append("}, ");
+		}
+		return sb.substring(0, length).getBytes(StandardCharsets.UTF_8);
+	}
+	
+}